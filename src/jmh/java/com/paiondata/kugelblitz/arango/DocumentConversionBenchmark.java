@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of turning a client document into an ArangoDB payload with and without
+ * {@code kugelblitz.arango.documents.stringify-values}.
+ * <p>
+ * Run with the GC profiler to compare the allocations per conversion ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark.args="DocumentConversionBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentConversionBenchmark {
+
+    /**
+     * A document with the value types clients typically send: strings, numbers, booleans, arrays, and nested
+     * objects.
+     */
+    private static final byte[] DOCUMENT = ("{"
+            + "\"name\":\"Kugelblitz\",\"version\":3,\"price\":12.75,\"active\":true,\"deleted\":false,"
+            + "\"tags\":[\"arango\",\"spring\",\"webservice\",\"json\"],"
+            + "\"owner\":{\"id\":42,\"email\":\"owner@example.com\",\"roles\":[\"admin\",\"writer\"]},"
+            + "\"metrics\":{\"reads\":1048576,\"writes\":65536,\"ratio\":0.0625,\"samples\":[1,2,3,5,8,13,21]},"
+            + "\"description\":\"A document of moderate size that is representative of what clients store.\""
+            + "}").getBytes(StandardCharsets.UTF_8);
+
+    private DocumentService stringifying;
+    private DocumentService typePreserving;
+
+    /**
+     * Creates a document service for each conversion.
+     */
+    @Setup
+    public void setUp() {
+        stringifying = new DocumentService();
+        ReflectionTestUtils.setField(stringifying, "stringifyValues", true);
+        typePreserving = new DocumentService();
+    }
+
+    /**
+     * Converts the document the way earlier versions did, by binding it to a map and stringifying its values.
+     *
+     * @return the encoded document
+     *
+     * @throws IOException if the document cannot be read
+     */
+    @Benchmark
+    public JsonBody stringify() throws IOException {
+        try (JsonParser parser = AbstractRestService.JSON_MAPPER.createParser(DOCUMENT)) {
+            return stringifying.toDocument(parser);
+        }
+    }
+
+    /**
+     * Converts the document by copying its tokens.
+     *
+     * @return the encoded document
+     *
+     * @throws IOException if the document cannot be read
+     */
+    @Benchmark
+    public JsonBody passThrough() throws IOException {
+        try (JsonParser parser = AbstractRestService.JSON_MAPPER.createParser(DOCUMENT)) {
+            return typePreserving.toDocument(parser);
+        }
+    }
+}
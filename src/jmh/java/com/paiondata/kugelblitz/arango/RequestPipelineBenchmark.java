@@ -0,0 +1,167 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.paiondata.kugelblitz.Application;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the ArangoDB request pipeline of Kugelblitz, from the service layer down to the HTTP client, against a
+ * {@link StubArangoServer}.
+ * <p>
+ * Each benchmark reports throughput as well as a latency distribution with percentiles. Adding the GC profiler reports
+ * the allocations per request as {@code gc.alloc.rate.norm}:
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark.args="RequestPipelineBenchmark -prof gc"
+ * </pre>
+ * The existence checks look up the last database or collection of the listing, so {@code databases} controls the
+ * length of the scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RequestPipelineBenchmark {
+
+    private static final byte[] DOCUMENT = ("{"
+            + "\"name\":\"Kugelblitz\",\"version\":3,\"price\":12.75,\"active\":true,"
+            + "\"tags\":[\"arango\",\"spring\",\"webservice\",\"json\"],"
+            + "\"owner\":{\"id\":42,\"email\":\"owner@example.com\",\"roles\":[\"admin\",\"writer\"]}"
+            + "}").getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The number of databases, and of collections per database, the stub server lists.
+     */
+    @Param({"10", "1000"})
+    private int databases;
+
+    private StubArangoServer arango;
+    private ConfigurableApplicationContext context;
+
+    private DocumentService documentService;
+    private DatabaseService databaseService;
+    private CollectionService collectionService;
+    private JwtTokenManager jwtTokenManager;
+
+    private String database;
+    private String collection;
+
+    /**
+     * Starts the stub server and a Kugelblitz application context configured against it.
+     *
+     * @throws IOException if the stub server cannot be started
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        arango = new StubArangoServer(databases, Duration.ZERO);
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--kugelblitz.arango.hosts=" + arango.getUrl(),
+                        "--kugelblitz.arango.username=root",
+                        "--kugelblitz.arango.password=root",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN"
+                );
+
+        documentService = context.getBean(DocumentService.class);
+        databaseService = context.getBean(DatabaseService.class);
+        collectionService = context.getBean(CollectionService.class);
+        jwtTokenManager = context.getBean(JwtTokenManager.class);
+
+        database = "db" + (databases - 1);
+        collection = "collection" + (databases - 1);
+    }
+
+    /**
+     * Shuts down the application context and the stub server.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        arango.close();
+    }
+
+    /**
+     * Converts a client document and inserts it.
+     *
+     * @return the insert result
+     *
+     * @throws IOException if the document cannot be read
+     */
+    @Benchmark
+    public JsonNode createDocument() throws IOException {
+        try (JsonParser parser = AbstractRestService.JSON_MAPPER.createParser(DOCUMENT)) {
+            return documentService.createDocument(database, collection, documentService.toDocument(parser)).join();
+        }
+    }
+
+    /**
+     * Lists the databases and looks one up.
+     *
+     * @return whether the database exists
+     */
+    @Benchmark
+    public boolean databaseExists() {
+        return databaseService.databaseExists(database).join();
+    }
+
+    /**
+     * Lists the collections of a database and looks one up.
+     *
+     * @return whether the collection exists
+     */
+    @Benchmark
+    public boolean collectionExists() {
+        return collectionService.collectionExists(database, collection).join();
+    }
+
+    /**
+     * Discards the cached JWT token and authenticates again, as happens when ArangoDB rejects a token.
+     *
+     * @return the new token
+     */
+    @Benchmark
+    public String authenticate() {
+        jwtTokenManager.invalidate(jwtTokenManager.getToken().join());
+        return jwtTokenManager.getToken().join();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.arangodb.jackson.dataformat.velocypack.VPackMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of exchanging a chunk of documents with ArangoDB as JSON and as VelocyPack
+ * ({@code kugelblitz.arango.wire-format}).
+ * <p>
+ * The {@code send} benchmarks prepare a request body from the JSON a client sent, which is free for JSON and a
+ * transcoding for VelocyPack; the {@code receive} benchmarks parse a response body. Divide the scores by
+ * {@code documents} for the CPU time per document. The bytes on the wire per document are printed at setup:
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark.args="WireFormatBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    /**
+     * A document with the value types clients typically send, with {@code %d} for its key and counters.
+     */
+    private static final String DOCUMENT = "{\"_key\":\"doc-%1$d\","
+            + "\"name\":\"Kugelblitz\",\"version\":%1$d,\"price\":12.75,\"active\":true,\"deleted\":false,"
+            + "\"tags\":[\"arango\",\"spring\",\"webservice\",\"json\"],"
+            + "\"owner\":{\"id\":42,\"email\":\"owner@example.com\",\"roles\":[\"admin\",\"writer\"]},"
+            + "\"metrics\":{\"reads\":1048576,\"writes\":65536,\"ratio\":0.0625,\"samples\":[1,2,3,5,8,13,21]},"
+            + "\"description\":\"A document of moderate size that is representative of what clients store.\""
+            + "}";
+
+    /**
+     * The number of documents in a chunk.
+     */
+    @Param({"1", "500"})
+    public int documents;
+
+    private JsonBody payload;
+    private byte[] json;
+    private byte[] velocyPack;
+
+    /**
+     * Encodes the chunk in both formats and prints their sizes.
+     *
+     * @throws IOException if the chunk cannot be encoded
+     */
+    @Setup
+    public void setUp() throws IOException {
+        final StringBuilder chunk = new StringBuilder("[");
+        for (int i = 0; i < documents; i++) {
+            chunk.append(i == 0 ? "" : ",").append(String.format(DOCUMENT, i));
+        }
+        json = chunk.append("]").toString().getBytes(StandardCharsets.UTF_8);
+        payload = JsonBody.wrap(json);
+
+        final JsonNode tree = AbstractRestService.JSON_MAPPER.readTree(json);
+        velocyPack = new VPackMapper().writeValueAsBytes(tree);
+
+        System.out.printf(
+                "%n%d documents: JSON %d bytes (%d per document), VelocyPack %d bytes (%d per document)%n",
+                documents,
+                json.length,
+                json.length / documents,
+                velocyPack.length,
+                velocyPack.length / documents
+        );
+    }
+
+    /**
+     * Prepares the request body of the chunk as JSON.
+     *
+     * @return the body publisher
+     */
+    @Benchmark
+    public HttpRequest.BodyPublisher sendJson() {
+        return WireFormat.JSON.publisher(payload);
+    }
+
+    /**
+     * Prepares the request body of the chunk as VelocyPack.
+     *
+     * @return the body publisher
+     */
+    @Benchmark
+    public HttpRequest.BodyPublisher sendVelocyPack() {
+        return WireFormat.VELOCYPACK.publisher(payload);
+    }
+
+    /**
+     * Parses the chunk received as JSON.
+     *
+     * @return the parsed chunk
+     *
+     * @throws IOException if the chunk cannot be parsed
+     */
+    @Benchmark
+    public JsonNode receiveJson() throws IOException {
+        return WireFormat.JSON.readTree(new ByteArrayInputStream(json));
+    }
+
+    /**
+     * Parses the chunk received as VelocyPack.
+     *
+     * @return the parsed chunk
+     *
+     * @throws IOException if the chunk cannot be parsed
+     */
+    @Benchmark
+    public JsonNode receiveVelocyPack() throws IOException {
+        return WireFormat.VELOCYPACK.readTree(new ByteArrayInputStream(velocyPack));
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/**
+ * Trace export configuration.
+ * <p>
+ * Spans are exported through OTLP once {@code management.otlp.tracing.endpoint} is set, for example to
+ * {@code http://localhost:4318/v1/traces} for a local OpenTelemetry Collector. Setting
+ * {@code kugelblitz.tracing.log-spans} to {@code true} additionally writes every finished span to the application log,
+ * which needs no collector at all.
+ */
+@Configuration
+public class TracingConfig {
+
+    /**
+     * Configures the exporter that writes spans to the application log.
+     *
+     * @return an exporter logging each span at {@code INFO} level
+     */
+    @Bean
+    @ConditionalOnProperty(name = "kugelblitz.tracing.log-spans", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+}
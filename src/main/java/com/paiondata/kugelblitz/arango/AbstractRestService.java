@@ -15,27 +15,34 @@
  */
 package com.paiondata.kugelblitz.arango;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
+import java.io.InputStream;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.Arrays;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
 /**
  * {@link AbstractRestService} abstracts away the ArangoDB REST API request implementation.
  * <p>
+ * Service methods wrap their work in {@link #observe(String, Supplier)}, so that each invocation is traced as a span
+ * enclosing the spans of the ArangoDB requests it sends. Requests that fail transiently, for example while a
+ * coordinator restarts, are attempted again as the {@link RetryPolicy} allows.
+ * <p>
  * See https://arango.paion-data.dev/stable/develop/http-api/ for more information.
  */
 abstract class AbstractRestService {
@@ -43,122 +50,372 @@ abstract class AbstractRestService {
     protected static final ObjectMapper JSON_MAPPER = new ObjectMapper();
     protected static final String FAILED_REQUEST_MESSAGE = "There is a backend error. Please contact backend team";
 
-    private static final HttpClient HTTP_CLIENT = HttpClient.newHttpClient();
     private static final Logger LOG = LoggerFactory.getLogger(AbstractRestService.class);
 
-    @Value("${kugelblitz.arango.hosts}")
-    protected String host;
+    @Autowired
+    private ArangoHttpClient arangoHttpClient;
+
+    @Autowired
+    private ArangoCoordinators arangoCoordinators;
+
+    @Autowired
+    private JwtTokenManager jwtTokenManager;
 
-    @Value("${kugelblitz.arango.username}")
-    protected String username;
+    @Autowired
+    private RetryPolicy retryPolicy;
+
+    @Autowired(required = false)
+    private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+    @Value("${kugelblitz.arango.wire-format:json}")
+    private WireFormat wireFormat = WireFormat.JSON;
+
+    /**
+     * Observes an asynchronous method of this service.
+     *
+     * @param method  The name of the method
+     * @param call  Invokes the method
+     * @param <T>  The result type
+     *
+     * @return the future returned by the method
+     *
+     * @see Observations#observe(ObservationRegistry, Class, String, Supplier)
+     */
+    protected <T> CompletableFuture<T> observe(final String method, final Supplier<CompletableFuture<T>> call) {
+        return Observations.observe(observationRegistry, getClass(), method, call);
+    }
 
-    @Value("${kugelblitz.arango.password}")
-    protected String password;
+    /**
+     * Returns the observation of the caller of this service.
+     * <p>
+     * Work that continues a service call on another thread, such as reading further batches of a cursor, runs within
+     * the scope of that observation to be traced as part of the same client request.
+     *
+     * @return the current observation, or {@code null} if there is none
+     */
+    protected Observation getCurrentObservation() {
+        return observationRegistry.getCurrentObservation();
+    }
 
     /**
      * Sends an GET request to ArangoDB REST API endpoint.
      * <p>
-     * If the API endpoint reports an error, this method will immediately abort the client request with an error
-     * message.
+     * If the API endpoint reports an error, the returned future fails with an {@link ArangoApiException}. GET
+     * requests are idempotent and therefore retried on another coordinator if the chosen one is unavailable.
      *
-     * @param uri  The URL of the GET endpoint
+     * @param operation  What the request does, used for logging and metrics
+     * @param path  The path of the GET endpoint, such as {@code /_db/_system/_api/database}
      *
-     * @return the data of a successful API request
+     * @return a future of the data of a successful API request
      */
-    protected JsonNode get(final String uri) {
-        HttpResponse<String> response = null;
+    protected CompletableFuture<JsonNode> getAsync(final ArangoOperation operation, final String path) {
+        return retryPolicy.execute(operation, true, () -> sendAuthenticated(
+                operation,
+                path,
+                true,
+                (uri, jwt) -> arangoHttpClient.newRequest(uri)
+                        .GET()
+                        .header("Accept", wireFormat.getContentType())
+                        .header("Authorization", "bearer " + jwt)
+                        .build()
+        ).thenApply(response -> {
+            if (response.statusCode() != 200) {
+                throw apiError(operation, response);
+            }
+            return readBody(operation, response);
+        }));
+    }
 
-        try {
-            response = HTTP_CLIENT.send(
-                    HttpRequest.newBuilder()
-                            .uri(URI.create(uri))
-                            .GET()
-                            .header("Authorization", "bearer " + getJwtToken())
-                            .build(),
-                    HttpResponse.BodyHandlers.ofString()
-            );
-        } catch (final IOException exception) {
-            LOG.error(String.format("I/O error on ArangoDB GET API request: %s", exception.getMessage()), exception);
-            throw new IllegalStateException(FAILED_REQUEST_MESSAGE, exception);
-        } catch (final InterruptedException exception) {
-            LOG.error(
-                    String.format("Unexpected abort on ArangoDB GET API request: %s", exception.getMessage()),
-                    exception
-            );
-            throw new IllegalStateException(FAILED_REQUEST_MESSAGE, exception);
-        }
+    /**
+     * Sends an authenticated GET request with additional headers to ArangoDB REST API endpoint and hands back its
+     * response, whatever its status.
+     * <p>
+     * This is for endpoints that answer with more than {@code 200 OK} and an error, such as conditional requests. The
+     * caller must close the response body.
+     *
+     * @param operation  What the request does, used for logging and metrics
+     * @param path  The path of the GET endpoint, such as {@code /_db/mydatabase/_api/document/mycollection/mykey}
+     * @param headers  The headers to add to the request, such as {@code If-None-Match}
+     *
+     * @return a future of the response
+     */
+    protected CompletableFuture<HttpResponse<InputStream>> getResponseAsync(
+            final ArangoOperation operation,
+            final String path,
+            final Map<String, String> headers
+    ) {
+        return retryPolicy.execute(operation, true, () -> sendAuthenticated(operation, path, true, (uri, jwt) -> {
+            final HttpRequest.Builder request = arangoHttpClient.newRequest(uri)
+                    .GET()
+                    .header("Authorization", "bearer " + jwt);
+            headers.forEach(request::header);
+            return request.build();
+        }));
+    }
 
-        if (response.statusCode() != 200) {
-            LOG.error(String.format("ArangoDB GET API error: %s", response.body()));
-            throw new IllegalStateException(FAILED_REQUEST_MESSAGE);
-        }
+    /**
+     * Sends an authenticated JSON PUT request with an already encoded payload to ArangoDB REST API endpoint.
+     * <p>
+     * PUT requests replace or, with {@code onlyget}, read; they are idempotent and therefore retried on another
+     * coordinator if the chosen one is unavailable.
+     *
+     * @param operation  What the request does, used for logging and metrics
+     * @param path  The path of the PUT endpoint, such as {@code /_db/mydatabase/_api/document/mycollection}
+     * @param payload  The encoded payload
+     *
+     * @return a future of the PUT response body represented by a {@link JsonNode}
+     */
+    protected CompletableFuture<JsonNode> putAsync(
+            final ArangoOperation operation,
+            final String path,
+            final JsonBody payload
+    ) {
+        return putAsync(operation, path, payload, true);
+    }
 
-        try {
-            return JSON_MAPPER.readTree(response.body());
-        } catch (final JsonProcessingException exception) {
-            LOG.error(
-                    String.format("Jackson deserialization error on GET reponse: %s", exception.getMessage()),
-                    exception
-            );
-            throw new RuntimeException(FAILED_REQUEST_MESSAGE, exception);
-        }
+    /**
+     * Sends an authenticated JSON PUT request with an already encoded payload to ArangoDB REST API endpoint, which
+     * is retried on another coordinator only if it is idempotent.
+     * <p>
+     * Not every PUT is idempotent: reading the next batch of a cursor, for example, advances it.
+     *
+     * @param operation  What the request does, used for logging and metrics
+     * @param path  The path of the PUT endpoint, such as {@code /_db/mydatabase/_api/cursor/12345}
+     * @param payload  The encoded payload
+     * @param idempotent  Whether or not the request may be repeated on another coordinator
+     *
+     * @return a future of the PUT response body represented by a {@link JsonNode}
+     */
+    protected CompletableFuture<JsonNode> putAsync(
+            final ArangoOperation operation,
+            final String path,
+            final JsonBody payload,
+            final boolean idempotent
+    ) {
+        return sendPayload(operation, path, idempotent, "PUT", payload);
     }
 
     /**
-     * Send a POST with the specified API URL, payload, and headers.
+     * Sends an authenticated JSON PATCH request with an already encoded payload to ArangoDB REST API endpoint.
      * <p>
-     * Note that the POST request does not necessarily have to be sent against an ArangoDB.
+     * PATCH requests merge the payload into existing documents, which has the same outcome however often it is done;
+     * they are therefore retried on another coordinator if the chosen one is unavailable.
      *
-     * @param uri  The provided URL to send the request to
-     * @param payload  The provided payload in {@link ObjectNode} representation. The JSON payload field name
-     * corresponds to the {@link ObjectNode} field name and JSON field value to {@link ObjectNode} field value
-     * @param headers  A map of headers with key representing the header key and value being the header value
+     * @param operation  What the request does, used for logging and metrics
+     * @param path  The path of the PATCH endpoint, such as {@code /_db/mydatabase/_api/document/mycollection}
+     * @param payload  The encoded payload
      *
-     * @return The POST response body represented by a {@link JsonNode}
+     * @return a future of the PATCH response body represented by a {@link JsonNode}
      */
-    protected static JsonNode post(final String uri, final ObjectNode payload, final Map<String, String> headers) {
-        HttpResponse<String> response = null;
+    protected CompletableFuture<JsonNode> patchAsync(
+            final ArangoOperation operation,
+            final String path,
+            final JsonBody payload
+    ) {
+        return sendPayload(operation, path, true, "PATCH", payload);
+    }
 
-        try {
-            response = HTTP_CLIENT.send(
-                    HttpRequest.newBuilder()
-                            .uri(URI.create(uri))
-                            .POST(HttpRequest.BodyPublishers.ofString(JSON_MAPPER.writeValueAsString(payload)))
-                            .headers(
-                                    headers
-                                            .entrySet()
-                                            .stream()
-                                            .map(entry -> Arrays.asList(entry.getKey(), entry.getValue()))
-                                            .flatMap(List::stream)
-                                            .toList()
-                                            .toArray(String[]::new)
-                            )
-                            .build(),
-                    HttpResponse.BodyHandlers.ofString()
-            );
-        } catch (final IOException exception) {
-            final String errorMessage = String.format("I/O error: %s", exception.getMessage());
-            LOG.error(errorMessage, exception);
-            throw new IllegalStateException(FAILED_REQUEST_MESSAGE, exception);
-        } catch (final InterruptedException exception) {
-            final String errorMessage = String.format(
-                    "Unexpected abort on ArangoDB POST API request: %s",
-                    exception.getMessage()
-            );
-            LOG.error(errorMessage, exception);
-            throw new IllegalStateException(FAILED_REQUEST_MESSAGE, exception);
-        }
+    /**
+     * Sends an authenticated DELETE request to ArangoDB REST API endpoint.
+     * <p>
+     * DELETE requests are idempotent and therefore retried on another coordinator if the chosen one is unavailable.
+     *
+     * @param operation  What the request does, used for logging and metrics
+     * @param path  The path of the DELETE endpoint, such as {@code /_db/mydatabase/_api/cursor/12345}
+     *
+     * @return a future of the DELETE response body represented by a {@link JsonNode}
+     */
+    protected CompletableFuture<JsonNode> deleteAsync(final ArangoOperation operation, final String path) {
+        return retryPolicy.execute(operation, true, () -> sendAuthenticated(
+                operation,
+                path,
+                true,
+                (uri, jwt) -> arangoHttpClient.newRequest(uri)
+                        .DELETE()
+                        .header("Accept", wireFormat.getContentType())
+                        .header("Authorization", "bearer " + jwt)
+                        .build()
+        ).thenApply(response -> parsePostResponse(operation, response)));
+    }
+
+    /**
+     * Sends an authenticated DELETE request with an already encoded payload, such as the keys of the documents to be
+     * deleted, to ArangoDB REST API endpoint.
+     * <p>
+     * Unlike a DELETE of a single resource, such a request is not repeated after it may have reached ArangoDB: a
+     * repeated delete would answer every document the first attempt deleted with a per-document
+     * {@code 1202 document not found} error, which carries no {@code _id} to evict the document from the read cache
+     * by.
+     *
+     * @param operation  What the request does, used for logging and metrics
+     * @param path  The path of the DELETE endpoint, such as {@code /_db/mydatabase/_api/document/mycollection}
+     * @param payload  The encoded payload
+     *
+     * @return a future of the DELETE response body represented by a {@link JsonNode}
+     */
+    protected CompletableFuture<JsonNode> deleteAsync(
+            final ArangoOperation operation,
+            final String path,
+            final JsonBody payload
+    ) {
+        return sendPayload(operation, path, false, "DELETE", payload);
+    }
+
+    /**
+     * Sends an authenticated JSON POST request to ArangoDB REST API endpoint.
+     *
+     * @param operation  What the request does, used for logging and metrics
+     * @param path  The path of the POST endpoint, such as {@code /_db/mydatabase/_api/document/mycollection}
+     * @param payload  The provided payload, a JSON object or, for endpoints that accept it, a JSON array
+     *
+     * @return a future of the POST response body represented by a {@link JsonNode}
+     */
+    protected CompletableFuture<JsonNode> postAsync(
+            final ArangoOperation operation,
+            final String path,
+            final JsonNode payload
+    ) {
+        return postAsync(operation, path, JsonBody.of(payload));
+    }
+
+    /**
+     * Sends an authenticated JSON POST request with an already encoded payload to ArangoDB REST API endpoint.
+     *
+     * @param operation  What the request does, used for logging and metrics
+     * @param path  The path of the POST endpoint, such as {@code /_db/mydatabase/_api/document/mycollection}
+     * @param payload  The encoded payload
+     *
+     * @return a future of the POST response body represented by a {@link JsonNode}
+     */
+    protected CompletableFuture<JsonNode> postAsync(
+            final ArangoOperation operation,
+            final String path,
+            final JsonBody payload
+    ) {
+        return sendPayload(operation, path, false, "POST", payload);
+    }
+
+    /**
+     * Sends an authenticated request with an already encoded payload to ArangoDB REST API endpoint and parses its
+     * response.
+     * <p>
+     * The payload is sent in the configured {@link WireFormat}, except to the import API, which reads JSON text only,
+     * and compressed if it is large enough. It is transcoded and compressed once, however often the request is
+     * attempted, on other coordinators or again by the {@link RetryPolicy}.
+     *
+     * @param operation  What the request does, used for logging and metrics
+     * @param path  The path of the endpoint
+     * @param idempotent  Whether or not the request may be repeated on another coordinator
+     * @param method  The HTTP method, such as {@code POST}
+     * @param payload  The encoded payload
+     *
+     * @return a future of the response body represented by a {@link JsonNode}
+     */
+    private CompletableFuture<JsonNode> sendPayload(
+            final ArangoOperation operation,
+            final String path,
+            final boolean idempotent,
+            final String method,
+            final JsonBody payload
+    ) {
+        final WireFormat format = operation == ArangoOperation.IMPORT_DOCUMENTS ? WireFormat.JSON : wireFormat;
+        final ContentEncoding encoding = arangoHttpClient.requestEncodingOf(payload.length());
+        final HttpRequest.BodyPublisher body = encoding == ContentEncoding.IDENTITY
+                ? format.publisher(payload)
+                : HttpRequest.BodyPublishers.ofByteArray(
+                        arangoHttpClient.compress(operation, encoding, format.encode(payload))
+                );
+
+        return retryPolicy.execute(operation, idempotent, () -> sendAuthenticated(
+                operation,
+                path,
+                idempotent,
+                (uri, jwt) -> {
+                    final HttpRequest.Builder request = arangoHttpClient.newRequest(uri)
+                            .method(method, body)
+                            .header("Content-Type", format.getContentType())
+                            .header("Accept", wireFormat.getContentType())
+                            .header("Authorization", "bearer " + jwt);
+                    if (encoding != ContentEncoding.IDENTITY) {
+                        request.header("Content-Encoding", encoding.getToken());
+                    }
+                    return request.build();
+                }
+        ).thenApply(response -> parsePostResponse(operation, response)));
+    }
+
+    /**
+     * Sends a request carrying the shared JWT token to one of the ArangoDB coordinators.
+     * <p>
+     * If ArangoDB rejects the token with {@code 401 Unauthorized}, for example because the server-side session was
+     * dropped, the token is invalidated and the request is retried exactly once with a freshly obtained token. The body
+     * of the rejection is discarded first, so that its connection is free for the retry.
+     *
+     * @param operation  What the request does, used for logging and metrics
+     * @param path  The path of the endpoint
+     * @param idempotent  Whether or not the request may be repeated on another coordinator
+     * @param request  Builds the request for a given full URL and JWT token
+     *
+     * @return a future of the response of the last attempt
+     */
+    private CompletableFuture<HttpResponse<InputStream>> sendAuthenticated(
+            final ArangoOperation operation,
+            final String path,
+            final boolean idempotent,
+            final BiFunction<String, String, HttpRequest> request
+    ) {
+        return arangoCoordinators.send(idempotent, host -> jwtTokenManager.getToken().thenCompose(jwt -> {
+            final String uri = host + path;
 
+            return arangoHttpClient.sendAsync(request.apply(uri, jwt), operation).thenCompose(response -> {
+                if (response.statusCode() != 401) {
+                    return CompletableFuture.completedFuture(response);
+                }
+
+                LOG.info(String.format("ArangoDB rejected JWT token on %s %s; re-authenticating", operation, uri));
+                closeQuietly(response);
+                jwtTokenManager.invalidate(jwt);
+                return jwtTokenManager.getToken()
+                        .thenCompose(fresh -> arangoHttpClient.sendAsync(request.apply(uri, fresh), operation));
+            });
+        }));
+    }
+
+    /**
+     * Checks the status of a POST, PUT, or DELETE response and parses its body.
+     *
+     * @param operation  What the request did, used for logging
+     * @param response  The POST, PUT, or DELETE response
+     *
+     * @return The response body represented by a {@link JsonNode}
+     */
+    static JsonNode parsePostResponse(final ArangoOperation operation, final HttpResponse<InputStream> response) {
         if (response.statusCode() >= 400) {
-            LOG.error(String.format("ArangoDB POST API error: %s", response.body()));
-            throw new IllegalStateException(FAILED_REQUEST_MESSAGE);
+            throw apiError(operation, response);
         }
 
-        try {
-            return JSON_MAPPER.readTree(response.body());
-        } catch (final JsonProcessingException exception) {
+        return readBody(operation, response);
+    }
+
+    /**
+     * Parses a response body, while it is being received if it is JSON.
+     *
+     * @param operation  What the request did, used for logging
+     * @param response  The response, whose body stream is closed afterwards
+     *
+     * @return the response body, JSON or VelocyPack depending on its {@code Content-Type}, represented by a
+     * {@link JsonNode}
+     */
+    private static JsonNode readBody(final ArangoOperation operation, final HttpResponse<InputStream> response) {
+        try (InputStream body = response.body()) {
+            return WireFormat.of(response).readTree(body);
+        } catch (final IOException exception) {
             LOG.error(
-                    String.format("Jackson deserialization error on POST response: %s", exception.getMessage()),
+                    String.format(
+                            "Jackson deserialization error on %s response: %s",
+                            operation,
+                            exception.getMessage()
+                    ),
                     exception
             );
             throw new RuntimeException(FAILED_REQUEST_MESSAGE, exception);
@@ -166,18 +423,61 @@ abstract class AbstractRestService {
     }
 
     /**
-     * Sends an authentication request to Arango auth endpoint and returns a JWT token.
+     * Discards the body of a response that is not read, such as {@code 304 Not Modified}, so that its connection is
+     * given back.
+     *
+     * @param response  The response
+     */
+    protected static void closeQuietly(final HttpResponse<InputStream> response) {
+        try {
+            response.body().close();
+        } catch (final IOException ignored) {
+            // nothing to release
+        }
+    }
+
+    /**
+     * Logs an ArangoDB error response and converts it into an exception.
      * <p>
-     * See https://arango.paion-data.dev/stable/develop/http-api/authentication/ for more info
+     * {@code 404 Not Found} is logged at debug level only: a missing document, collection, or database is an expected
+     * outcome of reads, and of optimistic writes, rather than a fault. So is {@code 400 Bad Request}, which reports
+     * what a client sent, such as an invalid AQL query.
      *
-     * @return a string representing the JWT token
+     * @param operation  What the request did, used for logging
+     * @param response  The error response, whose body stream is closed afterwards
+     *
+     * @return an exception carrying the HTTP status and the ArangoDB error number of the response
      */
-    protected String getJwtToken() {
-        final ObjectNode credential = JSON_MAPPER.createObjectNode();
-        credential.put("username", username);
-        credential.put("password", password);
+    protected static ArangoApiException apiError(
+            final ArangoOperation operation,
+            final HttpResponse<InputStream> response
+    ) {
+        byte[] body = new byte[0];
+        try (InputStream stream = response.body()) {
+            body = stream.readAllBytes();
+        } catch (final IOException exception) {
+            LOG.debug("Cannot read ArangoDB error response", exception);
+        }
+
+        JsonNode error = JSON_MAPPER.missingNode();
+        try {
+            error = WireFormat.of(response).readTree(body);
+        } catch (final IOException exception) {
+            LOG.debug("ArangoDB error response is neither JSON nor VelocyPack", exception);
+        }
+
+        final String text = error.isMissingNode() ? new String(body, StandardCharsets.UTF_8) : error.toString();
+        if (response.statusCode() == 400 || response.statusCode() == 404) {
+            LOG.debug(String.format("ArangoDB %s API error: %s", operation, text));
+        } else {
+            LOG.error(String.format("ArangoDB %s API error: %s", operation, text));
+        }
 
-        return post(host + "/_open/auth", credential, Map.of("Content-Type", "application/json"))
-                .get("jwt").asText();
+        return new ArangoApiException(
+                FAILED_REQUEST_MESSAGE,
+                response.statusCode(),
+                error.path("errorNum").asInt(),
+                error.path("errorMessage").asText()
+        );
     }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link AdaptiveLimit} adjusts the number of concurrent requests to ArangoDB to the latency ArangoDB answers with,
+ * by additive increase and multiplicative decrease (AIMD).
+ * <p>
+ * Each operation has a baseline round-trip time, a slow-moving average of its round trips, so that quick document reads
+ * and long bulk imports are each compared with their own kind. Only round trips within tolerance make up the baseline:
+ * were slow ones averaged in too, a sustained slowdown, such as a compaction, would become the new usual within a few
+ * hundred requests, and the limit would grow again while ArangoDB is still degraded. A round trip within
+ * {@code tolerance} times its baseline, while the limit is in use, raises the limit by one per limit's worth of round
+ * trips. A slower round trip, or a request that ArangoDB could not serve, lowers the limit by {@code backoffRatio}, at
+ * most once per round trip, since the requests already underway were started under the old limit. Requests beyond the
+ * limit wait in Kugelblitz rather than queueing up in the coordinators.
+ */
+final class AdaptiveLimit {
+
+    /**
+     * The weight of a round trip in the baseline, which averages over about the last 500 round trips.
+     */
+    private static final double SMOOTHING = 2.0 / (500 + 1);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<ArangoOperation, Double> baselines = new EnumMap<>(ArangoOperation.class);
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+
+    private double limit;
+    private long lastDecrease;
+    private long latencyDecreases;
+    private long failureDecreases;
+
+    /**
+     * Constructor.
+     *
+     * @param initialLimit  The limit to start with
+     * @param minLimit  The lowest limit, at least one
+     * @param maxLimit  The highest limit
+     * @param tolerance  How many times its baseline a round trip may take before the limit is lowered
+     * @param backoffRatio  The factor by which the limit is lowered, between zero and one
+     */
+    AdaptiveLimit(
+            final int initialLimit,
+            final int minLimit,
+            final int maxLimit,
+            final double tolerance,
+            final double backoffRatio
+    ) {
+        this.minLimit = Math.max(1, Math.min(minLimit, maxLimit));
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(this.minLimit, Math.min(initialLimit, maxLimit));
+        this.lastDecrease = System.nanoTime();
+    }
+
+    /**
+     * Adjusts the limit to a completed request.
+     *
+     * @param operation  What the request did
+     * @param roundTrip  How long the request took, in nanoseconds
+     * @param inFlight  The number of requests in flight when the request was sent, including itself
+     * @param dropped  Whether ArangoDB could not serve the request, for example because it timed out or answered
+     * {@code 503 Service Unavailable}
+     * @param now  The current {@link System#nanoTime()}
+     *
+     * @return the new limit
+     */
+    int onSample(
+            final ArangoOperation operation,
+            final long roundTrip,
+            final int inFlight,
+            final boolean dropped,
+            final long now
+    ) {
+        lock.lock();
+        try {
+            if (dropped) {
+                if (decrease(roundTrip, now)) {
+                    failureDecreases++;
+                }
+                return getLimit();
+            }
+
+            final double baseline = baselines.getOrDefault(operation, (double) roundTrip);
+            if (roundTrip > baseline * tolerance) {
+                if (decrease(roundTrip, now)) {
+                    latencyDecreases++;
+                }
+                return getLimit();
+            }
+
+            baselines.put(operation, baseline + (roundTrip - baseline) * SMOOTHING);
+            if (inFlight * 2 >= limit) {
+                // an unused limit proves nothing about whether a higher one would be served as quickly
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            return getLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return the number of requests allowed in flight
+     */
+    int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how often the limit was lowered because of latency.
+     *
+     * @return the number of decreases caused by slow round trips
+     */
+    long getLatencyDecreases() {
+        lock.lock();
+        try {
+            return latencyDecreases;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how often the limit was lowered because of failed requests.
+     *
+     * @return the number of decreases caused by requests ArangoDB could not serve
+     */
+    long getFailureDecreases() {
+        lock.lock();
+        try {
+            return failureDecreases;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lowers the limit, unless the request was sent before the last decrease.
+     *
+     * @param roundTrip  How long the request took, in nanoseconds
+     * @param now  The current {@link System#nanoTime()}
+     *
+     * @return whether the limit was lowered
+     */
+    private boolean decrease(final long roundTrip, final long now) {
+        if (now - roundTrip - lastDecrease < 0) {
+            return false;
+        }
+        limit = Math.max(minLimit, limit * backoffRatio);
+        lastDecrease = now;
+        return true;
+    }
+}
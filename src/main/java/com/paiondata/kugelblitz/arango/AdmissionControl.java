@@ -0,0 +1,420 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link AdmissionControl} decides which requests to the {@code /arango} endpoints are served, so that one database,
+ * that is, one tenant, cannot take ArangoDB and the shared HTTP client away from the others.
+ * <p>
+ * A request passes three checks before it reaches the service layer:
+ * <ol>
+ *     <li> The rate limit of its database and, optionally, of its collection: each database and collection has a
+ *          {@link TokenBucket} that admits {@code rate} requests per second, with bursts of up to {@code burst}
+ *          requests. A request finding the bucket empty is rejected right away.
+ *     <li> The concurrency limit of its database: a database is served at most
+ *          {@code kugelblitz.arango.admission.database.max-concurrent} requests at the same time, so that a few long
+ *          bulk loads cannot take all of the global slots. A request over the limit is rejected right away.
+ *     <li> The global concurrency limit: at most {@code kugelblitz.arango.admission.max-concurrent} requests are
+ *          served at the same time, until their response is complete. Further requests wait for up to
+ *          {@code kugelblitz.arango.admission.max-wait}, first come, first served, and are rejected afterwards.
+ * </ol>
+ * Rejected requests are answered with {@code 429 Too Many Requests} and a {@code Retry-After} header. Limits are
+ * configured with the following properties, where a rate of {@code 0} means unlimited:
+ * <ul>
+ *     <li> {@code kugelblitz.arango.admission.database.rate} and {@code .burst}: the limit of every database (default
+ *          unlimited); the burst defaults to one second's worth of requests
+ *     <li> {@code kugelblitz.arango.admission.databases.<database>.rate} and {@code .burst}: the limit of one
+ *          database, overriding the above
+ *     <li> {@code kugelblitz.arango.admission.collection.rate} and {@code .burst}: the limit of every collection
+ *          (default unlimited)
+ *     <li> {@code kugelblitz.arango.admission.database.max-concurrent}: the concurrency limit of every database
+ *          (default unlimited)
+ *     <li> {@code kugelblitz.arango.admission.max-concurrent}: the global concurrency limit (default unlimited)
+ *     <li> {@code kugelblitz.arango.admission.max-wait}: how long a request waits for the concurrency limit (default 1
+ *          second). Waiting occupies the request thread, which is cheap with virtual threads only
+ * </ul>
+ * Every request is counted by {@code kugelblitz.arango.admission.requests}, tagged with its {@code database} and its
+ * {@code result}: {@code admitted}, {@code rate-limited}, or {@code concurrency-limited}. Only databases with limits of
+ * their own are tagged by name; all others share the tag {@code other}, since database names come from the request
+ * path and each name would otherwise create meters of its own. The time spent waiting for
+ * the concurrency limit is recorded by {@code kugelblitz.arango.admission.wait}, and the number of served and waiting
+ * requests are exposed as gauges under {@code kugelblitz.arango.admission.*}.
+ */
+@Component
+class AdmissionControl implements AsyncHandlerInterceptor, WebMvcConfigurer, InitializingBean, MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdmissionControl.class);
+
+    private static final String PERMIT = AdmissionControl.class.getName() + ".permit";
+    private static final String NO_DATABASE = "none";
+    private static final String OTHER_DATABASE = "other";
+    private static final String DATABASE_PREFIX = "kugelblitz.arango.admission.databases.";
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistries;
+
+    @Value("${kugelblitz.arango.admission.database.rate:0}")
+    private double databaseRate;
+
+    @Value("${kugelblitz.arango.admission.database.burst:0}")
+    private int databaseBurst;
+
+    @Value("${kugelblitz.arango.admission.collection.rate:0}")
+    private double collectionRate;
+
+    @Value("${kugelblitz.arango.admission.collection.burst:0}")
+    private int collectionBurst;
+
+    @Value("${kugelblitz.arango.admission.database.max-concurrent:0}")
+    private int databaseMaxConcurrent;
+
+    @Value("${kugelblitz.arango.admission.max-concurrent:0}")
+    private int maxConcurrent;
+
+    @Value("${kugelblitz.arango.admission.max-wait:PT1S}")
+    private Duration maxWait;
+
+    private final Cache<String, Optional<TokenBucket>> buckets = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+    private final ConcurrentHashMap<String, Integer> inFlightByDatabase = new ConcurrentHashMap<>();
+
+    private MeterRegistry meterRegistry;
+    private InFlightLimiter limiter;
+    private Timer waits;
+
+    @Override
+    public void afterPropertiesSet() {
+        meterRegistry = meterRegistries.getIfAvailable(() -> Metrics.globalRegistry);
+        limiter = maxConcurrent > 0 ? new InFlightLimiter(maxConcurrent) : null;
+        waits = Timer.builder("kugelblitz.arango.admission.wait")
+                .description("Time requests waited for the concurrency limit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        if (limiter == null) {
+            return;
+        }
+        Gauge.builder("kugelblitz.arango.admission.in-flight", limiter, InFlightLimiter::getInFlight)
+                .description("Number of requests being served")
+                .register(registry);
+        Gauge.builder("kugelblitz.arango.admission.waiting", limiter, InFlightLimiter::getWaiting)
+                .description("Number of requests waiting for the concurrency limit")
+                .register(registry);
+        Gauge.builder("kugelblitz.arango.admission.max-concurrent", limiter, InFlightLimiter::getLimit)
+                .description("Maximum number of requests served at the same time")
+                .register(registry);
+    }
+
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/arango/**");
+    }
+
+    @Override
+    public boolean preHandle(
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            final Object handler
+    ) throws IOException {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            // the asynchronous dispatch of a request that was admitted already
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        final Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        final String database = variables == null ? null : variables.get("database");
+        final String collection = variables == null ? null : variables.get("collection");
+
+        if (database != null) {
+            final Optional<TokenBucket> databaseBucket = bucketOf(database, null);
+            long wait = databaseBucket.map(TokenBucket::tryAcquire).orElse(0L);
+            if (wait == 0 && collection != null) {
+                wait = bucketOf(database, collection).map(TokenBucket::tryAcquire).orElse(0L);
+                if (wait > 0) {
+                    // a request the collection rejects does not use up the rate of its database
+                    databaseBucket.ifPresent(TokenBucket::release);
+                }
+            }
+            if (wait > 0) {
+                return reject(response, database, "rate-limited", wait);
+            }
+        }
+
+        final boolean local = database != null && databaseMaxConcurrent > 0;
+        if (local && inFlightByDatabase.merge(database, 1, Integer::sum) > databaseMaxConcurrent) {
+            leave(database);
+            return reject(response, database, "concurrency-limited", TimeUnit.SECONDS.toNanos(1));
+        }
+
+        if (limiter != null) {
+            final long start = System.nanoTime();
+            try {
+                limiter.acquire(maxWait).join();
+            } catch (final CompletionException timeout) {
+                waits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (local) {
+                    leave(database);
+                }
+                return reject(response, database, "concurrency-limited", TimeUnit.SECONDS.toNanos(1));
+            }
+            waits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        if (local || limiter != null) {
+            request.setAttribute(PERMIT, new Permit(local ? database : null));
+        }
+        requests(database, "admitted").increment();
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            final Object handler
+    ) {
+        if (!(request.getAttribute(PERMIT) instanceof Permit permit)) {
+            return;
+        }
+
+        // normally released after the asynchronous dispatch; this covers requests that end without one
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(final AsyncEvent event) {
+                permit.release();
+            }
+
+            @Override
+            public void onTimeout(final AsyncEvent event) {
+                // followed by onComplete
+            }
+
+            @Override
+            public void onError(final AsyncEvent event) {
+                // followed by onComplete
+            }
+
+            @Override
+            public void onStartAsync(final AsyncEvent event) {
+                // nothing to do
+            }
+        });
+    }
+
+    @Override
+    public void afterCompletion(
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            final Object handler,
+            final Exception exception
+    ) {
+        if (!request.isAsyncStarted() && request.getAttribute(PERMIT) instanceof Permit permit) {
+            permit.release();
+        }
+    }
+
+    /**
+     * Returns the token bucket of a database or a collection.
+     *
+     * @param database  The database
+     * @param collection  The collection, or {@code null} for the bucket of the database
+     *
+     * @return the bucket, or an empty optional if the database or collection is not rate limited
+     */
+    private Optional<TokenBucket> bucketOf(final String database, final String collection) {
+        if (collection != null) {
+            return collectionRate > 0
+                    ? buckets.get(database + "/" + collection, ignored -> newBucket(collectionRate, collectionBurst))
+                    : Optional.empty();
+        }
+
+        // databases may have limits of their own even if databases in general are not limited
+        return buckets.get(database, ignored -> {
+            final String prefix = DATABASE_PREFIX + database;
+            return newBucket(
+                    environment.getProperty(prefix + ".rate", Double.class, databaseRate),
+                    environment.getProperty(prefix + ".burst", Integer.class, databaseBurst)
+            );
+        });
+    }
+
+    /**
+     * Creates a token bucket.
+     *
+     * @param rate  The number of requests admitted per second, or {@code 0} for no limit
+     * @param burst  The number of requests admitted at once, or {@code 0} for one second's worth
+     *
+     * @return the bucket, or an empty optional if {@code rate} is {@code 0}
+     */
+    private static Optional<TokenBucket> newBucket(final double rate, final int burst) {
+        return rate > 0
+                ? Optional.of(new TokenBucket(rate, burst > 0 ? burst : (int) Math.ceil(rate)))
+                : Optional.empty();
+    }
+
+    /**
+     * Rejects a request with {@code 429 Too Many Requests}.
+     *
+     * @param response  The response to the request
+     * @param database  The database of the request, or {@code null} if it has none
+     * @param result  Why the request is rejected
+     * @param retryAfter  How long the client should wait before retrying, in nanoseconds
+     *
+     * @return {@code false}, so that the request is not handled any further
+     *
+     * @throws IOException if the response cannot be written
+     */
+    private boolean reject(
+            final HttpServletResponse response,
+            final String database,
+            final String result,
+            final long retryAfter
+    ) throws IOException {
+        requests(database, result).increment();
+        LOG.debug(String.format("Rejected request to database %s: %s", database, result));
+
+        final long seconds = Math.max(1, (retryAfter + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.sendError(
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                String.format("Too many requests to database %s; retry in %d seconds", database, seconds)
+        );
+        return false;
+    }
+
+    /**
+     * Returns the counter of requests with a given outcome.
+     *
+     * @param database  The database of the requests, or {@code null} if they have none
+     * @param result  {@code admitted}, {@code rate-limited}, or {@code concurrency-limited}
+     *
+     * @return the {@code kugelblitz.arango.admission.requests} counter of the database and the result
+     */
+    private Counter requests(final String database, final String result) {
+        return Counter.builder("kugelblitz.arango.admission.requests")
+                .description("Number of requests admitted or rejected by admission control")
+                .tag("database", tagOf(database))
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the {@code database} tag of the meters of a database.
+     *
+     * @param database  The database, or {@code null} if there is none
+     *
+     * @return the name of the database if it has limits of its own, {@code other} if it has not, or {@code none}
+     */
+    private String tagOf(final String database) {
+        if (database == null) {
+            return NO_DATABASE;
+        }
+        final String prefix = DATABASE_PREFIX + database;
+        return environment.containsProperty(prefix + ".rate") || environment.containsProperty(prefix + ".burst")
+                ? database
+                : OTHER_DATABASE;
+    }
+
+    /**
+     * Gives back a concurrency slot of a database.
+     *
+     * @param database  The database
+     */
+    private void leave(final String database) {
+        inFlightByDatabase.computeIfPresent(database, (ignored, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * {@link Permit} is the concurrency slots held by an admitted request.
+     */
+    private final class Permit {
+
+        private final String database;
+        private final AtomicBoolean held = new AtomicBoolean(true);
+
+        /**
+         * Constructor.
+         *
+         * @param database  The database whose slot is held, or {@code null} if the request holds none
+         */
+        Permit(final String database) {
+            this.database = database;
+        }
+
+        /**
+         * Gives back the slots, unless they were given back already.
+         */
+        void release() {
+            if (!held.getAndSet(false)) {
+                return;
+            }
+            if (database != null) {
+                leave(database);
+            }
+            if (limiter != null) {
+                limiter.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.observation.Observation;
+
+/**
+ * {@link AqlCursor} is one batch of the results of an AQL query, together with what it takes to read the next one.
+ * <p>
+ * A cursor that has more results occupies memory in ArangoDB until all of them have been read, it has been deleted
+ * with {@link QueryService#close(AqlCursor)}, or it has not been read for the cursor TTL.
+ *
+ * @param database  The name of the database the query runs in
+ * @param id  The ID of the ArangoDB cursor, {@code null} if the query fitted into a single batch
+ * @param batch  The results of this batch, a JSON array
+ * @param hasMore  Whether or not there are results after this batch
+ * @param caller  The observation of the client request that ran the query, {@code null} if there is none
+ */
+record AqlCursor(String database, String id, JsonNode batch, boolean hasMore, Observation caller) {
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * {@link AqlQuery} is an AQL query sent by a client, together with the values of its bind parameters.
+ *
+ * @param query  The query string, such as {@code FOR doc IN mycollection FILTER doc.value > @min RETURN doc}
+ * @param bindVars  The values of the bind parameters, keyed by name without the leading {@code @}; {@code null} if
+ * the query has none
+ */
+record AqlQuery(
+        @Schema(
+                description = "The AQL query string",
+                example = "FOR doc IN mycollection FILTER doc.value > @min RETURN doc",
+                requiredMode = Schema.RequiredMode.REQUIRED
+        )
+        String query,
+        @Schema(description = "The values of the bind parameters, keyed by name", example = "{\"min\": 10}")
+        ObjectNode bindVars
+) {
+}
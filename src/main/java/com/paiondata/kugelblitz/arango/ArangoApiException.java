@@ -0,0 +1,183 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * {@link ArangoApiException} is thrown when ArangoDB answers a REST API request with an error status.
+ * <p>
+ * It carries the HTTP status and the ArangoDB {@code errorNum} so that callers can react to specific errors, such as
+ * a missing database, instead of failing the client request.
+ * <p>
+ * See https://arango.paion-data.dev/stable/develop/error-codes/ for the list of error numbers.
+ */
+class ArangoApiException extends IllegalStateException {
+
+    /**
+     * ArangoDB error {@code 1004}: the server is write-locked for the time being, so the write was not executed.
+     */
+    static final int WRITE_LOCKED = 1004;
+
+    /**
+     * ArangoDB {@code ERROR_ARANGO_CONFLICT}: the document has been changed since the given revision.
+     */
+    static final int CONFLICT = 1200;
+
+    /**
+     * ArangoDB {@code ERROR_ARANGO_DOCUMENT_NOT_FOUND}: the document does not exist.
+     */
+    static final int DOCUMENT_NOT_FOUND = 1202;
+
+    /**
+     * ArangoDB {@code ERROR_ARANGO_DATA_SOURCE_NOT_FOUND}: the collection does not exist.
+     */
+    static final int COLLECTION_NOT_FOUND = 1203;
+
+    /**
+     * ArangoDB {@code ERROR_ARANGO_DUPLICATE_NAME}: a database or collection with the same name already exists.
+     */
+    static final int DUPLICATE_NAME = 1207;
+
+    /**
+     * ArangoDB {@code ERROR_ARANGO_UNIQUE_CONSTRAINT_VIOLATED}: a document with the same key or unique index value
+     * already exists.
+     */
+    static final int UNIQUE_CONSTRAINT_VIOLATED = 1210;
+
+    /**
+     * ArangoDB {@code ERROR_ARANGO_DOCUMENT_KEY_BAD}: the document key is not a valid key.
+     */
+    static final int DOCUMENT_KEY_BAD = 1221;
+
+    /**
+     * ArangoDB {@code ERROR_ARANGO_DOCUMENT_TYPE_INVALID}: the document is not a JSON object.
+     */
+    static final int DOCUMENT_TYPE_INVALID = 1227;
+
+    /**
+     * ArangoDB {@code ERROR_ARANGO_DATABASE_NOT_FOUND}: the database does not exist.
+     */
+    static final int DATABASE_NOT_FOUND = 1228;
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final int errorNum;
+    private final String errorMessage;
+
+    /**
+     * Constructor.
+     *
+     * @param message  The message to be shown to the client
+     * @param statusCode  The HTTP status ArangoDB answered with
+     * @param errorNum  The ArangoDB error number from the response body, {@code 0} if there was none
+     */
+    ArangoApiException(final String message, final int statusCode, final int errorNum) {
+        this(message, statusCode, errorNum, "");
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param message  The message to be shown to the client
+     * @param statusCode  The HTTP status ArangoDB answered with
+     * @param errorNum  The ArangoDB error number from the response body, {@code 0} if there was none
+     * @param errorMessage  The ArangoDB error message from the response body, empty if there was none
+     */
+    ArangoApiException(final String message, final int statusCode, final int errorNum, final String errorMessage) {
+        super(message);
+        this.statusCode = statusCode;
+        this.errorNum = errorNum;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Converts the error ArangoDB reported for a single document of a batch request.
+     * <p>
+     * The batch request itself succeeds, so the exception carries the status that ArangoDB answers the same error
+     * with for a single-document request instead: {@code 409} for conflicts, {@code 400} for invalid documents,
+     * {@code 404} for missing collections and databases, and {@code 500} otherwise.
+     *
+     * @param result  The per-document result with {@code error} set
+     *
+     * @return an exception carrying the {@code errorNum} and {@code errorMessage} of {@code result}
+     */
+    static ArangoApiException ofDocumentResult(final JsonNode result) {
+        final int errorNum = result.path("errorNum").asInt();
+        final int statusCode = switch (errorNum) {
+            case CONFLICT, UNIQUE_CONSTRAINT_VIOLATED -> 409;
+            case DOCUMENT_KEY_BAD, DOCUMENT_TYPE_INVALID -> 400;
+            case DOCUMENT_NOT_FOUND, COLLECTION_NOT_FOUND, DATABASE_NOT_FOUND -> 404;
+            default -> 500;
+        };
+        return new ArangoApiException(
+                AbstractRestService.FAILED_REQUEST_MESSAGE,
+                statusCode,
+                errorNum,
+                result.path("errorMessage").asText()
+        );
+    }
+
+    /**
+     * Returns the HTTP status ArangoDB answered with.
+     *
+     * @return an HTTP status code
+     */
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Returns the ArangoDB error number.
+     *
+     * @return an ArangoDB error number or {@code 0} if the response did not carry one
+     */
+    int getErrorNum() {
+        return errorNum;
+    }
+
+    /**
+     * Returns the ArangoDB error message, such as the reason why an AQL query could not be parsed.
+     *
+     * @return an ArangoDB error message or an empty string if the response did not carry one
+     */
+    String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Returns whether or not the request failed because its database or collection does not exist.
+     *
+     * @return {@code true} if ArangoDB reported a missing database or collection
+     */
+    boolean isDatabaseOrCollectionNotFound() {
+        return errorNum == DATABASE_NOT_FOUND || errorNum == COLLECTION_NOT_FOUND;
+    }
+
+    /**
+     * Returns whether or not a request failed with a specific ArangoDB error.
+     *
+     * @param failure  The failure a request completed with, possibly wrapped by {@link java.util.concurrent.Future}
+     * machinery
+     * @param errorNum  The ArangoDB error number to look for
+     *
+     * @return {@code true} if {@code failure} is an {@link ArangoApiException} carrying {@code errorNum}
+     */
+    static boolean hasErrorNum(final Throwable failure, final int errorNum) {
+        return Futures.unwrap(failure) instanceof ArangoApiException exception && exception.getErrorNum() == errorNum;
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * {@link ArangoCoordinators} spreads requests across the ArangoDB coordinators listed in
+ * {@code kugelblitz.arango.hosts} and fails over between them.
+ * <p>
+ * {@code kugelblitz.arango.hosts} is a comma-separated list of endpoints, such as
+ * {@code http://coordinator-1:8529,http://coordinator-2:8529}. Requests are distributed either round-robin (default) or
+ * to the coordinator with the fewest outstanding requests, selected by {@code kugelblitz.arango.load-balancing} being
+ * {@code round-robin} or {@code least-outstanding}.
+ * <p>
+ * Each coordinator has a {@link CircuitBreaker}. A coordinator that refuses connections, times out, or answers
+ * {@code 503 Service Unavailable} {@code kugelblitz.arango.circuit-breaker.failure-threshold} times in a row is
+ * ejected: its circuit opens. Ejected coordinators are probed every {@code kugelblitz.arango.health-check-interval};
+ * once one answers again, its circuit is half-open and lets
+ * {@code kugelblitz.arango.circuit-breaker.half-open-requests} trial requests through before it closes. While every
+ * coordinator is ejected, requests fail fast with {@code 503 Service Unavailable} instead of piling onto them.
+ */
+@Component
+class ArangoCoordinators implements InitializingBean, DisposableBean, MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ArangoCoordinators.class);
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "arango-health-prober");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    private ArangoHttpClient arangoHttpClient;
+
+    @Value("${kugelblitz.arango.hosts}")
+    private String hosts;
+
+    @Value("${kugelblitz.arango.load-balancing:round-robin}")
+    private String loadBalancing;
+
+    @Value("${kugelblitz.arango.health-check-interval:PT5S}")
+    private Duration healthCheckInterval;
+
+    @Value("${kugelblitz.arango.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${kugelblitz.arango.circuit-breaker.half-open-requests:1}")
+    private int halfOpenRequests;
+
+    private List<Coordinator> coordinators;
+
+    @Override
+    public void afterPropertiesSet() {
+        coordinators = Arrays.stream(hosts.split(","))
+                .map(String::trim)
+                .filter(host -> !host.isEmpty())
+                .map(host -> host.endsWith("/") ? host.substring(0, host.length() - 1) : host)
+                .map(url -> new Coordinator(url, new CircuitBreaker(failureThreshold, halfOpenRequests)))
+                .toList();
+
+        if (coordinators.isEmpty()) {
+            throw new IllegalStateException("kugelblitz.arango.hosts does not list any ArangoDB endpoint");
+        }
+        if (!"round-robin".equals(loadBalancing) && !"least-outstanding".equals(loadBalancing)) {
+            throw new IllegalStateException(String.format(
+                    "Unknown kugelblitz.arango.load-balancing '%s'; use round-robin or least-outstanding",
+                    loadBalancing
+            ));
+        }
+
+        prober.scheduleWithFixedDelay(
+                this::probeEjected,
+                healthCheckInterval.toMillis(),
+                healthCheckInterval.toMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public void destroy() {
+        prober.shutdownNow();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        coordinators.forEach(coordinator -> Gauge.builder(
+                        "kugelblitz.arango.circuit-breaker.state",
+                        coordinator.breaker,
+                        breaker -> breaker.getState().ordinal()
+                )
+                .description("State of the circuit breaker of a coordinator: 0 closed, 1 half-open, 2 open")
+                .tag("host", coordinator.url)
+                .register(registry));
+        FunctionCounter.builder("kugelblitz.arango.circuit-breaker.rejected", rejected, LongAdder::sum)
+                .description("Number of requests failed fast because every coordinator was ejected")
+                .register(registry);
+    }
+
+    /**
+     * Sends a request to one coordinator, moving on to the next one if the chosen coordinator is unavailable.
+     * <p>
+     * A request that could not even connect was never seen by ArangoDB, so it is always retried on another
+     * coordinator. A request that failed in any other way, or was answered with a {@code 503}, is retried only if
+     * it is idempotent. A request Kugelblitz rejected itself, with a {@link ResponseStatusException}, for example for
+     * lack of an in-flight slot, is not retried at all, since the limit is shared by all coordinators.
+     *
+     * @param idempotent  Whether or not the request can be repeated without side effects
+     * @param exchange  Sends the request to the coordinator whose base URL it is given
+     * @param <T>  The response body type
+     *
+     * @return a future of the response of the last coordinator tried, failed with a {@link ResponseStatusException}
+     * with {@code 503 Service Unavailable} if every coordinator is ejected
+     */
+    <T> CompletableFuture<HttpResponse<T>> send(
+            final boolean idempotent,
+            final Function<String, CompletableFuture<HttpResponse<T>>> exchange
+    ) {
+        return send(idempotent, exchange, new HashSet<>(), null);
+    }
+
+    /**
+     * Sends a request to one coordinator not tried yet and fails over from there.
+     *
+     * @param idempotent  Whether or not the request can be repeated without side effects
+     * @param exchange  Sends the request to the coordinator whose base URL it is given
+     * @param tried  The coordinators already tried for this request; attempts follow one another, so the set is never
+     * accessed concurrently
+     * @param previous  The outcome of the last coordinator tried, or {@code null} if this is the first attempt; it is
+     * discarded if another coordinator is tried
+     * @param <T>  The response body type
+     *
+     * @return a future of the response of the last coordinator tried
+     */
+    private <T> CompletableFuture<HttpResponse<T>> send(
+            final boolean idempotent,
+            final Function<String, CompletableFuture<HttpResponse<T>>> exchange,
+            final Set<Coordinator> tried,
+            final CompletableFuture<HttpResponse<T>> previous
+    ) {
+        final Coordinator coordinator = select(tried);
+        if (coordinator == null) {
+            if (previous != null) {
+                return previous;
+            }
+            rejected.increment();
+            return CompletableFuture.failedFuture(new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE,
+                    "Every ArangoDB coordinator is unavailable"
+            ));
+        }
+        tried.add(coordinator);
+        if (previous != null) {
+            // the outcome of this coordinator replaces that of the last one, so its response is never read
+            previous.thenAccept(ArangoCoordinators::discard);
+        }
+
+        coordinator.outstanding.incrementAndGet();
+        return Futures.call(() -> exchange.apply(coordinator.url))
+                .whenComplete((response, failure) -> coordinator.outstanding.decrementAndGet())
+                .handle((response, failure) -> {
+                    if (failure != null) {
+                        final Throwable cause = Futures.unwrap(failure);
+                        final boolean notConnected = isConnectFailure(cause);
+                        if (cause instanceof IllegalStateException && cause.getCause() instanceof IOException) {
+                            onFailure(coordinator, cause.getCause().toString());
+                        } else {
+                            coordinator.breaker.onIgnored();
+                        }
+                        final CompletableFuture<HttpResponse<T>> outcome = CompletableFuture.failedFuture(cause);
+                        // a rejection by Kugelblitz itself, such as no in-flight slot, would recur on any coordinator
+                        if (cause instanceof ResponseStatusException || !(notConnected || idempotent)) {
+                            return outcome;
+                        }
+                        return send(idempotent, exchange, tried, outcome);
+                    }
+
+                    if (response.statusCode() != 503) {
+                        if (coordinator.breaker.onSuccess()) {
+                            LOG.info(String.format("ArangoDB coordinator %s is available again", coordinator.url));
+                        }
+                        return CompletableFuture.completedFuture(response);
+                    }
+
+                    onFailure(coordinator, "503 Service Unavailable");
+                    if (!idempotent) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    return send(idempotent, exchange, tried, CompletableFuture.completedFuture(response));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Picks the coordinator for the next request and takes a trial slot if its circuit is half-open.
+     *
+     * @param exclude  Coordinators already tried for the current request
+     *
+     * @return a coordinator not yet tried whose circuit lets the request through, or {@code null} if there is none
+     */
+    private Coordinator select(final Set<Coordinator> exclude) {
+        final List<Coordinator> pool = new ArrayList<>(coordinators.stream()
+                .filter(coordinator -> !exclude.contains(coordinator))
+                .filter(coordinator -> coordinator.breaker.getState() != CircuitBreaker.State.OPEN)
+                .toList());
+
+        while (!pool.isEmpty()) {
+            final Coordinator coordinator = "least-outstanding".equals(loadBalancing)
+                    ? pool.stream().min(Comparator.comparingInt(candidate -> candidate.outstanding.get())).orElseThrow()
+                    : pool.get(Math.floorMod(next.getAndIncrement(), pool.size()));
+            if (coordinator.breaker.tryAcquire()) {
+                return coordinator;
+            }
+            // the circuit opened meanwhile, or its trial slots are taken
+            pool.remove(coordinator);
+        }
+
+        return null;
+    }
+
+    /**
+     * Records a request a coordinator could not serve, ejecting the coordinator if its circuit opens.
+     *
+     * @param coordinator  The coordinator that failed
+     * @param reason  Why the request failed, used for logging
+     */
+    private void onFailure(final Coordinator coordinator, final String reason) {
+        if (coordinator.breaker.onFailure()) {
+            LOG.warn(String.format("Ejecting ArangoDB coordinator %s: %s", coordinator.url, reason));
+        }
+    }
+
+    /**
+     * Probes every ejected coordinator and half-opens the circuits of those that answer.
+     * <p>
+     * Any answer other than {@code 503} counts as available, including {@code 401}, which only means the probe is
+     * not authenticated.
+     */
+    private void probeEjected() {
+        coordinators.stream()
+                .filter(coordinator -> coordinator.breaker.getState() == CircuitBreaker.State.OPEN)
+                .forEach(coordinator -> {
+                    final int status = arangoHttpClient.probe(coordinator.url + "/_admin/server/availability");
+                    if (status > 0 && status != 503 && coordinator.breaker.halfOpen()) {
+                        LOG.info(String.format(
+                                "ArangoDB coordinator %s answers again; sending trial requests",
+                                coordinator.url
+                        ));
+                    }
+                });
+    }
+
+    /**
+     * Closes the body of a response that is not handed on, if it is a stream, so that its connection is given back.
+     *
+     * @param response  The response
+     */
+    private static void discard(final HttpResponse<?> response) {
+        if (!(response.body() instanceof Closeable body)) {
+            return;
+        }
+        try {
+            body.close();
+        } catch (final IOException exception) {
+            LOG.debug("Cannot close discarded ArangoDB response", exception);
+        }
+    }
+
+    /**
+     * Returns whether or not a request failed before reaching ArangoDB.
+     *
+     * @param exception  The request failure
+     *
+     * @return {@code true} if the connection could not be established
+     */
+    static boolean isConnectFailure(final Throwable exception) {
+        return exception instanceof IllegalStateException
+                && (exception.getCause() instanceof ConnectException
+                || exception.getCause() instanceof HttpConnectTimeoutException);
+    }
+
+    /**
+     * A single ArangoDB coordinator.
+     */
+    private static final class Coordinator {
+
+        private final String url;
+        private final CircuitBreaker breaker;
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        /**
+         * Constructor.
+         *
+         * @param url  The base URL of the coordinator, without trailing slash
+         * @param breaker  Keeps requests away from the coordinator while it keeps failing
+         */
+        private Coordinator(final String url, final CircuitBreaker breaker) {
+            this.url = url;
+            this.breaker = breaker;
+        }
+    }
+}
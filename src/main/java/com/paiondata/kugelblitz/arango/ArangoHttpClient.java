@@ -0,0 +1,708 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.RequestReplySenderContext;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLSession;
+
+/**
+ * {@link ArangoHttpClient} is the single, configured {@link HttpClient} through which Kugelblitz talks to ArangoDB.
+ * <p>
+ * The client is built from the following properties:
+ * <ul>
+ *     <li> {@code kugelblitz.arango.connect-timeout}: how long to wait for a TCP connection (default 5 seconds)
+ *     <li> {@code kugelblitz.arango.request-timeout}: how long to wait for a response (default 30 seconds), so that
+ *          a stalled coordinator cannot hang request threads forever
+ *     <li> {@code kugelblitz.arango.http-version}: {@code HTTP_1_1} (default) or {@code HTTP_2}
+ *     <li> {@code kugelblitz.arango.executor-threads}: size of the thread pool that runs the client's I/O callbacks.
+ *          When {@code spring.threads.virtual.enabled} is {@code true} and Kugelblitz runs on Java 21 or later, the
+ *          client runs on virtual threads instead and this property is ignored
+ *     <li> {@code kugelblitz.arango.max-in-flight}: maximum number of concurrent requests to ArangoDB, each of which
+ *          counts until its response body has been read or closed; further requests wait for up to
+ *          {@code kugelblitz.arango.max-in-flight-wait} and fail with {@code 503 Service Unavailable} afterwards
+ *     <li> {@code kugelblitz.arango.adaptive-limit.enabled}: whether the number of concurrent requests adapts to the
+ *          latency of ArangoDB (default {@code false}), between {@code kugelblitz.arango.adaptive-limit.min-limit}
+ *          (default 8) and {@code max-in-flight}, starting at {@code kugelblitz.arango.adaptive-limit.initial-limit}
+ *          (default 32). A round trip slower than {@code kugelblitz.arango.adaptive-limit.tolerance} (default 2) times
+ *          the usual for its operation lowers the limit by {@code kugelblitz.arango.adaptive-limit.backoff-ratio}
+ *          (default 0.9); see {@link AdaptiveLimit}
+ *     <li> {@code kugelblitz.arango.compression.request-encoding}: {@code identity} (default), {@code gzip}, or
+ *          {@code deflate}, the compression of request bodies of at least
+ *          {@code kugelblitz.arango.compression.min-request-size} (default 4 KB)
+ *     <li> {@code kugelblitz.arango.compression.responses}: whether ArangoDB is asked to compress its responses
+ *          (default {@code false}); compressed responses are decompressed whether asked for or not
+ * </ul>
+ * Every request is observed as {@code kugelblitz.arango.http.requests}, tagged with its
+ * {@link ArangoOperation operation}, its target host, and the class of its response status ({@code 2xx}, ...,
+ * {@code 5xx}, or {@code IO_ERROR} if no response arrived). The observation yields both a timer of that name and a
+ * client span named {@code arango <operation>}, whose trace context is propagated to ArangoDB in the request headers;
+ * the span is a child of the observation current when the request was started. The sizes of request and response
+ * bodies are recorded by {@code kugelblitz.arango.http.request.size} and {@code kugelblitz.arango.http.response.size},
+ * and requests that found no in-flight slot in time are counted by {@code kugelblitz.arango.http.rejected}. The number
+ * of in-flight and waiting requests, as well as the platform thread pool, are exposed as gauges under
+ * {@code kugelblitz.arango.http.*} and {@code executor.*{name=arango-http-client}}. Sizes are those on the wire,
+ * that is, compressed; how well bodies compress, and the time spent compressing and decompressing them, are recorded by
+ * {@code kugelblitz.arango.compression.ratio} and {@code kugelblitz.arango.compression.time}. With an adaptive
+ * limit, {@code kugelblitz.arango.http.max-in-flight} is the current limit, and its decreases are counted by
+ * {@code kugelblitz.arango.http.limit.decreases}, tagged with their {@code reason}, {@code latency} or
+ * {@code failure}.
+ * <p>
+ * Requests are sent asynchronously: neither waiting for an in-flight slot nor waiting for the response occupies the
+ * calling thread, so {@code max-in-flight} is what bounds the concurrency towards ArangoDB. Since response bodies are
+ * streamed, a request keeps its slot, and holds on to its connection, until its body has been read or closed; the
+ * round trip the adaptive limit goes by ends then, too.
+ */
+@Component
+class ArangoHttpClient implements InitializingBean, DisposableBean, MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ArangoHttpClient.class);
+
+    private static final String REQUESTS = "kugelblitz.arango.http.requests";
+    private static final String LIMIT_DECREASES = "kugelblitz.arango.http.limit.decreases";
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistries;
+
+    @Autowired
+    private ObjectProvider<ObservationRegistry> observationRegistries;
+
+    @Value("${kugelblitz.arango.connect-timeout:PT5S}")
+    private Duration connectTimeout;
+
+    @Value("${kugelblitz.arango.request-timeout:PT30S}")
+    private Duration requestTimeout;
+
+    @Value("${kugelblitz.arango.http-version:HTTP_1_1}")
+    private HttpClient.Version httpVersion;
+
+    @Value("${kugelblitz.arango.executor-threads:8}")
+    private int executorThreads;
+
+    @Value("${kugelblitz.arango.max-in-flight:256}")
+    private int maxInFlight;
+
+    @Value("${kugelblitz.arango.max-in-flight-wait:PT10S}")
+    private Duration maxInFlightWait;
+
+    @Value("${kugelblitz.arango.adaptive-limit.enabled:false}")
+    private boolean adaptiveLimitEnabled;
+
+    @Value("${kugelblitz.arango.adaptive-limit.initial-limit:32}")
+    private int initialLimit;
+
+    @Value("${kugelblitz.arango.adaptive-limit.min-limit:8}")
+    private int minLimit;
+
+    @Value("${kugelblitz.arango.adaptive-limit.tolerance:2}")
+    private double latencyTolerance;
+
+    @Value("${kugelblitz.arango.adaptive-limit.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${kugelblitz.arango.compression.request-encoding:identity}")
+    private ContentEncoding requestEncoding;
+
+    @Value("${kugelblitz.arango.compression.min-request-size:4KB}")
+    private DataSize minCompressedRequestSize;
+
+    @Value("${kugelblitz.arango.compression.responses:false}")
+    private boolean compressedResponses;
+
+    private MeterRegistry meterRegistry;
+    private ObservationRegistry observationRegistry;
+    private Executor executor;
+    private InFlightLimiter limiter;
+    private AdaptiveLimit adaptiveLimit;
+    private HttpClient httpClient;
+
+    @Override
+    public void afterPropertiesSet() {
+        meterRegistry = meterRegistries.getIfAvailable(() -> Metrics.globalRegistry);
+        observationRegistry = observationRegistries.getIfAvailable(() -> ObservationRegistry.NOOP);
+        executor = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("arango-http-client-")
+                : newPlatformThreadPool();
+        adaptiveLimit = adaptiveLimitEnabled
+                ? new AdaptiveLimit(initialLimit, minLimit, maxInFlight, latencyTolerance, backoffRatio)
+                : null;
+        limiter = new InFlightLimiter(adaptiveLimit == null ? maxInFlight : adaptiveLimit.getLimit());
+        httpClient = HttpClient.newBuilder()
+                .version(httpVersion)
+                .connectTimeout(connectTimeout)
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("kugelblitz.arango.http.in-flight", limiter, InFlightLimiter::getInFlight)
+                .description("Number of requests to ArangoDB awaiting or reading their response")
+                .register(registry);
+        Gauge.builder("kugelblitz.arango.http.waiting", limiter, InFlightLimiter::getWaiting)
+                .description("Number of requests to ArangoDB waiting for an in-flight slot")
+                .register(registry);
+        Gauge.builder("kugelblitz.arango.http.max-in-flight", limiter, InFlightLimiter::getLimit)
+                .description("Maximum number of concurrent requests to ArangoDB")
+                .register(registry);
+        if (adaptiveLimit != null) {
+            FunctionCounter.builder(LIMIT_DECREASES, adaptiveLimit, AdaptiveLimit::getLatencyDecreases)
+                    .description("Number of times the limit of concurrent requests to ArangoDB was lowered")
+                    .tag("reason", "latency")
+                    .register(registry);
+            FunctionCounter.builder(LIMIT_DECREASES, adaptiveLimit, AdaptiveLimit::getFailureDecreases)
+                    .description("Number of times the limit of concurrent requests to ArangoDB was lowered")
+                    .tag("reason", "failure")
+                    .register(registry);
+        }
+        if (executor instanceof ExecutorService executorService) {
+            new ExecutorServiceMetrics(
+                    executorService,
+                    "arango-http-client",
+                    Tags.of("http.version", httpVersion.name())
+            ).bindTo(registry);
+        }
+    }
+
+    /**
+     * Starts a request to the given URL with the configured request timeout.
+     * <p>
+     * If {@code kugelblitz.arango.compression.responses} is enabled, the request accepts compressed responses.
+     *
+     * @param uri  The URL to send the request to
+     *
+     * @return a request builder for the caller to add method, headers, and body to
+     */
+    HttpRequest.Builder newRequest(final String uri) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(uri))
+                .timeout(requestTimeout);
+        if (compressedResponses) {
+            builder.header("Accept-Encoding", "gzip, deflate");
+        }
+        return builder;
+    }
+
+    /**
+     * Returns the encoding in which a request body is to be sent.
+     *
+     * @param length  The length of the uncompressed body in bytes
+     *
+     * @return {@code kugelblitz.arango.compression.request-encoding} if the body is at least
+     * {@code kugelblitz.arango.compression.min-request-size} long, {@link ContentEncoding#IDENTITY} otherwise
+     */
+    ContentEncoding requestEncodingOf(final long length) {
+        return length >= minCompressedRequestSize.toBytes() ? requestEncoding : ContentEncoding.IDENTITY;
+    }
+
+    /**
+     * Compresses a request body and records how well and how fast it compressed.
+     *
+     * @param operation  What the request does, used for metrics
+     * @param encoding  The encoding, as returned by {@link #requestEncodingOf(long)}
+     * @param body  The uncompressed body
+     *
+     * @return the body in {@code encoding}
+     */
+    byte[] compress(final ArangoOperation operation, final ContentEncoding encoding, final byte[] body) {
+        if (encoding == ContentEncoding.IDENTITY) {
+            return body;
+        }
+
+        final long start = System.nanoTime();
+        final byte[] compressed = encoding.encode(body);
+        record(operation, "request", encoding, body.length, compressed.length, System.nanoTime() - start);
+        return compressed;
+    }
+
+    /**
+     * Sends a request once an in-flight slot is available, without blocking the calling thread.
+     * <p>
+     * The future completes as soon as the response headers have arrived; the body is then read from the returned
+     * stream while it is being received, so that it never needs to be buffered as a whole. The caller must close the
+     * stream, which gives back the in-flight slot of the request once the body has been read or closed.
+     * <p>
+     * I/O errors, including timeouts, are logged and the returned future fails with an {@link IllegalStateException}
+     * caused by the I/O error. If no in-flight slot becomes available in time, the future fails with a
+     * {@link ResponseStatusException} with {@code 503 Service Unavailable}.
+     *
+     * @param request  The request to send
+     * @param operation  What the request does, used for logging and metrics
+     *
+     * @return a future of the response, completed on the client's executor within the scope of the observation that
+     * was current when this method was called
+     */
+    CompletableFuture<HttpResponse<InputStream>> sendAsync(final HttpRequest request, final ArangoOperation operation) {
+        final Observation parent = observationRegistry.getCurrentObservation();
+        final CompletableFuture<HttpResponse<InputStream>> result = new CompletableFuture<>();
+
+        limiter.acquire(maxInFlightWait).whenComplete((ignored, timeout) -> {
+            if (timeout != null) {
+                LOG.warn(String.format(
+                        "No ArangoDB request slot became available within %s for %s",
+                        maxInFlightWait,
+                        operation
+                ));
+                Counter.builder("kugelblitz.arango.http.rejected")
+                        .description("Number of requests to ArangoDB rejected for lack of an in-flight slot")
+                        .tag("operation", operation.getTag())
+                        .register(meterRegistry)
+                        .increment();
+                result.completeExceptionally(new ResponseStatusException(
+                        HttpStatus.SERVICE_UNAVAILABLE,
+                        "Too many concurrent ArangoDB requests"
+                ));
+                return;
+            }
+
+            request.bodyPublisher()
+                    .map(HttpRequest.BodyPublisher::contentLength)
+                    .filter(length -> length >= 0)
+                    .ifPresent(length -> sizeOf("request", operation).record(length));
+
+            // the trace context headers are added to a copy of the request when the observation starts
+            final RequestReplySenderContext<HttpRequest.Builder, HttpResponse<InputStream>> context =
+                    new RequestReplySenderContext<>(HttpRequest.Builder::setHeader);
+            context.setCarrier(HttpRequest.newBuilder(request, (name, value) -> true));
+            context.setRemoteServiceName("arangodb");
+            context.setRemoteServiceAddress(request.uri().getScheme() + "://" + request.uri().getAuthority());
+            final Observation observation = Observation.createNotStarted(REQUESTS, () -> context, observationRegistry)
+                    .parentObservation(parent)
+                    .contextualName("arango " + operation.getTag())
+                    .lowCardinalityKeyValue("operation", operation.getTag())
+                    .lowCardinalityKeyValue("host", request.uri().getAuthority())
+                    .highCardinalityKeyValue("uri", request.uri().toString())
+                    .start();
+            final HttpRequest traced = context.getCarrier().build();
+            final int inFlight = limiter.getInFlight();
+            final long sent = System.nanoTime();
+
+            // The JDK completes sendAsync() on the common pool; continue on the configured executor instead
+            Futures.call(() -> httpClient.sendAsync(traced, HttpResponse.BodyHandlers.ofInputStream()))
+                    .whenCompleteAsync((response, failure) -> {
+                        if (failure == null) {
+                            context.setResponse(response);
+                            observation.lowCardinalityKeyValue("status", statusClassOf(response.statusCode()));
+                            observation.stop();
+                            response.headers()
+                                    .firstValueAsLong("Content-Length")
+                                    .ifPresent(length -> sizeOf("response", operation).record(length));
+                            // the slot is taken until the body, which is streamed, has been read or closed
+                            final HttpResponse<InputStream> released = new WrappedResponse(
+                                    response,
+                                    new ReleasingInputStream(response.body(), () -> {
+                                        adapt(operation, sent, inFlight, response, null);
+                                        limiter.release();
+                                    })
+                            );
+                            try {
+                                result.complete(decompressed(operation, released));
+                            } catch (final IOException exception) {
+                                result.completeExceptionally(requestFailure(operation, exception));
+                            }
+                        } else {
+                            adapt(operation, sent, inFlight, null, failure);
+                            limiter.release();
+                            final Throwable cause = Futures.unwrap(failure);
+                            observation.lowCardinalityKeyValue(
+                                    "status",
+                                    cause instanceof IOException ? "IO_ERROR" : "UNKNOWN"
+                            );
+                            observation.error(cause);
+                            final Throwable exception;
+                            try (Observation.Scope scope = observation.openScope()) {
+                                // logged within the span, so that the log line carries its trace ID
+                                exception = requestFailure(operation, cause);
+                            }
+                            observation.stop();
+                            result.completeExceptionally(exception);
+                        }
+                    }, executor);
+        });
+
+        return Observations.completeInScopeOf(parent, result);
+    }
+
+    /**
+     * Adjusts the adaptive limit, if there is one, to a completed request.
+     * <p>
+     * A request counts as dropped if it failed with an I/O error, such as a timeout, or ArangoDB answered that it is
+     * overloaded or unavailable.
+     *
+     * @param operation  What the request did
+     * @param sent  The {@link System#nanoTime()} when the request was sent
+     * @param inFlight  The number of requests in flight when the request was sent
+     * @param response  The response, or {@code null} if the request failed
+     * @param failure  Why the request failed, or {@code null} if it did not
+     */
+    private void adapt(
+            final ArangoOperation operation,
+            final long sent,
+            final int inFlight,
+            final HttpResponse<InputStream> response,
+            final Throwable failure
+    ) {
+        if (adaptiveLimit == null) {
+            return;
+        }
+
+        final boolean dropped = response == null
+                ? Futures.unwrap(failure) instanceof IOException
+                : response.statusCode() == 429 || response.statusCode() == 503;
+        if (response == null && !dropped) {
+            // not a verdict on ArangoDB, such as a request that could not be built
+            return;
+        }
+
+        final long now = System.nanoTime();
+        limiter.setLimit(adaptiveLimit.onSample(operation, now - sent, inFlight, dropped, now));
+    }
+
+    /**
+     * Decompresses a response body while it is being read, if it is compressed.
+     * <p>
+     * The compression ratio and the time spent decompressing are recorded once the body has been read or closed.
+     *
+     * @param operation  What the request did, used for metrics
+     * @param response  The response
+     *
+     * @return {@code response}, or a response whose body is the decompressed body of {@code response}
+     *
+     * @throws IOException if the body is in an unsupported encoding, or its gzip header cannot be read; the body is
+     * closed then, so that its connection is given back
+     */
+    private HttpResponse<InputStream> decompressed(
+            final ArangoOperation operation,
+            final HttpResponse<InputStream> response
+    ) throws IOException {
+        final Optional<String> header = response.headers().firstValue("Content-Encoding");
+        final Optional<ContentEncoding> encoding = ContentEncoding.of(header.orElse(null));
+        if (encoding.isEmpty()) {
+            response.body().close();
+            throw new IOException("Unsupported Content-Encoding " + header.orElse(null));
+        }
+        if (encoding.get() == ContentEncoding.IDENTITY
+                || response.statusCode() == 204
+                || response.statusCode() == 304
+                || response.headers().firstValueAsLong("Content-Length").orElse(-1) == 0) {
+            return response;
+        }
+
+        try {
+            return new WrappedResponse(
+                    response,
+                    encoding.get().decode(
+                            response.body(),
+                            (uncompressed, compressed, nanos) ->
+                                    record(operation, "response", encoding.get(), uncompressed, compressed, nanos)
+                    )
+            );
+        } catch (final IOException exception) {
+            response.body().close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Records how well a body compressed and the time it took to compress or decompress it.
+     *
+     * @param operation  The operation that sent or received the body
+     * @param direction  {@code request} or {@code response}
+     * @param encoding  The compression
+     * @param uncompressed  The uncompressed length of the body in bytes
+     * @param compressed  The compressed length of the body in bytes
+     * @param nanos  The time spent compressing or decompressing
+     */
+    private void record(
+            final ArangoOperation operation,
+            final String direction,
+            final ContentEncoding encoding,
+            final long uncompressed,
+            final long compressed,
+            final long nanos
+    ) {
+        final Tags tags = Tags.of(
+                "operation", operation.getTag(),
+                "direction", direction,
+                "encoding", encoding.getToken()
+        );
+        if (compressed > 0) {
+            DistributionSummary.builder("kugelblitz.arango.compression.ratio")
+                    .description("Uncompressed size of ArangoDB bodies divided by their compressed size")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record((double) uncompressed / compressed);
+        }
+        Timer.builder("kugelblitz.arango.compression.time")
+                .description("Time spent compressing ArangoDB request bodies and decompressing response bodies")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the distribution of body sizes for one direction of an operation.
+     *
+     * @param direction  {@code request} or {@code response}
+     * @param operation  The operation
+     *
+     * @return the {@code kugelblitz.arango.http.<direction>.size} summary of the operation
+     */
+    private DistributionSummary sizeOf(final String direction, final ArangoOperation operation) {
+        return DistributionSummary.builder(String.format("kugelblitz.arango.http.%s.size", direction))
+                .description(String.format("Size of ArangoDB %s bodies", direction))
+                .baseUnit(BaseUnits.BYTES)
+                .tag("operation", operation.getTag())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the class of an HTTP status.
+     *
+     * @param status  The HTTP status code, such as {@code 201}
+     *
+     * @return the status class, such as {@code 2xx}
+     */
+    private static String statusClassOf(final int status) {
+        return status / 100 + "xx";
+    }
+
+    /**
+     * Logs a failed request and converts the failure into the exception callers expect.
+     *
+     * @param operation  What the request does, used for logging
+     * @param failure  Why the request failed
+     *
+     * @return an {@link IllegalStateException} caused by {@code failure} if it is an I/O error, {@code failure} itself
+     * otherwise
+     */
+    private static Throwable requestFailure(final ArangoOperation operation, final Throwable failure) {
+        if (!(failure instanceof IOException)) {
+            return failure;
+        }
+
+        LOG.error(
+                String.format("I/O error on ArangoDB %s request: %s", operation, failure.getMessage()),
+                failure
+        );
+        return new IllegalStateException(AbstractRestService.FAILED_REQUEST_MESSAGE, failure);
+    }
+
+    /**
+     * Creates the fixed-size pool of platform threads used when virtual threads are not enabled.
+     *
+     * @return a pool of {@code kugelblitz.arango.executor-threads} daemon threads
+     */
+    private ExecutorService newPlatformThreadPool() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                executorThreads,
+                executorThreads,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "arango-http-client-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    /**
+     * {@link WrappedResponse} is a response whose body is read through another stream, such as one that decompresses
+     * it while it is being read.
+     *
+     * @param response  The original response, which provides everything but the body
+     * @param body  The body
+     */
+    private record WrappedResponse(
+            HttpResponse<InputStream> response,
+            InputStream body
+    ) implements HttpResponse<InputStream> {
+
+        @Override
+        public int statusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public HttpRequest request() {
+            return response.request();
+        }
+
+        @Override
+        public Optional<HttpResponse<InputStream>> previousResponse() {
+            return response.previousResponse();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return response.headers();
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return response.sslSession();
+        }
+
+        @Override
+        public URI uri() {
+            return response.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return response.version();
+        }
+    }
+
+    /**
+     * {@link ReleasingInputStream} is a response body that runs a callback once it has been read to its end or closed,
+     * whichever comes first.
+     */
+    private static final class ReleasingInputStream extends FilterInputStream {
+
+        private final AtomicBoolean open = new AtomicBoolean(true);
+        private final Runnable onDone;
+
+        /**
+         * Constructor.
+         *
+         * @param body  The response body
+         * @param onDone  Runs once the body has been read or closed
+         */
+        ReleasingInputStream(final InputStream body, final Runnable onDone) {
+            super(body);
+            this.onDone = onDone;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int value = super.read();
+            if (value < 0) {
+                done();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            final int read = super.read(buffer, offset, length);
+            if (read < 0) {
+                done();
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                done();
+            }
+        }
+
+        /**
+         * Runs the callback, unless it ran already.
+         */
+        private void done() {
+            if (open.getAndSet(false)) {
+                onDone.run();
+            }
+        }
+    }
+
+    /**
+     * Sends a health probe, bypassing the in-flight limit.
+     *
+     * @param uri  The URL to probe
+     *
+     * @return the response status, or {@code -1} if no response was received
+     */
+    int probe(final String uri) {
+        try {
+            return httpClient.send(
+                    HttpRequest.newBuilder().uri(URI.create(uri)).timeout(connectTimeout).GET().build(),
+                    HttpResponse.BodyHandlers.discarding()
+            ).statusCode();
+        } catch (final IOException exception) {
+            LOG.debug(String.format("Health probe of %s failed: %s", uri, exception.getMessage()));
+            return -1;
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+}
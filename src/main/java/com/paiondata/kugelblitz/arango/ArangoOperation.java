@@ -0,0 +1,140 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+/**
+ * {@link ArangoOperation} is the logical operation a request to ArangoDB performs.
+ * <p>
+ * Requests are logged and measured by their operation, so that, for example, the time spent authenticating can be
+ * told apart from the time spent inserting documents.
+ */
+enum ArangoOperation {
+
+    /**
+     * Obtaining a JWT token.
+     */
+    AUTH("auth"),
+
+    /**
+     * Listing the databases, to check whether one exists.
+     */
+    LIST_DATABASES("listDatabases"),
+
+    /**
+     * Listing the collections of a database, to check whether one exists.
+     */
+    LIST_COLLECTIONS("listCollections"),
+
+    /**
+     * Creating a database.
+     */
+    CREATE_DATABASE("createDatabase"),
+
+    /**
+     * Creating a collection.
+     */
+    CREATE_COLLECTION("createCollection"),
+
+    /**
+     * Inserting a single document.
+     */
+    INSERT_DOCUMENT("insertDocument"),
+
+    /**
+     * Inserting an array of documents with a single request.
+     */
+    INSERT_DOCUMENTS("insertDocuments"),
+
+    /**
+     * Inserting an array of documents, overwriting those whose {@code _key} exists already.
+     */
+    UPSERT_DOCUMENTS("upsertDocuments"),
+
+    /**
+     * Partially updating an array of documents with a single request.
+     */
+    UPDATE_DOCUMENTS("updateDocuments"),
+
+    /**
+     * Replacing an array of documents with a single request.
+     */
+    REPLACE_DOCUMENTS("replaceDocuments"),
+
+    /**
+     * Deleting multiple documents by their keys with a single request.
+     */
+    DELETE_DOCUMENTS("deleteDocuments"),
+
+    /**
+     * Importing a chunk of newline-delimited documents through the bulk import API.
+     */
+    IMPORT_DOCUMENTS("importDocuments"),
+
+    /**
+     * Reading a single document, or revalidating a cached one.
+     */
+    GET_DOCUMENT("getDocument"),
+
+    /**
+     * Reading multiple documents by their keys with a single request.
+     */
+    GET_DOCUMENTS("getDocuments"),
+
+    /**
+     * Parsing an AQL query without running it.
+     */
+    PARSE_QUERY("parseQuery"),
+
+    /**
+     * Running an AQL query, which creates a cursor over its results.
+     */
+    QUERY("query"),
+
+    /**
+     * Reading the next batch of a cursor.
+     */
+    READ_CURSOR("readCursor"),
+
+    /**
+     * Deleting a cursor whose remaining results are not needed.
+     */
+    DELETE_CURSOR("deleteCursor");
+
+    private final String tag;
+
+    /**
+     * Constructor.
+     *
+     * @param tag  The name of the operation in logs and metrics
+     */
+    ArangoOperation(final String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * Returns the name of this operation in logs and metrics.
+     *
+     * @return the value of the {@code operation} metric tag, such as {@code insertDocument}
+     */
+    String getTag() {
+        return tag;
+    }
+
+    @Override
+    public String toString() {
+        return tag;
+    }
+}
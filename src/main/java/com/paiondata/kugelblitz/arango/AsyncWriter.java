@@ -0,0 +1,551 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.BaseUnits;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * {@link AsyncWriter} accepts single-document inserts into a durable local queue and writes them to ArangoDB in the
+ * background.
+ * <p>
+ * An accepted document is appended to a {@link WriteAheadLog} in {@code kugelblitz.arango.async-writes.directory}
+ * and its caller is handed a ticket, the position of the document in the log, right away. A background thread reads
+ * the log in order, up to {@code kugelblitz.arango.async-writes.batch-size} documents at a time, and writes each batch
+ * as one array insert per collection, the collections of a batch concurrently. Once every document of a batch has
+ * been written or has failed, the checkpoint of the log moves past it. Documents that were accepted but not yet
+ * checkpointed when Kugelblitz stopped, crashed or not, are written after it restarts; delivery is thus at least
+ * once, and a document can be inserted twice if Kugelblitz dies between writing its batch and the checkpoint.
+ * <p>
+ * A batch that fails for a reason that may go away, such as ArangoDB being unreachable or answering {@code 5xx},
+ * {@code 408}, or {@code 429}, is retried after {@code kugelblitz.arango.async-writes.retry-backoff}, doubling up to
+ * {@code kugelblitz.arango.async-writes.max-retry-backoff}, for as long as it takes; later documents wait meanwhile.
+ * Documents that ArangoDB rejects are not retried. Their tickets report the rejection for an hour, as long as
+ * Kugelblitz keeps running; after that, and for documents handled before the last restart, tickets read as
+ * {@code done}, since whether they were written is no longer known.
+ * <p>
+ * The log is forced to disk every {@code kugelblitz.arango.async-writes.sync-interval}, which bounds what an
+ * operating system crash or power loss can take with it; {@code 0} forces every document before accepting it. Once
+ * the queue takes {@code kugelblitz.arango.async-writes.max-size} of disk, further documents are rejected with
+ * {@code 429 Too Many Requests}.
+ * <p>
+ * Asynchronous writes are off unless {@code kugelblitz.arango.async-writes.enabled} is {@code true}.
+ */
+@Component
+class AsyncWriter implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncWriter.class);
+
+    /**
+     * How long the writer thread waits for new documents before checking whether it should stop.
+     */
+    private static final long POLL_MILLIS = 1000;
+
+    /**
+     * How long stopping waits for the batch being written to complete.
+     */
+    private static final long SHUTDOWN_MILLIS = 10_000;
+
+    /**
+     * The first ticket whose failure, if it had one, is still on record; failures of earlier tickets may have been
+     * forgotten.
+     */
+    private final AtomicLong rememberedFrom = new AtomicLong();
+
+    private final Cache<Long, ObjectNode> failures = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .executor(Runnable::run)
+            .removalListener((Long ticket, ObjectNode failure, RemovalCause cause) -> {
+                if (cause.wasEvicted()) {
+                    rememberedFrom.accumulateAndGet(ticket + 1, Math::max);
+                }
+            })
+            .build();
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private CollectionProvisioner collectionProvisioner;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistries;
+
+    @Value("${kugelblitz.arango.async-writes.enabled:false}")
+    private boolean enabled;
+
+    @Value("${kugelblitz.arango.async-writes.directory:kugelblitz-wal}")
+    private Path directory;
+
+    @Value("${kugelblitz.arango.async-writes.segment-size:64MB}")
+    private DataSize segmentSize;
+
+    @Value("${kugelblitz.arango.async-writes.max-size:1GB}")
+    private DataSize maxSize;
+
+    @Value("${kugelblitz.arango.async-writes.sync-interval:PT1S}")
+    private Duration syncInterval;
+
+    @Value("${kugelblitz.arango.async-writes.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${kugelblitz.arango.async-writes.retry-backoff:PT1S}")
+    private Duration retryBackoff;
+
+    @Value("${kugelblitz.arango.async-writes.max-retry-backoff:PT1M}")
+    private Duration maxRetryBackoff;
+
+    private WriteAheadLog log;
+    private Thread writer;
+    private ScheduledExecutorService syncer;
+    private volatile boolean running;
+    private Counter written;
+    private Counter failed;
+    private Counter retries;
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        log = new WriteAheadLog(directory, Math.toIntExact(segmentSize.toBytes()));
+        // the failures of documents handled before this start are gone
+        rememberedFrom.set(log.getCheckpoint());
+        LOG.info(String.format(
+                "Write-ahead log in %s has %d documents to write",
+                directory.toAbsolutePath(),
+                log.getPendingRecords()
+        ));
+
+        final MeterRegistry meterRegistry = meterRegistries.getIfAvailable(() -> Metrics.globalRegistry);
+        written = documents(meterRegistry, "written");
+        failed = documents(meterRegistry, "failed");
+        retries = Counter.builder("kugelblitz.arango.async-writes.retries")
+                .description("Batches of queued documents sent again after a transient failure")
+                .register(meterRegistry);
+        Gauge.builder("kugelblitz.arango.async-writes.queue.depth", log, WriteAheadLog::getPendingRecords)
+                .description("Number of accepted documents not yet written to ArangoDB")
+                .register(meterRegistry);
+        Gauge.builder("kugelblitz.arango.async-writes.queue.size", log, WriteAheadLog::getPendingBytes)
+                .description("Disk taken by accepted documents not yet written to ArangoDB")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+
+        if (!syncInterval.isZero()) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "arango-async-writes-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            final long interval = syncInterval.toNanos();
+            syncer.scheduleWithFixedDelay(log::sync, interval, interval, TimeUnit.NANOSECONDS);
+        }
+
+        running = true;
+        writer = new Thread(this::drain, "arango-async-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        if (log == null) {
+            return;
+        }
+
+        running = false;
+        writer.interrupt();
+        writer.join(SHUTDOWN_MILLIS);
+        if (syncer != null) {
+            syncer.shutdown();
+        }
+        log.close();
+    }
+
+    /**
+     * Returns whether or not inserts should be queued by this writer.
+     *
+     * @return {@code true} if {@code kugelblitz.arango.async-writes.enabled} is set
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a document for insertion.
+     *
+     * @param database  The database name that stores the document
+     * @param collection  The collection name that contains the document
+     * @param document  The document to be created
+     *
+     * @return the ticket of the document, to look up whether it has been written
+     *
+     * @throws ResponseStatusException with {@code 429 Too Many Requests} if the queue is full,
+     * {@code 413 Payload Too Large} if the document does not fit into a segment of the log, or
+     * {@code 503 Service Unavailable} if the log cannot be written
+     */
+    long submit(final String database, final String collection, final JsonBody document) {
+        final byte[] record = encode(database, collection, document);
+        if (log.getPendingBytes() + record.length > maxSize.toBytes()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many pending asynchronous writes");
+        }
+
+        final long ticket;
+        try {
+            ticket = log.append(record);
+        } catch (final IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, exception.getMessage(), exception);
+        } catch (final IOException exception) {
+            LOG.error("Appending to the write-ahead log failed", exception);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Write queue unavailable", exception);
+        }
+
+        if (syncInterval.isZero()) {
+            log.sync();
+        }
+        return ticket;
+    }
+
+    /**
+     * Looks up what has become of a queued document.
+     *
+     * @param ticket  The ticket {@link #submit(String, String, JsonBody)} returned
+     *
+     * @return an object with the {@code ticket} and its {@code status}, {@code queued}, {@code written},
+     * {@code failed}, or {@code done} if it was handled but its failure, if it had one, has been forgotten;
+     * {@code failed} comes together with the ArangoDB {@code errorNum} and {@code errorMessage}. {@code null} if no
+     * document has been queued with the ticket
+     */
+    ObjectNode getTicket(final long ticket) {
+        if (ticket < 0 || ticket >= log.getEnd()) {
+            return null;
+        }
+
+        // read before the failure, which is recorded before the checkpoint moves past its ticket
+        final long checkpoint = log.getCheckpoint();
+        final ObjectNode status = JsonNodeFactory.instance.objectNode().put("ticket", Long.toString(ticket));
+        final ObjectNode failure = failures.getIfPresent(ticket);
+        if (failure != null) {
+            return status.put("status", "failed").setAll(failure);
+        }
+        if (ticket >= checkpoint) {
+            return status.put("status", "queued");
+        }
+
+        // failures that expired are only forgotten, moving rememberedFrom past them, once the cache is cleaned up
+        failures.cleanUp();
+        return status.put("status", ticket >= rememberedFrom.get() ? "written" : "done");
+    }
+
+    /**
+     * Writes queued documents batch by batch until stopped, checkpointing after each batch.
+     * <p>
+     * Each batch starts at the checkpoint of the log, which only moves, and only takes the batch off the queue depth,
+     * once it has been stored. A batch whose checkpoint fails is therefore written again rather than skipped or counted
+     * twice.
+     */
+    private void drain() {
+        while (running) {
+            try {
+                final long position = log.getCheckpoint();
+                if (!log.awaitRecords(position, POLL_MILLIS)) {
+                    continue;
+                }
+
+                final List<WriteAheadLog.Record> records = log.read(position, batchSize);
+                final Map<Key, List<Queued>> batches = new LinkedHashMap<>();
+                for (final WriteAheadLog.Record record : records) {
+                    final Queued queued = decode(record);
+                    batches.computeIfAbsent(queued.key(), key -> new ArrayList<>()).add(queued);
+                }
+
+                CompletableFuture.allOf(batches.entrySet().stream()
+                        .map(batch -> write(batch.getKey(), batch.getValue(), 0))
+                        .toArray(CompletableFuture[]::new)
+                ).join();
+
+                log.checkpoint(records.get(records.size() - 1).next(), records.size());
+            } catch (final InterruptedException exception) {
+                return;
+            } catch (final IOException | RuntimeException exception) {
+                if (!running) {
+                    return;
+                }
+                LOG.error("Writing queued documents failed", exception);
+                sleep(retryBackoff);
+            }
+        }
+    }
+
+    /**
+     * Sends the queued documents of a collection as one array insert, retrying transient failures.
+     *
+     * @param key  The collection
+     * @param batch  The documents to be created
+     * @param attempt  The number of attempts made before
+     *
+     * @return a future that completes once every document has been written or rejected, or fails if the writer is
+     * stopped before
+     */
+    private CompletableFuture<Void> write(final Key key, final List<Queued> batch, final int attempt) {
+        final JsonBody documents = JsonBody.arrayOf(batch.stream().map(Queued::document).toList());
+
+        return Futures.call(() -> collectionProvisioner.write(
+                key.database(),
+                key.collection(),
+                () -> documentService.createDocuments(key.database(), key.collection(), documents)
+        )).handle((results, failure) -> {
+            if (failure == null) {
+                complete(batch, results);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+
+            final Throwable cause = Futures.unwrap(failure);
+            if (!isTransient(cause)) {
+                LOG.error(String.format("Queued write of %d documents was rejected", batch.size()), cause);
+                batch.forEach(queued -> fail(queued, cause));
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            if (!running) {
+                return CompletableFuture.<Void>failedFuture(cause);
+            }
+
+            final Duration backoff = backoff(attempt);
+            LOG.warn(String.format(
+                    "Queued write of %d documents to %s/%s failed, retrying in %s: %s",
+                    batch.size(),
+                    key.database(),
+                    key.collection(),
+                    backoff,
+                    cause
+            ));
+            retries.increment();
+            return CompletableFuture.runAsync(
+                    () -> { },
+                    CompletableFuture.delayedExecutor(backoff.toNanos(), TimeUnit.NANOSECONDS)
+            ).thenCompose(ignored -> write(key, batch, attempt + 1));
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Records the result of each document of a written batch.
+     *
+     * @param batch  The documents that have been sent
+     * @param results  The per-document results ArangoDB answered with
+     */
+    private void complete(final List<Queued> batch, final ArrayNode results) {
+        if (results.size() != batch.size()) {
+            LOG.error(String.format("Got %d results for %d queued documents", results.size(), batch.size()));
+            final IllegalStateException exception = new IllegalStateException(
+                    AbstractRestService.FAILED_REQUEST_MESSAGE
+            );
+            batch.forEach(queued -> fail(queued, exception));
+            return;
+        }
+
+        for (int index = 0; index < batch.size(); index++) {
+            final JsonNode result = results.get(index);
+
+            if (result.path("error").asBoolean()) {
+                failed.increment();
+                failures.put(batch.get(index).ticket(), JsonNodeFactory.instance.objectNode()
+                        .put("errorNum", result.path("errorNum").asInt())
+                        .put("errorMessage", result.path("errorMessage").asText()));
+            } else {
+                written.increment();
+            }
+        }
+    }
+
+    /**
+     * Records a document as failed.
+     *
+     * @param queued  The document
+     * @param cause  Why it could not be written
+     */
+    private void fail(final Queued queued, final Throwable cause) {
+        failed.increment();
+        final ObjectNode failure = JsonNodeFactory.instance.objectNode();
+        if (cause instanceof ArangoApiException exception) {
+            failure.put("errorNum", exception.getErrorNum()).put("errorMessage", exception.getErrorMessage());
+        } else {
+            failure.put("errorNum", 0).put("errorMessage", AbstractRestService.FAILED_REQUEST_MESSAGE);
+        }
+        failures.put(queued.ticket(), failure);
+    }
+
+    /**
+     * Returns the delay before an attempt to write a batch again.
+     *
+     * @param attempt  The number of attempts made before the one that just failed
+     *
+     * @return {@code retry-backoff}, doubled per attempt, capped at {@code max-retry-backoff}
+     */
+    private Duration backoff(final int attempt) {
+        final Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempt, 20));
+        return backoff.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff;
+    }
+
+    /**
+     * Tells failures that may go away by themselves from those that would happen again.
+     *
+     * @param failure  Why a batch could not be written
+     *
+     * @return {@code false} if ArangoDB rejected the batch with a {@code 4xx} other than {@code 408} and {@code 429}
+     */
+    private static boolean isTransient(final Throwable failure) {
+        if (!(failure instanceof ArangoApiException exception)) {
+            return true;
+        }
+
+        final int statusCode = exception.getStatusCode();
+        return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+
+    /**
+     * Waits without failing on interruption, which only happens when the writer is stopped.
+     *
+     * @param duration  How long to wait
+     */
+    private static void sleep(final Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates the counter of queued documents that have been handled in a certain way.
+     *
+     * @param meterRegistry  The registry to register the counter with
+     * @param result  {@code written} or {@code failed}
+     *
+     * @return the counter
+     */
+    private static Counter documents(final MeterRegistry meterRegistry, final String result) {
+        return Counter.builder("kugelblitz.arango.async-writes.documents")
+                .description("Queued documents by what became of them")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encodes a document and where it goes as the payload of a log record.
+     *
+     * @param database  The database name
+     * @param collection  The collection name
+     * @param document  The document
+     *
+     * @return the database and collection names, each preceded by its length, followed by the document
+     */
+    private static byte[] encode(final String database, final String collection, final JsonBody document) {
+        final byte[] databaseName = database.getBytes(StandardCharsets.UTF_8);
+        final byte[] collectionName = collection.getBytes(StandardCharsets.UTF_8);
+        final byte[] json = document.toByteArray();
+
+        return ByteBuffer.allocate(Short.BYTES * 2 + databaseName.length + collectionName.length + json.length)
+                .putShort((short) databaseName.length)
+                .put(databaseName)
+                .putShort((short) collectionName.length)
+                .put(collectionName)
+                .put(json)
+                .array();
+    }
+
+    /**
+     * Decodes a log record written by {@link #encode(String, String, JsonBody)}.
+     *
+     * @param record  The record
+     *
+     * @return the queued document
+     */
+    private static Queued decode(final WriteAheadLog.Record record) {
+        final ByteBuffer payload = ByteBuffer.wrap(record.payload());
+        final byte[] database = new byte[payload.getShort()];
+        payload.get(database);
+        final byte[] collection = new byte[payload.getShort()];
+        payload.get(collection);
+        final byte[] json = new byte[payload.remaining()];
+        payload.get(json);
+
+        return new Queued(
+                record.position(),
+                new Key(new String(database, StandardCharsets.UTF_8), new String(collection, StandardCharsets.UTF_8)),
+                JsonBody.wrap(json)
+        );
+    }
+
+    /**
+     * A collection that documents are queued for.
+     *
+     * @param database  The database name
+     * @param collection  The collection name
+     */
+    private record Key(String database, String collection) {
+    }
+
+    /**
+     * A document read back from the log.
+     *
+     * @param ticket  The position of the document in the log
+     * @param key  The collection the document goes to
+     * @param document  The document to be created
+     */
+    private record Queued(long ticket, Key key, JsonBody document) {
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+/**
+ * {@link CircuitBreaker} keeps requests away from an ArangoDB coordinator that keeps failing.
+ * <p>
+ * The circuit is closed while requests succeed. After {@code failureThreshold} consecutive failures it opens, and the
+ * coordinator gets no requests at all, so that a coordinator that is down or recovering is not hammered. Once the
+ * coordinator answers its health probe again the circuit is half-open: up to {@code halfOpenRequests} trial requests
+ * are let through, and the circuit closes once that many have succeeded. A failed trial request opens it again.
+ */
+final class CircuitBreaker {
+
+    /**
+     * The state of a {@link CircuitBreaker}.
+     */
+    enum State {
+
+        /**
+         * Requests are let through.
+         */
+        CLOSED,
+
+        /**
+         * A limited number of trial requests are let through.
+         */
+        HALF_OPEN,
+
+        /**
+         * No requests are let through.
+         */
+        OPEN
+    }
+
+    private final int failureThreshold;
+    private final int halfOpenRequests;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private int trials;
+    private int successes;
+
+    /**
+     * Constructor.
+     *
+     * @param failureThreshold  The number of consecutive failures that open the circuit, at least one
+     * @param halfOpenRequests  The number of trial requests that must succeed to close a half-open circuit, at least
+     * one
+     */
+    CircuitBreaker(final int failureThreshold, final int halfOpenRequests) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.halfOpenRequests = Math.max(1, halfOpenRequests);
+    }
+
+    /**
+     * Asks to send a request.
+     * <p>
+     * A request allowed by a half-open circuit takes one of its trial slots, which is given back by
+     * {@link #onSuccess()}, {@link #onFailure()}, or {@link #onIgnored()}.
+     *
+     * @return whether the request may be sent
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN || trials >= halfOpenRequests) {
+            return false;
+        }
+        trials++;
+        return true;
+    }
+
+    /**
+     * Records a request the coordinator served.
+     *
+     * @return whether the circuit closed because of it
+     */
+    synchronized boolean onSuccess() {
+        failures = 0;
+        if (state != State.HALF_OPEN || ++successes < halfOpenRequests) {
+            return false;
+        }
+        state = State.CLOSED;
+        return true;
+    }
+
+    /**
+     * Records a request the coordinator could not serve.
+     *
+     * @return whether the circuit opened because of it
+     */
+    synchronized boolean onFailure() {
+        if (state == State.OPEN || (state == State.CLOSED && ++failures < failureThreshold)) {
+            return false;
+        }
+        state = State.OPEN;
+        failures = 0;
+        return true;
+    }
+
+    /**
+     * Records a request that failed for reasons that say nothing about the coordinator, such as a lack of in-flight
+     * slots, giving back its trial slot if it took one.
+     */
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && trials > successes) {
+            trials--;
+        }
+    }
+
+    /**
+     * Lets trial requests through an open circuit.
+     *
+     * @return whether the circuit was open
+     */
+    synchronized boolean halfOpen() {
+        if (state != State.OPEN) {
+            return false;
+        }
+        state = State.HALF_OPEN;
+        trials = 0;
+        successes = 0;
+        return true;
+    }
+
+    /**
+     * Returns the state of the circuit.
+     *
+     * @return whether requests are let through
+     */
+    synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.observation.ObservationRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * {@link CollectionProvisioner} runs writes against a collection that is created on demand, together with its
+ * database, if it does not exist yet.
+ * <p>
+ * Two strategies are supported, selected by {@code kugelblitz.arango.optimistic-writes}:
+ * <ul>
+ *     <li> optimistic (default): the write is sent straight away; only if ArangoDB answers that the database or
+ *          collection is missing are they created and the write is retried. The happy path is a single request and
+ *          concurrent first writes to a new collection do not race on its creation
+ *     <li> checked: the database and collection are checked, and created if needed, before the write. Databases and
+ *          collections that are known to exist are remembered in the {@link ExistenceCache}, so that a write to a
+ *          known collection costs no extra ArangoDB round trip
+ * </ul>
+ * In both modes, a database or collection that some concurrent request has created first counts as created. Every
+ * write is traced as a span enclosing the lookups, creations, and attempts it takes.
+ */
+@Component
+class CollectionProvisioner {
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    @Autowired
+    private CollectionService collectionService;
+
+    @Autowired
+    private ExistenceCache existenceCache;
+
+    @Autowired(required = false)
+    private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+    @Value("${kugelblitz.arango.optimistic-writes:true}")
+    private boolean optimisticWrites;
+
+    /**
+     * Performs a write against a collection, creating the collection and its database if needed.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection
+     * @param write  Starts the write operation; it is started again if the first attempt fails because the database
+     * or collection was missing
+     * @param <T>  The type of the write result
+     *
+     * @return a future of the result of the write
+     */
+    <T> CompletableFuture<T> write(
+            final String database,
+            final String collection,
+            final Supplier<CompletableFuture<T>> write
+    ) {
+        return Observations.observe(observationRegistry, CollectionProvisioner.class, "write", () -> optimisticWrites
+                ? writeOptimistically(database, collection, write)
+                : writeChecked(database, collection, write));
+    }
+
+    /**
+     * Performs a write against a collection, creating the collection and its database only once ArangoDB reports
+     * them missing.
+     * <p>
+     * ArangoDB error 1228 (database not found) leads to creating both the database and the collection, error 1203
+     * (collection not found) to creating the collection only. The write is then retried once.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection
+     * @param write  Starts the write operation
+     * @param <T>  The type of the write result
+     *
+     * @return a future of the result of the write
+     */
+    private <T> CompletableFuture<T> writeOptimistically(
+            final String database,
+            final String collection,
+            final Supplier<CompletableFuture<T>> write
+    ) {
+        return Futures.call(write).exceptionallyCompose(failure -> {
+            if (!(Futures.unwrap(failure) instanceof ArangoApiException exception)
+                    || !exception.isDatabaseOrCollectionNotFound()) {
+                return CompletableFuture.failedFuture(Futures.unwrap(failure));
+            }
+
+            forget(database, collection, exception);
+            final boolean databaseMissing = exception.getErrorNum() == ArangoApiException.DATABASE_NOT_FOUND;
+            final CompletableFuture<Void> databaseCreated = databaseMissing
+                    ? databaseService.createDatabase(database)
+                    : CompletableFuture.completedFuture(null);
+
+            return databaseCreated
+                    .thenCompose(ignored -> collectionService.createCollection(database, collection))
+                    .thenCompose(ignored -> {
+                        existenceCache.markKnown(database, collection);
+                        return write.get();
+                    });
+        });
+    }
+
+    /**
+     * Performs a write against a collection, creating the collection and its database first if needed.
+     * <p>
+     * If ArangoDB reports the database or collection as missing although it was cached as existing, for example
+     * because it has been dropped in the meantime, the cache entry is discarded and the write is retried once after
+     * re-provisioning.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection
+     * @param write  Starts the write operation
+     * @param <T>  The type of the write result
+     *
+     * @return a future of the result of the write
+     */
+    private <T> CompletableFuture<T> writeChecked(
+            final String database,
+            final String collection,
+            final Supplier<CompletableFuture<T>> write
+    ) {
+        return ensureExists(database, collection)
+                .thenCompose(ignored -> write.get())
+                .exceptionallyCompose(failure -> {
+                    if (!(Futures.unwrap(failure) instanceof ArangoApiException exception)
+                            || !exception.isDatabaseOrCollectionNotFound()) {
+                        return CompletableFuture.failedFuture(Futures.unwrap(failure));
+                    }
+
+                    forget(database, collection, exception);
+                    return ensureExists(database, collection).thenCompose(ignored -> write.get());
+                });
+    }
+
+    /**
+     * Makes sure a collection and its database exist.
+     * <p>
+     * The database and the collection are looked up concurrently. A collection lookup that fails because the
+     * database does not exist yet counts as a missing collection, which is then created once the database is.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection
+     *
+     * @return a future that completes once both exist
+     */
+    CompletableFuture<Void> ensureExists(final String database, final String collection) {
+        if (existenceCache.isKnown(database, collection)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final CompletableFuture<Void> databaseReady = existenceCache.isKnown(database)
+                ? CompletableFuture.completedFuture(null)
+                : databaseService.databaseExists(database)
+                        .thenCompose(exists -> exists
+                                ? CompletableFuture.<Void>completedFuture(null)
+                                : databaseService.createDatabase(database))
+                        .thenRun(() -> existenceCache.markKnown(database));
+        final CompletableFuture<Boolean> collectionExists = collectionService.collectionExists(database, collection)
+                .exceptionally(failure -> {
+                    if (!ArangoApiException.hasErrorNum(failure, ArangoApiException.DATABASE_NOT_FOUND)) {
+                        throw Futures.rethrow(failure);
+                    }
+                    return false;
+                });
+
+        return databaseReady
+                .thenCombine(collectionExists, (ignored, exists) -> exists)
+                .thenCompose(exists -> exists
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : collectionService.createCollection(database, collection))
+                .thenRun(() -> existenceCache.markKnown(database, collection));
+    }
+
+    /**
+     * Discards the cache entries invalidated by a "not found" error.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection
+     * @param exception  The error ArangoDB answered with
+     */
+    private void forget(final String database, final String collection, final ArangoApiException exception) {
+        if (exception.getErrorNum() == ArangoApiException.DATABASE_NOT_FOUND) {
+            existenceCache.invalidate(database);
+        } else {
+            existenceCache.invalidate(database, collection);
+        }
+    }
+}
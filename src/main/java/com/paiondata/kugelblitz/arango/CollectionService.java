@@ -22,9 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A standard Spring service layer responsible for the collection-related interaction between Kugelblitz and ArangoDB.
@@ -40,39 +38,47 @@ class CollectionService extends AbstractRestService {
      * @param database  The name of the containing database
      * @param collection  The name of the collection to check for
      *
-     * @return {@code true} if the collection exists or {@code false} otherwise
+     * @return a future of {@code true} if the collection exists or {@code false} otherwise
      */
-    @SuppressWarnings("unchecked")
-    protected boolean collectionExists(final String database, final String collection) {
-        final JsonNode allCollections = get(
-                String.format(host + "/_db/%s/_api/collection?excludeSystem=true", database)
-        ).get("result");
-
-        try {
-            return ((List<JsonNode>) JSON_MAPPER
-                    .readerForListOf(JsonNode.class)
-                    .readValue(allCollections))
-                    .stream()
-                    .anyMatch(jsonNode -> collection.equals(jsonNode.get("name").asText()));
-        } catch (final IOException exception) {
-            LOG.error(String.format("Error deserializing %s", allCollections), exception);
-            throw new IllegalStateException(FAILED_REQUEST_MESSAGE, exception);
-        }
+    protected CompletableFuture<Boolean> collectionExists(final String database, final String collection) {
+        return observe("collectionExists", () -> getAsync(
+                ArangoOperation.LIST_COLLECTIONS,
+                String.format("/_db/%s/_api/collection?excludeSystem=true", database)
+        ).thenApply(response -> {
+            for (final JsonNode existing : response.path("result")) {
+                if (collection.equals(existing.path("name").asText())) {
+                    return true;
+                }
+            }
+            return false;
+        }));
     }
 
     /**
      * Creates a new collection.
+     * <p>
+     * A collection with the same name that already exists, for example because a concurrent request has just created
+     * it, is not considered an error.
      *
      * @param database  The name of the containing database
      * @param collection  The name of the collection to be created
+     *
+     * @return a future that completes once the collection exists
      */
-    protected void createCollection(final String database, final String collection) {
+    protected CompletableFuture<Void> createCollection(final String database, final String collection) {
         final ObjectNode newCollection = JSON_MAPPER.createObjectNode();
         newCollection.put("name", collection);
-        post(
-                String.format(host + "/_db/%s/_api/collection", database),
-                newCollection,
-                Map.of("Content-Type", "application/json", "Authorization", "bearer " + getJwtToken())
-        );
+
+        final String path = String.format("/_db/%s/_api/collection", database);
+
+        return observe("createCollection", () -> postAsync(ArangoOperation.CREATE_COLLECTION, path, newCollection)
+                .<Void>thenApply(created -> null)
+                .exceptionally(failure -> {
+                    if (!ArangoApiException.hasErrorNum(failure, ArangoApiException.DUPLICATE_NAME)) {
+                        throw Futures.rethrow(failure);
+                    }
+                    LOG.debug(String.format("Collection %s/%s has been created concurrently", database, collection));
+                    return null;
+                }));
     }
 }
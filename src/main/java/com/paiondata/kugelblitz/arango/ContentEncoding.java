@@ -0,0 +1,171 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * {@link ContentEncoding} is a compression applied to an HTTP body, as named by the {@code Content-Encoding} and
+ * {@code Accept-Encoding} headers.
+ * <p>
+ * Kugelblitz compresses large request bodies sent to ArangoDB, decompresses ArangoDB responses, and decompresses
+ * request bodies sent by its clients in any of these encodings.
+ */
+enum ContentEncoding {
+
+    /**
+     * No compression.
+     */
+    IDENTITY("identity"),
+
+    /**
+     * The gzip format of RFC 1952.
+     */
+    GZIP("gzip"),
+
+    /**
+     * The zlib format of RFC 1950, which HTTP calls {@code deflate}.
+     */
+    DEFLATE("deflate");
+
+    private final String token;
+
+    /**
+     * Constructor.
+     *
+     * @param token  The name of the encoding in HTTP headers
+     */
+    ContentEncoding(final String token) {
+        this.token = token;
+    }
+
+    /**
+     * Looks up an encoding by its name in HTTP headers.
+     *
+     * @param token  The value of a {@code Content-Encoding} header, such as {@code gzip}, or {@code null} for none
+     *
+     * @return the encoding named {@code token}, {@link #IDENTITY} if there is none, or an empty optional if the
+     * encoding is not supported
+     */
+    static Optional<ContentEncoding> of(final String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.of(IDENTITY);
+        }
+
+        final String name = token.trim().toLowerCase(Locale.ROOT);
+        return Arrays.stream(values()).filter(encoding -> encoding.token.equals(name)).findFirst();
+    }
+
+    /**
+     * Returns the name of this encoding in HTTP headers.
+     *
+     * @return the value of the {@code Content-Encoding} header, such as {@code gzip}
+     */
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * Compresses a body.
+     *
+     * @param body  The body
+     *
+     * @return the body in this encoding
+     */
+    byte[] encode(final byte[] body) {
+        if (this == IDENTITY) {
+            return body;
+        }
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (OutputStream encoder = this == GZIP ? new GZIPOutputStream(output) : new DeflaterOutputStream(output)) {
+            encoder.write(body);
+        } catch (final IOException exception) {
+            // writing to memory does not fail
+            throw new UncheckedIOException(exception);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Decompresses a body while it is being read.
+     *
+     * @param body  The body in this encoding
+     *
+     * @return a stream of the decompressed body, which closes {@code body} when it is closed
+     *
+     * @throws IOException if the gzip header cannot be read
+     */
+    InputStream decode(final InputStream body) throws IOException {
+        return switch (this) {
+            case IDENTITY -> body;
+            case GZIP -> new GZIPInputStream(body, 8192);
+            case DEFLATE -> new InflaterInputStream(body);
+        };
+    }
+
+    /**
+     * Decompresses a body while it is being read, and reports how well it compressed and how long decompressing it
+     * took once it has been read or closed.
+     *
+     * @param body  The body in this encoding
+     * @param recorder  Receives the statistics of the body
+     *
+     * @return a stream of the decompressed body, which closes {@code body} when it is closed
+     *
+     * @throws IOException if the gzip header cannot be read
+     */
+    InputStream decode(final InputStream body, final Recorder recorder) throws IOException {
+        final MeteredInputStream compressed = new MeteredInputStream(body);
+        final InputStream decoder = decode(compressed);
+        // the gzip header has been read already, outside the decompressed stream
+        final long headerNanos = compressed.getNanos();
+
+        // reading the decompressed stream includes waiting for the compressed bytes; the rest is spent inflating
+        return new MeteredInputStream(decoder, decompressed -> recorder.record(
+                decompressed.getCount(),
+                compressed.getCount(),
+                decompressed.getNanos() - (compressed.getNanos() - headerNanos)
+        ));
+    }
+
+    /**
+     * {@link Recorder} receives the statistics of a decompressed body.
+     */
+    @FunctionalInterface
+    interface Recorder {
+
+        /**
+         * Records the statistics of a decompressed body.
+         *
+         * @param uncompressed  The decompressed length of the body in bytes
+         * @param compressed  The compressed length of the body in bytes
+         * @param nanos  The time spent decompressing, in nanoseconds
+         */
+        void record(long uncompressed, long compressed, long nanos);
+    }
+}
@@ -15,20 +15,60 @@
  */
 package com.paiondata.kugelblitz.arango;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.servlet.http.HttpServletRequest;
 
-import java.util.Map;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 /**
  * The entity endpoint backed by ArangoDB.
@@ -37,24 +77,69 @@ import java.util.Map;
 @RequestMapping("/arango")
 class Controller {
 
-    @Autowired
-    private DatabaseService databaseService;
+    private static final Logger LOG = LoggerFactory.getLogger(Controller.class);
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    /**
+     * The values of the {@code onDuplicate} parameter of the ArangoDB import API.
+     */
+    private static final Set<String> ON_DUPLICATE = Set.of("error", "update", "replace", "ignore");
+
+    /**
+     * The counters of an ArangoDB import result.
+     */
+    private static final List<String> IMPORT_COUNTS = List.of("created", "errors", "empty", "updated", "ignored");
+
+    /**
+     * The values of the {@code overwriteMode} parameter of the ArangoDB document API.
+     */
+    private static final Set<String> OVERWRITE_MODES = Set.of("update", "replace", "ignore", "conflict");
 
     @Autowired
-    private CollectionService collectionService;
+    private CollectionProvisioner collectionProvisioner;
 
     @Autowired
     private DocumentService documentService;
 
+    @Autowired
+    private QueryService queryService;
+
+    @Autowired
+    private QueryTimeout queryTimeout;
+
+    @Autowired
+    private WriteCoalescer writeCoalescer;
+
+    @Autowired
+    private AsyncWriter asyncWriter;
+
+    @Value("${kugelblitz.arango.batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${kugelblitz.arango.batch.max-concurrent-chunks:4}")
+    private int maxConcurrentChunks;
+
+    @Value("${kugelblitz.arango.query.batch-size:1000}")
+    private int queryBatchSize;
+
+    @Value("${kugelblitz.arango.import.chunk-size:10000}")
+    private int importChunkSize;
+
+    @Value("${kugelblitz.arango.import.chunk-bytes:8MB}")
+    private DataSize importChunkBytes;
+
+    @Value("${kugelblitz.arango.import.max-concurrent-chunks:4}")
+    private int maxConcurrentImportChunks;
+
     /**
      * Creates a document.
      *
      * @param database  The name of the database
      * @param collection  Name of the collection in which the document is to be created.
-     * @param document  An object that specifies all the fields of a document, the collection the document belongs
-     * to, and the database that stores that collection
+     * @param request  The request whose body is an object that specifies all the fields of a document
      *
-     * @return the newly created document with a 200 status code
+     * @return a future of the newly created document with a 200 status code, or, if asynchronous writes are enabled,
+     * of its ticket with a 202 status code
      */
     @Operation(
             tags = "Documents",
@@ -92,14 +177,32 @@ class Controller {
                     "value of `true`. \n\n" +
                     "" +
                     "If the query parameter `returnNew` is `true`, then, for each generated document, the complete " +
-                    "new document is returned under the `new` attribute in the result.\n"
+                    "new document is returned under the `new` attribute in the result.\n\n" +
+                    "" +
+                    "The document is stored as given, keeping the JSON type of every value, unless " +
+                    "`kugelblitz.arango.documents.stringify-values` is enabled.\n\n" +
+                    "" +
+                    "A document that ArangoDB rejects is answered with `409 Conflict` if its `_key` or a unique " +
+                    "index value is taken already and with `400 Bad Request` if it is invalid.\n\n" +
+                    "" +
+                    "If `kugelblitz.arango.async-writes.enabled` is set, the document is queued on the local disk of " +
+                    "Kugelblitz instead and written to ArangoDB in the background. The response is then " +
+                    "`202 Accepted` with a `ticket` in the body and the path to look it up at in the `Location` " +
+                    "header.\n",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(type = "object")
+                    )
+            )
     )
     @PostMapping(
             value = "/createDocument/{database}/{collection}",
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    JsonNode createDocument(
+    CompletableFuture<ResponseEntity<JsonNode>> createDocument(
             @Parameter(
                     description = "ArangoDB database name. \n\n" +
                             "> **Note**: The database, if not exists, will be created automatically",
@@ -114,16 +217,1070 @@ class Controller {
                     required = true
             )
             @PathVariable(value = "collection", required = true) final String collection,
-            @RequestBody(required = true) final Map<String, Object> document
+            final HttpServletRequest request
     ) {
-        if (!databaseService.databaseExists(database)) {
-            databaseService.createDatabase(database);
+        final JsonBody document;
+        try (JsonParser parser = JSON_MAPPER.createParser(request.getInputStream())) {
+            document = documentService.toDocument(parser);
+        } catch (final IOException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed JSON body", exception);
         }
 
-        if (!collectionService.collectionExists(database, collection)) {
-            collectionService.createCollection(database, collection);
+        if (asyncWriter.isEnabled()) {
+            final String ticket = Long.toString(asyncWriter.submit(database, collection, document));
+            return CompletableFuture.completedFuture(ResponseEntity
+                    .accepted()
+                    .location(ServletUriComponentsBuilder
+                            .fromCurrentContextPath()
+                            .path("/arango/tickets/{ticket}")
+                            .buildAndExpand(ticket)
+                            .toUri())
+                    .body(JSON_MAPPER.createObjectNode().put("ticket", ticket)));
         }
 
-        return documentService.createDocument(database, collection, document);
+        final CompletableFuture<JsonNode> created = writeCoalescer.isEnabled()
+                ? writeCoalescer.submit(database, collection, document)
+                : collectionProvisioner.write(
+                        database,
+                        collection,
+                        () -> documentService.createDocument(database, collection, document)
+                );
+        return rejectedDocumentAsClientError(created).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Looks up a document queued by an asynchronous write.
+     *
+     * @param ticket  The ticket the write was accepted with
+     *
+     * @return the status of the write with a 200 status code, or a 404 status code if the ticket is unknown
+     */
+    @Operation(
+            tags = "Documents",
+            summary = "Look up an asynchronous write",
+            description = "Returns the `status` of a document accepted with `202 Accepted` by \"Create a document\": " +
+                    "`queued` until it has been written to ArangoDB, `written` after that, or `failed` together " +
+                    "with the ArangoDB `errorNum` and `errorMessage` if ArangoDB rejected it. Failures are " +
+                    "remembered for an hour and not across restarts of Kugelblitz; a document handled before that " +
+                    "reads as `done`, since whether it was written is no longer known."
+    )
+    @GetMapping(value = "/tickets/{ticket}", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<JsonNode> getTicket(
+            @Parameter(description = "The ticket of the write", example = "0", required = true)
+            @PathVariable(value = "ticket", required = true) final String ticket
+    ) {
+        JsonNode status = null;
+        if (asyncWriter.isEnabled()) {
+            try {
+                status = asyncWriter.getTicket(Long.parseLong(ticket));
+            } catch (final NumberFormatException exception) {
+                LOG.debug(String.format("Malformed ticket %s", ticket));
+            }
+        }
+
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    /**
+     * Creates multiple documents.
+     *
+     * @param database  The name of the database
+     * @param collection  Name of the collection in which the documents are to be created.
+     * @param request  The request whose body is a JSON array of the documents to be created
+     *
+     * @return a future of one result per document, in input order, with a 200 status code, or with a 400 status code
+     * if the body turned out to be malformed after some documents have been written
+     */
+    @Operation(
+            tags = "Documents",
+            summary = "Create multiple documents",
+            description = "Creates new documents from the JSON array given in the body. The documents are sent to " +
+                    "ArangoDB in chunks of `kugelblitz.arango.batch.chunk-size` documents per request, up to " +
+                    "`kugelblitz.arango.batch.max-concurrent-chunks` of them at a time. \n\n" +
+                    "" +
+                    "The response is a JSON array with one entry per document, in the order of the request body. " +
+                    "An entry is either an object with the `_id`, `_key`, and `_rev` of the new document, or, if " +
+                    "that single document could not be created, an object with `error` set to `true` together with " +
+                    "the ArangoDB `errorNum` and `errorMessage`. A bad document does not fail the others, and a " +
+                    "chunk that fails as a whole, such as on a timeout, is reported with an error entry for each of " +
+                    "its documents without failing the other chunks. \n\n" +
+                    "" +
+                    "The body is streamed: documents are copied into a chunk as they are read, without being bound " +
+                    "to objects first, and each chunk is sent as soon as it is full, so that no more than " +
+                    "`max-concurrent-chunks` chunks are held in memory however large the body is. If the body " +
+                    "turns out to be malformed after some chunks have been sent, the response is `400 Bad Request` " +
+                    "with the results of the documents read before, followed by an error entry.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(type = "object"))
+                    )
+            )
+    )
+    @PostMapping(
+            value = "/createDocuments/{database}/{collection}",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    CompletableFuture<ResponseEntity<ArrayNode>> createDocuments(
+            @Parameter(
+                    description = "ArangoDB database name. \n\n" +
+                            "> **Note**: The database, if not exists, will be created automatically",
+                    example = "mydatabase",
+                    required = true
+            )
+            @PathVariable(value = "database", required = true) final String database,
+            @Parameter(
+                    description = "Name of the collection in which the documents are to be created. \n\n" +
+                            "> **Note**: The collection, if not exists, will be created automatically",
+                    example = "mycollection",
+                    required = true
+            )
+            @PathVariable(value = "collection", required = true) final String collection,
+            final HttpServletRequest request
+    ) {
+        return createInChunks(database, collection, request);
+    }
+
+    /**
+     * Creates multiple documents given as newline-delimited JSON.
+     *
+     * @param database  The name of the database
+     * @param collection  Name of the collection in which the documents are to be created.
+     * @param request  The request whose body contains one JSON document per line
+     *
+     * @return a future of one result per document, in input order, with a 200 status code, or with a 400 status code
+     * if the body turned out to be malformed after some documents have been written
+     */
+    @Operation(
+            tags = "Documents",
+            summary = "Create multiple documents from NDJSON",
+            description = "Same as the JSON array variant, except that the body contains one JSON document per line.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE)
+            )
+    )
+    @PostMapping(
+            value = "/createDocuments/{database}/{collection}",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    CompletableFuture<ResponseEntity<ArrayNode>> createDocumentsFromNdjson(
+            @Parameter(description = "ArangoDB database name", example = "mydatabase", required = true)
+            @PathVariable(value = "database", required = true) final String database,
+            @Parameter(description = "Name of the collection", example = "mycollection", required = true)
+            @PathVariable(value = "collection", required = true) final String collection,
+            final HttpServletRequest request
+    ) {
+        return createInChunks(database, collection, request);
+    }
+
+    /**
+     * Imports documents given as newline-delimited JSON or as a JSON array.
+     *
+     * @param database  The name of the database
+     * @param collection  Name of the collection into which the documents are to be imported
+     * @param onDuplicate  What to do with a document whose {@code _key} already exists
+     * @param details  Whether or not to describe every document that could not be imported
+     * @param request  The request whose body contains the documents
+     *
+     * @return a future of the import counts, in total and per chunk, with a 200 status code, or with a 400 status code
+     * if the body turned out to be malformed after some documents have been imported
+     */
+    @Operation(
+            tags = "Documents",
+            summary = "Import documents",
+            description = "Imports the documents given in the body, one JSON document per line or as a JSON array, " +
+                    "through the ArangoDB import API, which is faster than creating them. This is meant for loads of " +
+                    "millions of documents. \n\n" +
+                    "" +
+                    "The body is streamed: documents are read in chunks of up to " +
+                    "`kugelblitz.arango.import.chunk-size` documents or `kugelblitz.arango.import.chunk-bytes`, and " +
+                    "each chunk is sent to ArangoDB as soon as it is read, up to " +
+                    "`kugelblitz.arango.import.max-concurrent-chunks` of them at a time, so that memory use does not " +
+                    "grow with the size of the body. \n\n" +
+                    "" +
+                    "The response holds the number of documents read and the numbers `created`, `errors`, `empty`, " +
+                    "`updated`, and `ignored` in total and, under `chunks`, for each chunk in the order of the body. " +
+                    "A chunk that failed as a whole has `error` set to `true` together with the ArangoDB `errorNum` " +
+                    "and `errorMessage`, and its documents count as errors. If the body turns out to be malformed, " +
+                    "the chunks read before are still imported and the response is a `400 Bad Request` with the " +
+                    "counts and an `errorMessage`."
+    )
+    @PostMapping(
+            value = "/importDocuments/{database}/{collection}",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    CompletableFuture<ResponseEntity<ObjectNode>> importDocuments(
+            @Parameter(
+                    description = "ArangoDB database name. \n\n" +
+                            "> **Note**: The database, if not exists, will be created automatically",
+                    example = "mydatabase",
+                    required = true
+            )
+            @PathVariable(value = "database", required = true) final String database,
+            @Parameter(
+                    description = "Name of the collection into which the documents are to be imported. \n\n" +
+                            "> **Note**: The collection, if not exists, will be created automatically",
+                    example = "mycollection",
+                    required = true
+            )
+            @PathVariable(value = "collection", required = true) final String collection,
+            @Parameter(description = "What to do with a document whose `_key` already exists: `error`, `update`, " +
+                    "`replace`, or `ignore`")
+            @RequestParam(value = "onDuplicate", defaultValue = "error") final String onDuplicate,
+            @Parameter(description = "Whether to describe every document that could not be imported")
+            @RequestParam(value = "details", defaultValue = "false") final boolean details,
+            final HttpServletRequest request
+    ) {
+        try {
+            return importInChunks(database, collection, request.getInputStream(), onDuplicate, details);
+        } catch (final IOException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot read body", exception);
+        }
+    }
+
+    /**
+     * Imports documents from an uploaded file.
+     *
+     * @param database  The name of the database
+     * @param collection  Name of the collection into which the documents are to be imported
+     * @param onDuplicate  What to do with a document whose {@code _key} already exists
+     * @param details  Whether or not to describe every document that could not be imported
+     * @param file  The uploaded file, which contains one JSON document per line or a JSON array
+     *
+     * @return a future of the import counts, in total and per chunk, with a 200 status code, or with a 400 status code
+     * if the file turned out to be malformed after some documents have been imported
+     */
+    @Operation(
+            tags = "Documents",
+            summary = "Import documents from a file",
+            description = "Same as importing from the body, except that the documents are uploaded as the `file` " +
+                    "part of a multipart request."
+    )
+    @PostMapping(
+            value = "/importDocuments/{database}/{collection}",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    CompletableFuture<ResponseEntity<ObjectNode>> importDocumentsFromFile(
+            @Parameter(description = "ArangoDB database name", example = "mydatabase", required = true)
+            @PathVariable(value = "database", required = true) final String database,
+            @Parameter(description = "Name of the collection", example = "mycollection", required = true)
+            @PathVariable(value = "collection", required = true) final String collection,
+            @Parameter(description = "What to do with a document whose `_key` already exists: `error`, `update`, " +
+                    "`replace`, or `ignore`")
+            @RequestParam(value = "onDuplicate", defaultValue = "error") final String onDuplicate,
+            @Parameter(description = "Whether to describe every document that could not be imported")
+            @RequestParam(value = "details", defaultValue = "false") final boolean details,
+            @Parameter(description = "A JSONL file, or a file with a JSON array of documents", required = true)
+            @RequestPart(value = "file", required = true) final MultipartFile file
+    ) {
+        try (InputStream input = file.getInputStream()) {
+            return importInChunks(database, collection, input, onDuplicate, details);
+        } catch (final IOException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot read file", exception);
+        }
+    }
+
+    /**
+     * Reads a document.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection that contains the document
+     * @param key  The {@code _key} of the document
+     * @param ifNoneMatch  The {@code If-None-Match} header, if any
+     *
+     * @return a future of the document with its {@code _rev} as {@code ETag} and a 200 status code, or of an empty
+     * response with a 304 status code if {@code ifNoneMatch} matches the current {@code _rev}
+     */
+    @Operation(
+            tags = "Documents",
+            summary = "Get a document",
+            description = "Returns the document with the given `_key`, with its `_rev` as `ETag` header. \n\n" +
+                    "" +
+                    "If the `If-None-Match` header contains the current `_rev`, the response is a " +
+                    "`304 Not Modified` without body, so that clients can revalidate documents they hold. \n\n" +
+                    "" +
+                    "Documents are cached in memory for `kugelblitz.arango.read-cache.ttl`. A cached document is " +
+                    "served as is for `kugelblitz.arango.read-cache.fresh-for` and revalidated against ArangoDB by " +
+                    "its `_rev` afterwards, which costs a `304` from ArangoDB rather than the full document if it " +
+                    "has not changed. \n\n" +
+                    "" +
+                    "The response is a `404 Not Found` if the document, the collection, or the database does not " +
+                    "exist."
+    )
+    @GetMapping(value = "/getDocument/{database}/{collection}/{key}", produces = MediaType.APPLICATION_JSON_VALUE)
+    CompletableFuture<ResponseEntity<byte[]>> getDocument(
+            @Parameter(description = "ArangoDB database name", example = "mydatabase", required = true)
+            @PathVariable(value = "database", required = true) final String database,
+            @Parameter(description = "Name of the collection", example = "mycollection", required = true)
+            @PathVariable(value = "collection", required = true) final String collection,
+            @Parameter(description = "The `_key` of the document", example = "mykey", required = true)
+            @PathVariable(value = "key", required = true) final String key,
+            @Parameter(description = "The `_rev` of a copy the client holds, as returned in the `ETag` header")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch
+    ) {
+        return notFoundAsClientError(documentService.getDocument(database, collection, key)).thenApply(document -> {
+            final ETag etag = new ETag(document.rev(), false);
+            if (ifNoneMatch != null && ETag.parse(ifNoneMatch)
+                    .stream()
+                    .anyMatch(candidate -> candidate.isWildcard() || candidate.compare(etag, false))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.formattedTag()).build();
+            }
+            return ResponseEntity.ok().eTag(etag.formattedTag()).body(document.json());
+        });
+    }
+
+    /**
+     * Reads multiple documents.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection that contains the documents
+     * @param keys  The {@code _key}s of the documents
+     *
+     * @return a future of one result per key, in input order, with a 200 status code
+     */
+    @Operation(
+            tags = "Documents",
+            summary = "Get multiple documents",
+            description = "Returns the documents with the `_key`s given as JSON array in the body. \n\n" +
+                    "" +
+                    "The response is a JSON array with one entry per key, in the order of the request body. An " +
+                    "entry is either the document or, if there is no document with that key, an object with " +
+                    "`error` set to `true` together with the ArangoDB `errorNum` and `errorMessage`. \n\n" +
+                    "" +
+                    "Documents that are cached and fresh are served from memory; all others are read from ArangoDB " +
+                    "with a single request and cached."
+    )
+    @PostMapping(
+            value = "/getDocuments/{database}/{collection}",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    CompletableFuture<byte[]> getDocuments(
+            @Parameter(description = "ArangoDB database name", example = "mydatabase", required = true)
+            @PathVariable(value = "database", required = true) final String database,
+            @Parameter(description = "Name of the collection", example = "mycollection", required = true)
+            @PathVariable(value = "collection", required = true) final String collection,
+            @RequestBody final List<String> keys
+    ) {
+        return notFoundAsClientError(documentService.getDocuments(database, collection, keys))
+                .thenApply(Controller::toJsonArray);
+    }
+
+    /**
+     * Writes multiple documents, overwriting those that exist already.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection that contains the documents
+     * @param overwriteMode  What to do with a document whose {@code _key} exists already
+     * @param request  The request whose body is a JSON array of the documents, or one document per line
+     *
+     * @return a future of one result per document, in input order, with a 200 status code, or with a 400 status code
+     * if the body turned out to be malformed after some documents have been written
+     */
+    @Operation(
+            tags = "Documents",
+            summary = "Upsert multiple documents",
+            description = "Inserts the documents given in the body, as a JSON array or one per line. A document " +
+                    "whose `_key` exists already is handled according to `overwriteMode`: `update` merges it into " +
+                    "the existing document, `replace` replaces that, `ignore` keeps it unchanged, and `conflict` " +
+                    "reports a unique constraint violation for it. \n\n" +
+                    "" +
+                    "Documents are sent to ArangoDB in chunks like by \"Create multiple documents\", and the " +
+                    "response is a JSON array with one entry per document in the same form."
+    )
+    @PostMapping(
+            value = "/upsertDocuments/{database}/{collection}",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    CompletableFuture<ResponseEntity<ArrayNode>> upsertDocuments(
+            @Parameter(
+                    description = "ArangoDB database name. \n\n" +
+                            "> **Note**: The database, if not exists, will be created automatically",
+                    example = "mydatabase",
+                    required = true
+            )
+            @PathVariable(value = "database", required = true) final String database,
+            @Parameter(
+                    description = "Name of the collection. \n\n" +
+                            "> **Note**: The collection, if not exists, will be created automatically",
+                    example = "mycollection",
+                    required = true
+            )
+            @PathVariable(value = "collection", required = true) final String collection,
+            @Parameter(
+                    description = "What to do with a document whose `_key` exists already: `update`, `replace`, " +
+                            "`ignore`, or `conflict`",
+                    example = "update"
+            )
+            @RequestParam(value = "overwriteMode", defaultValue = "update") final String overwriteMode,
+            final HttpServletRequest request
+    ) {
+        if (!OVERWRITE_MODES.contains(overwriteMode)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    String.format("overwriteMode must be one of %s", OVERWRITE_MODES)
+            );
+        }
+
+        return writeInChunks(request, chunk -> collectionProvisioner.write(
+                database,
+                collection,
+                () -> documentService.upsertDocuments(database, collection, chunk, overwriteMode)
+        ));
+    }
+
+    /**
+     * Partially updates multiple documents.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection that contains the documents
+     * @param request  The request whose body is a JSON array of the partial documents, or one document per line
+     *
+     * @return a future of one result per document, in input order, with a 200 status code, or with a 400 status code
+     * if the body turned out to be malformed after some documents have been written
+     */
+    @Operation(
+            tags = "Documents",
+            summary = "Update multiple documents",
+            description = "Merges each document given in the body, as a JSON array or one per line, into the " +
+                    "existing document with the same `_key`. Documents are sent to ArangoDB in chunks like by " +
+                    "\"Create multiple documents\", and the response is a JSON array with one entry per document in " +
+                    "the same form; a document that does not exist is reported with `errorNum` `1202`. \n\n" +
+                    "" +
+                    "A database or collection that does not exist is answered with `404 Not Found`."
+    )
+    @PatchMapping(
+            value = "/updateDocuments/{database}/{collection}",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    CompletableFuture<ResponseEntity<ArrayNode>> updateDocuments(
+            @Parameter(description = "ArangoDB database name", example = "mydatabase", required = true)
+            @PathVariable(value = "database", required = true) final String database,
+            @Parameter(description = "Name of the collection", example = "mycollection", required = true)
+            @PathVariable(value = "collection", required = true) final String collection,
+            final HttpServletRequest request
+    ) {
+        return notFoundAsClientError(writeInChunks(
+                request,
+                chunk -> documentService.updateDocuments(database, collection, chunk)
+        ));
+    }
+
+    /**
+     * Replaces multiple documents.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection that contains the documents
+     * @param request  The request whose body is a JSON array of the new documents, or one document per line
+     *
+     * @return a future of one result per document, in input order, with a 200 status code, or with a 400 status code
+     * if the body turned out to be malformed after some documents have been written
+     */
+    @Operation(
+            tags = "Documents",
+            summary = "Replace multiple documents",
+            description = "Replaces the existing document with the same `_key` by each document given in the " +
+                    "body, as a JSON array or one per line. Documents are sent to ArangoDB in chunks like by " +
+                    "\"Create multiple documents\", and the response is a JSON array with one entry per document in " +
+                    "the same form; a document that does not exist is reported with `errorNum` `1202`. \n\n" +
+                    "" +
+                    "A database or collection that does not exist is answered with `404 Not Found`."
+    )
+    @PutMapping(
+            value = "/replaceDocuments/{database}/{collection}",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    CompletableFuture<ResponseEntity<ArrayNode>> replaceDocuments(
+            @Parameter(description = "ArangoDB database name", example = "mydatabase", required = true)
+            @PathVariable(value = "database", required = true) final String database,
+            @Parameter(description = "Name of the collection", example = "mycollection", required = true)
+            @PathVariable(value = "collection", required = true) final String collection,
+            final HttpServletRequest request
+    ) {
+        return notFoundAsClientError(writeInChunks(
+                request,
+                chunk -> documentService.replaceDocuments(database, collection, chunk)
+        ));
+    }
+
+    /**
+     * Deletes multiple documents.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection that contains the documents
+     * @param request  The request whose body is a JSON array of the {@code _key}s of the documents
+     *
+     * @return a future of one result per key, in input order, with a 200 status code, or with a 400 status code if the
+     * body turned out to be malformed after some documents have been deleted
+     */
+    @Operation(
+            tags = "Documents",
+            summary = "Delete multiple documents",
+            description = "Deletes the documents with the `_key`s given as JSON array in the body; objects with a " +
+                    "`_key` are accepted in place of keys, too. Keys are sent to ArangoDB in chunks like by " +
+                    "\"Create multiple documents\". \n\n" +
+                    "" +
+                    "The response is a JSON array with one entry per key, in the order of the request body. An " +
+                    "entry is either an object with the `_id`, `_key`, and `_rev` of the deleted document or, if " +
+                    "that document could not be deleted, an object with `error` set to `true` together with the " +
+                    "ArangoDB `errorNum` and `errorMessage`. A database or collection that does not exist is " +
+                    "answered with `404 Not Found`.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(type = "string"))
+                    )
+            )
+    )
+    @PostMapping(
+            value = "/deleteDocuments/{database}/{collection}",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    CompletableFuture<ResponseEntity<ArrayNode>> deleteDocuments(
+            @Parameter(description = "ArangoDB database name", example = "mydatabase", required = true)
+            @PathVariable(value = "database", required = true) final String database,
+            @Parameter(description = "Name of the collection", example = "mycollection", required = true)
+            @PathVariable(value = "collection", required = true) final String collection,
+            final HttpServletRequest request
+    ) {
+        return notFoundAsClientError(writeInChunks(
+                request,
+                chunk -> documentService.deleteDocuments(database, collection, chunk)
+        ));
+    }
+
+    /**
+     * Runs a read-only AQL query and streams its results.
+     *
+     * @param database  The name of the database
+     * @param batchSize  The number of results read from ArangoDB per request, {@code null} for the default
+     * @param query  The query and its bind parameters
+     * @param accept  The {@code Accept} header, if any
+     * @param request  The request, which streams for up to {@code kugelblitz.arango.query.timeout}
+     *
+     * @return a future of the results with a 200 status code, written while they are read from ArangoDB
+     */
+    @Operation(
+            tags = "Queries",
+            summary = "Run a read-only AQL query",
+            description = "Runs the AQL query given in the body and streams its results while they are read from " +
+                    "ArangoDB, so that queries over large collections neither wait for nor hold their full result. " +
+                    "\n\n" +
+                    "" +
+                    "Results are read through an ArangoDB cursor, `batchSize` at a time (default " +
+                    "`kugelblitz.arango.query.batch-size`). Each batch is written to the client before the next " +
+                    "one is requested. If the client disconnects, the cursor is deleted. The results are streamed " +
+                    "for at most `kugelblitz.arango.query.timeout`. At most `kugelblitz.arango.query.max-concurrent` " +
+                    "queries stream at the same time; further ones are answered with `503 Service Unavailable`. \n\n" +
+                    "" +
+                    "The results are written as one JSON value per line (`application/x-ndjson`), unless the " +
+                    "`Accept` header asks for `application/json` first, in which case they are written as a JSON " +
+                    "array. \n\n" +
+                    "" +
+                    "Queries must be read-only: a query that inserts, updates, replaces, removes, or upserts " +
+                    "documents is answered with `400 Bad Request` without running; the document endpoints are " +
+                    "there for writes. \n\n" +
+                    "" +
+                    "An invalid query is answered with `400 Bad Request`, and a query over a database or " +
+                    "collection that does not exist with `404 Not Found`. If reading a later batch fails, the " +
+                    "results end with an object with `error` set to `true` together with the ArangoDB `errorNum` " +
+                    "and `errorMessage`."
+    )
+    @PostMapping(
+            value = "/query/{database}",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE}
+    )
+    CompletableFuture<ResponseEntity<StreamingResponseBody>> query(
+            @Parameter(description = "ArangoDB database name", example = "mydatabase", required = true)
+            @PathVariable(value = "database", required = true) final String database,
+            @Parameter(description = "Number of results read from ArangoDB per request", example = "1000")
+            @RequestParam(value = "batchSize", required = false) final Integer batchSize,
+            @RequestBody final AqlQuery query,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept,
+            final HttpServletRequest request
+    ) {
+        if (query.query() == null || query.query().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Body must contain a query");
+        }
+        if (batchSize != null && batchSize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "batchSize must be positive");
+        }
+
+        QueryTimeout.extend(request);
+        final MediaType format = resultFormat(accept);
+        final int size = batchSize == null ? queryBatchSize : batchSize;
+        queryTimeout.admit(request);
+        return queryErrorAsClientError(Futures.call(() -> queryService.query(database, query, size)))
+                .thenApply(cursor -> ResponseEntity.ok()
+                        .contentType(format)
+                        .body(output -> writeResults(cursor, output, MediaType.APPLICATION_JSON.equals(format))));
+    }
+
+    /**
+     * Writes the results of a query, reading one batch after another.
+     * <p>
+     * If the client goes away, which shows as a failure to write to it, the cursor is deleted. If reading a batch
+     * fails, the failure is written as a last result and the cursor is deleted, should it still exist.
+     *
+     * @param first  The first batch
+     * @param output  The response body
+     * @param array  {@code true} to write a JSON array, {@code false} to write one result per line
+     *
+     * @throws IOException if the results cannot be written to the client
+     */
+    private void writeResults(final AqlCursor first, final OutputStream output, final boolean array)
+            throws IOException {
+        AqlCursor cursor = first;
+        try (JsonGenerator generator = JSON_MAPPER.createGenerator(output)) {
+            generator.setRootValueSeparator(null);
+            if (array) {
+                generator.writeStartArray();
+            }
+            while (true) {
+                for (final JsonNode result : cursor.batch()) {
+                    writeResult(generator, result, array);
+                }
+                generator.flush();
+                if (!cursor.hasMore()) {
+                    break;
+                }
+
+                try {
+                    cursor = Futures.join(queryService.next(cursor));
+                } catch (final RuntimeException exception) {
+                    LOG.warn(String.format("Query in %s failed while streaming", cursor.database()), exception);
+                    writeResult(generator, toErrorResult(exception), array);
+                    queryService.close(cursor);
+                    break;
+                }
+            }
+            if (array) {
+                generator.writeEndArray();
+            }
+        } catch (final IOException exception) {
+            queryService.close(cursor);
+            throw exception;
+        }
+    }
+
+    /**
+     * Writes one result of a query.
+     *
+     * @param generator  The generator writing the response body
+     * @param result  The result
+     * @param array  {@code true} if the results are written as a JSON array, {@code false} if one per line
+     *
+     * @throws IOException if the result cannot be written to the client
+     */
+    private static void writeResult(final JsonGenerator generator, final JsonNode result, final boolean array)
+            throws IOException {
+        generator.writeTree(result);
+        if (!array) {
+            generator.writeRaw('\n');
+        }
+    }
+
+    /**
+     * Describes a failure in the shape ArangoDB reports errors in.
+     *
+     * @param failure  The failure
+     *
+     * @return an object with {@code error}, {@code errorNum}, and {@code errorMessage}
+     */
+    private static ObjectNode toErrorResult(final Throwable failure) {
+        final ObjectNode error = JSON_MAPPER.createObjectNode().put("error", true);
+        if (failure instanceof ArangoApiException exception) {
+            error.put("errorNum", exception.getErrorNum()).put("errorMessage", exception.getErrorMessage());
+        } else {
+            error.put("errorNum", 0).put("errorMessage", failure.getMessage());
+        }
+        return error;
+    }
+
+    /**
+     * Picks the format of query results from the {@code Accept} header.
+     *
+     * @param accept  The {@code Accept} header, {@code null} if there is none
+     *
+     * @return {@link MediaType#APPLICATION_JSON} if {@code accept} lists it before
+     * {@link MediaType#APPLICATION_NDJSON}, {@link MediaType#APPLICATION_NDJSON} otherwise
+     */
+    private static MediaType resultFormat(final String accept) {
+        if (accept != null) {
+            for (final MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON)) {
+                    return MediaType.APPLICATION_NDJSON;
+                }
+                if (type.equalsTypeAndSubtype(MediaType.APPLICATION_JSON)) {
+                    return MediaType.APPLICATION_JSON;
+                }
+            }
+        }
+        return MediaType.APPLICATION_NDJSON;
+    }
+
+    /**
+     * Turns the failure of a query that ArangoDB rejected into a client error: {@code 400 Bad Request} for an
+     * invalid query and {@code 404 Not Found} for a missing database or collection.
+     *
+     * @param query  The query
+     * @param <T>  The result type
+     *
+     * @return a future completed like {@code query}, except for rejected queries
+     */
+    private static <T> CompletableFuture<T> queryErrorAsClientError(final CompletableFuture<T> query) {
+        return query.exceptionallyCompose(failure -> {
+            final Throwable cause = Futures.unwrap(failure);
+            if (cause instanceof ArangoApiException exception
+                    && (exception.getStatusCode() == 400 || exception.getStatusCode() == 404)) {
+                return CompletableFuture.failedFuture(new ResponseStatusException(
+                        HttpStatus.valueOf(exception.getStatusCode()),
+                        exception.getErrorMessage(),
+                        exception
+                ));
+            }
+            return CompletableFuture.failedFuture(cause);
+        });
+    }
+
+    /**
+     * Turns the failure of an insert whose document ArangoDB rejected into a client error: {@code 400 Bad Request}
+     * for an invalid document and {@code 409 Conflict} for a duplicate key or unique index value.
+     *
+     * @param insert  The insert
+     * @param <T>  The result type
+     *
+     * @return a future completed like {@code insert}, except for rejected documents
+     */
+    private static <T> CompletableFuture<T> rejectedDocumentAsClientError(final CompletableFuture<T> insert) {
+        return insert.exceptionallyCompose(failure -> {
+            final Throwable cause = Futures.unwrap(failure);
+            if (cause instanceof ArangoApiException exception
+                    && (exception.getStatusCode() == 400 || exception.getStatusCode() == 409)) {
+                return CompletableFuture.failedFuture(new ResponseStatusException(
+                        HttpStatus.valueOf(exception.getStatusCode()),
+                        exception.getErrorMessage(),
+                        exception
+                ));
+            }
+            return CompletableFuture.failedFuture(cause);
+        });
+    }
+
+    /**
+     * Turns the failure of a read whose document, collection, or database does not exist into a
+     * {@code 404 Not Found} for the client.
+     *
+     * @param read  The read
+     * @param <T>  The result type
+     *
+     * @return a future completed like {@code read}, except for not found errors
+     */
+    private static <T> CompletableFuture<T> notFoundAsClientError(final CompletableFuture<T> read) {
+        return read.exceptionallyCompose(failure -> {
+            final Throwable cause = Futures.unwrap(failure);
+            if (cause instanceof ArangoApiException exception && exception.getStatusCode() == 404) {
+                return CompletableFuture.failedFuture(new ResponseStatusException(
+                        HttpStatus.NOT_FOUND,
+                        exception.getErrorNum() == ArangoApiException.DOCUMENT_NOT_FOUND
+                                ? "Document not found"
+                                : "Collection or database not found",
+                        exception
+                ));
+            }
+            return CompletableFuture.failedFuture(cause);
+        });
+    }
+
+    /**
+     * Joins encoded JSON values into a JSON array.
+     *
+     * @param elements  The encoded values
+     *
+     * @return the encoded array
+     */
+    private static byte[] toJsonArray(final List<byte[]> elements) {
+        final ByteArrayOutputStream array = new ByteArrayOutputStream(
+                elements.stream().mapToInt(element -> element.length + 1).sum() + 2
+        );
+        array.write('[');
+        for (int index = 0; index < elements.size(); index++) {
+            if (index > 0) {
+                array.write(',');
+            }
+            array.writeBytes(elements.get(index));
+        }
+        array.write(']');
+        return array.toByteArray();
+    }
+
+    /**
+     * Reads documents chunk by chunk and imports each chunk as soon as it is read.
+     * <p>
+     * Up to {@code kugelblitz.arango.import.max-concurrent-chunks} chunks are in flight at the same time; reading
+     * waits for one of them to complete before it goes on. At most that many chunks plus the one being read are held
+     * in memory, however large the input is.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection
+     * @param body  The documents, one per line or as a JSON array
+     * @param onDuplicate  What to do with a document whose {@code _key} already exists
+     * @param details  Whether or not to describe every document that could not be imported
+     *
+     * @return a future of the import counts, in total and per chunk, once all chunks have been imported
+     *
+     * @throws IOException if the input cannot be read
+     */
+    private CompletableFuture<ResponseEntity<ObjectNode>> importInChunks(
+            final String database,
+            final String collection,
+            final InputStream body,
+            final String onDuplicate,
+            final boolean details
+    ) throws IOException {
+        if (!ON_DUPLICATE.contains(onDuplicate)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "onDuplicate must be one of error, update, replace, or ignore"
+            );
+        }
+
+        final Semaphore permits = new Semaphore(maxConcurrentImportChunks);
+        final List<CompletableFuture<ObjectNode>> chunkResults = new ArrayList<>();
+        final PushbackInputStream input = new PushbackInputStream(body, 1);
+        final boolean inArray = startsWithArray(input);
+        String malformed = null;
+
+        try (JsonParser parser = JSON_MAPPER.createParser(input)) {
+            if (inArray) {
+                parser.nextToken();
+            }
+            JsonBody chunk = JsonBody.nextLines(parser, inArray, importChunkSize, importChunkBytes.toBytes());
+            while (chunk != null) {
+                acquire(permits);
+                final JsonBody documents = chunk;
+                chunkResults.add(collectionProvisioner.write(
+                        database,
+                        collection,
+                        () -> documentService.importDocuments(database, collection, documents, onDuplicate, details)
+                ).handle((result, failure) -> {
+                    permits.release();
+                    return toChunkResult(documents.count(), result, failure);
+                }));
+                chunk = JsonBody.nextLines(parser, inArray, importChunkSize, importChunkBytes.toBytes());
+            }
+        } catch (final JsonProcessingException exception) {
+            malformed = "Malformed body: " + exception.getOriginalMessage();
+        }
+
+        final String errorMessage = malformed;
+        return CompletableFuture.allOf(chunkResults.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            final ObjectNode summary = JSON_MAPPER.createObjectNode().put("documents", 0);
+            IMPORT_COUNTS.forEach(count -> summary.put(count, 0));
+            final ArrayNode chunks = JSON_MAPPER.createArrayNode();
+            for (final CompletableFuture<ObjectNode> chunkResult : chunkResults) {
+                final ObjectNode result = chunkResult.join();
+                summary.put("documents", summary.get("documents").asLong() + result.get("documents").asLong());
+                IMPORT_COUNTS.forEach(count -> summary.put(
+                        count,
+                        summary.get(count).asLong() + result.path(count).asLong()
+                ));
+                chunks.add(result);
+            }
+            if (errorMessage != null) {
+                summary.put("error", true).put("errorMessage", errorMessage);
+            }
+            summary.set("chunks", chunks);
+
+            return ResponseEntity.status(errorMessage == null ? HttpStatus.OK : HttpStatus.BAD_REQUEST).body(summary);
+        });
+    }
+
+    /**
+     * Describes the outcome of importing a chunk.
+     *
+     * @param documents  The number of documents in the chunk
+     * @param result  The ArangoDB import result, {@code null} if the import failed
+     * @param failure  Why the import failed, {@code null} if it did not
+     *
+     * @return the number of {@code documents} with the import counts, or, if the chunk failed as a whole, with the
+     * error, counting all of its documents as {@code errors}
+     */
+    private static ObjectNode toChunkResult(final int documents, final JsonNode result, final Throwable failure) {
+        if (failure != null) {
+            return JSON_MAPPER.createObjectNode()
+                    .put("documents", documents)
+                    .put("errors", documents)
+                    .setAll(toErrorResult(Futures.unwrap(failure)));
+        }
+
+        final ObjectNode chunkResult = JSON_MAPPER.createObjectNode().put("documents", documents);
+        IMPORT_COUNTS.forEach(count -> chunkResult.put(count, result.path(count).asLong()));
+        if (result.has("details")) {
+            chunkResult.set("details", result.get("details"));
+        }
+        return chunkResult;
+    }
+
+    /**
+     * Tells whether some input is a JSON array rather than a sequence of JSON values, without consuming any of it.
+     *
+     * @param input  The input
+     *
+     * @return {@code true} if the first character that is not whitespace is {@code [}
+     *
+     * @throws IOException if the input cannot be read
+     */
+    private static boolean startsWithArray(final PushbackInputStream input) throws IOException {
+        int next = input.read();
+        while (next != -1 && Character.isWhitespace(next)) {
+            next = input.read();
+        }
+        if (next != -1) {
+            input.unread(next);
+        }
+        return next == '[';
+    }
+
+    /**
+     * Waits for a chunk to be allowed in flight.
+     *
+     * @param permits  The permits of chunks in flight
+     */
+    private static void acquire(final Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a chunk to complete", exception);
+        }
+    }
+
+    /**
+     * Reads the documents of a batch request chunk by chunk and sends each chunk to ArangoDB as soon as it is read.
+     * <p>
+     * Up to {@code kugelblitz.arango.batch.max-concurrent-chunks} chunks are in flight at the same time; reading waits
+     * for one of them to complete before it goes on, so that at most that many chunks plus the one being read are held
+     * in memory, however large the body is. A chunk that fails as a whole is reported as failed for each of its
+     * documents, and the following chunks are sent nevertheless.
+     *
+     * @param request  The request whose body is a JSON array or, if its content type says so, newline-delimited JSON
+     * @param write  Sends one chunk of at most {@code kugelblitz.arango.batch.chunk-size} documents and completes with
+     * its per-document results
+     *
+     * @return a future of the per-document results of all chunks, in input order, with a 200 status code, or with a
+     * 400 status code and a final error entry if the body turned out to be malformed after some chunks have been sent.
+     * The future fails only if the database or collection does not exist
+     */
+    private CompletableFuture<ResponseEntity<ArrayNode>> writeInChunks(
+            final HttpServletRequest request,
+            final Function<JsonBody, CompletableFuture<ArrayNode>> write
+    ) {
+        final boolean ndjson = MediaType.APPLICATION_NDJSON.isCompatibleWith(
+                MediaType.parseMediaType(request.getContentType())
+        );
+        final Semaphore permits = new Semaphore(maxConcurrentChunks);
+        final AtomicBoolean notFound = new AtomicBoolean();
+        final List<CompletableFuture<ArrayNode>> chunkResults = new ArrayList<>();
+        String malformed = null;
+
+        try (JsonParser parser = JSON_MAPPER.createParser(request.getInputStream())) {
+            if (!ndjson && parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Body must be a JSON array");
+            }
+            JsonBody chunk = JsonBody.nextArray(parser, !ndjson, chunkSize);
+            while (chunk != null) {
+                acquire(permits);
+                if (notFound.get()) {
+                    break;
+                }
+                final JsonBody documents = chunk;
+                chunkResults.add(Futures.call(() -> write.apply(documents))
+                        .exceptionallyCompose(failure -> toErrorResults(documents.count(), failure))
+                        .whenComplete((results, failure) -> {
+                            if (failure != null) {
+                                notFound.set(true);
+                            }
+                            permits.release();
+                        }));
+                chunk = JsonBody.nextArray(parser, !ndjson, chunkSize);
+            }
+        } catch (final JsonProcessingException exception) {
+            if (chunkResults.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed JSON body", exception);
+            }
+            malformed = "Malformed body: " + exception.getOriginalMessage();
+        } catch (final IOException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed JSON body", exception);
+        }
+
+        final String errorMessage = malformed;
+        return CompletableFuture.allOf(chunkResults.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            final ArrayNode results = JSON_MAPPER.createArrayNode();
+            chunkResults.forEach(chunkResult -> results.addAll(chunkResult.join()));
+            if (errorMessage != null) {
+                results.addObject().put("error", true).put("errorNum", 0).put("errorMessage", errorMessage);
+            }
+
+            return ResponseEntity.status(errorMessage == null ? HttpStatus.OK : HttpStatus.BAD_REQUEST).body(results);
+        });
+    }
+
+    /**
+     * Describes the failure of a chunk as a whole as the failure of each of its documents.
+     *
+     * @param documents  The number of documents in the chunk
+     * @param failure  Why the chunk failed
+     *
+     * @return a future of one error result per document, or a future failed with {@code failure} if the database or
+     * collection does not exist, which fails every other chunk as well
+     */
+    private static CompletableFuture<ArrayNode> toErrorResults(final int documents, final Throwable failure) {
+        final Throwable cause = Futures.unwrap(failure);
+        if (cause instanceof ArangoApiException exception && exception.isDatabaseOrCollectionNotFound()) {
+            return CompletableFuture.failedFuture(cause);
+        }
+
+        final ObjectNode error = toErrorResult(cause);
+        final ArrayNode results = JSON_MAPPER.createArrayNode();
+        for (int index = 0; index < documents; index++) {
+            results.add(error.deepCopy());
+        }
+        return CompletableFuture.completedFuture(results);
+    }
+
+    /**
+     * Sends chunks of new documents to ArangoDB, creating the collection and database if needed.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection
+     * @param request  The request whose body is a JSON array or, if its content type says so, newline-delimited JSON
+     *
+     * @return a future of the per-document results of all chunks, in input order, as by
+     * {@link #writeInChunks(HttpServletRequest, Function)}
+     */
+    private CompletableFuture<ResponseEntity<ArrayNode>> createInChunks(
+            final String database,
+            final String collection,
+            final HttpServletRequest request
+    ) {
+        return writeInChunks(request, chunk -> collectionProvisioner.write(
+                database,
+                collection,
+                () -> documentService.createDocuments(database, collection, chunk)
+        ));
     }
 }
@@ -22,9 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A standard Spring service layer responsible for the database-related interaction between Kugelblitz and ArangoDB.
@@ -34,39 +32,49 @@ class DatabaseService extends AbstractRestService {
 
     private static final Logger LOG = LoggerFactory.getLogger(DatabaseService.class);
 
+    private static final String DATABASES = "/_db/_system/_api/database";
+
     /**
      * Returns whether or not a database with a specified name already exists.
      *
      * @param database  The name of the database to check for
      *
-     * @return {@code true} if the databases exists or {@code false} otherwise
+     * @return a future of {@code true} if the databases exists or {@code false} otherwise
      */
-    @SuppressWarnings("unchecked")
-    protected boolean databaseExists(final String database) {
-        final JsonNode allDatabases = get(host + "/_db/_system/_api/database").get("result");
-
-        try {
-            return ((List<String>) JSON_MAPPER
-                    .readerForListOf(String.class)
-                    .readValue(allDatabases)).contains(database);
-        } catch (final IOException exception) {
-            LOG.error(String.format("Error deserializing %s", allDatabases), exception);
-            throw new IllegalStateException(FAILED_REQUEST_MESSAGE, exception);
-        }
+    protected CompletableFuture<Boolean> databaseExists(final String database) {
+        return observe("databaseExists", () -> getAsync(ArangoOperation.LIST_DATABASES, DATABASES)
+                .thenApply(response -> {
+                    for (final JsonNode name : response.path("result")) {
+                        if (database.equals(name.asText())) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }));
     }
 
     /**
      * Creates a new database.
+     * <p>
+     * A database with the same name that already exists, for example because a concurrent request has just created
+     * it, is not considered an error.
      *
      * @param database  The name of the database to be created.
+     *
+     * @return a future that completes once the database exists
      */
-    protected void createDatabase(final String database) {
+    protected CompletableFuture<Void> createDatabase(final String database) {
         final ObjectNode newDatabase = JSON_MAPPER.createObjectNode();
         newDatabase.put("name", database);
-        post(
-                host + "/_db/_system/_api/database",
-                newDatabase,
-                Map.of("Content-Type", "application/json", "Authorization", "bearer " + getJwtToken())
-        );
+
+        return observe("createDatabase", () -> postAsync(ArangoOperation.CREATE_DATABASE, DATABASES, newDatabase)
+                .<Void>thenApply(created -> null)
+                .exceptionally(failure -> {
+                    if (!ArangoApiException.hasErrorNum(failure, ArangoApiException.DUPLICATE_NAME)) {
+                        throw Futures.rethrow(failure);
+                    }
+                    LOG.debug(String.format("Database %s has been created concurrently", database));
+                    return null;
+                }));
     }
 }
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.BaseUnits;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * {@link DocumentCache} keeps recently read documents in memory, keyed by database and {@code _id} and stored with
+ * their {@code _rev}.
+ * <p>
+ * The cache is bounded by the encoded size of the documents it holds, {@code kugelblitz.arango.read-cache.maximum-size}
+ * (default 64 MB), and an entry is evicted {@code kugelblitz.arango.read-cache.ttl} (default 5 minutes) after it was
+ * last fetched or revalidated. Within {@code kugelblitz.arango.read-cache.fresh-for} (default {@code 0}, never) of
+ * that, an entry is served as is; after that it is revalidated against ArangoDB with {@code If-None-Match}, which
+ * costs a {@code 304 Not Modified} rather than the document if the {@code _rev} is unchanged.
+ * <p>
+ * Concurrent reads of a document that is missing or due for revalidation share one request to ArangoDB. How reads
+ * were served is counted by {@code kugelblitz.arango.read-cache.requests}, tagged with {@code result} {@code hit},
+ * {@code not-modified}, or {@code fetched}.
+ */
+@Component
+class DocumentCache implements InitializingBean {
+
+    /**
+     * Estimated memory taken by an entry besides its document.
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final ConcurrentMap<Key, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistries;
+
+    @Value("${kugelblitz.arango.read-cache.maximum-size:64MB}")
+    private DataSize maximumSize;
+
+    @Value("${kugelblitz.arango.read-cache.ttl:PT5M}")
+    private Duration ttl;
+
+    @Value("${kugelblitz.arango.read-cache.fresh-for:PT0S}")
+    private Duration freshFor;
+
+    private Cache<Key, Entry> documents;
+    private Counter hits;
+    private Counter notModified;
+    private Counter fetched;
+
+    @Override
+    public void afterPropertiesSet() {
+        documents = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((Key key, Entry entry) -> ENTRY_OVERHEAD + key.id().length() + entry.json().length)
+                .expireAfterWrite(ttl)
+                .build();
+
+        final MeterRegistry meterRegistry = meterRegistries.getIfAvailable(() -> Metrics.globalRegistry);
+        hits = requests(meterRegistry, "hit");
+        notModified = requests(meterRegistry, "not-modified");
+        fetched = requests(meterRegistry, "fetched");
+        Gauge.builder("kugelblitz.arango.read-cache.size", documents, Cache::estimatedSize)
+                .description("Number of cached documents")
+                .register(meterRegistry);
+        Gauge.builder(
+                        "kugelblitz.arango.read-cache.weight",
+                        documents,
+                        cache -> cache.policy().eviction().orElseThrow().weightedSize().orElse(0)
+                )
+                .description("Estimated memory taken by cached documents")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns a document, from the cache if it is fresh, or by loading it otherwise.
+     * <p>
+     * The loader is given the cached entry, if any, to revalidate it; it completes with that very entry if ArangoDB
+     * reports it unchanged. While a load is in progress, further reads of the same document wait for it rather than
+     * starting their own. A failed load discards the cached entry.
+     *
+     * @param database  The name of the database
+     * @param id  The {@code _id} of the document
+     * @param loader  Fetches or revalidates the document, given the cached entry or {@code null}
+     *
+     * @return a future of the current document
+     */
+    CompletableFuture<Entry> get(
+            final String database,
+            final String id,
+            final Function<Entry, CompletableFuture<Entry>> loader
+    ) {
+        final Key key = new Key(database, id);
+        final Entry cached = documents.getIfPresent(key);
+        if (cached != null && cached.isFresh(freshFor)) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        final CompletableFuture<Entry> pending = new CompletableFuture<>();
+        final CompletableFuture<Entry> existing = loading.putIfAbsent(key, pending);
+        if (existing != null) {
+            return existing;
+        }
+
+        Futures.call(() -> loader.apply(cached)).whenComplete((entry, failure) -> {
+            if (failure != null) {
+                documents.invalidate(key);
+                loading.remove(key, pending);
+                pending.completeExceptionally(Futures.unwrap(failure));
+                return;
+            }
+
+            final Entry current = entry == cached ? cached.revalidated() : entry;
+            (entry == cached ? notModified : fetched).increment();
+            documents.put(key, current);
+            loading.remove(key, pending);
+            pending.complete(current);
+        });
+        return pending;
+    }
+
+    /**
+     * Returns a cached document if it is fresh enough to be served without revalidation.
+     *
+     * @param database  The name of the database
+     * @param id  The {@code _id} of the document
+     *
+     * @return the cached entry, or {@code null} if there is none or it is due for revalidation
+     */
+    Entry getIfFresh(final String database, final String id) {
+        final Entry cached = documents.getIfPresent(new Key(database, id));
+        if (cached == null || !cached.isFresh(freshFor)) {
+            return null;
+        }
+
+        hits.increment();
+        return cached;
+    }
+
+    /**
+     * Stores a document that has just been fetched.
+     *
+     * @param database  The name of the database
+     * @param id  The {@code _id} of the document
+     * @param entry  The document
+     */
+    void put(final String database, final String id, final Entry entry) {
+        fetched.increment();
+        documents.put(new Key(database, id), entry);
+    }
+
+    /**
+     * Forgets a document, for example because it has been changed or deleted.
+     *
+     * @param database  The name of the database
+     * @param id  The {@code _id} of the document
+     */
+    void invalidate(final String database, final String id) {
+        documents.invalidate(new Key(database, id));
+    }
+
+    /**
+     * Forgets all documents of a collection, for example because an import has changed documents whose keys are not
+     * known.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection
+     */
+    void invalidateCollection(final String database, final String collection) {
+        final String prefix = collection + "/";
+        documents.asMap().keySet().removeIf(key -> key.database().equals(database) && key.id().startsWith(prefix));
+    }
+
+    /**
+     * Creates the counter of reads served in a certain way.
+     *
+     * @param meterRegistry  The registry to register the counter with
+     * @param result  {@code hit}, {@code not-modified}, or {@code fetched}
+     *
+     * @return the counter
+     */
+    private static Counter requests(final MeterRegistry meterRegistry, final String result) {
+        return Counter.builder("kugelblitz.arango.read-cache.requests")
+                .description("Document reads by how they were served")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * A document.
+     *
+     * @param database  The name of the database
+     * @param id  The {@code _id} of the document
+     */
+    private record Key(String database, String id) {
+    }
+
+    /**
+     * A cached document.
+     *
+     * @param rev  The {@code _rev} of the document
+     * @param json  The encoded document
+     * @param validatedAt  When the document was last fetched or revalidated, in {@link System#nanoTime()} terms
+     */
+    record Entry(String rev, byte[] json, long validatedAt) {
+
+        /**
+         * Creates an entry for a document that has just been fetched.
+         *
+         * @param rev  The {@code _rev} of the document
+         * @param json  The encoded document
+         */
+        Entry(final String rev, final byte[] json) {
+            this(rev, json, System.nanoTime());
+        }
+
+        /**
+         * Returns whether or not this entry can be served without revalidation.
+         *
+         * @param freshFor  How long after its validation an entry stays fresh
+         *
+         * @return {@code true} if this entry has been validated less than {@code freshFor} ago
+         */
+        private boolean isFresh(final Duration freshFor) {
+            return System.nanoTime() - validatedAt < freshFor.toNanos();
+        }
+
+        /**
+         * Returns this entry, validated now.
+         *
+         * @return a copy of this entry with the current time as its validation time
+         */
+        private Entry revalidated() {
+            return new Entry(rev, json);
+        }
+    }
+}
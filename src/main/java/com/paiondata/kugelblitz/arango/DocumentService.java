@@ -15,19 +15,52 @@
  */
 package com.paiondata.kugelblitz.arango;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ETag;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A standard Spring service layer responsible for the document-related interaction between Kugelblitz and ArangoDB.
+ * <p>
+ * Documents are stored with the JSON types their clients sent. Setting
+ * {@code kugelblitz.arango.documents.stringify-values} to {@code true} restores the behavior of earlier versions,
+ * which stored the string form of every top-level value.
+ * <p>
+ * Documents that are read are kept in the {@link DocumentCache}, so that a document that has not changed since it was
+ * last read costs a {@code 304 Not Modified}, or no request at all, instead of a full fetch.
  */
 @Service
 class DocumentService extends AbstractRestService {
 
+    private static final TypeReference<Map<String, Object>> ENTITY_TYPE = new TypeReference<>() { };
+
+    @Value("${kugelblitz.arango.documents.stringify-values:false}")
+    private boolean stringifyValues;
+
+    @Autowired
+    private DocumentCache documentCache;
+
     /**
      * Creates a document.
      * <p>
@@ -35,18 +68,429 @@ class DocumentService extends AbstractRestService {
      *
      * @param database  The database name that stores the document
      * @param collection  The collection name that contains the document
+     * @param document  The encoded document, as returned by {@link #toDocument(JsonParser)}
+     *
+     * @return a future of the newly created document
+     */
+    CompletableFuture<JsonNode> createDocument(
+            final String database,
+            final String collection,
+            final JsonBody document
+    ) {
+        return observe("createDocument", () -> postAsync(
+                ArangoOperation.INSERT_DOCUMENT,
+                String.format("/_db/%s/_api/document/%s", database, collection),
+                document
+        ));
+    }
+
+    /**
+     * Reads a document sent by a client and encodes it for ArangoDB.
+     * <p>
+     * The document is copied token by token, so that it keeps its value types and nesting and no tree of it is built.
+     * With {@code kugelblitz.arango.documents.stringify-values}, it is converted by {@link #stringify(Map)} instead.
+     *
+     * @param parser  A parser over the client request body that has not read any token yet
+     *
+     * @return the encoded document
+     *
+     * @throws IOException if the body is not a well-formed JSON object
+     */
+    JsonBody toDocument(final JsonParser parser) throws IOException {
+        if (stringifyValues) {
+            final Map<String, Object> entity = JSON_MAPPER.readValue(parser, ENTITY_TYPE);
+            if (entity == null) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            return JsonBody.of(stringify(entity));
+        }
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object");
+        }
+        return JsonBody.write(1, generator -> generator.copyCurrentStructure(parser));
+    }
+
+    /**
+     * Converts the fields of a client entity into the document stored in ArangoDB the way earlier versions did: every
+     * value is replaced by its {@link Object#toString() string form}.
+     *
      * @param entity  An object that contains all fields of the document to be created
      *
-     * @return the newly created document
+     * @return the document to be sent to ArangoDB
      */
-    JsonNode createDocument(final String database, final String collection, final Map<String, Object> entity) {
+    ObjectNode stringify(final Map<String, Object> entity) {
         final ObjectNode document = JSON_MAPPER.createObjectNode();
         entity.forEach((key, value) -> document.put(key, value.toString()));
+        return document;
+    }
+
+    /**
+     * Creates multiple documents with a single request.
+     * <p>
+     * The method assumes the database and collection already exist, otherwise an error occurs. A document that
+     * cannot be inserted, for example because of a duplicate {@code _key}, does not fail the other documents; its
+     * error is reported at its position of the returned array instead.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/documents/#create-multiple-documents
+     *
+     * @param database  The database name that stores the documents
+     * @param collection  The collection name that contains the documents
+     * @param documents  An encoded JSON array of the documents to be created
+     *
+     * @return a future of one result per document, in the order of {@code documents}. Each result is either the
+     * {@code _id}, {@code _key}, and {@code _rev} of the new document or an object with {@code error},
+     * {@code errorNum}, and {@code errorMessage}
+     */
+    CompletableFuture<ArrayNode> createDocuments(
+            final String database,
+            final String collection,
+            final JsonBody documents
+    ) {
+        return observe("createDocuments", () -> postAsync(
+                ArangoOperation.INSERT_DOCUMENTS,
+                String.format("/_db/%s/_api/document/%s", database, collection),
+                documents
+        ).thenApply(ArrayNode.class::cast));
+    }
 
-        return post(
-                String.format(host + "/_db/%s/_api/document/%s", database, collection),
-                document,
-                Map.of("Content-Type", "application/json", "Authorization", "bearer " + getJwtToken())
+    /**
+     * Inserts multiple documents with a single request, overwriting those whose {@code _key} exists already.
+     * <p>
+     * The method assumes the database and collection already exist, otherwise an error occurs. A document that
+     * cannot be written does not fail the other documents; its error is reported at its position of the returned
+     * array instead. Overwritten documents are evicted from the read cache.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/documents/#create-multiple-documents
+     *
+     * @param database  The database name that stores the documents
+     * @param collection  The collection name that contains the documents
+     * @param documents  An encoded JSON array of the documents to be written
+     * @param overwriteMode  What to do with a document whose {@code _key} exists already: {@code update} it,
+     * {@code replace} it, {@code ignore} the new one, or report a {@code conflict}
+     *
+     * @return a future of one result per document, in the order of {@code documents}. Each result is either the
+     * {@code _id}, {@code _key}, and {@code _rev} of the written document or an object with {@code error},
+     * {@code errorNum}, and {@code errorMessage}
+     */
+    CompletableFuture<ArrayNode> upsertDocuments(
+            final String database,
+            final String collection,
+            final JsonBody documents,
+            final String overwriteMode
+    ) {
+        return observe("upsertDocuments", () -> postAsync(
+                ArangoOperation.UPSERT_DOCUMENTS,
+                String.format("/_db/%s/_api/document/%s?overwriteMode=%s", database, collection, overwriteMode),
+                documents
+        ).thenApply(results -> evict(database, results)));
+    }
+
+    /**
+     * Partially updates multiple documents with a single request.
+     * <p>
+     * Every document must carry the {@code _key} of the document to update; its other attributes are merged into
+     * that document. A document that cannot be updated, for example because it does not exist, does not fail the
+     * other documents; its error is reported at its position of the returned array instead. Updated documents are
+     * evicted from the read cache.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/documents/#update-multiple-documents
+     *
+     * @param database  The database name that stores the documents
+     * @param collection  The collection name that contains the documents
+     * @param documents  An encoded JSON array of the partial documents
+     *
+     * @return a future of one result per document, in the order of {@code documents}, like
+     * {@link #upsertDocuments(String, String, JsonBody, String)}
+     */
+    CompletableFuture<ArrayNode> updateDocuments(
+            final String database,
+            final String collection,
+            final JsonBody documents
+    ) {
+        return observe("updateDocuments", () -> patchAsync(
+                ArangoOperation.UPDATE_DOCUMENTS,
+                String.format("/_db/%s/_api/document/%s", database, collection),
+                documents
+        ).thenApply(results -> evict(database, results)));
+    }
+
+    /**
+     * Replaces multiple documents with a single request.
+     * <p>
+     * Every document must carry the {@code _key} of the document it replaces. A document that cannot be replaced
+     * does not fail the other documents; its error is reported at its position of the returned array instead.
+     * Replaced documents are evicted from the read cache.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/documents/#replace-multiple-documents
+     *
+     * @param database  The database name that stores the documents
+     * @param collection  The collection name that contains the documents
+     * @param documents  An encoded JSON array of the new documents
+     *
+     * @return a future of one result per document, in the order of {@code documents}, like
+     * {@link #upsertDocuments(String, String, JsonBody, String)}
+     */
+    CompletableFuture<ArrayNode> replaceDocuments(
+            final String database,
+            final String collection,
+            final JsonBody documents
+    ) {
+        return observe("replaceDocuments", () -> putAsync(
+                ArangoOperation.REPLACE_DOCUMENTS,
+                String.format("/_db/%s/_api/document/%s", database, collection),
+                documents
+        ).thenApply(results -> evict(database, results)));
+    }
+
+    /**
+     * Deletes multiple documents with a single request.
+     * <p>
+     * A document that cannot be deleted, for example because it does not exist, does not fail the other documents;
+     * its error is reported at its position of the returned array instead. Deleted documents are evicted from the
+     * read cache.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/documents/#remove-multiple-documents
+     *
+     * @param database  The database name that stores the documents
+     * @param collection  The collection name that contains the documents
+     * @param keys  An encoded JSON array of the keys of the documents, or of objects with their {@code _key}
+     *
+     * @return a future of one result per document, in the order of {@code keys}, like
+     * {@link #upsertDocuments(String, String, JsonBody, String)}
+     */
+    CompletableFuture<ArrayNode> deleteDocuments(
+            final String database,
+            final String collection,
+            final JsonBody keys
+    ) {
+        return observe("deleteDocuments", () -> deleteAsync(
+                ArangoOperation.DELETE_DOCUMENTS,
+                String.format("/_db/%s/_api/document/%s", database, collection),
+                keys
+        ).thenApply(results -> evict(database, results)));
+    }
+
+    /**
+     * Imports documents through the bulk import API, which is faster than inserting them as an array.
+     * <p>
+     * The method assumes the database and collection already exist, otherwise an error occurs. A document that
+     * cannot be imported does not fail the others; it is counted as an error instead.
+     * <p>
+     * ArangoDB does not report which documents an import has updated or replaced, so with {@code onDuplicate}
+     * {@code update} or {@code replace} all documents of the collection are evicted from the read cache once the
+     * import has completed, whether or not it succeeded.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/import/#import-json-data-as-documents
+     *
+     * @param database  The database name that stores the documents
+     * @param collection  The collection name that contains the documents
+     * @param documents  The encoded documents, one per line, as returned by
+     * {@link JsonBody#nextLines(JsonParser, boolean, int, long)}
+     * @param onDuplicate  What to do with a document whose {@code _key} already exists: {@code error},
+     * {@code update}, {@code replace}, or {@code ignore}
+     * @param details  Whether or not the result should describe every document that could not be imported
+     *
+     * @return a future of the import result, with the number of documents {@code created}, {@code errors},
+     * {@code empty}, {@code updated}, and {@code ignored}, and the {@code details} if requested
+     */
+    CompletableFuture<JsonNode> importDocuments(
+            final String database,
+            final String collection,
+            final JsonBody documents,
+            final String onDuplicate,
+            final boolean details
+    ) {
+        return observe("importDocuments", () -> postAsync(
+                ArangoOperation.IMPORT_DOCUMENTS,
+                String.format(
+                        "/_db/%s/_api/import?type=documents&collection=%s&onDuplicate=%s&details=%s",
+                        database,
+                        collection,
+                        onDuplicate,
+                        details
+                ),
+                documents
+        )).whenComplete((result, failure) -> {
+            if ("update".equals(onDuplicate) || "replace".equals(onDuplicate)) {
+                documentCache.invalidateCollection(database, collection);
+            }
+        });
+    }
+
+    /**
+     * Reads a document.
+     * <p>
+     * A cached document is served without asking ArangoDB while it is fresh, and revalidated with
+     * {@code If-None-Match} otherwise.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/documents/#get-a-document
+     *
+     * @param database  The database name that stores the document
+     * @param collection  The collection name that contains the document
+     * @param key  The {@code _key} of the document
+     *
+     * @return a future of the document together with its {@code _rev}. The future fails with an
+     * {@link ArangoApiException} with status {@code 404} if the document, its collection, or its database does not
+     * exist
+     */
+    CompletableFuture<DocumentCache.Entry> getDocument(
+            final String database,
+            final String collection,
+            final String key
+    ) {
+        final String path = String.format(
+                "/_db/%s/_api/document/%s/%s",
+                database,
+                collection,
+                URLEncoder.encode(key, StandardCharsets.UTF_8).replace("+", "%20")
+        );
+
+        return observe(
+                "getDocument",
+                () -> documentCache.get(database, collection + "/" + key, cached -> fetchDocument(path, cached))
         );
     }
+
+    /**
+     * Reads multiple documents by their keys.
+     * <p>
+     * Fresh cached documents are served from the cache; all others are read with a single request and cached.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/documents/#get-multiple-documents
+     *
+     * @param database  The database name that stores the documents
+     * @param collection  The collection name that contains the documents
+     * @param keys  The {@code _key}s of the documents
+     *
+     * @return a future of one encoded result per key, in the order of {@code keys}. Each result is either the document
+     * or an object with {@code error}, {@code errorNum}, and {@code errorMessage}, such as for a document that does
+     * not exist. The future fails with an {@link ArangoApiException} with status {@code 404} if the collection or its
+     * database does not exist
+     */
+    CompletableFuture<List<byte[]>> getDocuments(
+            final String database,
+            final String collection,
+            final List<String> keys
+    ) {
+        return observe("getDocuments", () -> {
+            final byte[][] results = new byte[keys.size()][];
+            final List<Integer> missing = new ArrayList<>();
+            for (int index = 0; index < keys.size(); index++) {
+                final String id = collection + "/" + keys.get(index);
+                final DocumentCache.Entry cached = documentCache.getIfFresh(database, id);
+                if (cached == null) {
+                    missing.add(index);
+                } else {
+                    results[index] = cached.json();
+                }
+            }
+            if (missing.isEmpty()) {
+                return CompletableFuture.completedFuture(Arrays.asList(results));
+            }
+
+            final JsonBody missingKeys = JsonBody.write(missing.size(), generator -> {
+                generator.writeStartArray();
+                for (final int index : missing) {
+                    generator.writeString(keys.get(index));
+                }
+                generator.writeEndArray();
+            });
+            return putAsync(
+                    ArangoOperation.GET_DOCUMENTS,
+                    String.format("/_db/%s/_api/document/%s?onlyget=true", database, collection),
+                    missingKeys
+            ).thenApply(response -> {
+                if (response.size() != missing.size()) {
+                    throw new IllegalStateException(FAILED_REQUEST_MESSAGE);
+                }
+
+                for (int index = 0; index < missing.size(); index++) {
+                    final JsonNode document = response.get(index);
+                    final byte[] json = document.toString().getBytes(StandardCharsets.UTF_8);
+                    results[missing.get(index)] = json;
+                    if (!document.path("error").asBoolean()) {
+                        documentCache.put(
+                                database,
+                                document.path("_id").asText(collection + "/" + keys.get(missing.get(index))),
+                                new DocumentCache.Entry(document.path("_rev").asText(), json)
+                        );
+                    }
+                }
+                return Arrays.asList(results);
+            });
+        });
+    }
+
+    /**
+     * Evicts the documents that a batch write has changed from the read cache.
+     *
+     * @param database  The database name that stores the documents
+     * @param results  The per-document results of the write
+     *
+     * @return {@code results}
+     */
+    private ArrayNode evict(final String database, final JsonNode results) {
+        for (final JsonNode result : results) {
+            if (result.hasNonNull("_id")) {
+                documentCache.invalidate(database, result.get("_id").asText());
+            }
+        }
+        return (ArrayNode) results;
+    }
+
+    /**
+     * Fetches a document, or revalidates a cached one.
+     *
+     * @param path  The path of the document
+     * @param cached  The cached document, {@code null} if there is none
+     *
+     * @return a future of {@code cached} itself if ArangoDB answers {@code 304 Not Modified}, of the fetched document
+     * otherwise
+     */
+    private CompletableFuture<DocumentCache.Entry> fetchDocument(final String path, final DocumentCache.Entry cached) {
+        return getResponseAsync(
+                ArangoOperation.GET_DOCUMENT,
+                path,
+                cached == null ? Map.of() : Map.of("If-None-Match", ETag.quoteETagIfNecessary(cached.rev()))
+        ).thenApply(response -> {
+            if (response.statusCode() == 304 && cached != null) {
+                closeQuietly(response);
+                return cached;
+            }
+            if (response.statusCode() != 200) {
+                throw apiError(ArangoOperation.GET_DOCUMENT, response);
+            }
+            return toEntry(response);
+        });
+    }
+
+    /**
+     * Reads a document response into a cache entry.
+     *
+     * @param response  A {@code 200 OK} response to a document read, whose body stream is closed afterwards
+     *
+     * @return the document together with its {@code _rev}, taken from the {@code ETag} header or, failing that, from
+     * the document itself
+     */
+    private static DocumentCache.Entry toEntry(final HttpResponse<InputStream> response) {
+        final byte[] json;
+        try (InputStream body = response.body()) {
+            json = body.readAllBytes();
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(FAILED_REQUEST_MESSAGE, exception);
+        }
+
+        final String rev = response.headers()
+                .firstValue("ETag")
+                .map(etag -> ETag.create(etag).tag())
+                .orElseGet(() -> {
+                    try {
+                        return JSON_MAPPER.readTree(json).path("_rev").asText();
+                    } catch (final IOException exception) {
+                        throw new UncheckedIOException(FAILED_REQUEST_MESSAGE, exception);
+                    }
+                });
+        return new DocumentCache.Entry(rev, json);
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * {@link ExistenceCache} remembers which databases and collections are known to exist in ArangoDB.
+ * <p>
+ * The cache is bounded and every entry expires after a configurable time, so that databases or collections dropped
+ * behind the back of Kugelblitz are eventually re-checked. Entries are also dropped as soon as ArangoDB reports the
+ * database or collection as missing.
+ */
+@Component
+class ExistenceCache implements InitializingBean {
+
+    @Value("${kugelblitz.arango.existence-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${kugelblitz.arango.existence-cache.ttl:PT10M}")
+    private Duration ttl;
+
+    private Cache<Key, Boolean> known;
+
+    @Override
+    public void afterPropertiesSet() {
+        known = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Returns whether or not a database is known to exist.
+     *
+     * @param database  The name of the database
+     *
+     * @return {@code true} if the database has recently been seen or created
+     */
+    boolean isKnown(final String database) {
+        return known.getIfPresent(new Key(database, null)) != null;
+    }
+
+    /**
+     * Returns whether or not a collection is known to exist.
+     *
+     * @param database  The name of the containing database
+     * @param collection  The name of the collection
+     *
+     * @return {@code true} if the collection has recently been seen or created
+     */
+    boolean isKnown(final String database, final String collection) {
+        return known.getIfPresent(new Key(database, collection)) != null;
+    }
+
+    /**
+     * Records that a database exists.
+     *
+     * @param database  The name of the database
+     */
+    void markKnown(final String database) {
+        known.put(new Key(database, null), Boolean.TRUE);
+    }
+
+    /**
+     * Records that a collection, and therefore its database, exists.
+     *
+     * @param database  The name of the containing database
+     * @param collection  The name of the collection
+     */
+    void markKnown(final String database, final String collection) {
+        markKnown(database);
+        known.put(new Key(database, collection), Boolean.TRUE);
+    }
+
+    /**
+     * Forgets a database together with all of its collections.
+     *
+     * @param database  The name of the database
+     */
+    void invalidate(final String database) {
+        known.asMap().keySet().removeIf(key -> key.database().equals(database));
+    }
+
+    /**
+     * Forgets a single collection.
+     *
+     * @param database  The name of the containing database
+     * @param collection  The name of the collection
+     */
+    void invalidate(final String database, final String collection) {
+        known.invalidate(new Key(database, collection));
+    }
+
+    /**
+     * A database, or a collection within a database.
+     *
+     * @param database  The name of the database
+     * @param collection  The name of the collection, {@code null} if the key denotes the database itself
+     */
+    private record Key(String database, String collection) {
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * {@link Futures} bridges between the asynchronous ArangoDB request path and callers that need a plain result.
+ */
+final class Futures {
+
+    /**
+     * Constructor.
+     * <p>
+     * Suppress default constructor for noninstantiability.
+     */
+    private Futures() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Waits for a future and returns its result, rethrowing its failure as is rather than wrapped in a
+     * {@link CompletionException}.
+     *
+     * @param future  The future to wait for
+     * @param <T>  The result type
+     *
+     * @return the result of the future
+     */
+    static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException exception) {
+            final Throwable cause = unwrap(exception);
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns the actual failure behind the wrappers that {@link CompletableFuture} adds.
+     *
+     * @param throwable  The failure a future completed with
+     *
+     * @return the innermost cause that is neither a {@link CompletionException} nor an {@link ExecutionException}
+     */
+    static Throwable unwrap(final Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Runs a future-returning operation, turning an exception it throws into a failed future.
+     *
+     * @param operation  The operation
+     * @param <T>  The result type
+     *
+     * @return the future returned by the operation, or a failed future
+     */
+    static <T> CompletableFuture<T> call(final Supplier<CompletableFuture<T>> operation) {
+        try {
+            return operation.get();
+        } catch (final RuntimeException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    /**
+     * Wraps a failure so that it can be rethrown from a dependent stage of a {@link CompletableFuture}.
+     *
+     * @param failure  The failure a future completed with
+     *
+     * @return {@code failure} itself if it already is a {@link CompletionException}, a wrapping one otherwise
+     */
+    static CompletionException rethrow(final Throwable failure) {
+        return failure instanceof CompletionException completion ? completion : new CompletionException(failure);
+    }
+}
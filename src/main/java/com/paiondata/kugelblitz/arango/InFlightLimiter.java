@@ -0,0 +1,193 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link InFlightLimiter} is a non-blocking counting semaphore for requests to ArangoDB.
+ * <p>
+ * Instead of parking the calling thread, {@link #acquire(Duration)} returns a future that completes once a slot is
+ * free. Waiters are served first come, first served; a slot released by one request is handed straight to the
+ * oldest waiter.
+ */
+final class InFlightLimiter {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+    private int limit;
+    private int inFlight;
+
+    /**
+     * Constructor.
+     *
+     * @param limit  The maximum number of concurrent requests
+     */
+    InFlightLimiter(final int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Asks for a slot.
+     *
+     * @param maxWait  How long to wait for a slot if none is free right now
+     *
+     * @return a future that completes once the caller holds a slot, which it must give back with {@link #release()},
+     * or fails with a {@link java.util.concurrent.TimeoutException} if no slot became free within {@code maxWait}
+     */
+    CompletableFuture<Void> acquire(final Duration maxWait) {
+        final CompletableFuture<Void> waiter = new CompletableFuture<>();
+
+        lock.lock();
+        try {
+            if (inFlight < limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            waiters.addLast(waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        // callers see the timeout only once the waiter has been dropped from the queue
+        return waiter.orTimeout(maxWait.toNanos(), TimeUnit.NANOSECONDS).whenComplete((ignored, timeout) -> {
+            if (timeout != null) {
+                lock.lock();
+                try {
+                    waiters.remove(waiter);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Gives back a slot, handing it to the oldest waiter if there is one.
+     */
+    void release() {
+        while (true) {
+            final CompletableFuture<Void> next;
+
+            lock.lock();
+            try {
+                next = waiters.pollFirst();
+                if (next == null || inFlight > limit) {
+                    inFlight--;
+                    if (next != null) {
+                        waiters.addFirst(next);
+                    }
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // The slot passes on to the waiter, unless it has just timed out
+            if (next.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of slots currently held.
+     *
+     * @return the number of in-flight requests
+     */
+    int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of callers waiting for a slot.
+     *
+     * @return the number of waiting requests
+     */
+    int getWaiting() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the maximum number of concurrent requests.
+     *
+     * @return the current limit
+     */
+    int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Changes the maximum number of concurrent requests.
+     * <p>
+     * A higher limit hands the new slots to waiters right away. A lower limit takes effect as requests release their
+     * slots, which are not handed on until fewer requests than the new limit are in flight.
+     *
+     * @param limit  The new limit
+     */
+    void setLimit(final int limit) {
+        lock.lock();
+        try {
+            this.limit = limit;
+        } finally {
+            lock.unlock();
+        }
+
+        while (true) {
+            final CompletableFuture<Void> next;
+            lock.lock();
+            try {
+                if (inFlight >= this.limit || waiters.isEmpty()) {
+                    return;
+                }
+                next = waiters.pollFirst();
+                inFlight++;
+            } finally {
+                lock.unlock();
+            }
+            // The slot is taken back if the waiter has just timed out
+            if (!next.complete(null)) {
+                lock.lock();
+                try {
+                    inFlight--;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link JsonBody} is a JSON request payload for ArangoDB, written with Jackson's streaming generator.
+ * <p>
+ * The encoded bytes are kept in bounded segments and handed to the HTTP client as they are, so a payload exists in
+ * memory exactly once: neither as an intermediate {@link String} nor as one contiguous copy of the whole body.
+ */
+final class JsonBody {
+
+    /**
+     * Size of the first segment of a payload; small documents fit into one without over-allocating.
+     */
+    private static final int INITIAL_SEGMENT_SIZE = 512;
+
+    /**
+     * Maximum size of a single segment; segments double in size up to this limit.
+     */
+    private static final int SEGMENT_SIZE = 8 * 1024;
+
+    private static final byte[] ARRAY_START = {'['};
+    private static final byte[] SEPARATOR = {','};
+    private static final byte[] ARRAY_END = {']'};
+
+    private final List<byte[]> segments;
+    private final long length;
+    private final int count;
+
+    /**
+     * Constructor.
+     *
+     * @param segments  The encoded payload; every segment but the last one is full
+     * @param length  The total number of bytes
+     * @param count  The number of documents in the payload
+     */
+    private JsonBody(final List<byte[]> segments, final long length, final int count) {
+        this.segments = segments;
+        this.length = length;
+        this.count = count;
+    }
+
+    /**
+     * Encodes a JSON tree.
+     *
+     * @param payload  The payload to encode
+     *
+     * @return the encoded payload
+     */
+    static JsonBody of(final JsonNode payload) {
+        return write(payload.isArray() ? payload.size() : 1, generator -> generator.writeTree(payload));
+    }
+
+    /**
+     * Wraps a document that has been encoded before.
+     *
+     * @param json  The encoded document, a single JSON value
+     *
+     * @return the payload, sharing {@code json} rather than copying it
+     */
+    static JsonBody wrap(final byte[] json) {
+        return new JsonBody(List.of(json), json.length, 1);
+    }
+
+    /**
+     * Joins encoded documents into a JSON array, reusing their segments rather than copying them.
+     *
+     * @param documents  The encoded documents, each a single JSON value
+     *
+     * @return the encoded array
+     */
+    static JsonBody arrayOf(final List<JsonBody> documents) {
+        final List<byte[]> segments = new ArrayList<>();
+        long length = documents.isEmpty() ? 2 : documents.size() + 1;
+
+        segments.add(ARRAY_START);
+        for (int index = 0; index < documents.size(); index++) {
+            if (index > 0) {
+                segments.add(SEPARATOR);
+            }
+            segments.addAll(documents.get(index).segments);
+            length += documents.get(index).length;
+        }
+        segments.add(ARRAY_END);
+
+        return new JsonBody(Collections.unmodifiableList(segments), length, documents.size());
+    }
+
+    /**
+     * Encodes whatever a generator callback writes.
+     *
+     * @param count  The number of documents the callback writes
+     * @param writer  Writes exactly one JSON value
+     *
+     * @return the encoded payload
+     */
+    static JsonBody write(final int count, final Writer writer) {
+        final SegmentedOutputStream output = new SegmentedOutputStream();
+
+        try (JsonGenerator generator = AbstractRestService.JSON_MAPPER.createGenerator(output)) {
+            writer.write(generator);
+        } catch (final IOException exception) {
+            throw new IllegalStateException(AbstractRestService.FAILED_REQUEST_MESSAGE, exception);
+        }
+
+        return output.toBody(count);
+    }
+
+    /**
+     * Copies the next documents of a stream of JSON documents into a JSON array, token by token and without building
+     * a tree of any document.
+     * <p>
+     * Documents are copied as they are; a value that is not a JSON object is left for ArangoDB to reject. Each call
+     * reads one chunk, which lets the caller send each chunk before reading the next.
+     *
+     * @param parser  The source of the documents, positioned right before the next document
+     * @param inArray  {@code true} if the documents are the elements of a JSON array whose
+     * {@link JsonToken#START_ARRAY} has been read, {@code false} if they are a sequence of root-level values, such as
+     * newline-delimited JSON
+     * @param maxCount  The maximum number of documents per chunk
+     *
+     * @return the chunk, or {@code null} if the source has no more documents
+     *
+     * @throws IOException if the source is not well-formed JSON
+     */
+    static JsonBody nextArray(final JsonParser parser, final boolean inArray, final int maxCount) throws IOException {
+        final SegmentedOutputStream output = new SegmentedOutputStream();
+        int count = 0;
+
+        try (JsonGenerator generator = AbstractRestService.JSON_MAPPER.createGenerator(output)) {
+            generator.writeStartArray();
+            while (count < maxCount) {
+                final JsonToken token = parser.nextToken();
+                if (token == null || inArray && token == JsonToken.END_ARRAY) {
+                    break;
+                }
+                generator.copyCurrentStructure(parser);
+                count++;
+            }
+            generator.writeEndArray();
+        }
+
+        return count == 0 ? null : output.toBody(count);
+    }
+
+    /**
+     * Copies the next documents of a stream of JSON documents into a chunk of newline-delimited JSON, the format the
+     * ArangoDB import API reads, token by token and without building a tree of any document.
+     * <p>
+     * The chunk ends once it holds {@code maxCount} documents or at least {@code maxLength} bytes, so that its size is
+     * bounded however large the stream is. Like {@link #nextArray(JsonParser, boolean, int)}, this reads one chunk per
+     * call.
+     *
+     * @param parser  The source of the documents, positioned right before the next document
+     * @param inArray  {@code true} if the documents are the elements of a JSON array whose
+     * {@link JsonToken#START_ARRAY} has been read, {@code false} if they are a sequence of root-level values
+     * @param maxCount  The maximum number of documents per chunk
+     * @param maxLength  The number of bytes after which a chunk takes no further documents
+     *
+     * @return the chunk, or {@code null} if the source has no more documents
+     *
+     * @throws IOException if the source is not well-formed JSON
+     */
+    static JsonBody nextLines(
+            final JsonParser parser,
+            final boolean inArray,
+            final int maxCount,
+            final long maxLength
+    ) throws IOException {
+        final SegmentedOutputStream output = new SegmentedOutputStream();
+        int count = 0;
+
+        try (JsonGenerator generator = AbstractRestService.JSON_MAPPER.createGenerator(output)) {
+            generator.setRootValueSeparator(null);
+            while (count < maxCount && output.length + generator.getOutputBuffered() < maxLength) {
+                final JsonToken token = parser.nextToken();
+                if (token == null || inArray && token == JsonToken.END_ARRAY) {
+                    break;
+                }
+                if (count > 0) {
+                    // a trailing line break would be imported as an empty document
+                    generator.writeRaw('\n');
+                }
+                generator.copyCurrentStructure(parser);
+                count++;
+            }
+        }
+
+        return count == 0 ? null : output.toBody(count);
+    }
+
+    /**
+     * Returns the number of documents in this payload.
+     *
+     * @return the number of documents, {@code 1} for a single JSON object
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes of this payload.
+     *
+     * @return the encoded length
+     */
+    long length() {
+        return length;
+    }
+
+    /**
+     * Creates a publisher for a request carrying this payload.
+     *
+     * @return a body publisher of known length over the segments, without copying them
+     */
+    HttpRequest.BodyPublisher publisher() {
+        return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofByteArrays(segments), length);
+    }
+
+    /**
+     * Copies the segments of this payload into a single array.
+     *
+     * @return the encoded payload
+     */
+    byte[] toByteArray() {
+        final byte[] bytes = new byte[(int) length];
+        int offset = 0;
+        for (final byte[] segment : segments) {
+            System.arraycopy(segment, 0, bytes, offset, segment.length);
+            offset += segment.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes the payload, for logging only.
+     *
+     * @return the payload as a string
+     */
+    @Override
+    public String toString() {
+        return new String(toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a single JSON value to a generator.
+     */
+    @FunctionalInterface
+    interface Writer {
+
+        /**
+         * Writes the value.
+         *
+         * @param generator  The generator to write to
+         *
+         * @throws IOException if writing fails
+         */
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * An {@link OutputStream} collecting its bytes in segments growing from {@link #INITIAL_SEGMENT_SIZE} to
+     * {@link #SEGMENT_SIZE}.
+     */
+    private static final class SegmentedOutputStream extends OutputStream {
+
+        private final List<byte[]> segments = new ArrayList<>();
+        private byte[] current = new byte[INITIAL_SEGMENT_SIZE];
+        private int position;
+        private long length;
+
+        @Override
+        public void write(final int value) {
+            if (position == current.length) {
+                nextSegment();
+            }
+            current[position++] = (byte) value;
+            length++;
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int count) {
+            int written = 0;
+            while (written < count) {
+                if (position == current.length) {
+                    nextSegment();
+                }
+                final int step = Math.min(count - written, current.length - position);
+                System.arraycopy(bytes, offset + written, current, position, step);
+                position += step;
+                written += step;
+            }
+            length += count;
+        }
+
+        /**
+         * Stores the full current segment and starts a new one.
+         */
+        private void nextSegment() {
+            segments.add(current);
+            current = new byte[Math.min(current.length * 2, SEGMENT_SIZE)];
+            position = 0;
+        }
+
+        /**
+         * Seals the written bytes into a payload.
+         *
+         * @param count  The number of documents written
+         *
+         * @return the payload
+         */
+        private JsonBody toBody(final int count) {
+            if (position > 0) {
+                final byte[] last = new byte[position];
+                System.arraycopy(current, 0, last, 0, position);
+                segments.add(last);
+            }
+            current = null;
+            return new JsonBody(Collections.unmodifiableList(segments), length, count);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link JwtTokenManager} owns the single ArangoDB JWT token shared by all {@link AbstractRestService} subclasses.
+ * <p>
+ * The token is obtained lazily on first use and cached until shortly before the {@code exp} claim it carries. A
+ * background task refreshes it ahead of expiry so that requests normally never wait on {@code /_open/auth}. When a
+ * request does have to wait for a refresh, only one caller performs it while the others reuse its result. Waiting
+ * happens without blocking any thread.
+ * <p>
+ * See https://arango.paion-data.dev/stable/develop/http-api/authentication/ for more info
+ */
+@Component
+class JwtTokenManager implements DisposableBean {
+
+    /**
+     * The lifetime assumed for a token whose {@code exp} claim cannot be read.
+     */
+    private static final Duration FALLBACK_LIFETIME = Duration.ofMinutes(10);
+
+    /**
+     * A token is not handed out anymore once it is this close to its expiry.
+     */
+    private static final Duration EXPIRY_SAFETY_MARGIN = Duration.ofSeconds(5);
+
+    /**
+     * How long the background refresher waits before trying again after a failed refresh.
+     */
+    private static final Duration REFRESH_RETRY_DELAY = Duration.ofSeconds(5);
+
+    private static final Logger LOG = LoggerFactory.getLogger(JwtTokenManager.class);
+
+    private final AtomicReference<Token> token = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<Token>> refreshing = new AtomicReference<>();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "arango-jwt-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Clock clock = Clock.systemUTC();
+
+    private ScheduledFuture<?> scheduledRefresh;
+
+    @Autowired
+    private ArangoHttpClient arangoHttpClient;
+
+    @Autowired
+    private ArangoCoordinators arangoCoordinators;
+
+    @Value("${kugelblitz.arango.username}")
+    private String username;
+
+    @Value("${kugelblitz.arango.password}")
+    private String password;
+
+    @Value("${kugelblitz.arango.jwt.refresh-ahead:PT1M}")
+    private Duration refreshAhead;
+
+    /**
+     * Returns a JWT token that is valid for at least a few more seconds.
+     *
+     * @return a future of a string representing the JWT token, already completed unless the token has to be refreshed
+     */
+    CompletableFuture<String> getToken() {
+        final Token current = token.get();
+
+        if (current != null && current.isUsableAt(clock.instant())) {
+            return CompletableFuture.completedFuture(current.value());
+        }
+
+        return refresh(current).thenApply(Token::value);
+    }
+
+    /**
+     * Discards a token that ArangoDB has rejected so that the next {@link #getToken()} authenticates again.
+     * <p>
+     * The cached token is only discarded if it is still the rejected one; a token which a concurrent caller has
+     * already refreshed is kept.
+     *
+     * @param rejected  The token that ArangoDB answered with {@code 401 Unauthorized}
+     */
+    void invalidate(final String rejected) {
+        final Token current = token.get();
+
+        if (current != null && current.value().equals(rejected)) {
+            token.compareAndSet(current, null);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Replaces the cached token with a new one, unless another caller is already doing so or has done so since the
+     * stale token was observed.
+     *
+     * @param stale  The token the caller observed as unusable, {@code null} if there was none
+     *
+     * @return a future of the refreshed token
+     */
+    private CompletableFuture<Token> refresh(final Token stale) {
+        while (true) {
+            final CompletableFuture<Token> inProgress = refreshing.get();
+            if (inProgress != null) {
+                return inProgress;
+            }
+
+            final Token current = token.get();
+            if (current != null && current != stale && current.isUsableAt(clock.instant())) {
+                return CompletableFuture.completedFuture(current);
+            }
+
+            final CompletableFuture<Token> refresh = new CompletableFuture<>();
+            if (refreshing.compareAndSet(null, refresh)) {
+                Futures.call(this::authenticate).whenComplete((fresh, failure) -> {
+                    if (failure == null) {
+                        token.set(fresh);
+                        scheduleRefresh(refreshDelayOf(fresh));
+                    }
+                    refreshing.set(null);
+
+                    if (failure == null) {
+                        refresh.complete(fresh);
+                    } else {
+                        refresh.completeExceptionally(Futures.unwrap(failure));
+                    }
+                });
+                return refresh;
+            }
+        }
+    }
+
+    /**
+     * Background task that renews the token ahead of its expiry.
+     */
+    private void refreshInBackground() {
+        refresh(token.get()).whenComplete((fresh, failure) -> {
+            if (failure != null) {
+                LOG.warn(String.format("Background JWT refresh failed: %s", failure.getMessage()), failure);
+                scheduleRefresh(REFRESH_RETRY_DELAY);
+            }
+        });
+    }
+
+    /**
+     * Schedules the next background refresh, replacing any previously scheduled one.
+     *
+     * @param delay  How long from now the refresh should run; negative delays run immediately
+     */
+    private synchronized void scheduleRefresh(final Duration delay) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+
+        if (refresher.isShutdown()) {
+            return;
+        }
+
+        scheduledRefresh = refresher.schedule(
+                this::refreshInBackground,
+                Math.max(0, delay.toMillis()),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Returns how long to wait before renewing a freshly obtained token.
+     *
+     * @param fresh  The token just obtained
+     *
+     * @return {@code kugelblitz.arango.jwt.refresh-ahead} before expiry, or half of the token lifetime if the token
+     * lives shorter than that
+     */
+    private Duration refreshDelayOf(final Token fresh) {
+        final Duration lifetime = Duration.between(clock.instant(), fresh.expiresAt());
+
+        return lifetime.compareTo(refreshAhead) > 0 ? lifetime.minus(refreshAhead) : lifetime.dividedBy(2);
+    }
+
+    /**
+     * Sends an authentication request to Arango auth endpoint.
+     *
+     * @return a future of a new token together with its expiry
+     */
+    private CompletableFuture<Token> authenticate() {
+        final ObjectNode credential = AbstractRestService.JSON_MAPPER.createObjectNode();
+        credential.put("username", username);
+        credential.put("password", password);
+
+        final JsonBody body = JsonBody.of(credential);
+        return arangoCoordinators.send(true, host -> arangoHttpClient.sendAsync(
+                arangoHttpClient.newRequest(host + "/_open/auth")
+                        .POST(body.publisher())
+                        .header("Content-Type", "application/json")
+                        .build(),
+                ArangoOperation.AUTH
+        )).thenApply(response -> {
+            final String jwt = AbstractRestService.parsePostResponse(ArangoOperation.AUTH, response)
+                    .get("jwt")
+                    .asText();
+            return new Token(jwt, expiryOf(jwt));
+        });
+    }
+
+    /**
+     * Reads the {@code exp} claim of a JWT token.
+     *
+     * @param jwt  The encoded JWT token
+     *
+     * @return the instant at which the token expires, or {@link #FALLBACK_LIFETIME} from now if the token does not
+     * carry a readable {@code exp} claim
+     */
+    private Instant expiryOf(final String jwt) {
+        final String[] parts = jwt.split("\\.");
+
+        if (parts.length >= 2) {
+            try {
+                final JsonNode claims = AbstractRestService.JSON_MAPPER.readTree(
+                        new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                );
+                if (claims.hasNonNull("exp")) {
+                    return Instant.ofEpochSecond(claims.get("exp").asLong());
+                }
+            } catch (final IOException | IllegalArgumentException exception) {
+                LOG.warn(String.format("Cannot read JWT expiry: %s", exception.getMessage()), exception);
+            }
+        }
+
+        return clock.instant().plus(FALLBACK_LIFETIME);
+    }
+
+    /**
+     * A JWT token and the instant it expires.
+     *
+     * @param value  The encoded JWT token
+     * @param expiresAt  The instant from the {@code exp} claim
+     */
+    private record Token(String value, Instant expiresAt) {
+
+        /**
+         * Returns whether or not this token can still be attached to a request.
+         *
+         * @param now  The current instant
+         *
+         * @return {@code true} if the token is not about to expire
+         */
+        boolean isUsableAt(final Instant now) {
+            return now.isBefore(expiresAt.minus(EXPIRY_SAFETY_MARGIN));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * {@link MeteredInputStream} counts the bytes read through it and the time spent reading them.
+ * <p>
+ * Stacking two of them around a decoder, one over the compressed and one over the decompressed bytes, yields both the
+ * compression ratio and the time spent decompressing; see {@link ContentEncoding#decode(InputStream,
+ * ContentEncoding.Recorder)}.
+ */
+final class MeteredInputStream extends FilterInputStream {
+
+    private final Consumer<MeteredInputStream> onDone;
+
+    private long count;
+    private long nanos;
+    private boolean done;
+
+    /**
+     * Constructor.
+     *
+     * @param in  The stream to read from
+     */
+    MeteredInputStream(final InputStream in) {
+        this(in, stream -> { });
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param in  The stream to read from
+     * @param onDone  Called with this stream once, when its end is reached or it is closed, whichever happens first
+     */
+    MeteredInputStream(final InputStream in, final Consumer<MeteredInputStream> onDone) {
+        super(in);
+        this.onDone = onDone;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final long start = System.nanoTime();
+        final int value = super.read();
+        nanos += System.nanoTime() - start;
+        if (value < 0) {
+            done();
+        } else {
+            count++;
+        }
+        return value;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        final long start = System.nanoTime();
+        final int read = super.read(buffer, offset, length);
+        nanos += System.nanoTime() - start;
+        if (read < 0) {
+            done();
+        } else {
+            count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long start = System.nanoTime();
+        final long skipped = super.skip(n);
+        nanos += System.nanoTime() - start;
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        // bytes read again after a reset would be counted twice
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            done();
+        }
+    }
+
+    /**
+     * Returns the number of bytes read so far.
+     *
+     * @return the number of bytes read or skipped
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the time spent reading so far.
+     *
+     * @return the time spent in {@code read} and {@code skip}, in nanoseconds
+     */
+    long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Passes this stream to {@code onDone} unless it was passed already.
+     */
+    private void done() {
+        if (!done) {
+            done = true;
+            onDone.accept(this);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * {@link Observations} carries Micrometer observations, and with them trace spans, across the asynchronous ArangoDB
+ * request path.
+ * <p>
+ * The current observation lives in a thread local, but the stages of a {@link CompletableFuture} run on whichever
+ * thread completes the previous stage, typically one of the {@link ArangoHttpClient} executor threads. Futures
+ * returned by {@link #observe(ObservationRegistry, Class, String, Supplier)} and
+ * {@link #completeInScopeOf(Observation, CompletableFuture)} therefore complete within the scope of the observation
+ * that was current when the work was started, so that the stages a caller chains onto them, and the requests those
+ * stages send, are attributed to the caller.
+ */
+final class Observations {
+
+    /**
+     * The name of the observations of service methods.
+     */
+    static final String SERVICE_OBSERVATION = "kugelblitz.service";
+
+    /**
+     * Constructor.
+     * <p>
+     * Suppress default constructor for noninstantiability.
+     */
+    private Observations() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Observes an asynchronous service method, from its invocation until its future completes.
+     * <p>
+     * The observation is named {@value #SERVICE_OBSERVATION}, tagged with the {@code class} and {@code method}, and
+     * becomes the parent of everything the method does. Its span is named after {@code <class>.<method>}.
+     *
+     * @param registry  The registry to report the observation to
+     * @param component  The class declaring the method
+     * @param method  The name of the method
+     * @param call  Invokes the method
+     * @param <T>  The result type
+     *
+     * @return the future returned by the method, completed within the scope of the caller's observation
+     */
+    static <T> CompletableFuture<T> observe(
+            final ObservationRegistry registry,
+            final Class<?> component,
+            final String method,
+            final Supplier<CompletableFuture<T>> call
+    ) {
+        final Observation parent = registry.getCurrentObservation();
+        final Observation observation = Observation.createNotStarted(SERVICE_OBSERVATION, registry)
+                .contextualName(component.getSimpleName() + "." + method)
+                .lowCardinalityKeyValue("class", component.getSimpleName())
+                .lowCardinalityKeyValue("method", method)
+                .start();
+
+        final CompletableFuture<T> result;
+        try (Observation.Scope scope = observation.openScope()) {
+            result = Futures.call(call);
+        }
+
+        return completeInScopeOf(parent, result.whenComplete((value, failure) -> {
+            if (failure != null) {
+                observation.error(Futures.unwrap(failure));
+            }
+            observation.stop();
+        }));
+    }
+
+    /**
+     * Returns a future that completes like another one, but within the scope of a given observation.
+     * <p>
+     * Stages chained onto the returned future that run on the completing thread see {@code observation} as the
+     * current observation.
+     *
+     * @param observation  The observation to complete in, or {@code null} if there is none
+     * @param future  The future to mirror
+     * @param <T>  The result type
+     *
+     * @return {@code future} itself if there is no observation, a future completed the same way otherwise
+     */
+    static <T> CompletableFuture<T> completeInScopeOf(
+            final Observation observation,
+            final CompletableFuture<T> future
+    ) {
+        if (observation == null || observation.isNoop()) {
+            return future;
+        }
+
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, failure) -> {
+            try (Observation.Scope scope = observation.openScope()) {
+                if (failure == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(failure);
+                }
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.observation.Observation;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * {@link QueryService} runs AQL queries and reads their results batch by batch through ArangoDB cursors.
+ * <p>
+ * ArangoDB returns at most {@code batchSize} results per request, so that however many results a query has, only one
+ * batch is held in memory at a time. Queries run as streaming cursors unless
+ * {@code kugelblitz.arango.query.stream} is set to {@code false}, so that ArangoDB does not materialize the full
+ * result either. A cursor that is not read for {@code kugelblitz.arango.query.cursor-ttl} (default 30 seconds) is
+ * dropped by ArangoDB.
+ * <p>
+ * Queries are read-only. They run with the credentials of Kugelblitz rather than those of the client, and documents
+ * they changed would stay stale in the {@link DocumentCache}, so every query is parsed first and one that inserts,
+ * updates, replaces, removes, or upserts documents is rejected before it runs.
+ * <p>
+ * See https://arango.paion-data.dev/stable/develop/http-api/queries/aql-queries/
+ */
+@Service
+class QueryService extends AbstractRestService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryService.class);
+
+    private static final JsonBody NO_PAYLOAD = JsonBody.of(JSON_MAPPER.createObjectNode());
+
+    /**
+     * The types of the AQL syntax tree nodes that modify documents.
+     */
+    private static final Set<String> MODIFICATIONS = Set.of("insert", "update", "replace", "remove", "upsert");
+
+    @Value("${kugelblitz.arango.query.cursor-ttl:PT30S}")
+    private Duration cursorTtl;
+
+    @Value("${kugelblitz.arango.query.stream:true}")
+    private boolean stream;
+
+    /**
+     * Runs an AQL query and reads its first batch of results.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/queries/aql-queries/#create-a-cursor
+     *
+     * @param database  The name of the database to run the query in
+     * @param query  The query and its bind parameters
+     * @param batchSize  The maximum number of results per batch
+     *
+     * @return a future of the first batch. The future fails with an {@link ArangoApiException} with status
+     * {@code 400} if the query is invalid, and with status {@code 404} if the database or a collection it reads does
+     * not exist. It fails with a {@code 400 Bad Request} {@link ResponseStatusException} if the query modifies
+     * documents
+     */
+    CompletableFuture<AqlCursor> query(final String database, final AqlQuery query, final int batchSize) {
+        final Observation caller = getCurrentObservation();
+        final JsonBody payload = JsonBody.write(1, generator -> {
+            generator.writeStartObject();
+            generator.writeStringField("query", query.query());
+            if (query.bindVars() != null) {
+                generator.writeFieldName("bindVars");
+                generator.writeTree(query.bindVars());
+            }
+            generator.writeNumberField("batchSize", batchSize);
+            generator.writeNumberField("ttl", cursorTtl.toMillis() / 1000.0);
+            generator.writeObjectFieldStart("options");
+            generator.writeBooleanField("stream", stream);
+            generator.writeEndObject();
+            generator.writeEndObject();
+        });
+
+        return observe(
+                "query",
+                () -> requireReadOnly(database, query)
+                        .thenCompose(ignored -> postAsync(
+                                ArangoOperation.QUERY,
+                                String.format("/_db/%s/_api/cursor", database),
+                                payload
+                        ))
+                        .thenApply(response -> toCursor(database, response, caller))
+        );
+    }
+
+    /**
+     * Parses a query and makes sure it does not modify documents.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/queries/aql-queries/#parse-an-aql-query
+     *
+     * @param database  The name of the database to run the query in
+     * @param query  The query
+     *
+     * @return a future that completes once the query is known to be read-only. The future fails with an
+     * {@link ArangoApiException} with status {@code 400} if the query is invalid, and with a {@code 400 Bad Request}
+     * {@link ResponseStatusException} if it modifies documents
+     */
+    private CompletableFuture<Void> requireReadOnly(final String database, final AqlQuery query) {
+        return postAsync(
+                ArangoOperation.PARSE_QUERY,
+                String.format("/_db/%s/_api/query", database),
+                JSON_MAPPER.createObjectNode().put("query", query.query())
+        ).thenAccept(parsed -> {
+            // only syntax tree nodes have a "type"; attribute names and values are kept under "name" and "value"
+            for (final JsonNode type : parsed.path("ast").findValues("type")) {
+                if (MODIFICATIONS.contains(type.asText())) {
+                    throw new ResponseStatusException(
+                            HttpStatus.BAD_REQUEST,
+                            String.format(
+                                    "Queries must be read-only; %s is not allowed",
+                                    type.asText().toUpperCase(Locale.ROOT)
+                            )
+                    );
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the batch following a given one.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/queries/aql-queries/#read-the-next-batch-from-a-cursor
+     *
+     * @param cursor  The current batch, which must have more results
+     *
+     * @return a future of the next batch. The future fails with an {@link ArangoApiException} with status {@code 404}
+     * if the cursor has expired
+     */
+    CompletableFuture<AqlCursor> next(final AqlCursor cursor) {
+        if (!cursor.hasMore()) {
+            throw new IllegalStateException(String.format("Cursor %s has no more results", cursor.id()));
+        }
+
+        return inScopeOf(cursor.caller(), () -> observe(
+                "next",
+                // reading a batch advances the cursor, so a failed request must not be repeated
+                () -> putAsync(
+                        ArangoOperation.READ_CURSOR,
+                        String.format("/_db/%s/_api/cursor/%s", cursor.database(), cursor.id()),
+                        NO_PAYLOAD,
+                        false
+                ).thenApply(response -> toCursor(cursor.database(), response, cursor.caller()))
+        ));
+    }
+
+    /**
+     * Deletes a cursor whose remaining results are not going to be read, such as because the client went away.
+     * <p>
+     * Failures are logged rather than reported: ArangoDB drops the cursor after its TTL anyway. A cursor that no
+     * longer exists is not a failure.
+     * <p>
+     * See https://arango.paion-data.dev/stable/develop/http-api/queries/aql-queries/#delete-a-cursor
+     *
+     * @param cursor  The last batch that has been read
+     *
+     * @return a future that completes once the cursor has been deleted or could not be; it never fails
+     */
+    CompletableFuture<Void> close(final AqlCursor cursor) {
+        if (!cursor.hasMore()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return inScopeOf(cursor.caller(), () -> observe(
+                "close",
+                () -> deleteAsync(
+                        ArangoOperation.DELETE_CURSOR,
+                        String.format("/_db/%s/_api/cursor/%s", cursor.database(), cursor.id())
+                )
+        )).handle((response, failure) -> {
+            if (failure != null && !(Futures.unwrap(failure) instanceof ArangoApiException exception
+                    && exception.getStatusCode() == 404)) {
+                LOG.warn(String.format(
+                        "Cannot delete cursor %s in %s; it expires after %s: %s",
+                        cursor.id(),
+                        cursor.database(),
+                        cursorTtl,
+                        Futures.unwrap(failure).getMessage()
+                ));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Reads a cursor response.
+     *
+     * @param database  The name of the database the query runs in
+     * @param response  The response to the creation or the continuation of a cursor
+     * @param caller  The observation of the client request that ran the query, {@code null} if there is none
+     *
+     * @return the batch of results in {@code response}
+     */
+    private static AqlCursor toCursor(final String database, final JsonNode response, final Observation caller) {
+        final boolean hasMore = response.path("hasMore").asBoolean();
+        return new AqlCursor(
+                database,
+                hasMore ? response.path("id").asText() : null,
+                response.path("result"),
+                hasMore,
+                caller
+        );
+    }
+
+    /**
+     * Starts an asynchronous call within the scope of an observation, so that it is traced as part of it.
+     *
+     * @param observation  The observation, {@code null} if there is none
+     * @param call  Starts the call
+     * @param <T>  The result type
+     *
+     * @return the future returned by {@code call}
+     */
+    private static <T> CompletableFuture<T> inScopeOf(
+            final Observation observation,
+            final Supplier<CompletableFuture<T>> call
+    ) {
+        if (observation == null) {
+            return call.get();
+        }
+        try (Observation.Scope scope = observation.openScope()) {
+            return call.get();
+        }
+    }
+}
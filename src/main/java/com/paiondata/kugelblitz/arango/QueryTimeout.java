@@ -0,0 +1,173 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link QueryTimeout} gives query requests their own asynchronous request timeout.
+ * <p>
+ * The response to a query is complete only once its last cursor batch has been written, which for a large result
+ * takes far longer than {@code spring.mvc.async.request-timeout}, by default the 30 seconds of Tomcat. Requests marked
+ * with {@link #extend(HttpServletRequest)} are given {@code kugelblitz.arango.query.timeout} (default 10 minutes)
+ * instead, both while they wait for the first batch and while their results are streamed. A timeout of zero or less
+ * lets them stream for as long as ArangoDB keeps answering.
+ * <p>
+ * A streaming query also holds a thread until its last batch has been written, blocked on ArangoDB in between. On the
+ * few threads of {@code applicationTaskExecutor}, which Spring MVC would otherwise use, further queries would queue
+ * for a thread until their cursors expired. Asynchronous request processing, of which only queries write their
+ * responses, therefore runs on a thread of its own per stream, a virtual thread if
+ * {@code spring.threads.virtual.enabled} is set. Instead of threads, the number of queries streaming at the same time
+ * is bounded by {@code kugelblitz.arango.query.max-concurrent} (default 200, zero or less for no limit); a query
+ * admitted by {@link #admit(HttpServletRequest)} over the limit is answered with {@code 503 Service Unavailable}
+ * before its cursor is created.
+ */
+@Component
+class QueryTimeout implements WebMvcConfigurer, CallableProcessingInterceptor, DeferredResultProcessingInterceptor,
+        InitializingBean {
+
+    private static final String QUERY = QueryTimeout.class.getName() + ".query";
+    private static final String STREAM = QueryTimeout.class.getName() + ".stream";
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${kugelblitz.arango.query.timeout:PT10M}")
+    private Duration timeout;
+
+    @Value("${kugelblitz.arango.query.max-concurrent:200}")
+    private int maxConcurrent;
+
+    private Semaphore streams;
+
+    @Override
+    public void afterPropertiesSet() {
+        streams = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+    }
+
+    /**
+     * Marks a request as a query, so that the query timeout applies to it.
+     *
+     * @param request  The request
+     */
+    static void extend(final HttpServletRequest request) {
+        request.setAttribute(QUERY, Boolean.TRUE);
+    }
+
+    /**
+     * Takes one of the {@code kugelblitz.arango.query.max-concurrent} slots for a query, which it holds until its
+     * response is complete.
+     *
+     * @param request  The request of the query, which must go on to be processed asynchronously
+     *
+     * @throws ResponseStatusException if all slots are taken
+     */
+    void admit(final HttpServletRequest request) {
+        if (streams == null) {
+            return;
+        }
+        if (!streams.tryAcquire()) {
+            throw new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE,
+                    String.format("Already streaming %d queries; try again later", maxConcurrent)
+            );
+        }
+        request.setAttribute(STREAM, new AtomicBoolean(true));
+    }
+
+    @Override
+    public void configureAsyncSupport(final AsyncSupportConfigurer configurer) {
+        final SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kugelblitz-query-");
+        executor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        executor.setDaemon(true);
+        configurer.setTaskExecutor(executor);
+        configurer.registerCallableInterceptors(this);
+        configurer.registerDeferredResultInterceptors(this);
+    }
+
+    @Override
+    public <T> void beforeConcurrentHandling(final NativeWebRequest request, final Callable<T> task) {
+        applyTo(request);
+    }
+
+    @Override
+    public <T> void beforeConcurrentHandling(final NativeWebRequest request, final DeferredResult<T> deferredResult) {
+        applyTo(request);
+    }
+
+    @Override
+    public <T> void afterCompletion(final NativeWebRequest request, final Callable<T> task) {
+        release(request);
+    }
+
+    @Override
+    public <T> void afterCompletion(final NativeWebRequest request, final DeferredResult<T> deferredResult) {
+        release(request);
+    }
+
+    /**
+     * Sets the timeout of the asynchronous processing that is about to start, if the request is a query.
+     * <p>
+     * Spring MVC sets the default timeout for every dispatch, so this is done again for the dispatch that streams the
+     * results.
+     *
+     * @param request  The request
+     */
+    private void applyTo(final NativeWebRequest request) {
+        if (request.getAttribute(QUERY, RequestAttributes.SCOPE_REQUEST) != null) {
+            WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest()
+                    .setTimeout(timeout.isNegative() || timeout.isZero() ? -1L : timeout.toMillis());
+        }
+    }
+
+    /**
+     * Gives back the slot of a query once its response is complete, unless it was given back already.
+     * <p>
+     * The response of a query that fails before streaming completes its first asynchronous processing, and that of
+     * one that streams completes its second.
+     *
+     * @param request  The request
+     */
+    private void release(final NativeWebRequest request) {
+        if (request.getAttribute(STREAM, RequestAttributes.SCOPE_REQUEST) instanceof AtomicBoolean held
+                && held.getAndSet(false)) {
+            streams.release();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RequestDecompressionFilter} decompresses request bodies that clients send with
+ * {@code Content-Encoding: gzip} or {@code Content-Encoding: deflate}, so that endpoints read them as if they had been
+ * sent uncompressed.
+ * <p>
+ * Bodies are decompressed while they are being read, so a large compressed batch is never held in memory as a whole.
+ * Requests in other encodings, and compressed multipart uploads, whose parts the servlet container parses itself, are
+ * rejected with {@code 415 Unsupported Media Type}. A body that decompresses to more than
+ * {@code kugelblitz.client.compression.max-decompressed-size} is rejected with {@code 413 Payload Too Large} as soon as
+ * it gets there, so that a small compressed body cannot make the endpoint read an unbounded amount of data.
+ * <p>
+ * How well bodies compressed, and the time spent decompressing them, are recorded by
+ * {@code kugelblitz.client.compression.ratio} and {@code kugelblitz.client.compression.time}, tagged with the
+ * {@code encoding}. Compressing responses to clients is left to the servlet container ({@code server.compression.*}).
+ */
+@Component
+class RequestDecompressionFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistries;
+
+    @Value("${kugelblitz.client.compression.max-decompressed-size:256MB}")
+    private DataSize maxDecompressedSize;
+
+    private MeterRegistry meterRegistry;
+
+    @Override
+    protected void initFilterBean() {
+        meterRegistry = meterRegistries.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            final FilterChain chain
+    ) throws ServletException, IOException {
+        final String header = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        final Optional<ContentEncoding> encoding = ContentEncoding.of(header);
+        if (encoding.isPresent() && encoding.get() == ContentEncoding.IDENTITY) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final String contentType = request.getContentType();
+        if (encoding.isEmpty() || (contentType != null && contentType.startsWith("multipart/"))) {
+            response.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+            response.sendError(
+                    HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(),
+                    String.format("Unsupported Content-Encoding %s for %s", header, contentType)
+            );
+            return;
+        }
+
+        chain.doFilter(new DecompressedRequest(request, encoding.get()), response);
+    }
+
+    /**
+     * Records how well a client request body compressed and the time it took to decompress it.
+     *
+     * @param encoding  The compression
+     * @param uncompressed  The decompressed length of the body in bytes
+     * @param compressed  The compressed length of the body in bytes
+     * @param nanos  The time spent decompressing
+     */
+    private void record(
+            final ContentEncoding encoding,
+            final long uncompressed,
+            final long compressed,
+            final long nanos
+    ) {
+        if (compressed > 0) {
+            DistributionSummary.builder("kugelblitz.client.compression.ratio")
+                    .description("Decompressed size of client request bodies divided by their compressed size")
+                    .tag("encoding", encoding.getToken())
+                    .register(meterRegistry)
+                    .record((double) uncompressed / compressed);
+        }
+        Timer.builder("kugelblitz.client.compression.time")
+                .description("Time spent decompressing client request bodies")
+                .tag("encoding", encoding.getToken())
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * {@link DecompressedRequest} is a request whose body is decompressed while it is being read.
+     * <p>
+     * It announces neither an encoding nor a length, since the decompressed length is not known in advance.
+     */
+    private final class DecompressedRequest extends HttpServletRequestWrapper {
+
+        private final ContentEncoding encoding;
+
+        private ServletInputStream body;
+
+        /**
+         * Constructor.
+         *
+         * @param request  The request with the compressed body
+         * @param encoding  The compression of the body
+         */
+        DecompressedRequest(final HttpServletRequest request, final ContentEncoding encoding) {
+            super(request);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (body == null) {
+                body = new DecompressedInputStream(
+                        encoding.decode(
+                                super.getInputStream(),
+                                (uncompressed, compressed, nanos) -> record(encoding, uncompressed, compressed, nanos)
+                        ),
+                        maxDecompressedSize.toBytes()
+                );
+            }
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            final String name = getCharacterEncoding();
+            final Charset charset = name == null ? StandardCharsets.UTF_8 : Charset.forName(name);
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(final String name) {
+            final boolean hidden = HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)
+                    || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+            return hidden ? null : super.getHeader(name);
+        }
+    }
+
+    /**
+     * {@link DecompressedInputStream} exposes a decompressed body to servlets, for blocking reads only.
+     * <p>
+     * Reading past the maximum decompressed size fails with a {@link ResponseStatusException}, which, unlike an
+     * {@link IOException}, is not mistaken for a malformed body by the endpoints reading it.
+     */
+    private static final class DecompressedInputStream extends ServletInputStream {
+
+        private final InputStream body;
+        private final long maxSize;
+
+        private long size;
+        private boolean finished;
+
+        /**
+         * Constructor.
+         *
+         * @param body  The decompressed body
+         * @param maxSize  The largest number of bytes the body may decompress to
+         */
+        DecompressedInputStream(final InputStream body, final long maxSize) {
+            this.body = body;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int value = body.read();
+            finished = value < 0;
+            if (!finished) {
+                count(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            final int read = body.read(buffer, offset, length);
+            finished = read < 0;
+            if (!finished) {
+                count(read);
+            }
+            return read;
+        }
+
+        /**
+         * Counts decompressed bytes that were read.
+         *
+         * @param read  The number of bytes read
+         *
+         * @throws ResponseStatusException if the body decompressed to more than the maximum size
+         */
+        private void count(final int read) {
+            size += read;
+            if (size > maxSize) {
+                throw new ResponseStatusException(
+                        HttpStatus.PAYLOAD_TOO_LARGE,
+                        String.format("Request body decompresses to more than %d bytes", maxSize)
+                );
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(final ReadListener readListener) {
+            throw new UnsupportedOperationException("Compressed request bodies are read with blocking I/O only");
+        }
+    }
+}
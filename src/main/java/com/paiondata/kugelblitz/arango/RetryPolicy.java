@@ -0,0 +1,197 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link RetryPolicy} repeats ArangoDB requests that failed for reasons that are likely to go away by themselves,
+ * such as a coordinator restarting.
+ * <p>
+ * {@link ArangoCoordinators} already moves a failed request on to the next coordinator at once. When every coordinator
+ * has failed it, the request is attempted again, up to {@code kugelblitz.arango.retry.max-attempts} attempts in
+ * total, after an exponential backoff with full jitter: a random delay up to
+ * {@code kugelblitz.arango.retry.initial-backoff}, doubled per attempt and capped at
+ * {@code kugelblitz.arango.retry.max-backoff}. The jitter keeps the requests that failed together during an outage
+ * from all hitting the recovering coordinators at the same moment.
+ * <p>
+ * A request that never reached ArangoDB, or that ArangoDB refused because the database was write-locked, has had no
+ * effect and is always retried. A request that timed out, broke off, or was answered with
+ * {@code 503 Service Unavailable} may have been executed, so it is retried only if it is idempotent. Requests that
+ * failed fast because every coordinator is ejected are not retried, so that an outage is not prolonged by them.
+ */
+@Component
+class RetryPolicy implements InitializingBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetryPolicy.class);
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistries;
+
+    @Autowired
+    private ObjectProvider<ObservationRegistry> observationRegistries;
+
+    @Value("${kugelblitz.arango.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${kugelblitz.arango.retry.initial-backoff:PT0.1S}")
+    private Duration initialBackoff;
+
+    @Value("${kugelblitz.arango.retry.max-backoff:PT2S}")
+    private Duration maxBackoff;
+
+    private MeterRegistry meterRegistry;
+    private ObservationRegistry observationRegistry;
+
+    @Override
+    public void afterPropertiesSet() {
+        meterRegistry = meterRegistries.getIfAvailable(() -> Metrics.globalRegistry);
+        observationRegistry = observationRegistries.getIfAvailable(() -> ObservationRegistry.NOOP);
+    }
+
+    /**
+     * Makes a request, and makes it again after a backoff for as long as it fails transiently and attempts are left.
+     *
+     * @param operation  What the request does, used for logging and metrics
+     * @param idempotent  Whether or not the request can be repeated without side effects
+     * @param attempt  Makes one attempt of the request
+     * @param <T>  The result type
+     *
+     * @return a future of the result of the last attempt
+     */
+    <T> CompletableFuture<T> execute(
+            final ArangoOperation operation,
+            final boolean idempotent,
+            final Supplier<CompletableFuture<T>> attempt
+    ) {
+        return execute(operation, idempotent, attempt, observationRegistry.getCurrentObservation(), 1);
+    }
+
+    /**
+     * Makes one attempt of a request and schedules the next one if it fails transiently.
+     *
+     * @param operation  What the request does, used for logging and metrics
+     * @param idempotent  Whether or not the request can be repeated without side effects
+     * @param attempt  Makes one attempt of the request
+     * @param parent  The observation current when the request was made, or {@code null} if there was none, which
+     * later attempts are made within, so that they are traced like the first one
+     * @param attempts  The number of this attempt, starting with {@code 1}
+     * @param <T>  The result type
+     *
+     * @return a future of the result of the last attempt
+     */
+    private <T> CompletableFuture<T> execute(
+            final ArangoOperation operation,
+            final boolean idempotent,
+            final Supplier<CompletableFuture<T>> attempt,
+            final Observation parent,
+            final int attempts
+    ) {
+        final CompletableFuture<T> result;
+        try (Observation.Scope scope = parent == null ? null : parent.openScope()) {
+            result = Futures.call(attempt);
+        }
+
+        return result.handle((value, failure) -> {
+            if (failure == null) {
+                return CompletableFuture.completedFuture(value);
+            }
+
+            final Throwable cause = Futures.unwrap(failure);
+            final String reason = transientReasonOf(cause, idempotent);
+            if (reason == null || attempts >= maxAttempts) {
+                return CompletableFuture.<T>failedFuture(cause);
+            }
+
+            final Duration backoff = backoff(attempts);
+            LOG.warn(String.format(
+                    "ArangoDB %s request failed (%s), attempting it again in %d ms",
+                    operation,
+                    reason,
+                    backoff.toMillis()
+            ));
+            Counter.builder("kugelblitz.arango.retries")
+                    .description("Number of requests to ArangoDB attempted again after a transient failure")
+                    .tag("operation", operation.getTag())
+                    .tag("reason", reason)
+                    .register(meterRegistry)
+                    .increment();
+            return CompletableFuture.runAsync(
+                    () -> { },
+                    CompletableFuture.delayedExecutor(backoff.toNanos(), TimeUnit.NANOSECONDS)
+            ).thenCompose(ignored -> execute(operation, idempotent, attempt, parent, attempts + 1));
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Returns the delay before attempting a request again.
+     *
+     * @param attempts  The number of attempts made so far, at least one
+     *
+     * @return a uniformly random duration between zero and {@code initial-backoff}, doubled per earlier attempt and
+     * capped at {@code max-backoff}
+     */
+    Duration backoff(final int attempts) {
+        final Duration ceiling = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        final long bound = Math.min(ceiling.toNanos(), maxBackoff.toNanos());
+        return Duration.ofNanos(bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+    /**
+     * Tells whether a request that failed is worth attempting again.
+     *
+     * @param failure  Why the request failed
+     * @param idempotent  Whether or not the request can be repeated without side effects
+     *
+     * @return the value of the {@code reason} metric tag, such as {@code connect}, if the request may be attempted
+     * again, {@code null} otherwise
+     */
+    static String transientReasonOf(final Throwable failure, final boolean idempotent) {
+        if (ArangoCoordinators.isConnectFailure(failure)) {
+            return "connect";
+        }
+        if (failure instanceof ArangoApiException exception) {
+            if (exception.getErrorNum() == ArangoApiException.WRITE_LOCKED) {
+                return "write-locked";
+            }
+            return idempotent && exception.getStatusCode() == 503 ? "unavailable" : null;
+        }
+        if (failure instanceof IllegalStateException && failure.getCause() instanceof IOException) {
+            return idempotent ? "io" : null;
+        }
+        return null;
+    }
+}
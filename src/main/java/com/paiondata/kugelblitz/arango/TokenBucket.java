@@ -0,0 +1,88 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link TokenBucket} is a lock-free token bucket rate limiter.
+ * <p>
+ * The bucket holds up to {@code burst} tokens and gains {@code rate} tokens per second; each admitted request takes
+ * one. Rather than counting tokens, the bucket keeps the time at which it would be full again, in the manner of the
+ * generic cell rate algorithm, so that taking a token is a single compare-and-set that never blocks and never needs a
+ * timer to refill.
+ */
+final class TokenBucket {
+
+    private final long interval;
+    private final long tolerance;
+    private final AtomicLong full;
+
+    /**
+     * Constructor.
+     * <p>
+     * The bucket starts full.
+     *
+     * @param rate  The number of tokens gained per second, greater than zero
+     * @param burst  The number of tokens the bucket holds, at least one
+     */
+    TokenBucket(final double rate, final int burst) {
+        this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+        this.tolerance = interval * Math.max(0, burst - 1);
+        this.full = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes a token if there is one.
+     *
+     * @return {@code 0} if a token was taken, otherwise how long it takes until the next token is available, in
+     * nanoseconds
+     */
+    long tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * Takes a token if there is one at the given time.
+     *
+     * @param now  The current {@link System#nanoTime()}
+     *
+     * @return {@code 0} if a token was taken, otherwise how long it takes until the next token is available, in
+     * nanoseconds
+     */
+    long tryAcquire(final long now) {
+        while (true) {
+            final long current = full.get();
+            // a bucket that has been full for a while is no fuller than one that has just become full
+            final long start = current - now > 0 ? current : now;
+            final long wait = start - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (full.compareAndSet(current, start + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire()} for a request that was not admitted after all.
+     */
+    void release() {
+        full.addAndGet(-interval);
+    }
+}
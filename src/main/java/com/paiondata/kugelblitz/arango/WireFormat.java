@@ -0,0 +1,156 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.arangodb.jackson.dataformat.velocypack.VPackMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * {@link WireFormat} is the encoding of request and response bodies exchanged with ArangoDB.
+ * <p>
+ * ArangoDB stores documents as VelocyPack, its binary JSON format, and accepts and returns it as
+ * {@code application/x-velocypack} besides JSON text. Sending VelocyPack spares the coordinators parsing JSON, and is
+ * usually smaller on the wire; in exchange, Kugelblitz transcodes the JSON its clients send. Which format pays off
+ * depends on the documents and on where CPU is scarce; {@code WireFormatBenchmark} measures both.
+ * <p>
+ * The format is chosen by {@code kugelblitz.arango.wire-format}, {@code json} (default) or {@code velocypack}.
+ * Responses are decoded by their {@code Content-Type}, whichever format was asked for.
+ */
+enum WireFormat {
+
+    /**
+     * JSON text, sent as encoded.
+     */
+    JSON("application/json", AbstractRestService.JSON_MAPPER),
+
+    /**
+     * VelocyPack, transcoded from and to JSON.
+     */
+    VELOCYPACK("application/x-velocypack", new VPackMapper());
+
+    private final String contentType;
+    private final ObjectMapper mapper;
+
+    /**
+     * Constructor.
+     *
+     * @param contentType  The media type of bodies in this format
+     * @param mapper  Reads and writes bodies in this format
+     */
+    WireFormat(final String contentType, final ObjectMapper mapper) {
+        this.contentType = contentType;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Returns the format of a response body.
+     *
+     * @param response  The response
+     *
+     * @return {@link #VELOCYPACK} if the {@code Content-Type} of {@code response} says so, {@link #JSON} otherwise
+     */
+    static WireFormat of(final HttpResponse<?> response) {
+        return response.headers()
+                .firstValue("Content-Type")
+                .filter(type -> type.startsWith(VELOCYPACK.contentType))
+                .map(type -> VELOCYPACK)
+                .orElse(JSON);
+    }
+
+    /**
+     * Returns the media type of bodies in this format.
+     *
+     * @return the value of the {@code Content-Type} and {@code Accept} headers
+     */
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Creates a publisher for a request carrying a payload in this format.
+     *
+     * @param payload  The payload, encoded as JSON
+     *
+     * @return a body publisher of the payload as is, or transcoded into this format
+     */
+    HttpRequest.BodyPublisher publisher(final JsonBody payload) {
+        return this == JSON ? payload.publisher() : HttpRequest.BodyPublishers.ofByteArray(encode(payload));
+    }
+
+    /**
+     * Encodes a payload in this format.
+     *
+     * @param payload  The payload, encoded as JSON
+     *
+     * @return the bytes of the payload as is, or transcoded into this format
+     */
+    byte[] encode(final JsonBody payload) {
+        if (this == JSON) {
+            return payload.toByteArray();
+        }
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream((int) payload.length());
+        try (
+                JsonParser parser = JSON.mapper.createParser(payload.toByteArray());
+                JsonGenerator generator = mapper.createGenerator(output)
+        ) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(AbstractRestService.FAILED_REQUEST_MESSAGE, exception);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Parses a body in this format.
+     * <p>
+     * JSON is parsed while it is being received. VelocyPack can only be decoded from an array, so it is received in
+     * full first.
+     *
+     * @param body  The body
+     *
+     * @return the body represented by a {@link JsonNode}
+     *
+     * @throws IOException if the body cannot be read or is malformed
+     */
+    JsonNode readTree(final InputStream body) throws IOException {
+        return this == JSON ? mapper.readTree(body) : mapper.readTree(body.readAllBytes());
+    }
+
+    /**
+     * Parses a body in this format.
+     *
+     * @param body  The body
+     *
+     * @return the body represented by a {@link JsonNode}
+     *
+     * @throws IOException if the body is malformed
+     */
+    JsonNode readTree(final byte[] body) throws IOException {
+        return mapper.readTree(body);
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link WriteAheadLog} is an append-only log of records on local disk, split into memory-mapped segment files.
+ * <p>
+ * Every record is identified by its position, the number of bytes written to the log before it. A segment covers a
+ * fixed range of positions and is named after the first of them; a record never spans two segments, so the unused end
+ * of a segment that cannot take the next record is left zeroed and skipped. Each record is framed by its length and a
+ * CRC32C checksum of its payload, which tell the end of the log from a record that was only partially written when
+ * the process died.
+ * <p>
+ * Records are consumed in order. The position up to which they have been consumed, the checkpoint, is stored in a
+ * file of its own, and segments lying wholly before it are deleted. Opening a log recovers it: the records after the
+ * checkpoint are counted and the log continues after the last intact one.
+ * <p>
+ * Appended records are in the page cache of the operating system right away and thus survive a crash of the process;
+ * {@link #sync()} forces them to the disk to survive a crash of the machine as well. All methods are thread-safe; a
+ * lock file keeps other processes from opening the same log.
+ */
+final class WriteAheadLog implements Closeable {
+
+    /**
+     * The size of the frame of a record: its payload length and checksum.
+     */
+    static final int HEADER_SIZE = Integer.BYTES * 2;
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String LOCK_FILE = "lock";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FileChannel lock;
+    private final NavigableMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+
+    private long end;
+    private long checkpoint;
+    private long synced;
+    private long pendingRecords;
+
+    /**
+     * Opens the log in a directory, creating it if it does not exist and recovering it otherwise.
+     *
+     * @param directory  The directory of the segment and checkpoint files
+     * @param segmentSize  The size of each segment file, which bounds the size of a record
+     *
+     * @throws IOException if the log cannot be read or created
+     * @throws IllegalStateException if the log is open in another process already
+     */
+    WriteAheadLog(final Path directory, final int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        lock = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (!tryLock()) {
+            lock.close();
+            throw new IllegalStateException(String.format("The write-ahead log in %s is in use", directory));
+        }
+
+        final Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        checkpoint = Files.exists(checkpointFile) ? ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong() : 0;
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (final Path file : files.filter(path -> path.toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+                final long base = Long.parseLong(file.getFileName().toString().replace(SEGMENT_SUFFIX, ""));
+                if (base + segmentSize <= checkpoint) {
+                    Files.delete(file);
+                } else {
+                    segments.put(base, map(file, false));
+                }
+            }
+        }
+
+        recover();
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param payload  The content of the record
+     *
+     * @return the position of the record
+     *
+     * @throws IOException if a new segment file cannot be created
+     * @throws IllegalArgumentException if the record is empty or larger than a segment
+     */
+    synchronized long append(final byte[] payload) throws IOException {
+        if (payload.length == 0) {
+            throw new IllegalArgumentException("A record must not be empty");
+        }
+        final int length = HEADER_SIZE + payload.length;
+        if (length > segmentSize) {
+            throw new IllegalArgumentException(String.format(
+                    "A record of %d bytes does not fit into a segment of %d bytes",
+                    length,
+                    segmentSize
+            ));
+        }
+
+        if (segments.isEmpty()) {
+            end -= offset(end);
+            segments.put(end, map(directory.resolve(segmentName(end)), true));
+        } else if (end + length > segments.lastKey() + segmentSize) {
+            end = segments.lastKey() + segmentSize;
+            segments.put(end, map(directory.resolve(segmentName(end)), true));
+        }
+
+        final ByteBuffer segment = segments.lastEntry().getValue();
+        final int offset = (int) (end - segments.lastKey());
+        segment.put(offset + HEADER_SIZE, payload);
+        segment.putInt(offset + Integer.BYTES, checksum(payload));
+        segment.putInt(offset, payload.length);
+
+        final long position = end;
+        end += length;
+        pendingRecords++;
+        notifyAll();
+        return position;
+    }
+
+    /**
+     * Reads the records following a position.
+     *
+     * @param from  The position to read from: the checkpoint or the end of a record read before
+     * @param maxRecords  The maximum number of records to read
+     *
+     * @return the records, in order; empty if there are none after {@code from}
+     */
+    synchronized List<Record> read(final long from, final int maxRecords) {
+        final List<Record> records = new ArrayList<>();
+        long position = from;
+        while (position < end && records.size() < maxRecords) {
+            final Map.Entry<Long, MappedByteBuffer> segment = segments.floorEntry(position);
+            final int offset = (int) (position - segment.getKey());
+            final int length = offset + HEADER_SIZE <= segmentSize ? segment.getValue().getInt(offset) : 0;
+            if (length == 0) {
+                // the rest of this segment was too small for the next record
+                position = segment.getKey() + segmentSize;
+                continue;
+            }
+
+            final byte[] payload = new byte[length];
+            segment.getValue().get(offset + HEADER_SIZE, payload);
+            position += HEADER_SIZE + length;
+            records.add(new Record(position, payload));
+        }
+        return records;
+    }
+
+    /**
+     * Waits until there are records after a position.
+     *
+     * @param from  The position
+     * @param timeoutMillis  The maximum time to wait, in milliseconds
+     *
+     * @return {@code true} if there are records after {@code from}
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    synchronized boolean awaitRecords(final long from, final long timeoutMillis) throws InterruptedException {
+        if (end <= from) {
+            wait(timeoutMillis);
+        }
+        return end > from;
+    }
+
+    /**
+     * Marks records as consumed, deleting the segments that are no longer needed.
+     *
+     * @param position  The end of the last consumed record
+     * @param records  The number of records consumed since the previous checkpoint
+     *
+     * @throws IOException if the checkpoint cannot be stored
+     */
+    synchronized void checkpoint(final long position, final int records) throws IOException {
+        final Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(
+                temporary,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, position));
+            channel.force(true);
+        }
+        Files.move(
+                temporary,
+                directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE
+        );
+
+        checkpoint = position;
+        pendingRecords -= records;
+        while (segments.size() > 1 && segments.firstKey() + segmentSize <= checkpoint) {
+            Files.deleteIfExists(directory.resolve(segmentName(segments.pollFirstEntry().getKey())));
+        }
+    }
+
+    /**
+     * Forces the records appended since the previous call to the disk.
+     */
+    synchronized void sync() {
+        for (final Map.Entry<Long, MappedByteBuffer> segment : segments.tailMap(synced - offset(synced)).entrySet()) {
+            final long from = Math.max(synced, segment.getKey());
+            final long to = Math.min(end, segment.getKey() + segmentSize);
+            if (from < to) {
+                segment.getValue().force((int) (from - segment.getKey()), (int) (to - from));
+            }
+        }
+        synced = end;
+    }
+
+    /**
+     * Returns the position up to which records have been consumed.
+     *
+     * @return the checkpoint
+     */
+    synchronized long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Returns the position after the last record.
+     *
+     * @return the end of the log
+     */
+    synchronized long getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the number of records that have not been consumed yet.
+     *
+     * @return the number of records after the checkpoint
+     */
+    synchronized long getPendingRecords() {
+        return pendingRecords;
+    }
+
+    /**
+     * Returns the number of bytes taken by records that have not been consumed yet.
+     *
+     * @return the distance between the checkpoint and the end of the log
+     */
+    synchronized long getPendingBytes() {
+        return end - checkpoint;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        segments.clear();
+        lock.close();
+    }
+
+    /**
+     * Finds the end of the log after the checkpoint, counting the records on the way, and discards whatever follows
+     * it, such as a record that was partially written when the process died.
+     */
+    private void recover() throws IOException {
+        end = checkpoint;
+        while (true) {
+            final Map.Entry<Long, MappedByteBuffer> segment = segments.floorEntry(end);
+            final int offset = segment == null ? segmentSize : (int) Math.min(end - segment.getKey(), segmentSize);
+            final int length = offset + HEADER_SIZE <= segmentSize ? segment.getValue().getInt(offset) : 0;
+            if (length == 0) {
+                // the end of the log, unless the rest of this segment was too small for the next record
+                final Long next = segments.higherKey(end);
+                if (next == null) {
+                    break;
+                }
+                end = next;
+                continue;
+            }
+            if (length < 0 || offset + HEADER_SIZE + length > segmentSize) {
+                break;
+            }
+
+            final byte[] payload = new byte[length];
+            segment.getValue().get(offset + HEADER_SIZE, payload);
+            if (segment.getValue().getInt(offset + Integer.BYTES) != checksum(payload)) {
+                break;
+            }
+            end += HEADER_SIZE + length;
+            pendingRecords++;
+        }
+
+        // nothing after the end is valid: discard it, so that it cannot be mistaken for records later
+        while (!segments.isEmpty() && segments.lastKey() > end) {
+            Files.delete(directory.resolve(segmentName(segments.pollLastEntry().getKey())));
+        }
+        if (!segments.isEmpty() && end < segments.lastKey() + segmentSize) {
+            final int offset = (int) (end - segments.lastKey());
+            segments.lastEntry().getValue().put(offset, new byte[segmentSize - offset]);
+        }
+        synced = end;
+    }
+
+    /**
+     * Locks the log against other users.
+     *
+     * @return {@code false} if another process, or another log in this one, holds the lock
+     *
+     * @throws IOException if the lock file cannot be locked
+     */
+    private boolean tryLock() throws IOException {
+        try {
+            return lock.tryLock() != null;
+        } catch (final OverlappingFileLockException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the offset of a position within its segment.
+     *
+     * @param position  The position
+     *
+     * @return the offset in bytes from the start of the segment
+     */
+    private int offset(final long position) {
+        return (int) (position % segmentSize);
+    }
+
+    /**
+     * Maps a segment file into memory.
+     *
+     * @param file  The segment file
+     * @param create  {@code true} to create a new, zeroed file
+     *
+     * @return the mapped segment
+     *
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    private MappedByteBuffer map(final Path file, final boolean create) throws IOException {
+        final StandardOpenOption mode = create ? StandardOpenOption.CREATE_NEW : StandardOpenOption.READ;
+        try (FileChannel channel = FileChannel.open(file, mode, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    /**
+     * Returns the file name of a segment.
+     *
+     * @param base  The position the segment starts at
+     *
+     * @return the name, which sorts by position
+     */
+    private static String segmentName(final long base) {
+        return String.format("%019d%s", base, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Computes the checksum of a record payload.
+     *
+     * @param payload  The payload
+     *
+     * @return the CRC32C of {@code payload}
+     */
+    private static int checksum(final byte[] payload) {
+        final CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A record read from the log.
+     *
+     * @param next  The position right after the record, to read or checkpoint from
+     * @param payload  The content of the record
+     */
+    record Record(long next, byte[] payload) {
+
+        /**
+         * Returns the position of this record.
+         *
+         * @return the position the record was appended at
+         */
+        long position() {
+            return next - HEADER_SIZE - payload.length;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link WriteCoalescer} merges concurrent single-document inserts into the same collection into array inserts.
+ * <p>
+ * Every collection gets its own bounded queue. A queue is flushed as one array insert as soon as it holds
+ * {@code kugelblitz.arango.coalescing.batch-size} documents, or {@code kugelblitz.arango.coalescing.linger} after its
+ * first document arrived, whichever comes first. Each caller is then handed the result of its own document.
+ * <p>
+ * At most {@code kugelblitz.arango.coalescing.max-in-flight-batches} batches per collection are written at the same
+ * time; further documents keep queueing meanwhile. When a queue is full, callers wait for up to
+ * {@code kugelblitz.arango.coalescing.enqueue-timeout} for space and are rejected with {@code 429 Too Many Requests}
+ * afterwards, so that a slow ArangoDB cannot make Kugelblitz buffer unboundedly.
+ * <p>
+ * The queue of a collection is dropped after ten minutes without inserts, or when more than 100,000 collections have
+ * queues, so that clients cannot make Kugelblitz keep a queue for every collection name they ever used. A dropped
+ * queue still flushes the documents it holds.
+ * <p>
+ * Coalescing is off unless {@code kugelblitz.arango.coalescing.enabled} is {@code true}.
+ */
+@Component
+class WriteCoalescer implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WriteCoalescer.class);
+
+    private final Cache<Key, Batcher> batchers = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private CollectionProvisioner collectionProvisioner;
+
+    @Value("${kugelblitz.arango.coalescing.enabled:false}")
+    private boolean enabled;
+
+    @Value("${kugelblitz.arango.coalescing.batch-size:100}")
+    private int batchSize;
+
+    @Value("${kugelblitz.arango.coalescing.linger:PT0.005S}")
+    private Duration linger;
+
+    @Value("${kugelblitz.arango.coalescing.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${kugelblitz.arango.coalescing.enqueue-timeout:PT0S}")
+    private Duration enqueueTimeout;
+
+    @Value("${kugelblitz.arango.coalescing.flush-threads:4}")
+    private int flushThreads;
+
+    @Value("${kugelblitz.arango.coalescing.max-in-flight-batches:4}")
+    private int maxInFlightBatches;
+
+    private ScheduledExecutorService flusher;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        flusher = Executors.newScheduledThreadPool(flushThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "arango-write-coalescer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (flusher == null) {
+            return;
+        }
+
+        flusher.shutdown();
+        batchers.asMap().values().forEach(Batcher::flushAll);
+    }
+
+    /**
+     * Returns whether or not inserts should go through this coalescer.
+     *
+     * @return {@code true} if {@code kugelblitz.arango.coalescing.enabled} is set
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a document for insertion with the next batch of its collection.
+     *
+     * @param database  The database name that stores the document
+     * @param collection  The collection name that contains the document
+     * @param document  The document to be created
+     *
+     * @return the {@code _id}, {@code _key}, and {@code _rev} of the new document once its batch has been written. The
+     * future fails with the same {@link ArangoApiException} as a single-document insert if ArangoDB rejected this
+     * particular document
+     *
+     * @throws ResponseStatusException with {@code 429 Too Many Requests} if the queue of the collection stays full
+     * for longer than {@code kugelblitz.arango.coalescing.enqueue-timeout}
+     */
+    CompletableFuture<JsonNode> submit(final String database, final String collection, final JsonBody document) {
+        final Pending pending = new Pending(document, new CompletableFuture<>());
+
+        batchers.get(new Key(database, collection), Batcher::new).enqueue(pending);
+
+        return pending.result();
+    }
+
+    /**
+     * A collection that documents are coalesced for.
+     *
+     * @param database  The database name
+     * @param collection  The collection name
+     */
+    private record Key(String database, String collection) {
+    }
+
+    /**
+     * A queued document and the future its caller waits on.
+     *
+     * @param document  The document to be created
+     * @param result  Completed with the per-document insert result
+     */
+    private record Pending(JsonBody document, CompletableFuture<JsonNode> result) {
+    }
+
+    /**
+     * The queue and flush scheduling of a single collection.
+     */
+    private final class Batcher {
+
+        private final Key key;
+        private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean lingering = new AtomicBoolean();
+        private final AtomicInteger inFlightBatches = new AtomicInteger();
+
+        /**
+         * Constructor.
+         *
+         * @param key  The collection whose documents are coalesced
+         */
+        private Batcher(final Key key) {
+            this.key = key;
+        }
+
+        /**
+         * Adds a document to the queue and makes sure it is flushed in time.
+         *
+         * @param pending  The document to be created
+         */
+        private void enqueue(final Pending pending) {
+            final boolean accepted;
+            try {
+                accepted = queue.offer(pending, enqueueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted", exception);
+            }
+
+            if (!accepted) {
+                throw new ResponseStatusException(
+                        HttpStatus.TOO_MANY_REQUESTS,
+                        String.format("Too many pending writes to %s/%s", key.database(), key.collection())
+                );
+            }
+
+            if (queue.size() >= batchSize) {
+                flusher.execute(this::flush);
+            } else if (lingering.compareAndSet(false, true)) {
+                flusher.schedule(
+                        () -> {
+                            lingering.set(false);
+                            flush();
+                        },
+                        linger.toNanos(),
+                        TimeUnit.NANOSECONDS
+                );
+            }
+        }
+
+        /**
+         * Writes up to one batch of queued documents and hands each caller its result.
+         * <p>
+         * Nothing happens while {@code max-in-flight-batches} batches are being written already; the completion of one
+         * of them flushes again.
+         */
+        private void flush() {
+            if (inFlightBatches.incrementAndGet() > maxInFlightBatches) {
+                inFlightBatches.decrementAndGet();
+                return;
+            }
+
+            final List<Pending> batch = new ArrayList<>(batchSize);
+            queue.drainTo(batch, batchSize);
+
+            if (batch.isEmpty()) {
+                inFlightBatches.decrementAndGet();
+                return;
+            }
+
+            if (queue.size() >= batchSize) {
+                flusher.execute(this::flush);
+            }
+
+            write(batch).whenComplete((ignored, failure) -> {
+                inFlightBatches.decrementAndGet();
+                if (!queue.isEmpty() && !flusher.isShutdown()) {
+                    flusher.execute(this::flush);
+                }
+            });
+        }
+
+        /**
+         * Writes everything still queued, batch by batch, and waits for each batch to complete.
+         */
+        private void flushAll() {
+            while (true) {
+                final List<Pending> batch = new ArrayList<>(batchSize);
+                if (queue.drainTo(batch, batchSize) == 0) {
+                    return;
+                }
+                write(batch).join();
+            }
+        }
+
+        /**
+         * Sends a batch as one array insert.
+         *
+         * @param batch  The documents to be created
+         *
+         * @return a future that completes, never exceptionally, once every caller of the batch has been handed its
+         * result
+         */
+        private CompletableFuture<Void> write(final List<Pending> batch) {
+            final JsonBody documents = JsonBody.arrayOf(batch.stream().map(Pending::document).toList());
+
+            return collectionProvisioner.write(
+                    key.database(),
+                    key.collection(),
+                    () -> documentService.createDocuments(key.database(), key.collection(), documents)
+            ).handle((results, failure) -> {
+                if (failure != null) {
+                    final Throwable cause = Futures.unwrap(failure);
+                    LOG.error(String.format("Coalesced write of %d documents failed", batch.size()), cause);
+                    batch.forEach(pending -> pending.result().completeExceptionally(cause));
+                } else {
+                    complete(batch, results);
+                }
+                return null;
+            });
+        }
+
+        /**
+         * Hands each caller of a written batch the result of its own document.
+         *
+         * @param batch  The documents that have been sent
+         * @param results  The per-document results ArangoDB answered with
+         */
+        private void complete(final List<Pending> batch, final ArrayNode results) {
+            if (results.size() != batch.size()) {
+                final IllegalStateException exception = new IllegalStateException(
+                        AbstractRestService.FAILED_REQUEST_MESSAGE
+                );
+                LOG.error(String.format("Got %d results for %d coalesced documents", results.size(), batch.size()));
+                batch.forEach(pending -> pending.result().completeExceptionally(exception));
+                return;
+            }
+
+            for (int index = 0; index < batch.size(); index++) {
+                final JsonNode result = results.get(index);
+
+                if (result.path("error").asBoolean()) {
+                    batch.get(index).result().completeExceptionally(ArangoApiException.ofDocumentResult(result));
+                } else {
+                    batch.get(index).result().complete(result);
+                }
+            }
+        }
+    }
+}
@@ -19,13 +19,16 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
 
 /**
  * The Kugelblitz integration tests.
  */
+@AutoConfigureObservability
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 class ApplicationIT {
 
@@ -50,4 +53,24 @@ class ApplicationIT {
         assertThat(this.restTemplate.getForObject("http://localhost:" + this.port + "/actuator/health", String.class))
                 .isEqualTo("{\"status\":\"UP\"}");
     }
+
+    /**
+     * Make sure the ArangoDB HTTP client metrics are exposed through actuator.
+     */
+    @Test
+    void testArangoHttpClientMetrics() {
+        assertThat(this.restTemplate.getForEntity(
+                "http://localhost:" + this.port + "/actuator/metrics/kugelblitz.arango.http.in-flight",
+                String.class
+        ).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    /**
+     * Make sure the metrics can be scraped by Prometheus.
+     */
+    @Test
+    void testPrometheusEndpoint() {
+        assertThat(this.restTemplate.getForObject("http://localhost:" + this.port + "/actuator/prometheus", String.class))
+                .contains("kugelblitz_arango_http_in_flight");
+    }
 }
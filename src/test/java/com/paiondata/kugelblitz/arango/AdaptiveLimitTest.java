@@ -0,0 +1,116 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AdaptiveLimit} unit tests.
+ */
+class AdaptiveLimitTest {
+
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Make sure the limit grows by about one per limit's worth of quick round trips, but only while it is in use.
+     */
+    @Test
+    void quickRoundTripsRaiseUsedLimit() {
+        final AdaptiveLimit limit = new AdaptiveLimit(10, 1, 100, 2, 0.5);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 10; i++) {
+            now += MILLISECOND;
+            limit.onSample(ArangoOperation.GET_DOCUMENT, MILLISECOND, 1, false, now);
+        }
+        assertThat(limit.getLimit()).isEqualTo(10);
+
+        for (int i = 0; i < 10; i++) {
+            now += MILLISECOND;
+            limit.onSample(ArangoOperation.GET_DOCUMENT, MILLISECOND, 10, false, now);
+        }
+        assertThat(limit.getLimit()).isEqualTo(10);
+        assertThat(limit.onSample(ArangoOperation.GET_DOCUMENT, MILLISECOND, 10, false, now + MILLISECOND))
+                .isEqualTo(11);
+    }
+
+    /**
+     * Make sure a slow round trip lowers the limit once for all requests that were underway, and that each operation
+     * is compared with its own baseline.
+     */
+    @Test
+    void slowRoundTripLowersLimitOncePerRoundTrip() {
+        final AdaptiveLimit limit = new AdaptiveLimit(40, 1, 100, 2, 0.5);
+        long now = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            now += MILLISECOND;
+            limit.onSample(ArangoOperation.GET_DOCUMENT, MILLISECOND, 1, false, now);
+            limit.onSample(ArangoOperation.IMPORT_DOCUMENTS, 100 * MILLISECOND, 1, false, now);
+        }
+
+        now += 100 * MILLISECOND;
+        assertThat(limit.onSample(ArangoOperation.IMPORT_DOCUMENTS, 100 * MILLISECOND, 1, false, now)).isEqualTo(40);
+        assertThat(limit.onSample(ArangoOperation.GET_DOCUMENT, 10 * MILLISECOND, 1, false, now)).isEqualTo(20);
+        assertThat(limit.onSample(ArangoOperation.GET_DOCUMENT, 10 * MILLISECOND, 1, false, now)).isEqualTo(20);
+        assertThat(limit.onSample(ArangoOperation.GET_DOCUMENT, 10 * MILLISECOND, 1, false, now + 20 * MILLISECOND))
+                .isEqualTo(10);
+        assertThat(limit.getLatencyDecreases()).isEqualTo(2);
+    }
+
+    /**
+     * Make sure a sustained slowdown does not become the baseline, so that the limit keeps shrinking rather than
+     * growing again while it lasts.
+     */
+    @Test
+    void sustainedSlowdownIsNotTheBaseline() {
+        final AdaptiveLimit limit = new AdaptiveLimit(64, 1, 100, 2, 0.9);
+        long now = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            now += MILLISECOND;
+            limit.onSample(ArangoOperation.GET_DOCUMENT, MILLISECOND, 64, false, now);
+        }
+        final int before = limit.getLimit();
+
+        for (int i = 0; i < 2000; i++) {
+            now += MILLISECOND;
+            limit.onSample(ArangoOperation.GET_DOCUMENT, 3 * MILLISECOND, 64, false, now);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(1).isLessThan(before);
+        assertThat(limit.getLatencyDecreases()).isGreaterThan(100);
+    }
+
+    /**
+     * Make sure dropped requests lower the limit, but never below the minimum.
+     */
+    @Test
+    void droppedRequestsLowerLimitToMinimum() {
+        final AdaptiveLimit limit = new AdaptiveLimit(16, 3, 100, 2, 0.5);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            now += 10 * MILLISECOND;
+            limit.onSample(ArangoOperation.INSERT_DOCUMENT, MILLISECOND, 16, true, now);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(3);
+        assertThat(limit.getFailureDecreases()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control over HTTP in a running Kugelblitz, against a {@link StubArangoServer} that takes a while to answer,
+ * so that admitted requests hold their concurrency slots for a while.
+ * <p>
+ * Every database is served one request at a time and all of them together two; database {@code db1} is also rate
+ * limited to a single request. Each test uses databases of its own, so that the limits of one do not reject the
+ * requests of another.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "kugelblitz.arango.admission.databases.db1.rate=0.01",
+                "kugelblitz.arango.admission.databases.db1.burst=1",
+                "kugelblitz.arango.admission.database.max-concurrent=1",
+                "kugelblitz.arango.admission.max-concurrent=2",
+                "kugelblitz.arango.admission.max-wait=PT0.2S"
+        }
+)
+class AdmissionControlIT {
+
+    private static final Duration LATENCY = Duration.ofMillis(500);
+
+    private static StubArangoServer stub;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    /**
+     * Points Kugelblitz at the ArangoDB stub.
+     *
+     * @param registry  {@code application.properties} mutator at runtime
+     */
+    @DynamicPropertySource
+    static void registerArangoProperties(final DynamicPropertyRegistry registry) {
+        registry.add("kugelblitz.arango.hosts", AdmissionControlIT::startArango);
+    }
+
+    /**
+     * Stops the ArangoDB stub.
+     */
+    @AfterAll
+    static void stopArango() {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    /**
+     * Make sure a request over the rate limit of its database is answered with {@code 429 Too Many Requests} and a
+     * {@code Retry-After} header, and that only databases with limits of their own are tagged by name.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void rateLimitedRequestIsTooManyRequests() throws Exception {
+        assertThat(createDocument("db1").statusCode()).isEqualTo(200);
+
+        final HttpResponse<String> rejected = createDocument("db1");
+
+        assertThat(rejected.statusCode()).isEqualTo(429);
+        assertThat(rejected.headers().firstValue("Retry-After").map(Long::parseLong)).hasValueSatisfying(
+                seconds -> assertThat(seconds).isPositive()
+        );
+        assertThat(requests("db1", "rate-limited")).isEqualTo(1);
+
+        assertThat(createDocument("db0").statusCode()).isEqualTo(200);
+        assertThat(requests("other", "admitted")).isPositive();
+        assertThat(meterRegistry.find("kugelblitz.arango.admission.requests").tag("database", "db0").meters())
+                .isEmpty();
+        awaitReleased();
+    }
+
+    /**
+     * Make sure a request over the concurrency limit of its database is rejected right away, while the request
+     * holding the slot of the database is still being served.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void requestOverDatabaseConcurrencyLimitIsRejected() throws Exception {
+        final CompletableFuture<HttpResponse<String>> admitted = createDocumentAsync("db2");
+        await().atMost(Duration.ofSeconds(10)).until(() -> inFlightByDatabase().containsKey("db2"));
+
+        final HttpResponse<String> rejected = createDocument("db2");
+
+        assertThat(rejected.statusCode()).isEqualTo(429);
+        assertThat(rejected.headers().firstValue("Retry-After")).contains("1");
+        assertThat(admitted).isNotDone();
+        assertThat(admitted.get().statusCode()).isEqualTo(200);
+        awaitReleased();
+    }
+
+    /**
+     * Make sure a request over the global concurrency limit waits for a slot for the maximum wait only, and is
+     * rejected afterwards.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void requestWaitingForGlobalConcurrencyLimitTimesOut() throws Exception {
+        final CompletableFuture<HttpResponse<String>> first = createDocumentAsync("db3");
+        final CompletableFuture<HttpResponse<String>> second = createDocumentAsync("db4");
+        await().atMost(Duration.ofSeconds(10)).until(() -> inFlight() == 2);
+
+        final long start = System.nanoTime();
+        final HttpResponse<String> rejected = createDocument("db5");
+
+        assertThat(rejected.statusCode()).isEqualTo(429);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+        assertThat(meterRegistry.get("kugelblitz.arango.admission.wait").timer().max(TimeUnit.MILLISECONDS))
+                .isGreaterThanOrEqualTo(200);
+        assertThat(first.get().statusCode()).isEqualTo(200);
+        assertThat(second.get().statusCode()).isEqualTo(200);
+        awaitReleased();
+    }
+
+    /**
+     * Make sure asynchronous and streamed responses give back their slots once they are complete, so that the next
+     * requests, which take all of the global slots again, are admitted.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void slotsAreReleasedAfterAsynchronousAndStreamedResponses() throws Exception {
+        for (int round = 0; round < 3; round++) {
+            final CompletableFuture<HttpResponse<String>> created = createDocumentAsync("db6");
+            final CompletableFuture<HttpResponse<String>> queried = client.sendAsync(
+                    HttpRequest.newBuilder()
+                            .uri(URI.create(String.format("http://localhost:%d/arango/query/db7?batchSize=2", port)))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"query\": \"FOR i IN 1..6 RETURN i\"}"))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString()
+            );
+
+            assertThat(created.get().statusCode()).isEqualTo(200);
+            assertThat(queried.get().statusCode()).isEqualTo(200);
+            assertThat(queried.get().body()).isEqualTo("1\n2\n3\n4\n5\n6\n");
+            awaitReleased();
+        }
+    }
+
+    /**
+     * Creates a document in {@code collection0} of a database.
+     *
+     * @param database  The database
+     *
+     * @return the response
+     *
+     * @throws Exception if the request fails
+     */
+    private HttpResponse<String> createDocument(final String database) throws Exception {
+        return createDocumentAsync(database).get();
+    }
+
+    /**
+     * Starts creating a document in {@code collection0} of a database.
+     *
+     * @param database  The database
+     *
+     * @return the response, once it arrived
+     */
+    private CompletableFuture<HttpResponse<String>> createDocumentAsync(final String database) {
+        return client.sendAsync(
+                HttpRequest.newBuilder()
+                        .uri(URI.create(
+                                String.format("http://localhost:%d/arango/createDocument/%s/collection0", port, database)
+                        ))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"name\": \"Kugelblitz\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString()
+        );
+    }
+
+    /**
+     * Waits until every admitted request gave back its slots.
+     */
+    private void awaitReleased() {
+        await().atMost(Duration.ofSeconds(5)).until(() -> inFlight() == 0 && inFlightByDatabase().isEmpty());
+    }
+
+    /**
+     * Returns the number of requests holding a global slot.
+     *
+     * @return the value of the {@code kugelblitz.arango.admission.in-flight} gauge
+     */
+    private double inFlight() {
+        return meterRegistry.get("kugelblitz.arango.admission.in-flight").gauge().value();
+    }
+
+    /**
+     * Returns the number of requests holding the slot of each database.
+     *
+     * @return the number of requests by database
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Integer> inFlightByDatabase() {
+        return (Map<String, Integer>) ReflectionTestUtils.getField(admissionControl, "inFlightByDatabase");
+    }
+
+    /**
+     * Returns the number of requests counted with a given outcome.
+     *
+     * @param database  The {@code database} tag
+     * @param result  The {@code result} tag
+     *
+     * @return the value of the {@code kugelblitz.arango.admission.requests} counter
+     */
+    private double requests(final String database, final String result) {
+        return meterRegistry.get("kugelblitz.arango.admission.requests")
+                .tag("database", database)
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+
+    /**
+     * Starts the ArangoDB stub, unless it already runs.
+     *
+     * @return the URL of the stub
+     */
+    private static synchronized String startArango() {
+        if (stub == null) {
+            try {
+                stub = new StubArangoServer(8, LATENCY);
+            } catch (final IOException exception) {
+                throw new IllegalStateException("Cannot start ArangoDB stub", exception);
+            }
+        }
+        return stub.getUrl();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * {@link AdmissionControl} unit tests.
+ */
+class AdmissionControlTest {
+
+    private AdmissionControl admissionControl;
+
+    /**
+     * Creates admission control that admits two requests to database {@code db} and one to each of its collections,
+     * for the next hundred seconds.
+     */
+    @BeforeEach
+    void setUp() {
+        admissionControl = new AdmissionControl();
+        ReflectionTestUtils.setField(
+                admissionControl,
+                "environment",
+                new MockEnvironment()
+                        .withProperty("kugelblitz.arango.admission.databases.db.rate", "0.01")
+                        .withProperty("kugelblitz.arango.admission.databases.db.burst", "2")
+        );
+        ReflectionTestUtils.setField(
+                admissionControl,
+                "meterRegistries",
+                new StaticListableBeanFactory(Map.of("meterRegistry", new SimpleMeterRegistry()))
+                        .getBeanProvider(MeterRegistry.class)
+        );
+        ReflectionTestUtils.setField(admissionControl, "collectionRate", 0.01);
+        ReflectionTestUtils.setField(admissionControl, "collectionBurst", 1);
+        ReflectionTestUtils.setField(admissionControl, "maxWait", Duration.ofSeconds(1));
+        admissionControl.afterPropertiesSet();
+    }
+
+    /**
+     * Make sure a request rejected by the rate limit of its collection does not use up the rate of its database.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void collectionRejectionKeepsDatabaseRate() throws Exception {
+        assertThat(admit("db", "collection1")).isTrue();
+        assertThat(admit("db", "collection1")).isFalse();
+        assertThat(admit("db", "collection2")).isTrue();
+        assertThat(admit("db", "collection3")).isFalse();
+    }
+
+    /**
+     * Asks admission control to admit a request to a collection.
+     *
+     * @param database  The database of the request
+     * @param collection  The collection of the request
+     *
+     * @return whether the request was admitted
+     *
+     * @throws Exception if the request cannot be rejected
+     */
+    private boolean admit(final String database, final String collection) throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest(
+                "POST",
+                String.format("/arango/createDocument/%s/%s", database, collection)
+        );
+        request.setAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE,
+                Map.of("database", database, "collection", collection)
+        );
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        final boolean admitted = admissionControl.preHandle(request, response, new Object());
+        assertThat(response.getStatus()).isEqualTo(admitted ? 200 : 429);
+        return admitted;
+    }
+}
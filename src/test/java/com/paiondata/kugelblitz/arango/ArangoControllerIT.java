@@ -15,32 +15,64 @@
  */
 package com.paiondata.kugelblitz.arango;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * {@link Controller ArandoDB-backed entity controller} integration tests.
  */
 @Testcontainers
 @WebMvcTest(Controller.class)
-@Import({DatabaseService.class, CollectionService.class, DocumentService.class})
+@Import({
+        ArangoHttpClient.class,
+        ArangoCoordinators.class,
+        RetryPolicy.class,
+        JwtTokenManager.class,
+        ExistenceCache.class,
+        DocumentCache.class,
+        CollectionProvisioner.class,
+        WriteCoalescer.class,
+        AsyncWriter.class,
+        DatabaseService.class,
+        CollectionService.class,
+        DocumentService.class,
+        QueryService.class
+})
 public class ArangoControllerIT {
 
     private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
@@ -76,14 +108,385 @@ public class ArangoControllerIT {
         final ObjectNode payload = JSON_MAPPER.createObjectNode();
         payload.put("myfield", "myvalue");
 
-        mockMvc.perform(
+        final MvcResult result = mockMvc.perform(
                 post("/arango/createDocument/mydatabase/mycollection")
                         .content(JSON_MAPPER.writeValueAsBytes(payload))
                         .contentType(MediaType.APPLICATION_JSON)
         )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$._id").exists())
                 .andExpect(jsonPath("$._key").exists())
                 .andExpect(jsonPath("$._rev").exists());
     }
+
+    /**
+     * Make sure multiple documents can be created at once and that a bad document only fails itself.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    public void testCreateDocuments() throws Exception {
+        final ArrayNode payload = JSON_MAPPER.createArrayNode();
+        payload.addObject().put("_key", "duplicate").put("myfield", "first");
+        payload.addObject().put("_key", "duplicate").put("myfield", "second");
+        payload.addObject().put("myfield", "third");
+
+        final MvcResult result = mockMvc.perform(
+                post("/arango/createDocuments/mydatabase/mybulkcollection")
+                        .content(JSON_MAPPER.writeValueAsBytes(payload))
+                        .contentType(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0]._key").value("duplicate"))
+                .andExpect(jsonPath("$[1].error").value(true))
+                .andExpect(jsonPath("$[2]._id").exists());
+    }
+
+    /**
+     * Make sure compressed request bodies are decompressed and that unsupported encodings are rejected.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    public void testCompressedRequest() throws Exception {
+        final ArrayNode payload = JSON_MAPPER.createArrayNode();
+        payload.addObject().put("myfield", "gzip");
+        payload.addObject().put("myfield", "gzip");
+
+        final MvcResult result = mockMvc.perform(
+                post("/arango/createDocuments/mydatabase/mycompressedcollection")
+                        .content(ContentEncoding.GZIP.encode(JSON_MAPPER.writeValueAsBytes(payload)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1]._id").exists());
+
+        mockMvc.perform(
+                post("/arango/createDocuments/mydatabase/mycompressedcollection")
+                        .content(JSON_MAPPER.writeValueAsBytes(payload))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.CONTENT_ENCODING, "br")
+        )
+                .andExpect(status().isUnsupportedMediaType())
+                .andExpect(header().string(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"));
+    }
+
+    /**
+     * Make sure a document can be read, revalidated by its {@code _rev}, and that a missing one is not found.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    public void testGetDocument() throws Exception {
+        final ObjectNode payload = JSON_MAPPER.createObjectNode();
+        payload.put("_key", "mykey");
+        payload.put("myfield", "myvalue");
+        final MvcResult created = mockMvc.perform(
+                post("/arango/createDocument/mydatabase/myreadcollection")
+                        .content(JSON_MAPPER.writeValueAsBytes(payload))
+                        .contentType(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String rev = JSON_MAPPER.readTree(
+                mockMvc.perform(asyncDispatch(created)).andReturn().getResponse().getContentAsByteArray()
+        ).get("_rev").asText();
+
+        final MvcResult read = mockMvc.perform(get("/arango/getDocument/mydatabase/myreadcollection/mykey"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(read))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + rev + "\""))
+                .andExpect(jsonPath("$.myfield").value("myvalue"));
+
+        final MvcResult revalidated = mockMvc.perform(
+                get("/arango/getDocument/mydatabase/myreadcollection/mykey")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + rev + "\"")
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(revalidated)).andExpect(status().isNotModified());
+
+        final MvcResult missing = mockMvc.perform(get("/arango/getDocument/mydatabase/myreadcollection/nokey"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(missing)).andExpect(status().isNotFound());
+    }
+
+    /**
+     * Make sure a created document is stored with the JSON types of its values, so that it reads back unchanged.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    public void testTypedDocument() throws Exception {
+        final ObjectNode payload = JSON_MAPPER.createObjectNode();
+        payload.put("_key", "mytypedkey");
+        payload.put("count", 42);
+        payload.put("active", true);
+        payload.putArray("tags").add("a").add(1);
+        payload.putObject("nested").put("level", 2);
+        final MvcResult created = mockMvc.perform(
+                post("/arango/createDocument/mydatabase/mytypedcollection")
+                        .content(JSON_MAPPER.writeValueAsBytes(payload))
+                        .contentType(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(created)).andExpect(status().isOk());
+
+        final MvcResult read = mockMvc.perform(get("/arango/getDocument/mydatabase/mytypedcollection/mytypedkey"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(read))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(42))
+                .andExpect(jsonPath("$.active").value(true))
+                .andExpect(jsonPath("$.tags[1]").value(1))
+                .andExpect(jsonPath("$.nested.level").value(2));
+    }
+
+    /**
+     * Make sure multiple documents can be read at once and that a missing one only fails itself.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    public void testGetDocuments() throws Exception {
+        final ArrayNode documents = JSON_MAPPER.createArrayNode();
+        documents.addObject().put("_key", "first").put("myfield", "first");
+        documents.addObject().put("_key", "second").put("myfield", "second");
+        final MvcResult created = mockMvc.perform(
+                post("/arango/createDocuments/mydatabase/mybulkreadcollection")
+                        .content(JSON_MAPPER.writeValueAsBytes(documents))
+                        .contentType(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(created)).andExpect(status().isOk());
+
+        final ArrayNode keys = JSON_MAPPER.createArrayNode().add("second").add("missing").add("first");
+        final MvcResult result = mockMvc.perform(
+                post("/arango/getDocuments/mydatabase/mybulkreadcollection")
+                        .content(JSON_MAPPER.writeValueAsBytes(keys))
+                        .contentType(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].myfield").value("second"))
+                .andExpect(jsonPath("$[1].error").value(true))
+                .andExpect(jsonPath("$[2].myfield").value("first"));
+    }
+
+    /**
+     * Make sure documents can be upserted, updated, replaced, and deleted in batches, each with its own result, and
+     * that reads see the changes.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    public void testBatchWrites() throws Exception {
+        final ArrayNode upserted = JSON_MAPPER.createArrayNode();
+        upserted.addObject().put("_key", "first").put("myfield", "first").put("other", "kept");
+        upserted.addObject().put("_key", "second").put("myfield", "second");
+        perform(post("/arango/upsertDocuments/mydatabase/mybatchcollection"), upserted)
+                .andExpect(jsonPath("$[0]._key").value("first"))
+                .andExpect(jsonPath("$[1]._key").value("second"));
+
+        final ArrayNode merged = JSON_MAPPER.createArrayNode();
+        merged.addObject().put("_key", "first").put("myfield", "upserted");
+        perform(post("/arango/upsertDocuments/mydatabase/mybatchcollection?overwriteMode=update"), merged)
+                .andExpect(jsonPath("$[0]._key").value("first"));
+        perform(post("/arango/upsertDocuments/mydatabase/mybatchcollection?overwriteMode=conflict"), merged)
+                .andExpect(jsonPath("$[0].error").value(true));
+
+        final ArrayNode updated = JSON_MAPPER.createArrayNode();
+        updated.addObject().put("_key", "second").put("added", "updated");
+        updated.addObject().put("_key", "missing").put("added", "updated");
+        perform(patch("/arango/updateDocuments/mydatabase/mybatchcollection"), updated)
+                .andExpect(jsonPath("$[0]._key").value("second"))
+                .andExpect(jsonPath("$[1].errorNum").value(1202));
+
+        final ArrayNode replaced = JSON_MAPPER.createArrayNode();
+        replaced.addObject().put("_key", "second").put("myfield", "replaced");
+        perform(put("/arango/replaceDocuments/mydatabase/mybatchcollection"), replaced)
+                .andExpect(jsonPath("$[0]._key").value("second"));
+
+        final ArrayNode keys = JSON_MAPPER.createArrayNode().add("first").add("second");
+        perform(post("/arango/getDocuments/mydatabase/mybatchcollection"), keys)
+                .andExpect(jsonPath("$[0].myfield").value("upserted"))
+                .andExpect(jsonPath("$[0].other").value("kept"))
+                .andExpect(jsonPath("$[1].myfield").value("replaced"))
+                .andExpect(jsonPath("$[1].added").doesNotExist());
+
+        perform(post("/arango/deleteDocuments/mydatabase/mybatchcollection"), keys.add("missing"))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0]._key").value("first"))
+                .andExpect(jsonPath("$[2].errorNum").value(1202));
+        perform(post("/arango/getDocuments/mydatabase/mybatchcollection"), keys)
+                .andExpect(jsonPath("$[0].error").value(true))
+                .andExpect(jsonPath("$[1].error").value(true));
+    }
+
+    /**
+     * Make sure the results of a query are streamed across several batches, as NDJSON or as a JSON array, and that an
+     * invalid query or one that modifies documents is a client error.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    public void testQuery() throws Exception {
+        final ArrayNode documents = JSON_MAPPER.createArrayNode();
+        for (int index = 0; index < 5; index++) {
+            documents.addObject().put("myfield", index);
+        }
+        final MvcResult created = mockMvc.perform(
+                post("/arango/createDocuments/mydatabase/myquerycollection")
+                        .content(JSON_MAPPER.writeValueAsBytes(documents))
+                        .contentType(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(created)).andExpect(status().isOk());
+
+        final ObjectNode query = JSON_MAPPER.createObjectNode().put(
+                "query",
+                "FOR doc IN myquerycollection FILTER doc.myfield >= @min SORT doc.myfield RETURN doc.myfield"
+        );
+        query.putObject("bindVars").put("min", 1);
+
+        final MvcResult ndjson = mockMvc.perform(
+                post("/arango/query/mydatabase")
+                        .param("batchSize", "2")
+                        .content(JSON_MAPPER.writeValueAsBytes(query))
+                        .contentType(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final MvcResult ndjsonStream = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        ndjsonStream.getAsyncResult();
+        assertThat(ndjsonStream.getResponse().getContentAsString()).isEqualTo("1\n2\n3\n4\n");
+
+        final MvcResult array = mockMvc.perform(
+                post("/arango/query/mydatabase")
+                        .param("batchSize", "3")
+                        .content(JSON_MAPPER.writeValueAsBytes(query))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final MvcResult arrayStream = mockMvc.perform(asyncDispatch(array))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        arrayStream.getAsyncResult();
+        assertThat(arrayStream.getResponse().getContentAsString()).isEqualTo("[1,2,3,4]");
+
+        final MvcResult invalid = mockMvc.perform(
+                post("/arango/query/mydatabase")
+                        .content("{\"query\": \"FOR doc IN\"}")
+                        .contentType(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(invalid)).andExpect(status().isBadRequest());
+
+        final MvcResult modifying = mockMvc.perform(
+                post("/arango/query/mydatabase")
+                        .content("{\"query\": \"FOR doc IN myquerycollection REMOVE doc IN myquerycollection\"}")
+                        .contentType(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(modifying)).andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Make sure documents can be imported in chunks, from the body or from a file, with counts per chunk.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    public void testImportDocuments() throws Exception {
+        final StringBuilder lines = new StringBuilder();
+        for (int index = 0; index < 5; index++) {
+            lines.append(String.format("{\"_key\": \"key%d\", \"myfield\": %d}%n", index, index));
+        }
+
+        final MvcResult imported = mockMvc.perform(
+                post("/arango/importDocuments/mydatabase/myimportcollection")
+                        .content(lines.toString())
+                        .contentType(MediaType.APPLICATION_NDJSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(imported))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.documents").value(5))
+                .andExpect(jsonPath("$.created").value(5))
+                .andExpect(jsonPath("$.chunks[0].created").value(5));
+
+        final MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "documents.jsonl",
+                MediaType.APPLICATION_NDJSON_VALUE,
+                lines.toString().getBytes(StandardCharsets.UTF_8)
+        );
+        final MvcResult reimported = mockMvc.perform(
+                multipart("/arango/importDocuments/mydatabase/myimportcollection")
+                        .file(file)
+                        .param("onDuplicate", "ignore")
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(reimported))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(0))
+                .andExpect(jsonPath("$.ignored").value(5));
+    }
+
+    /**
+     * Sends a JSON body to an asynchronous endpoint and expects it to succeed.
+     *
+     * @param builder  The request, without its body
+     * @param payload  The body
+     *
+     * @return the result of the completed request, to be checked further
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    private ResultActions perform(final MockHttpServletRequestBuilder builder, final JsonNode payload)
+            throws Exception {
+        final MvcResult result = mockMvc.perform(
+                builder.content(JSON_MAPPER.writeValueAsBytes(payload)).contentType(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+    }
 }
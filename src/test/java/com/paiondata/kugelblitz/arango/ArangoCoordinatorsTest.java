@@ -0,0 +1,252 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * {@link ArangoCoordinators} unit tests.
+ */
+class ArangoCoordinatorsTest {
+
+    private ArangoCoordinators arangoCoordinators;
+
+    /**
+     * Stops the health prober.
+     */
+    @AfterEach
+    void tearDown() {
+        arangoCoordinators.destroy();
+    }
+
+    /**
+     * Make sure requests are spread round-robin across all coordinators.
+     */
+    @Test
+    void roundRobin() {
+        arangoCoordinators = coordinators("http://a:8529, http://b:8529/,http://c:8529");
+        final List<String> hosts = new ArrayList<>();
+
+        for (int index = 0; index < 6; index++) {
+            arangoCoordinators.send(true, host -> {
+                hosts.add(host);
+                return response(200);
+            }).join();
+        }
+
+        assertThat(hosts).containsExactly(
+                "http://a:8529", "http://b:8529", "http://c:8529",
+                "http://a:8529", "http://b:8529", "http://c:8529"
+        );
+    }
+
+    /**
+     * Make sure a request that could not connect moves on to another coordinator, even if it is not idempotent, and
+     * that the unreachable coordinator is not used anymore.
+     */
+    @Test
+    void connectFailureFailsOverAndEjects() {
+        arangoCoordinators = coordinators("http://down:8529,http://up:8529");
+        final List<String> hosts = new ArrayList<>();
+
+        for (int index = 0; index < 3; index++) {
+            final HttpResponse<String> response = arangoCoordinators.send(false, host -> {
+                hosts.add(host);
+                if (host.contains("down")) {
+                    return CompletableFuture.<HttpResponse<String>>failedFuture(
+                            new IllegalStateException("failed", new ConnectException("Connection refused"))
+                    );
+                }
+                return response(200);
+            }).join();
+            assertThat(response.statusCode()).isEqualTo(200);
+        }
+
+        assertThat(hosts).containsExactly("http://down:8529", "http://up:8529", "http://up:8529", "http://up:8529");
+    }
+
+    /**
+     * Make sure a 503 is retried on another coordinator for idempotent requests only.
+     */
+    @Test
+    void unavailableIsRetriedOnlyIfIdempotent() {
+        arangoCoordinators = coordinators("http://busy:8529,http://up:8529");
+
+        final HttpResponse<String> write = arangoCoordinators.send(
+                false,
+                host -> response(host.contains("busy") ? 503 : 200)
+        ).join();
+        assertThat(write.statusCode()).isEqualTo(503);
+
+        arangoCoordinators = coordinators("http://busy:8529,http://up:8529");
+        final HttpResponse<String> read = arangoCoordinators.send(
+                true,
+                host -> response(host.contains("busy") ? 503 : 200)
+        ).join();
+        assertThat(read.statusCode()).isEqualTo(200);
+    }
+
+    /**
+     * Make sure a request rejected for lack of an in-flight slot is not tried on another coordinator, even if it is
+     * idempotent, and does not count against the coordinator.
+     */
+    @Test
+    void localRejectionIsNotFailedOver() {
+        arangoCoordinators = coordinators("http://first:8529,http://second:8529");
+        final List<String> hosts = new ArrayList<>();
+
+        assertThatThrownBy(() -> arangoCoordinators.send(true, host -> {
+            hosts.add(host);
+            return CompletableFuture.<HttpResponse<String>>failedFuture(new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many concurrent ArangoDB requests"
+            ));
+        }).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(ResponseStatusException.class);
+        assertThat(hosts).hasSize(1);
+
+        hosts.clear();
+        arangoCoordinators.send(true, host -> {
+            hosts.add(host);
+            return response(200);
+        }).join();
+        arangoCoordinators.send(true, host -> {
+            hosts.add(host);
+            return response(200);
+        }).join();
+        assertThat(hosts).containsExactlyInAnyOrder("http://first:8529", "http://second:8529");
+    }
+
+    /**
+     * Make sure the body of a 503 is closed when another coordinator answers instead, and kept open when it is the
+     * final outcome.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void discardedUnavailableResponseIsClosed() throws Exception {
+        arangoCoordinators = coordinators("http://busy:8529,http://up:8529");
+        final InputStream discarded = mock(InputStream.class);
+        final InputStream kept = mock(InputStream.class);
+
+        final HttpResponse<InputStream> read = arangoCoordinators.send(true, host -> {
+            final HttpResponse<InputStream> response = mock(HttpResponse.class);
+            when(response.statusCode()).thenReturn(host.contains("busy") ? 503 : 200);
+            when(response.body()).thenReturn(host.contains("busy") ? discarded : kept);
+            return CompletableFuture.completedFuture(response);
+        }).join();
+
+        assertThat(read.body()).isSameAs(kept);
+        verify(discarded).close();
+        verify(kept, never()).close();
+    }
+
+    /**
+     * Make sure requests fail fast while every coordinator is ejected, and that a coordinator answering its health
+     * probe gets a trial request, which puts it back into rotation.
+     */
+    @Test
+    void ejectedCoordinatorsFailFastUntilTrialSucceeds() {
+        arangoCoordinators = coordinators("http://flaky:8529");
+        final List<String> hosts = new ArrayList<>();
+
+        assertThat(arangoCoordinators.send(true, host -> {
+            hosts.add(host);
+            return response(503);
+        }).join().statusCode()).isEqualTo(503);
+        assertThatThrownBy(() -> arangoCoordinators.send(true, host -> {
+            hosts.add(host);
+            return response(200);
+        }).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(ResponseStatusException.class);
+        assertThat(hosts).hasSize(1);
+
+        final ArangoHttpClient arangoHttpClient = mock(ArangoHttpClient.class);
+        when(arangoHttpClient.probe(anyString())).thenReturn(200);
+        ReflectionTestUtils.setField(arangoCoordinators, "arangoHttpClient", arangoHttpClient);
+        ReflectionTestUtils.invokeMethod(arangoCoordinators, "probeEjected");
+
+        final CompletableFuture<HttpResponse<String>> pending = new CompletableFuture<>();
+        final CompletableFuture<HttpResponse<String>> trial = arangoCoordinators.send(true, host -> pending);
+        assertThatThrownBy(() -> arangoCoordinators.send(true, host -> response(200)).join())
+                .hasCauseInstanceOf(ResponseStatusException.class);
+
+        pending.complete(response(200).join());
+        assertThat(trial.join().statusCode()).isEqualTo(200);
+        assertThat(arangoCoordinators.send(true, host -> response(200)).join().statusCode()).isEqualTo(200);
+    }
+
+    /**
+     * Creates coordinators for the given hosts, round-robin.
+     *
+     * @param hosts  A comma-separated list of endpoints
+     *
+     * @return a started instance
+     */
+    private ArangoCoordinators coordinators(final String hosts) {
+        if (arangoCoordinators != null) {
+            arangoCoordinators.destroy();
+        }
+
+        final ArangoCoordinators coordinators = new ArangoCoordinators();
+        ReflectionTestUtils.setField(coordinators, "arangoHttpClient", mock(ArangoHttpClient.class));
+        ReflectionTestUtils.setField(coordinators, "hosts", hosts);
+        ReflectionTestUtils.setField(coordinators, "loadBalancing", "round-robin");
+        ReflectionTestUtils.setField(coordinators, "healthCheckInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(coordinators, "failureThreshold", 1);
+        ReflectionTestUtils.setField(coordinators, "halfOpenRequests", 1);
+        coordinators.afterPropertiesSet();
+        return coordinators;
+    }
+
+    /**
+     * Creates a response with the given status.
+     *
+     * @param status  The HTTP status
+     *
+     * @return a future completed with a mocked response
+     */
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<HttpResponse<String>> response(final int status) {
+        final HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        return CompletableFuture.completedFuture(response);
+    }
+}
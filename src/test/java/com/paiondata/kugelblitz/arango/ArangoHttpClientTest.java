@@ -0,0 +1,234 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.SenderContext;
+
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link ArangoHttpClient} unit tests.
+ */
+class ArangoHttpClientTest {
+
+    private static final String TRACEPARENT = "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    private final List<SenderContext<?>> sent = new CopyOnWriteArrayList<>();
+
+    private StubArangoServer arango;
+    private ArangoHttpClient arangoHttpClient;
+
+    /**
+     * Starts a stub ArangoDB and a client with metrics and a tracer stand-in that propagates a fixed trace context.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        arango = new StubArangoServer(1, Duration.ZERO);
+
+        observationRegistry.observationConfig()
+                .observationHandler(new DefaultMeterObservationHandler(meterRegistry))
+                .observationHandler(new ObservationHandler<SenderContext<Object>>() {
+                    @Override
+                    public void onStart(final SenderContext<Object> context) {
+                        sent.add(context);
+                        context.getSetter().set(context.getCarrier(), "traceparent", TRACEPARENT);
+                    }
+
+                    @Override
+                    public boolean supportsContext(final Observation.Context context) {
+                        return context instanceof SenderContext;
+                    }
+                });
+
+        arangoHttpClient = new ArangoHttpClient();
+        ReflectionTestUtils.setField(arangoHttpClient, "environment", new MockEnvironment());
+        ReflectionTestUtils.setField(
+                arangoHttpClient,
+                "meterRegistries",
+                new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry))
+                        .getBeanProvider(MeterRegistry.class)
+        );
+        ReflectionTestUtils.setField(
+                arangoHttpClient,
+                "observationRegistries",
+                new StaticListableBeanFactory(Map.of("observationRegistry", observationRegistry))
+                        .getBeanProvider(ObservationRegistry.class)
+        );
+        ReflectionTestUtils.setField(arangoHttpClient, "connectTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(arangoHttpClient, "requestTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(arangoHttpClient, "httpVersion", HttpClient.Version.HTTP_1_1);
+        ReflectionTestUtils.setField(arangoHttpClient, "executorThreads", 2);
+        ReflectionTestUtils.setField(arangoHttpClient, "maxInFlight", 4);
+        ReflectionTestUtils.setField(arangoHttpClient, "maxInFlightWait", Duration.ofSeconds(1));
+        arangoHttpClient.afterPropertiesSet();
+        arangoHttpClient.bindTo(meterRegistry);
+    }
+
+    /**
+     * Shuts the client and the stub down.
+     */
+    @AfterEach
+    void tearDown() {
+        arangoHttpClient.destroy();
+        arango.close();
+    }
+
+    /**
+     * Make sure a round trip is timed by operation, host, and status class, and that its body sizes are recorded.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void roundTripIsMeasured() throws Exception {
+        final JsonBody document = JsonBody.of(AbstractRestService.JSON_MAPPER.createObjectNode().put("a", 1));
+
+        final HttpResponse<InputStream> response = arangoHttpClient.sendAsync(
+                arangoHttpClient.newRequest(arango.getUrl() + "/_db/db0/_api/document/collection0")
+                        .POST(document.publisher())
+                        .build(),
+                ArangoOperation.INSERT_DOCUMENT
+        ).join();
+        response.body().close();
+
+        final Timer timer = meterRegistry.get("kugelblitz.arango.http.requests")
+                .tag("operation", "insertDocument")
+                .tag("host", arango.getUrl().substring("http://".length()))
+                .tag("status", "2xx")
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(meterRegistry.get("kugelblitz.arango.http.request.size").summary().totalAmount())
+                .isEqualTo(document.length());
+        assertThat(meterRegistry.get("kugelblitz.arango.http.response.size").summary().totalAmount()).isPositive();
+    }
+
+    /**
+     * Make sure a request is observed as a child of the caller's observation, carries its trace context to ArangoDB,
+     * and completes within the caller's scope.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void traceContextIsPropagated() throws Exception {
+        final Observation parent = Observation.start("test", observationRegistry);
+
+        final HttpResponse<InputStream> response;
+        final Observation current;
+        try (Observation.Scope scope = parent.openScope()) {
+            final CompletableFuture<HttpResponse<InputStream>> future = arangoHttpClient.sendAsync(
+                    arangoHttpClient.newRequest(arango.getUrl() + "/_db/_system/_api/database").GET().build(),
+                    ArangoOperation.LIST_DATABASES
+            );
+            current = future.thenApply(ignored -> observationRegistry.getCurrentObservation()).join();
+            response = future.join();
+        }
+        parent.stop();
+        response.body().close();
+
+        assertThat(sent).singleElement().satisfies(context -> {
+            assertThat(context.getParentObservation()).isSameAs(parent);
+            assertThat(context.getContextualName()).isEqualTo("arango listDatabases");
+        });
+        assertThat(arango.getLastRequestHeaders().getFirst("traceparent")).isEqualTo(TRACEPARENT);
+        assertThat(current).isSameAs(parent);
+        assertThat(response.statusCode()).isEqualTo(200);
+    }
+
+    /**
+     * Make sure a request keeps its in-flight slot while its body is being read, and gives it back once the body has
+     * been read to its end or closed.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void slotIsHeldUntilBodyIsDone() throws Exception {
+        final HttpResponse<InputStream> read = arangoHttpClient.sendAsync(
+                arangoHttpClient.newRequest(arango.getUrl() + "/_db/_system/_api/database").GET().build(),
+                ArangoOperation.LIST_DATABASES
+        ).join();
+        assertThat(inFlight()).isEqualTo(1);
+        assertThat(read.body().readAllBytes()).isNotEmpty();
+        assertThat(inFlight()).isZero();
+        read.body().close();
+        assertThat(inFlight()).isZero();
+
+        final HttpResponse<InputStream> closed = arangoHttpClient.sendAsync(
+                arangoHttpClient.newRequest(arango.getUrl() + "/_db/_system/_api/database").GET().build(),
+                ArangoOperation.LIST_DATABASES
+        ).join();
+        assertThat(inFlight()).isEqualTo(1);
+        closed.body().close();
+        assertThat(inFlight()).isZero();
+    }
+
+    /**
+     * Make sure a request that gets no response is timed as an I/O error.
+     */
+    @Test
+    void ioErrorIsMeasured() {
+        final String host = arango.getUrl();
+        arango.close();
+
+        assertThatThrownBy(() -> arangoHttpClient.sendAsync(
+                arangoHttpClient.newRequest(host + "/_db/_system/_api/database").GET().build(),
+                ArangoOperation.LIST_DATABASES
+        ).join()).hasCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(meterRegistry.get("kugelblitz.arango.http.requests")
+                .tag("operation", "listDatabases")
+                .tag("status", "IO_ERROR")
+                .timer()
+                .count()).isEqualTo(1);
+        assertThat(inFlight()).isZero();
+    }
+
+    /**
+     * Returns the number of requests holding an in-flight slot.
+     *
+     * @return the value of the {@code kugelblitz.arango.http.in-flight} gauge
+     */
+    private double inFlight() {
+        return meterRegistry.get("kugelblitz.arango.http.in-flight").gauge().value();
+    }
+}
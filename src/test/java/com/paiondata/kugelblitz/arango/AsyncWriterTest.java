@@ -0,0 +1,333 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link AsyncWriter} unit tests.
+ * <p>
+ * The write-ahead log is real; the documents are written by a mocked {@link DocumentService}, which answers with
+ * {@link #answer}.
+ */
+class AsyncWriterTest {
+
+    private final List<AsyncWriter> writers = new ArrayList<>();
+    private final List<JsonNode> sent = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    private Path directory;
+
+    private volatile Function<JsonNode, CompletableFuture<ArrayNode>> answer;
+    private DocumentService documentService;
+    private CollectionProvisioner collectionProvisioner;
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Mocks the services so that every document is written, except those with {@code "bad": true}.
+     */
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        answer = documents -> CompletableFuture.completedFuture(resultsFor(documents));
+        documentService = mock(DocumentService.class);
+        when(documentService.createDocuments(anyString(), anyString(), any(JsonBody.class))).thenAnswer(invocation -> {
+            final JsonNode documents = AbstractRestService.JSON_MAPPER.readTree(
+                    invocation.<JsonBody>getArgument(2).toByteArray()
+            );
+            sent.add(documents);
+            return answer.apply(documents);
+        });
+        collectionProvisioner = mock(CollectionProvisioner.class);
+        when(collectionProvisioner.write(anyString(), anyString(), any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<CompletableFuture<?>>>getArgument(2).get());
+    }
+
+    /**
+     * Stops every writer started by a test.
+     *
+     * @throws Exception if a writer cannot be stopped
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        for (final AsyncWriter writer : writers) {
+            writer.destroy();
+        }
+    }
+
+    /**
+     * Make sure a ticket reads as queued until its document has been written, and as written afterwards.
+     *
+     * @throws IOException if the write-ahead log cannot be opened
+     */
+    @Test
+    void ticketGoesFromQueuedToWritten() throws IOException {
+        final CompletableFuture<ArrayNode> pending = new CompletableFuture<>();
+        answer = documents -> pending;
+        final AsyncWriter writer = start(DataSize.ofMegabytes(1));
+
+        final long ticket = writer.submit("db", "collection", document(1, false));
+        await().atMost(Duration.ofSeconds(5)).until(() -> !sent.isEmpty());
+
+        assertThat(writer.getTicket(ticket).path("status").asText()).isEqualTo("queued");
+        assertThat(depth()).isEqualTo(1);
+
+        pending.complete(resultsFor(sent.get(0)));
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> "written".equals(writer.getTicket(ticket).path("status").asText()));
+        assertThat(writer.getTicket(ticket).path("ticket").asText()).isEqualTo(Long.toString(ticket));
+        await().atMost(Duration.ofSeconds(5)).until(() -> depth() == 0);
+        assertThat(writer.getTicket(-1)).isNull();
+    }
+
+    /**
+     * Make sure a document ArangoDB rejects reads as failed, with the ArangoDB error, while the others are written.
+     *
+     * @throws IOException if the write-ahead log cannot be opened
+     */
+    @Test
+    void rejectedDocumentIsReportedAsFailed() throws IOException {
+        final AsyncWriter writer = start(DataSize.ofMegabytes(1));
+
+        final long good = writer.submit("db", "collection", document(1, false));
+        final long bad = writer.submit("db", "collection", document(2, true));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> depth() == 0);
+        assertThat(writer.getTicket(good).path("status").asText()).isEqualTo("written");
+        final ObjectNode failed = writer.getTicket(bad);
+        assertThat(failed.path("status").asText()).isEqualTo("failed");
+        assertThat(failed.path("errorNum").asInt()).isEqualTo(1210);
+        assertThat(failed.path("errorMessage").asText()).isEqualTo("unique constraint violated");
+        assertThat(meterRegistry.get("kugelblitz.arango.async-writes.documents").tag("result", "written")
+                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("kugelblitz.arango.async-writes.documents").tag("result", "failed")
+                .counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Make sure tickets whose failure may have been forgotten, because it expired or Kugelblitz restarted since, read
+     * as done rather than as written.
+     *
+     * @throws Exception if the write-ahead log cannot be opened or the writer cannot be stopped
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void forgottenFailureIsReportedAsDone() throws Exception {
+        final AsyncWriter writer = start(DataSize.ofMegabytes(1));
+        final long before = writer.submit("db", "collection", document(1, false));
+        final long bad = writer.submit("db", "collection", document(2, true));
+        final long after = writer.submit("db", "collection", document(3, false));
+        await().atMost(Duration.ofSeconds(5)).until(() -> depth() == 0);
+        assertThat(writer.getTicket(bad).path("status").asText()).isEqualTo("failed");
+
+        final Cache<Long, ObjectNode> failures = (Cache<Long, ObjectNode>) ReflectionTestUtils.getField(
+                writer,
+                "failures"
+        );
+        failures.policy().expireAfterWrite().orElseThrow().setExpiresAfter(Duration.ofNanos(1));
+        assertThat(writer.getTicket(before).path("status").asText()).isEqualTo("done");
+        assertThat(writer.getTicket(bad).path("status").asText()).isEqualTo("done");
+        assertThat(writer.getTicket(after).path("status").asText()).isEqualTo("written");
+
+        writers.remove(writer);
+        writer.destroy();
+        final AsyncWriter restarted = start(DataSize.ofMegabytes(1));
+        assertThat(restarted.getTicket(after).path("status").asText()).isEqualTo("done");
+    }
+
+    /**
+     * Make sure a batch that fails for a transient reason is sent again until it is written.
+     *
+     * @throws IOException if the write-ahead log cannot be opened
+     */
+    @Test
+    void transientFailureIsRetried() throws IOException {
+        answer = documents -> sent.size() < 3
+                ? CompletableFuture.failedFuture(new ArangoApiException("Unavailable", 503, 0))
+                : CompletableFuture.completedFuture(resultsFor(documents));
+        final AsyncWriter writer = start(DataSize.ofMegabytes(1));
+
+        final long ticket = writer.submit("db", "collection", document(1, false));
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> "written".equals(writer.getTicket(ticket).path("status").asText()));
+        assertThat(sent).hasSize(3);
+        assertThat(meterRegistry.get("kugelblitz.arango.async-writes.retries").counter().count()).isEqualTo(2);
+    }
+
+    /**
+     * Make sure documents accepted but not written before the writer stopped are written once it starts again, in one
+     * array insert per collection.
+     *
+     * @throws Exception if the write-ahead log cannot be opened or the writer cannot be stopped
+     */
+    @Test
+    void queuedDocumentsAreDrainedAfterRestart() throws Exception {
+        answer = documents -> CompletableFuture.failedFuture(new ArangoApiException("Unavailable", 503, 0));
+        final AsyncWriter stopped = start(DataSize.ofMegabytes(1));
+        final List<Long> tickets = List.of(
+                stopped.submit("db", "first", document(1, false)),
+                stopped.submit("db", "second", document(2, false)),
+                stopped.submit("db", "first", document(3, false))
+        );
+        writers.remove(stopped);
+        stopped.destroy();
+
+        sent.clear();
+        answer = documents -> CompletableFuture.completedFuture(resultsFor(documents));
+        final AsyncWriter writer = start(DataSize.ofMegabytes(1));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> depth() == 0);
+        assertThat(tickets).allSatisfy(ticket -> assertThat(writer.getTicket(ticket).path("status").asText())
+                .isEqualTo("written"));
+        assertThat(sent).extracting(JsonNode::size).containsExactly(2, 1);
+    }
+
+    /**
+     * Make sure documents are rejected with {@code 429 Too Many Requests} once the queue takes up its maximum size.
+     *
+     * @throws IOException if the write-ahead log cannot be opened
+     */
+    @Test
+    void fullQueueIsRejected() throws IOException {
+        answer = documents -> CompletableFuture.failedFuture(new ArangoApiException("Unavailable", 503, 0));
+        final AsyncWriter writer = start(DataSize.ofBytes(128));
+
+        writer.submit("db", "collection", document(1, false));
+
+        assertThatThrownBy(() -> {
+            for (int index = 2; index < 10; index++) {
+                writer.submit("db", "collection", document(index, false));
+            }
+        })
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(exception -> ((ResponseStatusException) exception).getStatusCode())
+                .isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * Starts a writer on the test directory, retrying after 10 milliseconds.
+     *
+     * @param maxSize  The maximum size of the queue
+     *
+     * @return the writer
+     *
+     * @throws IOException if the write-ahead log cannot be opened
+     */
+    private AsyncWriter start(final DataSize maxSize) throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        final AsyncWriter writer = new AsyncWriter();
+        ReflectionTestUtils.setField(writer, "documentService", documentService);
+        ReflectionTestUtils.setField(writer, "collectionProvisioner", collectionProvisioner);
+        ReflectionTestUtils.setField(
+                writer,
+                "meterRegistries",
+                new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry))
+                        .getBeanProvider(MeterRegistry.class)
+        );
+        ReflectionTestUtils.setField(writer, "enabled", true);
+        ReflectionTestUtils.setField(writer, "directory", directory);
+        ReflectionTestUtils.setField(writer, "segmentSize", DataSize.ofKilobytes(64));
+        ReflectionTestUtils.setField(writer, "maxSize", maxSize);
+        ReflectionTestUtils.setField(writer, "syncInterval", Duration.ZERO);
+        ReflectionTestUtils.setField(writer, "batchSize", 1000);
+        ReflectionTestUtils.setField(writer, "retryBackoff", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(writer, "maxRetryBackoff", Duration.ofMillis(10));
+        writer.afterPropertiesSet();
+        writers.add(writer);
+        return writer;
+    }
+
+    /**
+     * Returns the number of accepted documents not yet written.
+     *
+     * @return the value of the queue depth gauge
+     */
+    private double depth() {
+        return meterRegistry.get("kugelblitz.arango.async-writes.queue.depth").gauge().value();
+    }
+
+    /**
+     * Creates a test document.
+     *
+     * @param value  The value of its {@code value} field
+     * @param bad  Whether ArangoDB is to reject it
+     *
+     * @return the document
+     */
+    private static JsonBody document(final int value, final boolean bad) {
+        return JsonBody.of(AbstractRestService.JSON_MAPPER.createObjectNode().put("value", value).put("bad", bad));
+    }
+
+    /**
+     * Builds the results ArangoDB answers an array insert with: a unique constraint violation for documents with
+     * {@code "bad": true}, the new document otherwise.
+     *
+     * @param documents  The inserted documents
+     *
+     * @return one result per document
+     */
+    private static ArrayNode resultsFor(final JsonNode documents) {
+        final ArrayNode results = AbstractRestService.JSON_MAPPER.createArrayNode();
+        for (final JsonNode document : documents) {
+            if (document.path("bad").asBoolean()) {
+                results.addObject()
+                        .put("error", true)
+                        .put("errorNum", 1210)
+                        .put("errorMessage", "unique constraint violated");
+            } else {
+                results.addObject().put("_key", document.path("value").asText()).put("_rev", "_rev");
+            }
+        }
+        return results;
+    }
+}
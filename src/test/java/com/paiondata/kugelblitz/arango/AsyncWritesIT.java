@@ -0,0 +1,183 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+
+/**
+ * Asynchronous writes over HTTP to a running Kugelblitz, against a {@link StubArangoServer} that takes a second to
+ * answer, so that accepted documents stay queued for a while.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "kugelblitz.arango.async-writes.enabled=true",
+                "kugelblitz.arango.async-writes.max-size=1KB"
+        }
+)
+class AsyncWritesIT {
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private static StubArangoServer stub;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    /**
+     * Points Kugelblitz at the ArangoDB stub and its write-ahead log at a new directory.
+     *
+     * @param registry  {@code application.properties} mutator at runtime
+     */
+    @DynamicPropertySource
+    static void registerArangoProperties(final DynamicPropertyRegistry registry) {
+        registry.add("kugelblitz.arango.hosts", AsyncWritesIT::startArango);
+        registry.add("kugelblitz.arango.async-writes.directory", () -> {
+            try {
+                return Files.createTempDirectory("kugelblitz-wal").toString();
+            } catch (final IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+    }
+
+    /**
+     * Stops the ArangoDB stub.
+     */
+    @AfterAll
+    static void stopArango() {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    /**
+     * Make sure an accepted document is answered with {@code 202 Accepted} and the location of its ticket, which reads
+     * as queued until the document has been written.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void acceptedDocumentCanBeLookedUp() throws Exception {
+        final HttpResponse<String> accepted = createDocument("{\"name\": \"Kugelblitz\"}");
+
+        assertThat(accepted.statusCode()).isEqualTo(202);
+        final String ticket = JSON_MAPPER.readTree(accepted.body()).path("ticket").asText();
+        final URI location = URI.create(accepted.headers().firstValue("Location").orElseThrow());
+        assertThat(location).isEqualTo(URI.create(String.format("http://localhost:%d/arango/tickets/%s", port, ticket)));
+
+        assertThat(getTicket(location).path("status").asText()).isEqualTo("queued");
+        await().atMost(Duration.ofSeconds(10))
+                .pollInterval(Duration.ofMillis(100))
+                .until(() -> "written".equals(getTicket(location).path("status").asText()));
+
+        final HttpResponse<String> unknown = client.send(
+                HttpRequest.newBuilder(URI.create(String.format("http://localhost:%d/arango/tickets/-1", port)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString()
+        );
+        assertThat(unknown.statusCode()).isEqualTo(404);
+    }
+
+    /**
+     * Make sure a document that does not fit into the queue anymore is answered with {@code 429 Too Many Requests}.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void fullQueueIsTooManyRequests() throws Exception {
+        final String document = String.format("{\"text\": \"%s\"}", "x".repeat(600));
+
+        assertThat(createDocument(document).statusCode()).isEqualTo(202);
+        assertThat(createDocument(document).statusCode()).isEqualTo(429);
+    }
+
+    /**
+     * Creates a document.
+     *
+     * @param document  The document
+     *
+     * @return the response
+     *
+     * @throws Exception if the request fails
+     */
+    private HttpResponse<String> createDocument(final String document) throws Exception {
+        return client.send(
+                HttpRequest.newBuilder()
+                        .uri(URI.create(String.format("http://localhost:%d/arango/createDocument/db0/collection0", port)))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(document))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString()
+        );
+    }
+
+    /**
+     * Looks up a ticket.
+     *
+     * @param location  The location of the ticket
+     *
+     * @return the status of the write
+     *
+     * @throws Exception if the request fails
+     */
+    private JsonNode getTicket(final URI location) throws Exception {
+        final HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(location).build(),
+                HttpResponse.BodyHandlers.ofString()
+        );
+        assertThat(response.statusCode()).isEqualTo(200);
+        return JSON_MAPPER.readTree(response.body());
+    }
+
+    /**
+     * Starts the ArangoDB stub, unless it already runs.
+     *
+     * @return the URL of the stub
+     */
+    private static synchronized String startArango() {
+        if (stub == null) {
+            try {
+                stub = new StubArangoServer(1, Duration.ofSeconds(1));
+            } catch (final IOException exception) {
+                throw new IllegalStateException("Cannot start ArangoDB stub", exception);
+            }
+        }
+        return stub.getUrl();
+    }
+}
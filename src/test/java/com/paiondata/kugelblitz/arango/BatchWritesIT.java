@@ -0,0 +1,168 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Batch writes over HTTP to a running Kugelblitz, against a {@link StubArangoServer}, in chunks of two documents that
+ * are sent one at a time.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "kugelblitz.arango.batch.chunk-size=2",
+                "kugelblitz.arango.batch.max-concurrent-chunks=1"
+        }
+)
+class BatchWritesIT {
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private static StubArangoServer stub;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    /**
+     * Points Kugelblitz at the ArangoDB stub.
+     *
+     * @param registry  {@code application.properties} mutator at runtime
+     */
+    @DynamicPropertySource
+    static void registerArangoProperties(final DynamicPropertyRegistry registry) {
+        registry.add("kugelblitz.arango.hosts", BatchWritesIT::startArango);
+    }
+
+    /**
+     * Stops the ArangoDB stub.
+     */
+    @AfterAll
+    static void stopArango() {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    /**
+     * Make sure a chunk that ArangoDB fails as a whole is reported as failed for each of its documents, and that the
+     * chunks after it are written nevertheless.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void failedChunkDoesNotFailTheOthers() throws Exception {
+        final ArrayNode documents = JSON_MAPPER.createArrayNode();
+        documents.addObject().put("name", "first");
+        documents.addObject().put("name", "second");
+        documents.addObject().put("_key", StubArangoServer.FAILING_KEY);
+        documents.addObject().put("name", "fourth");
+        documents.addObject().put("name", "fifth");
+
+        final HttpResponse<String> response = createDocuments(documents.toString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        final JsonNode results = JSON_MAPPER.readTree(response.body());
+        assertThat(results).hasSize(5);
+        for (final int index : new int[] {0, 1, 4}) {
+            assertThat(results.get(index).path("_key").isTextual()).isTrue();
+        }
+        for (final int index : new int[] {2, 3}) {
+            assertThat(results.get(index).path("error").asBoolean()).isTrue();
+            assertThat(results.get(index).path("errorNum").asInt()).isEqualTo(4);
+        }
+    }
+
+    /**
+     * Make sure chunks are sent while the body is being read, so that a body that turns out to be malformed is answered
+     * with {@code 400 Bad Request} and the results of the chunks written before.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void chunksAreSentWhileReading() throws Exception {
+        final HttpResponse<String> response = createDocuments(
+                "[{\"name\": \"first\"}, {\"name\": \"second\"}, {\"name\": \"third\"}, }"
+        );
+
+        assertThat(response.statusCode()).isEqualTo(400);
+        final JsonNode results = JSON_MAPPER.readTree(response.body());
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).path("_key").isTextual()).isTrue();
+        assertThat(results.get(1).path("_key").isTextual()).isTrue();
+        assertThat(results.get(2).path("error").asBoolean()).isTrue();
+        assertThat(results.get(2).path("errorMessage").asText()).startsWith("Malformed body");
+
+        assertThat(createDocuments("[}").statusCode()).isEqualTo(400);
+    }
+
+    /**
+     * Sends documents to the "Create multiple documents" endpoint.
+     *
+     * @param body  The documents as JSON array
+     *
+     * @return the response
+     *
+     * @throws Exception if the request fails
+     */
+    private HttpResponse<String> createDocuments(final String body) throws Exception {
+        return client.send(
+                HttpRequest.newBuilder(URI.create(
+                                String.format("http://localhost:%d/arango/createDocuments/db0/collection0", port)
+                        ))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString()
+        );
+    }
+
+    /**
+     * Starts the ArangoDB stub unless it is running already.
+     *
+     * @return the URL of the stub
+     */
+    private static synchronized String startArango() {
+        if (stub == null) {
+            try {
+                stub = new StubArangoServer(1, Duration.ZERO);
+            } catch (final IOException exception) {
+                throw new IllegalStateException("Cannot start ArangoDB stub", exception);
+            }
+        }
+        return stub.getUrl();
+    }
+}
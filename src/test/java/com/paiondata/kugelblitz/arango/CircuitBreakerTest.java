@@ -0,0 +1,73 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link CircuitBreaker} unit tests.
+ */
+class CircuitBreakerTest {
+
+    /**
+     * Make sure the circuit opens after consecutive failures only, and that a success in between starts over.
+     */
+    @Test
+    void opensAfterConsecutiveFailures() {
+        final CircuitBreaker breaker = new CircuitBreaker(3, 1);
+
+        assertThat(breaker.onFailure()).isFalse();
+        assertThat(breaker.onFailure()).isFalse();
+        breaker.onSuccess();
+        assertThat(breaker.onFailure()).isFalse();
+        assertThat(breaker.onFailure()).isFalse();
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        assertThat(breaker.onFailure()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    /**
+     * Make sure a half-open circuit lets a limited number of trial requests through, closes once they succeed, and
+     * opens again on the first failed one.
+     */
+    @Test
+    void halfOpenCircuitTakesTrialRequests() {
+        final CircuitBreaker breaker = new CircuitBreaker(1, 2);
+        breaker.onFailure();
+        assertThat(breaker.halfOpen()).isTrue();
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+        breaker.onIgnored();
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        assertThat(breaker.onSuccess()).isFalse();
+        assertThat(breaker.onFailure()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        breaker.halfOpen();
+        breaker.tryAcquire();
+        breaker.tryAcquire();
+        assertThat(breaker.onSuccess()).isFalse();
+        assertThat(breaker.onSuccess()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * {@link CollectionProvisioner} unit tests of optimistic writes.
+ * <p>
+ * The database and collection services are real, except for the requests they send to ArangoDB.
+ */
+class CollectionProvisionerTest {
+
+    private DatabaseService databaseService;
+    private CollectionService collectionService;
+    private ExistenceCache existenceCache;
+    private CollectionProvisioner collectionProvisioner;
+
+    /**
+     * Creates an optimistic provisioner whose database and collection creations succeed.
+     */
+    @BeforeEach
+    void setUp() {
+        databaseService = spy(new DatabaseService());
+        collectionService = spy(new CollectionService());
+        existenceCache = new ExistenceCache();
+        ReflectionTestUtils.setField(existenceCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(existenceCache, "ttl", Duration.ofMinutes(1));
+        existenceCache.afterPropertiesSet();
+
+        collectionProvisioner = new CollectionProvisioner();
+        ReflectionTestUtils.setField(collectionProvisioner, "databaseService", databaseService);
+        ReflectionTestUtils.setField(collectionProvisioner, "collectionService", collectionService);
+        ReflectionTestUtils.setField(collectionProvisioner, "existenceCache", existenceCache);
+        ReflectionTestUtils.setField(collectionProvisioner, "optimisticWrites", true);
+
+        answerCreateDatabase(created());
+        answerCreateCollection(created());
+    }
+
+    /**
+     * Make sure a write to a missing database creates the database and the collection, then is retried.
+     */
+    @Test
+    void missingDatabaseIsCreatedThenWriteRetried() {
+        final Supplier<CompletableFuture<String>> write = failingFirst(ArangoApiException.DATABASE_NOT_FOUND);
+
+        assertThat(collectionProvisioner.write("db", "collection", write).join()).isEqualTo("written");
+
+        verify(databaseService).postAsync(eq(ArangoOperation.CREATE_DATABASE), anyString(), any(JsonNode.class));
+        verify(collectionService).postAsync(eq(ArangoOperation.CREATE_COLLECTION), anyString(), any(JsonNode.class));
+        assertThat(existenceCache.isKnown("db", "collection")).isTrue();
+    }
+
+    /**
+     * Make sure a write to a missing collection of an existing database creates the collection only.
+     */
+    @Test
+    void missingCollectionIsCreatedThenWriteRetried() {
+        final Supplier<CompletableFuture<String>> write = failingFirst(ArangoApiException.COLLECTION_NOT_FOUND);
+
+        assertThat(collectionProvisioner.write("db", "collection", write).join()).isEqualTo("written");
+
+        verify(databaseService, never()).postAsync(any(ArangoOperation.class), anyString(), any(JsonNode.class));
+        verify(collectionService).postAsync(eq(ArangoOperation.CREATE_COLLECTION), anyString(), any(JsonNode.class));
+    }
+
+    /**
+     * Make sure a database and collection that exist by the time they are created count as created.
+     */
+    @Test
+    void duplicateNameCountsAsCreated() {
+        answerCreateDatabase(duplicateName());
+        answerCreateCollection(duplicateName());
+        final Supplier<CompletableFuture<String>> write = failingFirst(ArangoApiException.DATABASE_NOT_FOUND);
+
+        assertThat(collectionProvisioner.write("db", "collection", write).join()).isEqualTo("written");
+    }
+
+    /**
+     * Make sure two concurrent first writes to a new collection both succeed, although only one of them gets to
+     * create it.
+     */
+    @Test
+    void concurrentFirstWritesBothSucceed() {
+        final CompletableFuture<JsonNode> creation = new CompletableFuture<>();
+        doReturn(creation, duplicateName())
+                .when(collectionService)
+                .postAsync(eq(ArangoOperation.CREATE_COLLECTION), anyString(), any(JsonNode.class));
+        // both first attempts find the collection missing; it exists once the first creation reached ArangoDB
+        final AtomicInteger attempts = new AtomicInteger();
+        final Supplier<CompletableFuture<String>> write = () -> attempts.incrementAndGet() <= 2
+                ? CompletableFuture.failedFuture(notFound(ArangoApiException.COLLECTION_NOT_FOUND))
+                : CompletableFuture.completedFuture("written");
+
+        final CompletableFuture<String> first = collectionProvisioner.write("db", "collection", write);
+        final CompletableFuture<String> second = collectionProvisioner.write("db", "collection", write);
+        assertThat(first).isNotDone();
+        assertThat(second.join()).isEqualTo("written");
+
+        creation.complete(AbstractRestService.JSON_MAPPER.createObjectNode());
+        assertThat(first.join()).isEqualTo("written");
+        assertThat(attempts).hasValue(4);
+        verify(collectionService, times(2))
+                .postAsync(eq(ArangoOperation.CREATE_COLLECTION), anyString(), any(JsonNode.class));
+    }
+
+    /**
+     * Answers database creations with a given outcome.
+     *
+     * @param outcome  The outcome of the creation request
+     */
+    private void answerCreateDatabase(final CompletableFuture<JsonNode> outcome) {
+        doReturn(outcome)
+                .when(databaseService)
+                .postAsync(eq(ArangoOperation.CREATE_DATABASE), anyString(), any(JsonNode.class));
+    }
+
+    /**
+     * Answers collection creations with a given outcome.
+     *
+     * @param outcome  The outcome of the creation request
+     */
+    private void answerCreateCollection(final CompletableFuture<JsonNode> outcome) {
+        doReturn(outcome)
+                .when(collectionService)
+                .postAsync(eq(ArangoOperation.CREATE_COLLECTION), anyString(), any(JsonNode.class));
+    }
+
+    /**
+     * Creates a write that fails with a "not found" error the first time only.
+     *
+     * @param errorNum  The ArangoDB error number of the first attempt
+     *
+     * @return a write that succeeds with {@code written} from its second attempt on
+     */
+    private static Supplier<CompletableFuture<String>> failingFirst(final int errorNum) {
+        final AtomicInteger attempts = new AtomicInteger();
+        return () -> attempts.getAndIncrement() == 0
+                ? CompletableFuture.failedFuture(notFound(errorNum))
+                : CompletableFuture.completedFuture("written");
+    }
+
+    /**
+     * Creates the error ArangoDB answers a write to a missing database or collection with.
+     *
+     * @param errorNum  {@link ArangoApiException#DATABASE_NOT_FOUND} or {@link ArangoApiException#COLLECTION_NOT_FOUND}
+     *
+     * @return a {@code 404} error
+     */
+    private static ArangoApiException notFound(final int errorNum) {
+        return new ArangoApiException("not found", 404, errorNum);
+    }
+
+    /**
+     * Returns the response to a successful creation.
+     *
+     * @return a completed future
+     */
+    private static CompletableFuture<JsonNode> created() {
+        return CompletableFuture.completedFuture(AbstractRestService.JSON_MAPPER.createObjectNode());
+    }
+
+    /**
+     * Returns the error ArangoDB answers the creation of a database or collection that exists with.
+     *
+     * @return a future failed with a {@code 409} {@link ArangoApiException#DUPLICATE_NAME} error
+     */
+    private static CompletableFuture<JsonNode> duplicateName() {
+        return CompletableFuture.failedFuture(
+                new ArangoApiException("duplicate", 409, ArangoApiException.DUPLICATE_NAME)
+        );
+    }
+}
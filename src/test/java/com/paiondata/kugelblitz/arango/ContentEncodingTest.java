@@ -0,0 +1,76 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link ContentEncoding} unit tests.
+ */
+class ContentEncodingTest {
+
+    private static final byte[] BODY = "[{\"field\":\"value\"},{\"field\":\"value\"},{\"field\":\"value\"}]"
+            .repeat(100)
+            .getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Make sure encodings are looked up by their case-insensitive header value, and that a missing header means none.
+     */
+    @Test
+    void encodingIsLookedUpByToken() {
+        assertThat(ContentEncoding.of(" GZip ")).contains(ContentEncoding.GZIP);
+        assertThat(ContentEncoding.of("deflate")).contains(ContentEncoding.DEFLATE);
+        assertThat(ContentEncoding.of(null)).contains(ContentEncoding.IDENTITY);
+        assertThat(ContentEncoding.of("br")).isEqualTo(Optional.empty());
+    }
+
+    /**
+     * Make sure bodies are restored by decoding what was encoded, and that the statistics are reported once.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void encodedBodyIsDecoded() throws Exception {
+        for (final ContentEncoding encoding : ContentEncoding.values()) {
+            final byte[] encoded = encoding.encode(BODY);
+            final List<long[]> records = new ArrayList<>();
+
+            try (InputStream decoded = encoding.decode(
+                    new ByteArrayInputStream(encoded),
+                    (uncompressed, compressed, nanos) -> records.add(new long[] {uncompressed, compressed, nanos})
+            )) {
+                assertThat(decoded.readAllBytes()).isEqualTo(BODY);
+            }
+
+            assertThat(records).hasSize(1);
+            assertThat(records.get(0)[0]).isEqualTo(BODY.length);
+            assertThat(records.get(0)[1]).isEqualTo(encoded.length);
+            assertThat(records.get(0)[2]).isNotNegative();
+            if (encoding != ContentEncoding.IDENTITY) {
+                assertThat(encoded.length).isLessThan(BODY.length / 10);
+            }
+        }
+    }
+}
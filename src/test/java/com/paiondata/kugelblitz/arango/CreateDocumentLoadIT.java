@@ -0,0 +1,307 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of the {@code createDocument} endpoint.
+ * <p>
+ * The test drives the running application over HTTP with a fixed number of clients, each sending its next request as
+ * soon as the previous one has been answered, for every configured concurrency level in turn. For each level it
+ * reports the throughput, the p50, p99, and p99.9 latencies, and the number of ArangoDB requests per client request.
+ * It writes the full latency distribution to {@code target/load-test/createDocument-<threads>-<concurrency>.hgrm} and
+ * appends a line per level to {@code target/load-test/summary.csv}, so that runs with different settings can be
+ * compared.
+ * <p>
+ * The test is not part of the regular build. Run it with the {@code load-test} profile and configure it through system
+ * properties:
+ * <ul>
+ *     <li> {@code loadtest.arango}: {@code stub} (default) for a {@link StubArangoServer}, or {@code container} for
+ *          an ArangoDB Testcontainer
+ *     <li> {@code loadtest.stub-latency}: how long the stub takes to answer each request (default 2 ms)
+ *     <li> {@code loadtest.concurrency}: comma-separated numbers of concurrent clients (default {@code 1,8,32,128})
+ *     <li> {@code loadtest.warmup}: how long each level runs before measuring (default 5 seconds)
+ *     <li> {@code loadtest.duration}: how long each level is measured (default 15 seconds)
+ *     <li> {@code loadtest.threads}: {@code platform} (default) to serve requests on platform threads, or
+ *          {@code virtual} to set {@code spring.threads.virtual.enabled}, which requires Java 21
+ * </ul>
+ * Any Kugelblitz property, such as {@code kugelblitz.arango.coalescing.enabled}, can be passed the same way.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CreateDocumentLoadIT {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CreateDocumentLoadIT.class);
+
+    private static final String ARANGO = System.getProperty("loadtest.arango", "stub");
+    private static final Duration STUB_LATENCY = Duration.parse(
+            System.getProperty("loadtest.stub-latency", "PT0.002S")
+    );
+    private static final int[] CONCURRENCY = Arrays.stream(System.getProperty("loadtest.concurrency", "1,8,32,128")
+            .split(","))
+            .map(String::trim)
+            .mapToInt(Integer::parseInt)
+            .toArray();
+    private static final Duration WARMUP = Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+    private static final Duration DURATION = Duration.parse(System.getProperty("loadtest.duration", "PT15S"));
+    private static final String THREADS = System.getProperty("loadtest.threads", "platform");
+
+    private static final byte[] DOCUMENT = ("{"
+            + "\"name\":\"Kugelblitz\",\"version\":3,\"price\":12.75,\"active\":true,"
+            + "\"tags\":[\"arango\",\"spring\",\"webservice\",\"json\"],"
+            + "\"owner\":{\"id\":42,\"email\":\"owner@example.com\",\"roles\":[\"admin\",\"writer\"]}"
+            + "}").getBytes(StandardCharsets.UTF_8);
+
+    private static StubArangoServer stub;
+    private static GenericContainer<?> container;
+    private static String arangoUrl;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Points Kugelblitz at the ArangoDB stand-in selected by {@code loadtest.arango}.
+     *
+     * @param registry  {@code application.properties} mutator at runtime
+     */
+    @DynamicPropertySource
+    static void registerArangoProperties(final DynamicPropertyRegistry registry) {
+        registry.add("kugelblitz.arango.hosts", CreateDocumentLoadIT::startArango);
+        registry.add("spring.threads.virtual.enabled", () -> String.valueOf("virtual".equals(THREADS)));
+    }
+
+    /**
+     * Stops the ArangoDB stand-in.
+     */
+    @AfterAll
+    static void stopArango() {
+        if (stub != null) {
+            stub.close();
+        }
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    /**
+     * Measures {@code createDocument} at every configured concurrency level.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void createDocument() throws Exception {
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(String.format("http://localhost:%d/arango/createDocument/loadtest/documents", port)))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(DOCUMENT))
+                .build();
+        final Path reports = Files.createDirectories(Path.of("target", "load-test"));
+        final Path summary = reports.resolve("summary.csv");
+        if (Files.notExists(summary)) {
+            Files.writeString(summary, "threads,arango,stub-latency,concurrency,throughput,p50,p99,p99.9\n");
+        }
+
+        LOG.info(String.format(
+                "Load testing createDocument on %s threads against %s ArangoDB at %s",
+                THREADS,
+                ARANGO,
+                arangoUrl
+        ));
+        for (final int concurrency : CONCURRENCY) {
+            drive(client, request, concurrency, WARMUP);
+
+            final double upstreamBefore = upstreamRequests();
+            final Result result = drive(client, request, concurrency, DURATION);
+            final double upstream = upstreamRequests() - upstreamBefore;
+
+            final Histogram latencies = result.latencies();
+            final double throughput = latencies.getTotalCount() / (result.elapsedNanos() / 1e9);
+            LOG.info(String.format(
+                    "threads=%s concurrency=%d requests=%d errors=%d throughput=%.0f/s p50=%.2fms p99=%.2fms "
+                            + "p99.9=%.2fms max=%.2fms arango-requests-per-request=%.2f",
+                    THREADS,
+                    concurrency,
+                    latencies.getTotalCount(),
+                    result.errors(),
+                    throughput,
+                    latencies.getValueAtPercentile(50) / 1e6,
+                    latencies.getValueAtPercentile(99) / 1e6,
+                    latencies.getValueAtPercentile(99.9) / 1e6,
+                    latencies.getMaxValue() / 1e6,
+                    upstream / latencies.getTotalCount()
+            ));
+            try (PrintStream report = new PrintStream(
+                    Files.newOutputStream(reports.resolve(
+                            String.format("createDocument-%s-%d.hgrm", THREADS, concurrency)
+                    )),
+                    false,
+                    StandardCharsets.UTF_8
+            )) {
+                latencies.outputPercentileDistribution(report, 1e6);
+            }
+            Files.writeString(
+                    summary,
+                    String.format(
+                            "%s,%s,%s,%d,%.0f,%.2f,%.2f,%.2f%n",
+                            THREADS,
+                            ARANGO,
+                            STUB_LATENCY,
+                            concurrency,
+                            throughput,
+                            latencies.getValueAtPercentile(50) / 1e6,
+                            latencies.getValueAtPercentile(99) / 1e6,
+                            latencies.getValueAtPercentile(99.9) / 1e6
+                    ),
+                    StandardOpenOption.APPEND
+            );
+
+            assertThat(latencies.getTotalCount()).isPositive();
+            assertThat(result.errors()).isZero();
+        }
+    }
+
+    /**
+     * Sends the request from {@code concurrency} clients in a closed loop until {@code duration} has passed.
+     *
+     * @param client  The HTTP client
+     * @param request  The request to send over and over
+     * @param concurrency  The number of clients
+     * @param duration  How long to send requests
+     *
+     * @return the latencies in nanoseconds, the number of failed requests, and the time it took
+     *
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    private static Result drive(
+            final HttpClient client,
+            final HttpRequest request,
+            final int concurrency,
+            final Duration duration
+    ) throws InterruptedException {
+        final Recorder recorder = new Recorder(3);
+        final AtomicLong errors = new AtomicLong();
+        final ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+
+        final long start = System.nanoTime();
+        final long deadline = start + duration.toNanos();
+        for (int index = 0; index < concurrency; index++) {
+            clients.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    final long sent = System.nanoTime();
+                    try {
+                        if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (final IOException exception) {
+                        errors.incrementAndGet();
+                    } catch (final InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    recorder.recordValue(System.nanoTime() - sent);
+                }
+            });
+        }
+        clients.shutdown();
+        assertThat(clients.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS)).isTrue();
+
+        return new Result(recorder.getIntervalHistogram(), errors.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Returns how many requests Kugelblitz has sent to ArangoDB so far.
+     *
+     * @return the total count of the {@code kugelblitz.arango.http.requests} timers
+     */
+    private double upstreamRequests() {
+        return meterRegistry.find("kugelblitz.arango.http.requests").timers().stream().mapToLong(Timer::count).sum();
+    }
+
+    /**
+     * Starts the ArangoDB stand-in selected by {@code loadtest.arango}, unless it already runs.
+     *
+     * @return the URL of the stand-in
+     */
+    private static synchronized String startArango() {
+        if (arangoUrl != null) {
+            return arangoUrl;
+        }
+
+        if ("container".equals(ARANGO)) {
+            container = new GenericContainer<>(DockerImageName.parse("arangodb:3.11.13"))
+                    .withEnv("ARANGO_ROOT_PASSWORD", "root")
+                    .withExposedPorts(8529);
+            container.start();
+            arangoUrl = String.format("http://%s:%s", container.getHost(), container.getMappedPort(8529));
+        } else {
+            try {
+                stub = new StubArangoServer(1, STUB_LATENCY);
+            } catch (final IOException exception) {
+                throw new IllegalStateException("Cannot start ArangoDB stub", exception);
+            }
+            arangoUrl = stub.getUrl();
+        }
+        return arangoUrl;
+    }
+
+    /**
+     * The outcome of driving load at one concurrency level.
+     *
+     * @param latencies  The latency of every request, in nanoseconds
+     * @param errors  The number of requests that failed or were not answered with {@code 200 OK}
+     * @param elapsedNanos  How long it took
+     */
+    private record Result(Histogram latencies, long errors, long elapsedNanos) {
+    }
+}
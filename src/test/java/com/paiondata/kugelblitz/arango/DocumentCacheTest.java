@@ -0,0 +1,236 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * {@link DocumentCache} unit tests.
+ */
+class DocumentCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private MeterRegistry meterRegistry;
+    private DocumentCache documentCache;
+
+    /**
+     * Creates a fresh cache for each test, which serves documents without revalidation for a minute.
+     */
+    @BeforeEach
+    void setUp() {
+        documentCache = newDocumentCache(Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+    }
+
+    /**
+     * Make sure a fresh document is served from the cache.
+     */
+    @Test
+    void freshDocumentIsHit() {
+        final DocumentCache.Entry fetched = get(cached -> load(new DocumentCache.Entry("1", json("{}"))));
+
+        assertThat(get(cached -> load(new DocumentCache.Entry("2", json("{}"))))).isSameAs(fetched);
+        assertThat(loads).hasValue(1);
+        assertThat(requests("hit")).isEqualTo(1);
+        assertThat(requests("fetched")).isEqualTo(1);
+    }
+
+    /**
+     * Make sure a document due for revalidation is handed to the loader, and kept if the loader reports it unchanged.
+     */
+    @Test
+    void staleDocumentIsRevalidated() {
+        documentCache = newDocumentCache(Duration.ZERO, DataSize.ofMegabytes(1));
+        final DocumentCache.Entry fetched = get(cached -> load(new DocumentCache.Entry("1", json("{}"))));
+
+        final DocumentCache.Entry revalidated = get(cached -> {
+            assertThat(cached).isSameAs(fetched);
+            return load(cached);
+        });
+
+        assertThat(revalidated.rev()).isEqualTo("1");
+        assertThat(revalidated.validatedAt()).isGreaterThanOrEqualTo(fetched.validatedAt());
+        assertThat(loads).hasValue(2);
+        assertThat(requests("not-modified")).isEqualTo(1);
+    }
+
+    /**
+     * Make sure concurrent reads of a missing document share one load.
+     */
+    @Test
+    void concurrentReadsShareOneLoad() {
+        final CompletableFuture<DocumentCache.Entry> pending = new CompletableFuture<>();
+
+        final CompletableFuture<DocumentCache.Entry> first = documentCache.get("db", "c/k", cached -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        final CompletableFuture<DocumentCache.Entry> second = documentCache.get("db", "c/k", cached -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        pending.complete(new DocumentCache.Entry("1", json("{}")));
+
+        assertThat(first.join()).isSameAs(second.join());
+        assertThat(loads).hasValue(1);
+    }
+
+    /**
+     * Make sure a failed load forgets the document, so that the next read loads it again.
+     */
+    @Test
+    void failedLoadInvalidates() {
+        documentCache = newDocumentCache(Duration.ZERO, DataSize.ofMegabytes(1));
+        get(cached -> load(new DocumentCache.Entry("1", json("{}"))));
+
+        assertThat(documentCache.get(
+                "db",
+                "c/k",
+                cached -> CompletableFuture.failedFuture(new IllegalStateException("test"))
+        )).isCompletedExceptionally();
+
+        assertThat(get(cached -> {
+            assertThat(cached).isNull();
+            return load(new DocumentCache.Entry("2", json("{}")));
+        }).rev()).isEqualTo("2");
+    }
+
+    /**
+     * Make sure the cache is bounded by the size of the documents it holds.
+     */
+    @Test
+    void sizeIsBounded() {
+        documentCache = newDocumentCache(Duration.ofMinutes(1), DataSize.ofKilobytes(10));
+        final byte[] large = new byte[1024];
+
+        for (int index = 0; index < 100; index++) {
+            documentCache.put("db", "c/" + index, new DocumentCache.Entry("1", large));
+        }
+        final Cache<?, ?> documents = (Cache<?, ?>) ReflectionTestUtils.getField(documentCache, "documents");
+        documents.cleanUp();
+
+        assertThat(documents.policy().eviction().orElseThrow().weightedSize().orElseThrow())
+                .isLessThanOrEqualTo(DataSize.ofKilobytes(10).toBytes());
+        assertThat(documents.estimatedSize()).isLessThan(10);
+    }
+
+    /**
+     * Make sure invalidating a collection forgets its documents only.
+     */
+    @Test
+    void collectionIsInvalidated() {
+        documentCache.put("db", "c/1", new DocumentCache.Entry("1", json("{}")));
+        documentCache.put("db", "c/2", new DocumentCache.Entry("1", json("{}")));
+        documentCache.put("db", "cc/1", new DocumentCache.Entry("1", json("{}")));
+        documentCache.put("other", "c/1", new DocumentCache.Entry("1", json("{}")));
+
+        documentCache.invalidateCollection("db", "c");
+
+        assertThat(documentCache.getIfFresh("db", "c/1")).isNull();
+        assertThat(documentCache.getIfFresh("db", "c/2")).isNull();
+        assertThat(documentCache.getIfFresh("db", "cc/1")).isNotNull();
+        assertThat(documentCache.getIfFresh("other", "c/1")).isNotNull();
+    }
+
+    /**
+     * Creates a cache reporting to a registry of its own.
+     *
+     * @param freshFor  How long documents are served without revalidation
+     * @param maximumSize  The maximum size of the cached documents
+     *
+     * @return the cache
+     */
+    private DocumentCache newDocumentCache(final Duration freshFor, final DataSize maximumSize) {
+        meterRegistry = new SimpleMeterRegistry();
+        final DocumentCache cache = new DocumentCache();
+        ReflectionTestUtils.setField(
+                cache,
+                "meterRegistries",
+                new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry))
+                        .getBeanProvider(MeterRegistry.class)
+        );
+        ReflectionTestUtils.setField(cache, "maximumSize", maximumSize);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(cache, "freshFor", freshFor);
+        cache.afterPropertiesSet();
+        return cache;
+    }
+
+    /**
+     * Reads the test document.
+     *
+     * @param loader  Loads the document, given the cached one
+     *
+     * @return the document
+     */
+    private DocumentCache.Entry get(
+            final Function<DocumentCache.Entry, CompletableFuture<DocumentCache.Entry>> loader
+    ) {
+        return documentCache.get("db", "c/k", loader).join();
+    }
+
+    /**
+     * Counts a load that completes immediately.
+     *
+     * @param entry  The loaded document
+     *
+     * @return a future of {@code entry}
+     */
+    private CompletableFuture<DocumentCache.Entry> load(final DocumentCache.Entry entry) {
+        loads.incrementAndGet();
+        return CompletableFuture.completedFuture(entry);
+    }
+
+    /**
+     * Returns how many reads have been served in a certain way.
+     *
+     * @param result  {@code hit}, {@code not-modified}, or {@code fetched}
+     *
+     * @return the count
+     */
+    private double requests(final String result) {
+        return meterRegistry.get("kugelblitz.arango.read-cache.requests").tag("result", result).counter().count();
+    }
+
+    /**
+     * Encodes a JSON document.
+     *
+     * @param json  The document
+     *
+     * @return the encoded document
+     */
+    private static byte[] json(final String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
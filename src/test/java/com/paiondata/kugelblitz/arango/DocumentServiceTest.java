@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * {@link DocumentService} unit tests.
+ */
+class DocumentServiceTest {
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private static final String DOCUMENT = "{\"name\":\"Kugelblitz\",\"count\":42,\"ratio\":0.5,\"active\":true,"
+            + "\"none\":null,\"tags\":[\"a\",1],\"nested\":{\"level\":2}}";
+
+    private final DocumentService documentService = new DocumentService();
+
+    /**
+     * Make sure numbers, booleans, nulls, arrays, and nested objects keep their JSON types.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void valuesKeepTheirTypes() throws Exception {
+        final JsonNode document = toDocument(DOCUMENT);
+
+        assertThat(document).isEqualTo(JSON_MAPPER.readTree(DOCUMENT));
+        assertThat(document.get("count").isInt()).isTrue();
+        assertThat(document.get("ratio").isDouble()).isTrue();
+        assertThat(document.get("active").isBoolean()).isTrue();
+        assertThat(document.get("none").isNull()).isTrue();
+        assertThat(document.get("tags").isArray()).isTrue();
+        assertThat(document.get("nested").get("level").isInt()).isTrue();
+    }
+
+    /**
+     * Make sure {@code kugelblitz.arango.documents.stringify-values} stores the string form of every top-level value,
+     * as earlier versions did.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void valuesCanBeStringified() throws Exception {
+        ReflectionTestUtils.setField(documentService, "stringifyValues", true);
+
+        final JsonNode document = toDocument(DOCUMENT.replace("\"none\":null,", ""));
+
+        assertThat(document.get("name").asText()).isEqualTo("Kugelblitz");
+        assertThat(document.get("count").isTextual()).isTrue();
+        assertThat(document.get("count").asText()).isEqualTo("42");
+        assertThat(document.get("ratio").asText()).isEqualTo("0.5");
+        assertThat(document.get("active").asText()).isEqualTo("true");
+        assertThat(document.get("tags").asText()).isEqualTo("[a, 1]");
+        assertThat(document.get("nested").asText()).isEqualTo("{level=2}");
+    }
+
+    /**
+     * Make sure a body that is not a JSON object is rejected in either mode.
+     */
+    @Test
+    void nonObjectIsRejected() {
+        assertThatThrownBy(() -> toDocument("[1, 2]")).isInstanceOf(JsonParseException.class);
+
+        ReflectionTestUtils.setField(documentService, "stringifyValues", true);
+
+        assertThatThrownBy(() -> toDocument("null")).isInstanceOf(JsonParseException.class);
+    }
+
+    /**
+     * Reads a client document the way the "Create a document" endpoint does.
+     *
+     * @param json  The request body
+     *
+     * @return the document as sent to ArangoDB
+     *
+     * @throws Exception if the body is rejected
+     */
+    private JsonNode toDocument(final String json) throws Exception {
+        try (JsonParser parser = JSON_MAPPER.createParser(json)) {
+            return JSON_MAPPER.readTree(documentService.toDocument(parser).toByteArray());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+/**
+ * {@link ExistenceCache} unit tests.
+ */
+class ExistenceCacheTest {
+
+    private ExistenceCache existenceCache;
+
+    /**
+     * Creates a fresh cache for each test.
+     */
+    @BeforeEach
+    void setUp() {
+        existenceCache = new ExistenceCache();
+        ReflectionTestUtils.setField(existenceCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(existenceCache, "ttl", Duration.ofMinutes(1));
+        existenceCache.afterPropertiesSet();
+    }
+
+    /**
+     * Make sure a known collection implies a known database.
+     */
+    @Test
+    void collectionImpliesDatabase() {
+        existenceCache.markKnown("mydatabase", "mycollection");
+
+        assertThat(existenceCache.isKnown("mydatabase")).isTrue();
+        assertThat(existenceCache.isKnown("mydatabase", "mycollection")).isTrue();
+        assertThat(existenceCache.isKnown("mydatabase", "othercollection")).isFalse();
+    }
+
+    /**
+     * Make sure forgetting a database also forgets all of its collections, but nothing else.
+     */
+    @Test
+    void invalidateDatabase() {
+        existenceCache.markKnown("mydatabase", "mycollection");
+        existenceCache.markKnown("otherdatabase", "mycollection");
+
+        existenceCache.invalidate("mydatabase");
+
+        assertThat(existenceCache.isKnown("mydatabase")).isFalse();
+        assertThat(existenceCache.isKnown("mydatabase", "mycollection")).isFalse();
+        assertThat(existenceCache.isKnown("otherdatabase", "mycollection")).isTrue();
+    }
+
+    /**
+     * Make sure forgetting a collection keeps its database.
+     */
+    @Test
+    void invalidateCollection() {
+        existenceCache.markKnown("mydatabase", "mycollection");
+
+        existenceCache.invalidate("mydatabase", "mycollection");
+
+        assertThat(existenceCache.isKnown("mydatabase")).isTrue();
+        assertThat(existenceCache.isKnown("mydatabase", "mycollection")).isFalse();
+    }
+}
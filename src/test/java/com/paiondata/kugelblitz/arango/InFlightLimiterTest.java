@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link InFlightLimiter} unit tests.
+ */
+class InFlightLimiterTest {
+
+    /**
+     * Make sure a released slot goes to the oldest waiter.
+     */
+    @Test
+    void releasedSlotGoesToOldestWaiter() {
+        final InFlightLimiter limiter = new InFlightLimiter(1);
+
+        assertThat(limiter.acquire(Duration.ofSeconds(10))).isDone();
+        final CompletableFuture<Void> first = limiter.acquire(Duration.ofSeconds(10));
+        final CompletableFuture<Void> second = limiter.acquire(Duration.ofSeconds(10));
+        assertThat(first).isNotDone();
+        assertThat(limiter.getWaiting()).isEqualTo(2);
+
+        limiter.release();
+
+        assertThat(first).isDone();
+        assertThat(second).isNotDone();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.getWaiting()).isEqualTo(1);
+    }
+
+    /**
+     * Make sure a waiter gives up after the maximum wait and does not hold on to a slot afterwards.
+     */
+    @Test
+    void waiterTimesOut() {
+        final InFlightLimiter limiter = new InFlightLimiter(1);
+        limiter.acquire(Duration.ZERO);
+
+        final CompletableFuture<Void> waiter = limiter.acquire(Duration.ofMillis(50));
+
+        assertThatThrownBy(() -> waiter.get(1, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(limiter.getWaiting()).isZero();
+
+        limiter.release();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    /**
+     * Make sure a raised limit hands its new slots to waiters, and a lowered one holds back released slots.
+     */
+    @Test
+    void limitCanChange() {
+        final InFlightLimiter limiter = new InFlightLimiter(1);
+        limiter.acquire(Duration.ZERO);
+        final CompletableFuture<Void> first = limiter.acquire(Duration.ofSeconds(10));
+        final CompletableFuture<Void> second = limiter.acquire(Duration.ofSeconds(10));
+
+        limiter.setLimit(2);
+
+        assertThat(first).isDone();
+        assertThat(second).isNotDone();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+
+        limiter.setLimit(1);
+        limiter.release();
+
+        assertThat(second).isNotDone();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+
+        limiter.release();
+
+        assertThat(second).isDone();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link JsonBody} unit tests.
+ */
+class JsonBodyTest {
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    /**
+     * Make sure the elements of a JSON array are read into chunks one at a time and copied unchanged.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void arrayIsChunked() throws Exception {
+        try (JsonParser parser = JSON_MAPPER.createParser("[{\"a\":1},{\"b\":[true,null]},{\"c\":{\"d\":\"e\"}}]")) {
+            parser.nextToken();
+
+            final JsonBody first = JsonBody.nextArray(parser, true, 2);
+            assertThat(first.count()).isEqualTo(2);
+            assertThat(first.toString()).isEqualTo("[{\"a\":1},{\"b\":[true,null]}]");
+
+            final JsonBody second = JsonBody.nextArray(parser, true, 2);
+            assertThat(second.count()).isEqualTo(1);
+            assertThat(second.toString()).isEqualTo("[{\"c\":{\"d\":\"e\"}}]");
+
+            assertThat(JsonBody.nextArray(parser, true, 2)).isNull();
+        }
+    }
+
+    /**
+     * Make sure newline-delimited documents are read as a sequence of root-level values.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void ndjsonIsChunked() throws Exception {
+        try (JsonParser parser = JSON_MAPPER.createParser("{\"a\":1}\n{\"a\":2}\n")) {
+            assertThat(JsonBody.nextArray(parser, false, 10).toString()).isEqualTo("[{\"a\":1},{\"a\":2}]");
+            assertThat(JsonBody.nextArray(parser, false, 10)).isNull();
+        }
+    }
+
+    /**
+     * Make sure documents are read into newline-delimited chunks one at a time, bounded by count and by length.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void linesAreChunkedOneAtATime() throws Exception {
+        try (JsonParser parser = JSON_MAPPER.createParser("[{\"a\":1},{\"a\":2},{\"a\":3},{\"text\":\"long\"},{}]")) {
+            parser.nextToken();
+
+            final JsonBody first = JsonBody.nextLines(parser, true, 2, 1024);
+            assertThat(first.count()).isEqualTo(2);
+            assertThat(first.toString()).isEqualTo("{\"a\":1}\n{\"a\":2}");
+
+            final JsonBody second = JsonBody.nextLines(parser, true, 10, 1);
+            assertThat(second.count()).isEqualTo(1);
+            assertThat(second.toString()).isEqualTo("{\"a\":3}");
+
+            final JsonBody third = JsonBody.nextLines(parser, true, 10, 1024);
+            assertThat(third.toString()).isEqualTo("{\"text\":\"long\"}\n{}");
+
+            assertThat(JsonBody.nextLines(parser, true, 10, 1024)).isNull();
+        }
+    }
+
+    /**
+     * Make sure payloads larger than a single segment are encoded completely.
+     */
+    @Test
+    void largePayloadSpansSegments() {
+        final ObjectNode document = JSON_MAPPER.createObjectNode();
+        document.put("text", "x".repeat(20_000));
+
+        final JsonBody body = JsonBody.of(document);
+
+        assertThat(body.length()).isEqualTo(body.toString().length());
+        assertThat(body.toString()).isEqualTo(document.toString());
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * {@link JwtTokenManager} unit tests, against a {@link StubArangoServer}.
+ */
+class JwtTokenManagerTest {
+
+    private StubArangoServer arango;
+    private ArangoHttpClient arangoHttpClient;
+    private ArangoCoordinators arangoCoordinators;
+    private JwtTokenManager jwtTokenManager;
+
+    /**
+     * Shuts the token manager, the client, and the stub down.
+     */
+    @AfterEach
+    void tearDown() {
+        jwtTokenManager.destroy();
+        arangoCoordinators.destroy();
+        arangoHttpClient.destroy();
+        arango.close();
+    }
+
+    /**
+     * Make sure the expiry of a token is read from its {@code exp} claim, and assumed to be ten minutes away if the
+     * token has none.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void expiryIsDecodedFromToken() throws Exception {
+        start(Duration.ZERO, Duration.ofMinutes(1));
+        final String claims = Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString("{\"exp\":1900000000}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(ReflectionTestUtils.<Instant>invokeMethod(jwtTokenManager, "expiryOf", "h." + claims + ".s"))
+                .isEqualTo(Instant.ofEpochSecond(1_900_000_000L));
+        assertThat(ReflectionTestUtils.<Instant>invokeMethod(jwtTokenManager, "expiryOf", "not-a-jwt"))
+                .isBetween(Instant.now().plus(Duration.ofMinutes(9)), Instant.now().plus(Duration.ofMinutes(11)));
+    }
+
+    /**
+     * Make sure a token is renewed in the background ahead of its expiry, so that callers get the new one without
+     * waiting.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void tokenIsRefreshedAheadOfExpiry() throws Exception {
+        start(Duration.ZERO, Duration.ofSeconds(9));
+        arango.setTokenLifetime(Duration.ofSeconds(10));
+
+        final String first = jwtTokenManager.getToken().join();
+        assertThat(arango.getAuthentications()).isEqualTo(1);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> {
+            final CompletableFuture<String> current = jwtTokenManager.getToken();
+            return current.isDone() && !current.join().equals(first);
+        });
+        assertThat(arango.getAuthentications()).isEqualTo(2);
+    }
+
+    /**
+     * Make sure concurrent callers that all find no usable token wait for a single authentication.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void concurrentCallersShareOneRefresh() throws Exception {
+        start(Duration.ofMillis(200), Duration.ofMinutes(1));
+        final ExecutorService callers = Executors.newFixedThreadPool(16);
+        final CountDownLatch ready = new CountDownLatch(1);
+
+        try {
+            final List<CompletableFuture<String>> tokens = IntStream.range(0, 16)
+                    .mapToObj(index -> CompletableFuture.supplyAsync(() -> {
+                        try {
+                            ready.await();
+                        } catch (final InterruptedException exception) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return jwtTokenManager.getToken().join();
+                    }, callers))
+                    .toList();
+            ready.countDown();
+
+            assertThat(tokens.stream().map(CompletableFuture::join).distinct()).hasSize(1);
+            assertThat(arango.getAuthentications()).isEqualTo(1);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    /**
+     * Make sure a request whose token ArangoDB rejects is sent again, once, with a freshly obtained token.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void rejectedTokenIsRenewedAndRequestRetriedOnce() throws Exception {
+        start(Duration.ZERO, Duration.ofMinutes(1));
+        final DatabaseService databaseService = databaseService();
+
+        arango.revoke(jwtTokenManager.getToken().join());
+        assertThat(databaseService.databaseExists("db0").join()).isTrue();
+        assertThat(arango.getAuthentications()).isEqualTo(2);
+
+        arango.setRejectingTokens(true);
+        assertThatThrownBy(() -> databaseService.databaseExists("db0").join())
+                .hasCauseInstanceOf(ArangoApiException.class)
+                .cause()
+                .hasFieldOrPropertyWithValue("statusCode", 401);
+        assertThat(arango.getAuthentications()).isEqualTo(3);
+    }
+
+    /**
+     * Starts a stub ArangoDB and a token manager authenticating against it.
+     *
+     * @param latency  How long the stub takes to answer
+     * @param refreshAhead  How long before its expiry a token is renewed
+     *
+     * @throws Exception if the stub cannot be started
+     */
+    private void start(final Duration latency, final Duration refreshAhead) throws Exception {
+        arango = new StubArangoServer(1, latency);
+
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        arangoHttpClient = new ArangoHttpClient();
+        ReflectionTestUtils.setField(arangoHttpClient, "environment", new MockEnvironment());
+        ReflectionTestUtils.setField(
+                arangoHttpClient,
+                "meterRegistries",
+                new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry))
+                        .getBeanProvider(MeterRegistry.class)
+        );
+        ReflectionTestUtils.setField(
+                arangoHttpClient,
+                "observationRegistries",
+                new StaticListableBeanFactory(Map.of("observationRegistry", ObservationRegistry.NOOP))
+                        .getBeanProvider(ObservationRegistry.class)
+        );
+        ReflectionTestUtils.setField(arangoHttpClient, "connectTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(arangoHttpClient, "requestTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(arangoHttpClient, "httpVersion", HttpClient.Version.HTTP_1_1);
+        ReflectionTestUtils.setField(arangoHttpClient, "executorThreads", 2);
+        ReflectionTestUtils.setField(arangoHttpClient, "maxInFlight", 32);
+        ReflectionTestUtils.setField(arangoHttpClient, "maxInFlightWait", Duration.ofSeconds(1));
+        arangoHttpClient.afterPropertiesSet();
+
+        arangoCoordinators = new ArangoCoordinators();
+        ReflectionTestUtils.setField(arangoCoordinators, "arangoHttpClient", arangoHttpClient);
+        ReflectionTestUtils.setField(arangoCoordinators, "hosts", arango.getUrl());
+        ReflectionTestUtils.setField(arangoCoordinators, "loadBalancing", "round-robin");
+        ReflectionTestUtils.setField(arangoCoordinators, "healthCheckInterval", Duration.ofHours(1));
+        arangoCoordinators.afterPropertiesSet();
+
+        jwtTokenManager = new JwtTokenManager();
+        ReflectionTestUtils.setField(jwtTokenManager, "arangoHttpClient", arangoHttpClient);
+        ReflectionTestUtils.setField(jwtTokenManager, "arangoCoordinators", arangoCoordinators);
+        ReflectionTestUtils.setField(jwtTokenManager, "username", "root");
+        ReflectionTestUtils.setField(jwtTokenManager, "password", "root");
+        ReflectionTestUtils.setField(jwtTokenManager, "refreshAhead", refreshAhead);
+    }
+
+    /**
+     * Creates a service sending its requests through the token manager, without retries.
+     *
+     * @return a database service
+     */
+    private DatabaseService databaseService() {
+        final RetryPolicy retryPolicy = new RetryPolicy();
+        ReflectionTestUtils.setField(retryPolicy, "maxAttempts", 1);
+        ReflectionTestUtils.setField(retryPolicy, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(retryPolicy, "observationRegistry", ObservationRegistry.NOOP);
+
+        final DatabaseService databaseService = new DatabaseService();
+        ReflectionTestUtils.setField(databaseService, "arangoHttpClient", arangoHttpClient);
+        ReflectionTestUtils.setField(databaseService, "arangoCoordinators", arangoCoordinators);
+        ReflectionTestUtils.setField(databaseService, "jwtTokenManager", jwtTokenManager);
+        ReflectionTestUtils.setField(databaseService, "retryPolicy", retryPolicy);
+        return databaseService;
+    }
+}
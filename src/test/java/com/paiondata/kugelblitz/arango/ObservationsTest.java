@@ -0,0 +1,104 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link Observations} unit tests.
+ */
+class ObservationsTest {
+
+    private final ObservationRegistry registry = ObservationRegistry.create();
+    private final List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+
+    /**
+     * Records every stopped observation.
+     */
+    @BeforeEach
+    void setUp() {
+        registry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(final Observation.Context context) {
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(final Observation.Context context) {
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Make sure a service method is observed from its invocation until its future completes, as the parent of the
+     * work it starts, and that the caller continues within its own scope.
+     */
+    @Test
+    void serviceMethodIsObservedUntilItsFutureCompletes() {
+        final Observation caller = Observation.start("caller", registry);
+        final CompletableFuture<String> pending = new CompletableFuture<>();
+        final Observation[] inside = new Observation[1];
+
+        final CompletableFuture<Observation> continuation;
+        try (Observation.Scope scope = caller.openScope()) {
+            continuation = Observations.observe(registry, ObservationsTest.class, "method", () -> {
+                inside[0] = registry.getCurrentObservation();
+                return pending;
+            }).thenApply(ignored -> registry.getCurrentObservation());
+        }
+        assertThat(stopped).isEmpty();
+
+        // complete from a thread without any observation in scope, like an HTTP client thread
+        CompletableFuture.runAsync(() -> pending.complete("done")).join();
+
+        assertThat(stopped).singleElement().satisfies(context -> {
+            assertThat(context.getName()).isEqualTo(Observations.SERVICE_OBSERVATION);
+            assertThat(context.getContextualName()).isEqualTo("ObservationsTest.method");
+            assertThat(context.getParentObservation()).isSameAs(caller);
+            assertThat(inside[0].getContext()).isSameAs(context);
+        });
+        assertThat(continuation.join()).isSameAs(caller);
+    }
+
+    /**
+     * Make sure a failed service method is observed with its error.
+     */
+    @Test
+    void failureIsRecorded() {
+        final IllegalStateException failure = new IllegalStateException("test");
+
+        assertThat(Observations.observe(
+                registry,
+                ObservationsTest.class,
+                "method",
+                () -> CompletableFuture.failedFuture(failure)
+        )).isCompletedExceptionally();
+
+        assertThat(stopped).singleElement().satisfies(context -> assertThat(context.getError()).isSameAs(failure));
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Streams query results over HTTP from a running Kugelblitz, against a {@link StubArangoServer} that takes a while to
+ * answer every cursor batch.
+ * <p>
+ * The asynchronous request timeout of Spring MVC is shorter than the whole stream, so the results only arrive in full
+ * if the query timeout applies instead. Cursors expire after a second without being read, so the results only arrive
+ * in full if no stream has to wait for a thread either.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.mvc.async.request-timeout=500ms",
+                "kugelblitz.arango.query.timeout=PT30S",
+                "kugelblitz.arango.query.cursor-ttl=PT1S",
+                "kugelblitz.arango.query.max-concurrent=" + QueryStreamingIT.MAX_CONCURRENT
+        }
+)
+class QueryStreamingIT {
+
+    static final int MAX_CONCURRENT = 12;
+
+    private static final Duration BATCH_LATENCY = Duration.ofMillis(200);
+
+    private static final String QUERY = "{\"query\": \"FOR i IN 1..20 RETURN i\"}";
+
+    private static StubArangoServer stub;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private QueryTimeout queryTimeout;
+
+    /**
+     * Points Kugelblitz at the ArangoDB stub.
+     *
+     * @param registry  {@code application.properties} mutator at runtime
+     */
+    @DynamicPropertySource
+    static void registerArangoProperties(final DynamicPropertyRegistry registry) {
+        registry.add("kugelblitz.arango.hosts", QueryStreamingIT::startArango);
+    }
+
+    /**
+     * Stops the ArangoDB stub.
+     */
+    @AfterAll
+    static void stopArango() {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    /**
+     * Make sure all results of a query are streamed across several cursor batches, for longer than the asynchronous
+     * request timeout of the other endpoints.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void resultsAreStreamedAcrossBatches() throws Exception {
+        final int cursorReads = stub.getCursorReads();
+
+        final HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder()
+                        .uri(URI.create(String.format("http://localhost:%d/arango/query/db0?batchSize=2", port)))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"query\": \"FOR i IN 1..10 RETURN i\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString()
+        );
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo(
+                IntStream.rangeClosed(1, 10).mapToObj(index -> index + "\n").collect(Collectors.joining())
+        );
+        assertThat(stub.getCursorReads() - cursorReads).isEqualTo(4);
+    }
+
+    /**
+     * Make sure more queries than Spring MVC has task threads by default are streamed at the same time, rather than
+     * waiting for a thread until their cursors have expired.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void concurrentQueriesAreStreamedAtOnce() throws Exception {
+        awaitStreamsDone();
+
+        final List<HttpResponse<String>> responses = query(MAX_CONCURRENT);
+
+        final String results = IntStream.rangeClosed(1, 20)
+                .mapToObj(index -> index + "\n")
+                .collect(Collectors.joining());
+        assertThat(responses).allSatisfy(response -> {
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.body()).isEqualTo(results);
+        });
+    }
+
+    /**
+     * Make sure a query is answered with {@code 503 Service Unavailable} while
+     * {@code kugelblitz.arango.query.max-concurrent} others are streaming, without affecting those.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void queryOverTheLimitIsUnavailable() throws Exception {
+        awaitStreamsDone();
+
+        final List<HttpResponse<String>> responses = query(MAX_CONCURRENT + 1);
+
+        assertThat(responses).filteredOn(response -> response.statusCode() == 503).hasSize(1);
+        assertThat(responses).filteredOn(response -> response.statusCode() == 200).hasSize(MAX_CONCURRENT);
+    }
+
+    /**
+     * Make sure a query that modifies documents is rejected before it runs.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void modifyingQueryIsRejected() throws Exception {
+        final HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder()
+                        .uri(URI.create(String.format("http://localhost:%d/arango/query/db0", port)))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"query\": \"FOR i IN 1..10 INSERT {value: i} INTO collection0\"}"
+                        ))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString()
+        );
+
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    /**
+     * Runs the same query several times at once, reading 2 of its 20 results per cursor batch.
+     *
+     * @param count  The number of queries
+     *
+     * @return the responses, once all of them have been read in full
+     */
+    private List<HttpResponse<String>> query(final int count) {
+        final HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(String.format("http://localhost:%d/arango/query/db0?batchSize=2", port)))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(QUERY))
+                .build();
+        final List<CompletableFuture<HttpResponse<String>>> responses = IntStream.range(0, count)
+                .mapToObj(index -> client.sendAsync(request, HttpResponse.BodyHandlers.ofString()))
+                .toList();
+        return responses.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Waits until the streams of earlier tests have given back their slots.
+     */
+    private void awaitStreamsDone() {
+        final Semaphore streams = (Semaphore) ReflectionTestUtils.getField(queryTimeout, "streams");
+        await().atMost(Duration.ofSeconds(5)).until(() -> streams.availablePermits() == MAX_CONCURRENT);
+    }
+
+    /**
+     * Starts the ArangoDB stub, unless it already runs.
+     *
+     * @return the URL of the stub
+     */
+    private static synchronized String startArango() {
+        if (stub == null) {
+            try {
+                stub = new StubArangoServer(1, BATCH_LATENCY);
+            } catch (final IOException exception) {
+                throw new IllegalStateException("Cannot start ArangoDB stub", exception);
+            }
+        }
+        return stub.getUrl();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link RequestDecompressionFilter} unit tests.
+ */
+class RequestDecompressionFilterTest {
+
+    private static final DataSize MAX_DECOMPRESSED_SIZE = DataSize.ofKilobytes(64);
+
+    private RequestDecompressionFilter filter;
+
+    /**
+     * Creates a filter that lets bodies decompress to at most {@link #MAX_DECOMPRESSED_SIZE}.
+     *
+     * @throws Exception if the filter cannot be initialized
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        filter = new RequestDecompressionFilter();
+        ReflectionTestUtils.setField(
+                filter,
+                "meterRegistries",
+                new StaticListableBeanFactory(Map.of("meterRegistry", new SimpleMeterRegistry()))
+                        .getBeanProvider(MeterRegistry.class)
+        );
+        ReflectionTestUtils.setField(filter, "maxDecompressedSize", MAX_DECOMPRESSED_SIZE);
+        filter.afterPropertiesSet();
+    }
+
+    /**
+     * Make sure a body up to the maximum decompressed size is decompressed in full.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void bodyUpToTheMaximumSizeIsDecompressed() throws Exception {
+        for (final ContentEncoding encoding : new ContentEncoding[] {ContentEncoding.GZIP, ContentEncoding.DEFLATE}) {
+            final byte[] body = "a".repeat((int) MAX_DECOMPRESSED_SIZE.toBytes()).getBytes(StandardCharsets.UTF_8);
+            final AtomicReference<byte[]> read = new AtomicReference<>();
+
+            filter.doFilter(
+                    compressed(encoding, body),
+                    new MockHttpServletResponse(),
+                    (request, response) -> read.set(request.getInputStream().readAllBytes())
+            );
+
+            assertThat(read.get()).isEqualTo(body);
+        }
+    }
+
+    /**
+     * Make sure a body that decompresses to more than the maximum size is rejected with {@code 413} while it is being
+     * read, before all of it was decompressed.
+     */
+    @Test
+    void bodyOverTheMaximumSizeIsTooLarge() {
+        for (final ContentEncoding encoding : new ContentEncoding[] {ContentEncoding.GZIP, ContentEncoding.DEFLATE}) {
+            final byte[] body = new byte[(int) MAX_DECOMPRESSED_SIZE.toBytes() * 16];
+            final long[] read = new long[1];
+
+            assertThatThrownBy(() -> filter.doFilter(
+                    compressed(encoding, body),
+                    new MockHttpServletResponse(),
+                    (request, response) -> {
+                        final byte[] buffer = new byte[1024];
+                        for (int length; (length = request.getInputStream().read(buffer)) >= 0; ) {
+                            read[0] += length;
+                        }
+                    }
+            ))
+                    .isInstanceOfSatisfying(
+                            ResponseStatusException.class,
+                            exception -> assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE)
+                    );
+            assertThat(read[0]).isLessThanOrEqualTo(MAX_DECOMPRESSED_SIZE.toBytes());
+        }
+    }
+
+    /**
+     * Creates a request with a compressed body.
+     *
+     * @param encoding  The compression
+     * @param body  The uncompressed body
+     *
+     * @return the request
+     */
+    private static MockHttpServletRequest compressed(final ContentEncoding encoding, final byte[] body) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/arango/createDocuments/db/coll");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, encoding.getToken());
+        request.setContent(encoding.encode(body));
+        return request;
+    }
+}
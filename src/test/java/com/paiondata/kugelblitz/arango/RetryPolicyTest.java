@@ -0,0 +1,117 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * {@link RetryPolicy} unit tests.
+ */
+class RetryPolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RetryPolicy retryPolicy;
+
+    /**
+     * Creates a policy of three attempts with short backoffs.
+     */
+    @BeforeEach
+    void setUp() {
+        retryPolicy = new RetryPolicy();
+        ReflectionTestUtils.setField(retryPolicy, "maxAttempts", 3);
+        ReflectionTestUtils.setField(retryPolicy, "initialBackoff", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(retryPolicy, "maxBackoff", Duration.ofMillis(25));
+        ReflectionTestUtils.setField(retryPolicy, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(retryPolicy, "observationRegistry", ObservationRegistry.NOOP);
+    }
+
+    /**
+     * Make sure only failures that may go away by themselves are retried, and those that may have had an effect only
+     * if the request is idempotent.
+     */
+    @Test
+    void retriesTransientFailuresOnly() {
+        final IllegalStateException notConnected = new IllegalStateException("failed", new ConnectException("refused"));
+        final IllegalStateException timedOut = new IllegalStateException("failed", new IOException("timed out"));
+        final ArangoApiException unavailable = new ArangoApiException("failed", 503, 0);
+        final ArangoApiException writeLocked = new ArangoApiException("failed", 403, ArangoApiException.WRITE_LOCKED);
+
+        assertThat(RetryPolicy.transientReasonOf(notConnected, false)).isEqualTo("connect");
+        assertThat(RetryPolicy.transientReasonOf(writeLocked, false)).isEqualTo("write-locked");
+        assertThat(RetryPolicy.transientReasonOf(timedOut, false)).isNull();
+        assertThat(RetryPolicy.transientReasonOf(timedOut, true)).isEqualTo("io");
+        assertThat(RetryPolicy.transientReasonOf(unavailable, false)).isNull();
+        assertThat(RetryPolicy.transientReasonOf(unavailable, true)).isEqualTo("unavailable");
+        assertThat(RetryPolicy.transientReasonOf(new ArangoApiException("failed", 404, 1202), true)).isNull();
+    }
+
+    /**
+     * Make sure a request is attempted again until it succeeds or runs out of attempts.
+     */
+    @Test
+    void attemptsUpToMaxAttempts() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final String result = retryPolicy.execute(ArangoOperation.GET_DOCUMENT, true, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                return CompletableFuture.failedFuture(new ArangoApiException("failed", 503, 0));
+            }
+            return CompletableFuture.completedFuture("done");
+        }).join();
+        assertThat(result).isEqualTo("done");
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.get("kugelblitz.arango.retries").tag("reason", "unavailable").counter().count())
+                .isEqualTo(2);
+
+        attempts.set(0);
+        assertThatThrownBy(() -> retryPolicy.execute(ArangoOperation.INSERT_DOCUMENT, false, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("failed", new ConnectException("refused")));
+        }).join())
+                .isInstanceOf(CompletionException.class)
+                .hasRootCauseInstanceOf(ConnectException.class);
+        assertThat(attempts).hasValue(3);
+    }
+
+    /**
+     * Make sure backoffs are random, grow with the attempts, and are capped.
+     */
+    @Test
+    void backoffIsJitteredAndCapped() {
+        assertThat(IntStream.range(0, 100).mapToObj(index -> retryPolicy.backoff(1)))
+                .allMatch(backoff -> backoff.compareTo(Duration.ofMillis(10)) <= 0)
+                .anyMatch(backoff -> backoff.compareTo(Duration.ofMillis(5)) < 0)
+                .anyMatch(backoff -> backoff.compareTo(Duration.ofMillis(5)) >= 0);
+        assertThat(IntStream.range(0, 100).mapToObj(index -> retryPolicy.backoff(30)))
+                .allMatch(backoff -> backoff.compareTo(Duration.ofMillis(25)) <= 0)
+                .anyMatch(backoff -> backoff.compareTo(Duration.ofMillis(20)) > 0);
+    }
+}
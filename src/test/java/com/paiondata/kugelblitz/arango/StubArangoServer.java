@@ -0,0 +1,511 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link StubArangoServer} is an in-process HTTP server answering the subset of the ArangoDB REST API that Kugelblitz
+ * uses, so that benchmarks and load tests measure Kugelblitz rather than a database.
+ * <p>
+ * The server knows a fixed number of databases named {@code db0}, {@code db1}, ... each containing the same number of
+ * collections named {@code collection0}, {@code collection1}, .... Document inserts succeed unless noted below, and
+ * nothing is stored. Responses are encoded once up front wherever possible.
+ * <p>
+ * Every response can be delayed by a fixed latency, standing in for the time a real ArangoDB takes. Delayed responses
+ * are sent by a scheduler rather than by a sleeping thread, so the latency does not limit how many requests the server
+ * handles concurrently.
+ * <p>
+ * Each authentication issues a distinct JWT token, valid for a day unless {@link #setTokenLifetime(Duration)} says
+ * otherwise. Requests carrying a token that has been {@link #revoke(String) revoked}, or any token while
+ * {@link #setRejectingTokens(boolean)} is on, are answered with {@code 401 Unauthorized}.
+ * <p>
+ * An array insert that contains a document with the {@code _key} {@value #FAILING_KEY} fails as a whole with
+ * {@code 500 Internal Server Error}.
+ * <p>
+ * AQL queries of the form {@code FOR i IN 1..n RETURN i} are answered through cursors, {@code batchSize} results at a
+ * time; a cursor that is not read for the {@code ttl} given when it was created is dropped. Parsing them, or queries
+ * of the form {@code FOR i IN 1..n INSERT ...} and the like, gives a syntax tree with the node types ArangoDB uses;
+ * any other query is rejected as a parse error.
+ */
+final class StubArangoServer implements AutoCloseable {
+
+    // request bodies are drained after parsing, so the parser must leave them open
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper()
+            .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+
+    private static final Pattern RANGE_QUERY = Pattern.compile(
+            "\\s*FOR\\s+(\\w+)\\s+IN\\s+1\\s*\\.\\.\\s*(\\d+)\\s+RETURN\\s+\\1\\s*",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    private static final Pattern MODIFYING_QUERY = Pattern.compile(
+            "\\s*FOR\\s+\\w+\\s+IN\\s+1\\s*\\.\\.\\s*\\d+\\s+(INSERT|UPDATE|REPLACE|REMOVE|UPSERT)\\b.*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL
+    );
+
+    /**
+     * The {@code _key} of a document that fails the array insert it is part of.
+     */
+    static final String FAILING_KEY = "stub-failure";
+
+    static {
+        // without TCP_NODELAY, Nagle's algorithm and delayed ACKs add ~40 ms to every exchange
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final Duration latency;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger authentications = new AtomicInteger();
+    private final AtomicInteger cursorIds = new AtomicInteger();
+    private final AtomicInteger cursorReads = new AtomicInteger();
+    private final Map<String, Cursor> cursors = new ConcurrentHashMap<>();
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+    private final byte[] databasesResponse;
+    private final byte[] collectionsResponse;
+    private final byte[] documentResponse;
+
+    private volatile Headers lastRequestHeaders;
+    private volatile Duration tokenLifetime = Duration.ofDays(1);
+    private volatile boolean rejectingTokens;
+
+    /**
+     * Starts a server on an ephemeral port of the loopback interface.
+     *
+     * @param databases  The number of databases, and of collections in each of them
+     * @param latency  How long every response is delayed
+     *
+     * @throws IOException if the server cannot be started
+     */
+    StubArangoServer(final int databases, final Duration latency) throws IOException {
+        this.latency = latency;
+
+        final ObjectNode databaseList = JSON_MAPPER.createObjectNode();
+        final ArrayNode databaseNames = databaseList.putArray("result");
+        final ObjectNode collectionList = JSON_MAPPER.createObjectNode();
+        final ArrayNode collectionEntries = collectionList.putArray("result");
+        for (int index = 0; index < databases; index++) {
+            databaseNames.add("db" + index);
+            collectionEntries.addObject().put("name", "collection" + index).put("type", 2).put("status", 3);
+        }
+        databasesResponse = JSON_MAPPER.writeValueAsBytes(databaseList);
+        collectionsResponse = JSON_MAPPER.writeValueAsBytes(collectionList);
+        documentResponse = JSON_MAPPER.writeValueAsBytes(newDocumentResult(0));
+
+        executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Returns the base URL of this server.
+     *
+     * @return the URL to configure as {@code kugelblitz.arango.hosts}
+     */
+    String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the headers of the request received last.
+     *
+     * @return the request headers, or {@code null} if no request has been received yet
+     */
+    Headers getLastRequestHeaders() {
+        return lastRequestHeaders;
+    }
+
+    /**
+     * Returns how often a client has read the next batch of a cursor.
+     *
+     * @return the number of {@code PUT /_api/cursor/<id>} requests
+     */
+    int getCursorReads() {
+        return cursorReads.get();
+    }
+
+    /**
+     * Returns how often a client has authenticated.
+     *
+     * @return the number of {@code /_open/auth} requests received
+     */
+    int getAuthentications() {
+        return authentications.get();
+    }
+
+    /**
+     * Sets how long the tokens issued from now on are valid.
+     *
+     * @param tokenLifetime  The time between issuing a token and its {@code exp} claim, in whole seconds
+     */
+    void setTokenLifetime(final Duration tokenLifetime) {
+        this.tokenLifetime = tokenLifetime;
+    }
+
+    /**
+     * Answers requests carrying a given token with {@code 401 Unauthorized} from now on, as ArangoDB does once it
+     * dropped the session of a token.
+     *
+     * @param jwt  The token to reject
+     */
+    void revoke(final String jwt) {
+        revoked.add(jwt);
+    }
+
+    /**
+     * Sets whether every authenticated request is answered with {@code 401 Unauthorized}, whatever its token.
+     *
+     * @param rejectingTokens  {@code true} to reject all tokens
+     */
+    void setRejectingTokens(final boolean rejectingTokens) {
+        this.rejectingTokens = rejectingTokens;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Routes a request to the response of the ArangoDB endpoint it addresses and sends it once the latency has passed.
+     *
+     * @param exchange  The request
+     *
+     * @throws IOException if the request cannot be read
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        lastRequestHeaders = exchange.getRequestHeaders();
+        final String[] segments = path.split("/");
+
+        final InputStream body = exchange.getRequestBody();
+        final int status;
+        final byte[] response;
+        try {
+            final String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if ("/_open/auth".equals(path)) {
+                status = 200;
+                response = newAuthResponse();
+            } else if (authorization != null
+                    && (rejectingTokens || revoked.contains(authorization.substring("bearer ".length())))) {
+                status = 401;
+                response = errorResponse(401, 401, "not authorized to execute this request");
+            } else if ("/_db/_system/_api/database".equals(path)) {
+                status = 200;
+                response = databasesResponse;
+            } else if (segments.length == 5 && "collection".equals(segments[4])) {
+                status = 200;
+                response = collectionsResponse;
+            } else if (segments.length == 6 && "document".equals(segments[4])) {
+                final byte[] results = documentResultsFor(body);
+                status = results == null ? 500 : 202;
+                response = results == null ? errorResponse(500, 4, "internal error") : results;
+            } else if (segments.length == 5 && "query".equals(segments[4])) {
+                final ObjectNode ast = syntaxTreeOf(body);
+                status = ast == null ? 400 : 200;
+                response = ast == null
+                        ? errorResponse(400, 1501, "syntax error, unexpected end of query string")
+                        : JSON_MAPPER.writeValueAsBytes(ast);
+            } else if (segments.length == 5 && "cursor".equals(segments[4])) {
+                final Cursor cursor = queryFor(body);
+                status = cursor == null ? 400 : 201;
+                response = cursor == null
+                        ? errorResponse(400, 1501, "syntax error, unexpected end of query string")
+                        : nextBatchOf(String.valueOf(cursorIds.incrementAndGet()), cursor);
+            } else if (segments.length == 6 && "cursor".equals(segments[4])) {
+                final Cursor cursor = "PUT".equals(exchange.getRequestMethod())
+                        ? cursors.get(segments[5])
+                        : cursors.remove(segments[5]);
+                if (cursor != null && cursor.isExpired()) {
+                    cursors.remove(segments[5]);
+                }
+                if (cursor == null || cursor.isExpired()) {
+                    status = 404;
+                    response = errorResponse(404, 1600, "cursor not found");
+                } else if ("PUT".equals(exchange.getRequestMethod())) {
+                    cursorReads.incrementAndGet();
+                    status = 200;
+                    response = nextBatchOf(segments[5], cursor);
+                } else {
+                    status = 202;
+                    response = "{}".getBytes(StandardCharsets.UTF_8);
+                }
+            } else {
+                status = 200;
+                response = "{}".getBytes(StandardCharsets.UTF_8);
+            }
+            body.transferTo(OutputStream.nullOutputStream());
+        } catch (final IOException exception) {
+            exchange.close();
+            throw exception;
+        }
+
+        if (latency.isZero()) {
+            respond(exchange, status, response);
+        } else {
+            scheduler.schedule(() -> respond(exchange, status, response), latency.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Issues a new token, unique thanks to a {@code jti} claim, which expires after the configured lifetime.
+     *
+     * @return the encoded response of {@code /_open/auth}
+     *
+     * @throws IOException if the response cannot be encoded
+     */
+    private byte[] newAuthResponse() throws IOException {
+        final String claims = JSON_MAPPER.createObjectNode()
+                .put("exp", Instant.now().plus(tokenLifetime).getEpochSecond())
+                .put("jti", authentications.incrementAndGet())
+                .toString();
+        final String jwt = "header."
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(claims.getBytes(StandardCharsets.UTF_8))
+                + ".signature";
+        return JSON_MAPPER.writeValueAsBytes(JSON_MAPPER.createObjectNode().put("jwt", jwt));
+    }
+
+    /**
+     * Reads a query parse request.
+     *
+     * @param body  The request body
+     *
+     * @return the parse result with a syntax tree of a range query or of a data-modification query over a range, or
+     * {@code null} if the query is neither
+     *
+     * @throws IOException if the body is not well-formed JSON
+     */
+    private static ObjectNode syntaxTreeOf(final InputStream body) throws IOException {
+        final String query = JSON_MAPPER.readTree(body).path("query").asText();
+        final Matcher modification = MODIFYING_QUERY.matcher(query);
+        final String operation;
+        if (modification.matches()) {
+            operation = modification.group(1).toLowerCase(Locale.ROOT);
+        } else if (RANGE_QUERY.matcher(query).matches()) {
+            operation = "return";
+        } else {
+            return null;
+        }
+
+        final ObjectNode parsed = JSON_MAPPER.createObjectNode().put("error", false).put("code", 200);
+        parsed.put("parsed", true);
+        parsed.putArray("collections");
+        parsed.putArray("bindVars");
+        final ArrayNode nodes = parsed.putArray("ast").addObject().put("type", "root").putArray("subNodes");
+        nodes.addObject().put("type", "for").putArray("subNodes").addObject().put("type", "range");
+        nodes.addObject().put("type", operation);
+        return parsed;
+    }
+
+    /**
+     * Reads a cursor creation request.
+     *
+     * @param body  The request body
+     *
+     * @return the results of the query, or {@code null} if it is not a range query
+     *
+     * @throws IOException if the body is not well-formed JSON
+     */
+    private static Cursor queryFor(final InputStream body) throws IOException {
+        final JsonNode request = JSON_MAPPER.readTree(body);
+        final Matcher range = RANGE_QUERY.matcher(request.path("query").asText());
+        if (!range.matches()) {
+            return null;
+        }
+        return new Cursor(
+                Integer.parseInt(range.group(2)),
+                request.path("batchSize").asInt(1000),
+                Duration.ofMillis((long) (request.path("ttl").asDouble(30) * 1000))
+        );
+    }
+
+    /**
+     * Reads the next batch of a cursor, dropping the cursor once it is exhausted.
+     *
+     * @param id  The ID of the cursor
+     * @param cursor  The cursor
+     *
+     * @return the encoded batch
+     *
+     * @throws IOException if the batch cannot be encoded
+     */
+    private byte[] nextBatchOf(final String id, final Cursor cursor) throws IOException {
+        final ObjectNode batch = JSON_MAPPER.createObjectNode();
+        final ArrayNode results = batch.putArray("result");
+        synchronized (cursor) {
+            while (results.size() < cursor.batchSize && cursor.next <= cursor.last) {
+                results.add(cursor.next++);
+            }
+            batch.put("hasMore", cursor.next <= cursor.last);
+            cursor.readAt = System.nanoTime();
+        }
+        if (batch.path("hasMore").asBoolean()) {
+            batch.put("id", id);
+            cursors.put(id, cursor);
+        } else {
+            cursors.remove(id);
+        }
+        return JSON_MAPPER.writeValueAsBytes(batch.put("error", false).put("code", 200));
+    }
+
+    /**
+     * Encodes an error in the shape ArangoDB reports errors in.
+     *
+     * @param code  The HTTP status
+     * @param errorNum  The ArangoDB error number
+     * @param errorMessage  The ArangoDB error message
+     *
+     * @return the encoded error
+     *
+     * @throws IOException if the error cannot be encoded
+     */
+    private static byte[] errorResponse(final int code, final int errorNum, final String errorMessage)
+            throws IOException {
+        return JSON_MAPPER.writeValueAsBytes(JSON_MAPPER.createObjectNode()
+                .put("error", true)
+                .put("code", code)
+                .put("errorNum", errorNum)
+                .put("errorMessage", errorMessage));
+    }
+
+    /**
+     * Reads a document insert and builds its result: a single result for a JSON object, or one result per element for
+     * a JSON array.
+     *
+     * @param body  The request body
+     *
+     * @return the encoded response, or {@code null} if the body is an array containing a document with the
+     * {@code _key} {@value #FAILING_KEY}
+     *
+     * @throws IOException if the body is not well-formed JSON
+     */
+    private byte[] documentResultsFor(final InputStream body) throws IOException {
+        try (JsonParser parser = JSON_MAPPER.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return documentResponse;
+            }
+
+            final ArrayNode results = JSON_MAPPER.createArrayNode();
+            boolean failing = false;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                failing |= FAILING_KEY.equals(JSON_MAPPER.<JsonNode>readTree(parser).path("_key").asText());
+                results.add(newDocumentResult(results.size()));
+            }
+            return failing ? null : JSON_MAPPER.writeValueAsBytes(results);
+        }
+    }
+
+    /**
+     * Creates the result ArangoDB reports for an inserted document.
+     *
+     * @param key  The key of the document
+     *
+     * @return the {@code _id}, {@code _key}, and {@code _rev} of the document
+     */
+    private static ObjectNode newDocumentResult(final int key) {
+        return JSON_MAPPER.createObjectNode()
+                .put("_id", "collection/" + key)
+                .put("_key", String.valueOf(key))
+                .put("_rev", "_stub");
+    }
+
+    /**
+     * Sends a JSON response and completes the exchange; a client that has gone away is ignored.
+     *
+     * @param exchange  The request to respond to
+     * @param status  The HTTP status
+     * @param body  The encoded response body
+     */
+    private static void respond(final HttpExchange exchange, final int status, final byte[] body) {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (final IOException ignored) {
+            // the client closed the connection
+        }
+    }
+
+    /**
+     * The results of a range query not read yet.
+     */
+    private static final class Cursor {
+
+        private final int last;
+        private final int batchSize;
+        private final Duration ttl;
+        private int next = 1;
+        private long readAt;
+
+        /**
+         * Constructor.
+         *
+         * @param last  The last result
+         * @param batchSize  The maximum number of results per batch
+         * @param ttl  How long the cursor is kept without being read
+         */
+        Cursor(final int last, final int batchSize, final Duration ttl) {
+            this.last = last;
+            this.batchSize = batchSize;
+            this.ttl = ttl;
+        }
+
+        /**
+         * Returns whether or not the cursor has not been read for longer than its {@code ttl}.
+         *
+         * @return {@code true} if the cursor is to be dropped
+         */
+        synchronized boolean isExpired() {
+            return System.nanoTime() - readAt > ttl.toNanos();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * {@link TokenBucket} unit tests.
+ */
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Make sure a full bucket admits a burst, then one request per refill, and tells how long to wait in between.
+     */
+    @Test
+    void burstThenRate() {
+        final TokenBucket bucket = new TokenBucket(10, 3);
+        final long start = System.nanoTime();
+
+        assertThat(bucket.tryAcquire(start)).isZero();
+        assertThat(bucket.tryAcquire(start)).isZero();
+        assertThat(bucket.tryAcquire(start)).isZero();
+        assertThat(bucket.tryAcquire(start)).isEqualTo(SECOND / 10);
+        assertThat(bucket.tryAcquire(start + SECOND / 20)).isEqualTo(SECOND / 20);
+
+        assertThat(bucket.tryAcquire(start + SECOND / 10)).isZero();
+        assertThat(bucket.tryAcquire(start + SECOND / 10)).isPositive();
+    }
+
+    /**
+     * Make sure an idle bucket refills up to its burst only.
+     */
+    @Test
+    void idleBucketHoldsBurstOnly() {
+        final TokenBucket bucket = new TokenBucket(10, 2);
+        final long start = System.nanoTime();
+        bucket.tryAcquire(start);
+
+        final long later = start + 60 * SECOND;
+        assertThat(bucket.tryAcquire(later)).isZero();
+        assertThat(bucket.tryAcquire(later)).isZero();
+        assertThat(bucket.tryAcquire(later)).isPositive();
+    }
+
+    /**
+     * Make sure a token given back can be taken again.
+     */
+    @Test
+    void releasedTokenCanBeTakenAgain() {
+        final TokenBucket bucket = new TokenBucket(10, 1);
+        final long start = System.nanoTime();
+
+        assertThat(bucket.tryAcquire(start)).isZero();
+        assertThat(bucket.tryAcquire(start)).isPositive();
+        bucket.release();
+        assertThat(bucket.tryAcquire(start)).isZero();
+        assertThat(bucket.tryAcquire(start)).isPositive();
+    }
+
+    /**
+     * Make sure concurrent callers never take more tokens than the bucket holds.
+     */
+    @Test
+    void concurrentCallersShareTheBurst() {
+        final TokenBucket bucket = new TokenBucket(1, 100);
+        final long start = System.nanoTime();
+        final AtomicInteger admitted = new AtomicInteger();
+
+        CompletableFuture.allOf(IntStream.range(0, 8)
+                .mapToObj(thread -> CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        if (bucket.tryAcquire(start) == 0) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                }))
+                .toArray(CompletableFuture[]::new)
+        ).join();
+
+        assertThat(admitted).hasValue(100);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.arangodb.jackson.dataformat.velocypack.VPackMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+
+/**
+ * {@link WireFormat} unit tests.
+ */
+class WireFormatTest {
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper VPACK_MAPPER = new VPackMapper();
+
+    private static final String DOCUMENTS = "[{\"_key\":\"a\",\"n\":1,\"x\":2.5,\"ok\":true,\"none\":null},"
+            + "{\"_key\":\"b\",\"tags\":[\"t\",\"u\"],\"nested\":{\"big\":12345678901234,\"text\":\"\\u00e9\"}}]";
+
+    /**
+     * Make sure a JSON payload is transcoded into equivalent VelocyPack.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void payloadIsTranscodedToVelocyPack() throws Exception {
+        final byte[] sent = collect(WireFormat.VELOCYPACK.publisher(JsonBody.wrap(bytes(DOCUMENTS))));
+
+        assertThat(VPACK_MAPPER.readTree(sent)).isEqualTo(JSON_MAPPER.readTree(DOCUMENTS));
+        assertThat(WireFormat.VELOCYPACK.readTree(sent)).isEqualTo(JSON_MAPPER.readTree(DOCUMENTS));
+    }
+
+    /**
+     * Make sure a JSON payload is sent as is.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void jsonPayloadIsUnchanged() throws Exception {
+        assertThat(collect(WireFormat.JSON.publisher(JsonBody.wrap(bytes(DOCUMENTS))))).isEqualTo(bytes(DOCUMENTS));
+    }
+
+    /**
+     * Make sure responses are decoded by their {@code Content-Type}, falling back to JSON.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void responseFormatFollowsContentType() throws Exception {
+        final JsonNode tree = JSON_MAPPER.readTree(DOCUMENTS);
+
+        assertThat(WireFormat.of(response("application/x-velocypack"))).isEqualTo(WireFormat.VELOCYPACK);
+        assertThat(WireFormat.of(response("application/json; charset=utf-8"))).isEqualTo(WireFormat.JSON);
+        assertThat(WireFormat.of(response(null))).isEqualTo(WireFormat.JSON);
+        assertThat(WireFormat.VELOCYPACK.readTree(new ByteArrayInputStream(VPACK_MAPPER.writeValueAsBytes(tree))))
+                .isEqualTo(tree);
+        assertThat(WireFormat.JSON.readTree(new ByteArrayInputStream(bytes(DOCUMENTS)))).isEqualTo(tree);
+    }
+
+    /**
+     * Encodes a string as UTF-8.
+     *
+     * @param text  The string
+     *
+     * @return the bytes of {@code text}
+     */
+    private static byte[] bytes(final String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Collects what a body publisher publishes.
+     *
+     * @param publisher  The publisher
+     *
+     * @return the published bytes
+     */
+    private static byte[] collect(final HttpRequest.BodyPublisher publisher) {
+        final HttpResponse.BodySubscriber<byte[]> bytes = HttpResponse.BodySubscribers.ofByteArray();
+        publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(final Flow.Subscription subscription) {
+                bytes.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(final ByteBuffer item) {
+                bytes.onNext(List.of(item));
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                bytes.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                bytes.onComplete();
+            }
+        });
+        return bytes.getBody().toCompletableFuture().join();
+    }
+
+    /**
+     * Creates a response with the given {@code Content-Type}.
+     *
+     * @param contentType  The content type, or {@code null} for none
+     *
+     * @return a mocked response
+     */
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<Void> response(final String contentType) {
+        final HttpResponse<Void> response = mock(HttpResponse.class);
+        when(response.headers()).thenReturn(HttpHeaders.of(
+                contentType == null ? Map.of() : Map.of("Content-Type", List.of(contentType)),
+                (name, value) -> true
+        ));
+        return response;
+    }
+}
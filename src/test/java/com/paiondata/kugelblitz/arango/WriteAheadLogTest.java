@@ -0,0 +1,184 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * {@link WriteAheadLog} unit tests.
+ */
+class WriteAheadLogTest {
+
+    /**
+     * Fits two records of {@link #record(int)} into a segment.
+     */
+    private static final int SEGMENT_SIZE = 64;
+
+    @TempDir
+    private Path directory;
+
+    /**
+     * Make sure records are read back in order, each at the position it was appended at.
+     */
+    @Test
+    void recordsAreReadInOrder() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            final long first = log.append(record(1));
+            final long second = log.append(record(2));
+            final long third = log.append(record(3));
+
+            final List<WriteAheadLog.Record> records = log.read(first, 10);
+
+            assertThat(records).extracting(WriteAheadLog.Record::position).containsExactly(first, second, third);
+            assertThat(records).extracting(record -> text(record.payload())).containsExactly(
+                    text(record(1)),
+                    text(record(2)),
+                    text(record(3))
+            );
+            assertThat(log.read(records.get(0).next(), 1)).extracting(WriteAheadLog.Record::position)
+                    .containsExactly(second);
+            assertThat(log.read(log.getEnd(), 10)).isEmpty();
+            assertThat(log.getPendingRecords()).isEqualTo(3);
+        }
+    }
+
+    /**
+     * Make sure records after the checkpoint are recovered when the log is opened again.
+     */
+    @Test
+    void pendingRecordsAreRecovered() throws IOException {
+        final long end;
+        try (WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            for (int index = 0; index < 5; index++) {
+                log.append(record(index));
+            }
+            log.checkpoint(log.read(log.getCheckpoint(), 2).get(1).next(), 2);
+            end = log.getEnd();
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            assertThat(log.getEnd()).isEqualTo(end);
+            assertThat(log.getPendingRecords()).isEqualTo(3);
+            assertThat(log.read(log.getCheckpoint(), 10)).extracting(record -> text(record.payload()))
+                    .containsExactly(text(record(2)), text(record(3)), text(record(4)));
+        }
+    }
+
+    /**
+     * Make sure the log continues after a new segment once a record does not fit, and that segments before the
+     * checkpoint are deleted.
+     */
+    @Test
+    void segmentsBeforeCheckpointAreDeleted() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            for (int index = 0; index < 5; index++) {
+                log.append(record(index));
+            }
+            assertThat(segments()).hasSize(3);
+
+            final List<WriteAheadLog.Record> records = log.read(log.getCheckpoint(), 10);
+            assertThat(records).hasSize(5);
+            assertThat(records.get(2).position()).isEqualTo(SEGMENT_SIZE);
+
+            log.checkpoint(records.get(3).next(), 4);
+            assertThat(segments()).hasSize(2);
+            assertThat(segments().get(0).getFileName()).hasToString(String.format("%019d.wal", SEGMENT_SIZE));
+            assertThat(log.getPendingRecords()).isEqualTo(1);
+        }
+    }
+
+    /**
+     * Make sure a record that was only partially written is discarded, and overwritten by the next record.
+     */
+    @Test
+    void tornRecordIsDiscarded() throws IOException {
+        final long torn;
+        try (WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            log.append(record(1));
+            torn = log.append(record(2));
+        }
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.position(torn + WriteAheadLog.HEADER_SIZE).write(ByteBuffer.wrap(new byte[] {'?'}));
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            assertThat(log.getEnd()).isEqualTo(torn);
+            assertThat(log.getPendingRecords()).isEqualTo(1);
+
+            assertThat(log.append(record(3))).isEqualTo(torn);
+            assertThat(log.read(0, 10)).extracting(record -> text(record.payload()))
+                    .containsExactly(text(record(1)), text(record(3)));
+        }
+    }
+
+    /**
+     * Make sure a log cannot be opened twice at the same time.
+     */
+    @Test
+    void logIsLocked() throws IOException {
+        try (WriteAheadLog ignored = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            assertThatThrownBy(() -> new WriteAheadLog(directory, SEGMENT_SIZE))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    /**
+     * Creates a record payload that takes 28 bytes in the log.
+     *
+     * @param index  A number to tell records apart
+     *
+     * @return the payload
+     */
+    private static byte[] record(final int index) {
+        return String.format("record-%013d", index).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a record payload.
+     *
+     * @param payload  The payload
+     *
+     * @return the payload as a string
+     */
+    private static String text(final byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lists the segment files of the log.
+     *
+     * @return the segment files, sorted by position
+     */
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+}
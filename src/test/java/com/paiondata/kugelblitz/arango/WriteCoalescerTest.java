@@ -0,0 +1,229 @@
+/*
+ * Copyright 2025 Paion Data. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.paiondata.kugelblitz.arango;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link WriteCoalescer} unit tests.
+ */
+class WriteCoalescerTest {
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private DocumentService documentService;
+    private WriteCoalescer writeCoalescer;
+
+    /**
+     * Creates a coalescer whose array inserts echo the inserted documents, flagging documents with a
+     * {@code "bad"} field as failed.
+     */
+    @BeforeEach
+    void setUp() {
+        documentService = mock(DocumentService.class);
+        when(documentService.createDocuments(eq("mydatabase"), eq("mycollection"), any(JsonBody.class)))
+                .thenAnswer(invocation -> {
+                    final ArrayNode results = JSON_MAPPER.createArrayNode();
+                    for (final JsonNode document : JSON_MAPPER.readTree(invocation.getArgument(2).toString())) {
+                        if (document.has("bad")) {
+                            results.addObject()
+                                    .put("error", true)
+                                    .put("errorNum", 1210)
+                                    .put("errorMessage", "unique constraint violated");
+                        } else {
+                            results.addObject().put("_key", document.get("_key").asText());
+                        }
+                    }
+                    return CompletableFuture.completedFuture(results);
+                });
+
+        final CollectionProvisioner collectionProvisioner = mock(CollectionProvisioner.class);
+        when(collectionProvisioner.write(any(), any(), any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(2)).get());
+
+        writeCoalescer = new WriteCoalescer();
+        ReflectionTestUtils.setField(writeCoalescer, "documentService", documentService);
+        ReflectionTestUtils.setField(writeCoalescer, "collectionProvisioner", collectionProvisioner);
+        ReflectionTestUtils.setField(writeCoalescer, "enabled", true);
+        ReflectionTestUtils.setField(writeCoalescer, "batchSize", 3);
+        ReflectionTestUtils.setField(writeCoalescer, "linger", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(writeCoalescer, "queueCapacity", 4);
+        ReflectionTestUtils.setField(writeCoalescer, "enqueueTimeout", Duration.ZERO);
+        ReflectionTestUtils.setField(writeCoalescer, "flushThreads", 1);
+        ReflectionTestUtils.setField(writeCoalescer, "maxInFlightBatches", 1);
+        writeCoalescer.afterPropertiesSet();
+    }
+
+    /**
+     * Shuts the coalescer down.
+     */
+    @AfterEach
+    void tearDown() {
+        writeCoalescer.destroy();
+    }
+
+    /**
+     * Make sure a full batch is written as one array insert and each caller gets its own result.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void fullBatchIsWrittenAtOnce() throws Exception {
+        final CompletableFuture<JsonNode> first = submit("first");
+        final CompletableFuture<JsonNode> second = submit("second");
+        final CompletableFuture<JsonNode> third = submit("third");
+
+        assertThat(first.get(500, TimeUnit.MILLISECONDS).get("_key").asText()).isEqualTo("first");
+        assertThat(second.get(500, TimeUnit.MILLISECONDS).get("_key").asText()).isEqualTo("second");
+        assertThat(third.get(500, TimeUnit.MILLISECONDS).get("_key").asText()).isEqualTo("third");
+        verify(documentService, times(1)).createDocuments(eq("mydatabase"), eq("mycollection"), any(JsonBody.class));
+    }
+
+    /**
+     * Make sure a partial batch is written after the linger time.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void partialBatchIsWrittenAfterLinger() throws Exception {
+        final CompletableFuture<JsonNode> only = submit("only");
+
+        assertThat(only.get(3, TimeUnit.SECONDS).get("_key").asText()).isEqualTo("only");
+    }
+
+    /**
+     * Make sure a document rejected by ArangoDB only fails its own caller, with the status and message a
+     * single-document insert would have failed with.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void perDocumentErrorsAreIsolated() throws Exception {
+        final CompletableFuture<JsonNode> good = submit("good");
+        final CompletableFuture<JsonNode> bad = writeCoalescer.submit(
+                "mydatabase",
+                "mycollection",
+                JsonBody.of(JSON_MAPPER.createObjectNode().put("_key", "bad").put("bad", true))
+        );
+        submit("other");
+
+        assertThat(good.get(500, TimeUnit.MILLISECONDS).get("_key").asText()).isEqualTo("good");
+        assertThatThrownBy(() -> bad.get(500, TimeUnit.MILLISECONDS))
+                .cause()
+                .isInstanceOfSatisfying(ArangoApiException.class, exception -> {
+                    assertThat(exception.getStatusCode()).isEqualTo(409);
+                    assertThat(exception.getErrorNum()).isEqualTo(1210);
+                    assertThat(exception.getErrorMessage()).isEqualTo("unique constraint violated");
+                });
+    }
+
+    /**
+     * Make sure callers are rejected with 429 instead of queueing unboundedly while batches are being written.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void fullQueueIsRejected() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CompletableFuture<ArrayNode> written = new CompletableFuture<>();
+        when(documentService.createDocuments(eq("mydatabase"), eq("mycollection"), any(JsonBody.class)))
+                .thenAnswer(invocation -> {
+                    writing.countDown();
+                    return written;
+                });
+
+        try {
+            for (int index = 0; index < 3; index++) {
+                submit("in-flight-" + index);
+            }
+            assertThat(writing.await(1, TimeUnit.SECONDS)).isTrue();
+
+            for (int index = 0; index < 4; index++) {
+                submit("queued-" + index);
+            }
+
+            assertThatThrownBy(() -> submit("rejected"))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .satisfies(exception -> assertThat(((ResponseStatusException) exception).getStatusCode())
+                            .isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+        } finally {
+            written.complete(JSON_MAPPER.createArrayNode());
+        }
+    }
+
+    /**
+     * Make sure the queue of a collection is dropped once it is idle and that dropping a queue does not lose the
+     * documents it holds.
+     *
+     * @throws Exception if any error occurs in tests
+     */
+    @Test
+    void idleQueuesAreDropped() throws Exception {
+        final Cache<?, ?> batchers = (Cache<?, ?>) ReflectionTestUtils.getField(writeCoalescer, "batchers");
+
+        final CompletableFuture<JsonNode> pending = submit("pending");
+        batchers.invalidateAll();
+        assertThat(pending.get(3, TimeUnit.SECONDS).get("_key").asText()).isEqualTo("pending");
+
+        submit("idle").get(3, TimeUnit.SECONDS);
+        assertThat(batchers.estimatedSize()).isEqualTo(1);
+        batchers.policy().expireAfterAccess().orElseThrow().setExpiresAfter(Duration.ofNanos(1));
+        batchers.cleanUp();
+        assertThat(batchers.estimatedSize()).isZero();
+
+        assertThat(submit("again").get(3, TimeUnit.SECONDS).get("_key").asText()).isEqualTo("again");
+    }
+
+    /**
+     * Submits a document with the given key.
+     *
+     * @param key  The {@code _key} of the document
+     *
+     * @return the future result of the insert
+     */
+    private CompletableFuture<JsonNode> submit(final String key) {
+        return writeCoalescer.submit(
+                "mydatabase",
+                "mycollection",
+                JsonBody.of(JSON_MAPPER.createObjectNode().put("_key", key))
+        );
+    }
+}